@@ -14,6 +14,7 @@ import litematica.gui.ConfigScreen;
 import litematica.input.LitematicaHotkeyProvider;
 import litematica.input.MouseScrollHandlerImpl;
 import litematica.network.SchematicSavePacketHandler;
+import litematica.render.infohud.RenderMetricsHudRenderer;
 import litematica.render.infohud.StatusInfoRenderer;
 import litematica.scheduler.ClientTickHandler;
 import litematica.util.LitematicaDirectories;
@@ -47,6 +48,7 @@ public class InitHandler implements InitializationHandler
 
         HotkeyCallbacks.init();
         StatusInfoRenderer.init();
+        RenderMetricsHudRenderer.init();
 
         // This creates the directories if they don't exist yet
         LitematicaDirectories.getAreaSelectionsBaseDirectory();
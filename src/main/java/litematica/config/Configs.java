@@ -56,10 +56,16 @@ public class Configs
         public static final BooleanConfig FIX_RAIL_ROTATION                         = new BooleanConfig("fixRailRotation", true);
         public static final BooleanConfig GENERATE_LOWERCASE_NAMES                  = new BooleanConfig("generateLowerCaseNames", false);
         public static final BooleanConfig LOAD_ENTIRE_SCHEMATICS                    = new BooleanConfig("loadEntireSchematics", false);
+        public static final IntegerConfig MAPPED_BLOCK_STORAGE_THRESHOLD            = new IntegerConfig("mappedBlockStorageThreshold", 0, 0, 1048576);
         public static final BooleanConfig MATERIAL_LIST_IGNORE_BLOCK_STATE          = new BooleanConfig("materialListIgnoreBlockState", false);
+        public static final BooleanConfig MATERIAL_LIST_INCREMENTAL_UPDATES         = new BooleanConfig("materialListIncrementalUpdates", true);
         public static final BooleanConfig MATERIALS_FROM_CONTAINER                  = new BooleanConfig("materialListFromContainer", true);
         public static final IntegerConfig PASTE_COMMAND_INTERVAL                    = new IntegerConfig("pasteCommandInterval", 1, 1, 1000);
+        public static final BooleanConfig PASTE_COMMAND_ADAPTIVE_RATE               = new BooleanConfig("pasteCommandAdaptiveRate", true);
         public static final IntegerConfig PASTE_COMMAND_LIMIT                       = new IntegerConfig("pasteCommandLimit", 64, 1, 1000);
+        public static final BooleanConfig PASTE_COMMAND_RESUME                      = new BooleanConfig("pasteCommandResume", true);
+        public static final BooleanConfig PASTE_COMMAND_USE_FILL                    = new BooleanConfig("pasteCommandUseFill", true);
+        public static final BooleanConfig PASTE_DIRECT_PARALLEL                     = new BooleanConfig("pasteDirectParallel", false);
         public static final BooleanConfig PICK_BLOCK_AVOID_DAMAGEABLE               = new BooleanConfig("pickBlockAvoidDamageable", true);
         public static final BooleanConfig PICK_BLOCK_AVOID_TOOLS                    = new BooleanConfig("pickBlockAvoidTools", false);
         public static final BooleanConfig PICK_BLOCK_IGNORE_NBT                     = new BooleanConfig("pickBlockIgnoreNBT", true);
@@ -68,8 +74,13 @@ public class Configs
         public static final BooleanConfig PLACEMENTS_INFRONT                        = new BooleanConfig("placementInfrontOfPlayer", false);
         public static final BooleanConfig RENDER_MATERIALS_IN_GUI                   = new BooleanConfig("renderMaterialListInGuis", true);
         public static final BooleanConfig RENDER_THREAD_NO_TIMEOUT                  = new BooleanConfig("renderThreadNoTimeout", true);
+        public static final IntegerConfig RENDER_THREADS_MAX                        = new IntegerConfig("renderThreadsMax", 0, 0, 64);
         public static final BooleanConfig REQUIRE_ADJACENT_CHUNKS                   = new BooleanConfig("requireAdjacentChunks", true);
+        public static final IntegerConfig SCHEMATIC_SAVE_COMPRESSION_LEVEL          = new IntegerConfig("schematicSaveCompressionLevel", 6, 1, 9);
+        public static final BooleanConfig SCHEMATIC_SAVE_PARALLEL                   = new BooleanConfig("schematicSaveParallelCompression", true);
+        public static final BooleanConfig SECTIONED_BLOCK_CONTAINERS                = new BooleanConfig("sectionedBlockContainers", false);
         public static final StringConfig  TOOL_ITEM                                 = new StringConfig( "toolItem", "minecraft:stick");
+        public static final BooleanConfig VERIFIER_INCREMENTAL_UPDATES              = new BooleanConfig("verifierIncrementalUpdates", true);
 
         public static final OptionListConfig<AreaSelectionType>     DEFAULT_AREA_SELECTION_MODE = new OptionListConfig<>("defaultAreaSelectionMode", AreaSelectionType.SIMPLE, AreaSelectionType.VALUES);
         public static final OptionListConfig<ReplaceBehavior>       PASTE_REPLACE_BEHAVIOR      = new OptionListConfig<>("pasteReplaceBehavior", ReplaceBehavior.NONE, ReplaceBehavior.VALUES);
@@ -92,11 +103,17 @@ public class Configs
                 FIX_RAIL_ROTATION,
                 GENERATE_LOWERCASE_NAMES,
                 LOAD_ENTIRE_SCHEMATICS,
+                MAPPED_BLOCK_STORAGE_THRESHOLD,
                 MATERIAL_LIST_IGNORE_BLOCK_STATE,
+                MATERIAL_LIST_INCREMENTAL_UPDATES,
                 MATERIALS_FROM_CONTAINER,
                 PASTE_REPLACE_BEHAVIOR,
                 PASTE_COMMAND_INTERVAL,
+                PASTE_COMMAND_ADAPTIVE_RATE,
                 PASTE_COMMAND_LIMIT,
+                PASTE_COMMAND_RESUME,
+                PASTE_COMMAND_USE_FILL,
+                PASTE_DIRECT_PARALLEL,
                 PICK_BLOCK_AUTO,
                 PICK_BLOCK_AVOID_DAMAGEABLE,
                 PICK_BLOCK_AVOID_TOOLS,
@@ -108,12 +125,17 @@ public class Configs
                 PLACEMENTS_INFRONT,
                 RENDER_MATERIALS_IN_GUI,
                 RENDER_THREAD_NO_TIMEOUT,
+                RENDER_THREADS_MAX,
                 REQUIRE_ADJACENT_CHUNKS,
                 SCHEMATIC_BROWSER_COLUMNS,
+                SCHEMATIC_SAVE_COMPRESSION_LEVEL,
+                SCHEMATIC_SAVE_PARALLEL,
+                SECTIONED_BLOCK_CONTAINERS,
                 SIGN_TEXT_PASTE,
                 TOOL_ITEM_ENABLED,
                 TOOL_ITEM,
-                TOOL_SELECTION_MODE
+                TOOL_SELECTION_MODE,
+                VERIFIER_INCREMENTAL_UPDATES
         );
 
         public static final ImmutableList<HotkeyedBooleanConfig> HOTKEYS = ImmutableList.of(
@@ -149,6 +171,11 @@ public class Configs
 
         public static final BooleanConfig IGNORE_EXISTING_FLUIDS                    = new BooleanConfig("ignoreExistingFluids", true);
         public static final BooleanConfig OVERLAY_REDUCED_INNER_SIDES               = new BooleanConfig("overlayReducedInnerSides", false);
+        public static final IntegerConfig SCHEMATIC_LOD_CELL_SIZE                   = new IntegerConfig("schematicLodCellSize", 4, 1, 64);
+        public static final BooleanConfig SCHEMATIC_LOD_RENDERING                   = new BooleanConfig("schematicLodRendering", false);
+        public static final BooleanConfig SCHEMATIC_MESH_CACHE                      = new BooleanConfig("schematicMeshCache", true);
+        public static final BooleanConfig SCHEMATIC_OCCLUSION_CULLING               = new BooleanConfig("schematicOcclusionCulling", true);
+        public static final BooleanConfig SCHEMATIC_OVERLAY_GREEDY_MESHING          = new BooleanConfig("schematicOverlayGreedyMeshing", true);
         public static final BooleanConfig SCHEMATIC_OVERLAY_MODEL_OUTLINE           = new BooleanConfig("schematicOverlayModelOutline", true);
         public static final BooleanConfig SCHEMATIC_OVERLAY_MODEL_SIDES             = new BooleanConfig("schematicOverlayModelSides", true);
         public static final BooleanConfig SCHEMATIC_OVERLAY_OUTLINES                = new BooleanConfig("schematicOverlayOutlines", true);
@@ -180,6 +207,11 @@ public class Configs
                 PLACEMENT_BOX_RENDERING,
                 PLACEMENT_BOX_SIDES,
                 PLACEMENT_ENCLOSING_BOX_SIDES,
+                SCHEMATIC_LOD_CELL_SIZE,
+                SCHEMATIC_LOD_RENDERING,
+                SCHEMATIC_MESH_CACHE,
+                SCHEMATIC_OCCLUSION_CULLING,
+                SCHEMATIC_OVERLAY_GREEDY_MESHING,
                 SCHEMATIC_OVERLAY_MODEL_OUTLINE,
                 SCHEMATIC_OVERLAY_MODEL_SIDES,
                 SCHEMATIC_OVERLAY_OUTLINES,
@@ -215,6 +247,7 @@ public class Configs
     {
         public static final HotkeyedBooleanConfig BLOCK_INFO_LINES_RENDERING        = new HotkeyedBooleanConfig("blockInfoLines", true, "");
         public static final HotkeyedBooleanConfig BLOCK_INFO_OVERLAY_RENDERING      = new HotkeyedBooleanConfig("blockInfoOverlay", true, "");
+        public static final HotkeyedBooleanConfig RENDER_METRICS_HUD                = new HotkeyedBooleanConfig("renderMetricsHud", false, "");
         public static final HotkeyedBooleanConfig STATUS_INFO_HUD_RENDERING         = new HotkeyedBooleanConfig("statusInfoHud", false, "");
         public static final HotkeyedBooleanConfig VERIFIER_OVERLAY_RENDERING        = new HotkeyedBooleanConfig("verifierOverlay", true, "");
 
@@ -245,6 +278,7 @@ public class Configs
         public static final ImmutableList<ConfigOption<?>> OPTIONS = ImmutableList.of(
                 BLOCK_INFO_LINES_RENDERING,
                 BLOCK_INFO_OVERLAY_RENDERING,
+                RENDER_METRICS_HUD,
                 STATUS_INFO_HUD_RENDERING,
                 VERIFIER_OVERLAY_RENDERING,
 
@@ -277,6 +311,7 @@ public class Configs
         public static final ImmutableList<HotkeyedBooleanConfig> HOTKEYS = ImmutableList.of(
                 BLOCK_INFO_LINES_RENDERING,
                 BLOCK_INFO_OVERLAY_RENDERING,
+                RENDER_METRICS_HUD,
                 STATUS_INFO_HUD_RENDERING,
                 VERIFIER_OVERLAY_RENDERING
         );
@@ -1,5 +1,7 @@
 package litematica.config;
 
+import java.nio.file.Path;
+
 import net.minecraft.util.Rotation;
 import net.minecraft.util.math.BlockPos;
 
@@ -10,10 +12,12 @@ import malilib.input.KeyBind;
 import malilib.input.callback.HotkeyCallback;
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.ListUtils;
+import malilib.util.StringUtils;
 import malilib.util.game.wrap.EntityWrap;
 import malilib.util.game.wrap.GameUtils;
 import litematica.data.DataManager;
 import litematica.input.MouseScrollHandlerImpl;
+import litematica.render.schematic.RenderMetrics;
 import litematica.scheduler.TaskScheduler;
 import litematica.scheduler.tasks.SetSchematicPreviewTask;
 import litematica.schematic.placement.SchematicPlacement;
@@ -89,6 +93,23 @@ public class HotkeyCallbackMisc implements HotkeyCallback
                 }
             }
         }
+        else if (key == Hotkeys.DUMP_RENDER_METRICS.getKeyBind())
+        {
+            Path file = RenderMetrics.getInstance().dumpToFile();
+
+            if (file != null)
+            {
+                String msgKey = "litematica.message.info.render_metrics.written_to_file";
+                MessageDispatcher.generic(msgKey, file.getFileName().toString());
+                StringUtils.sendOpenFileChatMessage(msgKey, file);
+            }
+            else
+            {
+                MessageDispatcher.warning().translate("litematica.message.warn.render_metrics.no_data");
+            }
+
+            return ActionResult.SUCCESS;
+        }
         else if (key == Hotkeys.DUPLICATE_PLACEMENT.getKeyBind())
         {
             if (DataManager.getSchematicPlacementManager().duplicateSelectedPlacement())
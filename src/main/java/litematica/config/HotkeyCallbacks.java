@@ -40,6 +40,7 @@ public class HotkeyCallbacks
         Hotkeys.ADD_SELECTION_BOX.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.CLONE_SELECTION.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.DELETE_SELECTION_BOX.getKeyBind().setCallback(hotkeyCallbackMisc);
+        Hotkeys.DUMP_RENDER_METRICS.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.DUPLICATE_PLACEMENT.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.EXECUTE_OPERATION.getKeyBind().setCallback(hotkeyCallbackMisc);
         Hotkeys.LAYER_MODE_NEXT.getKeyBind().setCallback(hotkeyCallbackMisc);
@@ -90,6 +91,7 @@ public class HotkeyCallbacks
         Configs.Visuals.RENDER_COLLIDING_SCHEMATIC_BLOCKS.addValueChangeListener(refreshCallback);
         Configs.Visuals.TRANSLUCENT_INNER_SIDES.addValueChangeListener(refreshCallback);
         Configs.Visuals.SCHEMATIC_BLOCKS_RENDERING.addValueChangeListener(refreshCallback);
+        Configs.Visuals.SCHEMATIC_OVERLAY_GREEDY_MESHING.addValueChangeListener(refreshCallback);
         Configs.Visuals.SCHEMATIC_OVERLAY_MODEL_OUTLINE.addValueChangeListener(refreshCallback);
         Configs.Visuals.SCHEMATIC_OVERLAY_MODEL_SIDES.addValueChangeListener(refreshCallback);
         Configs.Visuals.SCHEMATIC_OVERLAY_OUTLINES.addValueChangeListener(refreshCallback);
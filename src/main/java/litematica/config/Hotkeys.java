@@ -12,6 +12,7 @@ public class Hotkeys
     public static final HotkeyConfig CLONE_SELECTION                        = new HotkeyConfig("cloneSelection",                    "");
     public static final HotkeyConfig CREATE_SCHEMATIC_IN_MEMORY             = new HotkeyConfig("createSchematicInMemory",           "");
     public static final HotkeyConfig DELETE_SELECTION_BOX                   = new HotkeyConfig("deleteSelectionBox",                "");
+    public static final HotkeyConfig DUMP_RENDER_METRICS                    = new HotkeyConfig("dumpRenderMetrics",                 "");
     public static final HotkeyConfig DUPLICATE_PLACEMENT                    = new HotkeyConfig("duplicatePlacement",                "");
     public static final HotkeyConfig EASY_PLACE_ACTIVATION                  = new HotkeyConfig("easyPlaceActivation",               "", KeyBindSettings.INGAME_MODIFIER_EMPTY);
     public static final HotkeyConfig EXECUTE_OPERATION                      = new HotkeyConfig("executeOperation",                  "");
@@ -84,6 +85,7 @@ public class Hotkeys
             CLONE_SELECTION,
             CREATE_SCHEMATIC_IN_MEMORY,
             DELETE_SELECTION_BOX,
+            DUMP_RENDER_METRICS,
             DUPLICATE_PLACEMENT,
             EASY_PLACE_ACTIVATION,
             EXECUTE_OPERATION,
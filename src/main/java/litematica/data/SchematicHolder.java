@@ -4,15 +4,22 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 import litematica.schematic.ISchematic;
 import litematica.schematic.SchematicType;
+import litematica.schematic.container.MappedLongArray;
+import litematica.schematic.util.SchematicReadMessages;
 
 public class SchematicHolder
 {
     private static final SchematicHolder INSTANCE = new SchematicHolder();
     private final List<ISchematic> schematics = new ArrayList<>();
+    @Nullable private ExecutorService loaderExecutor;
 
     public static SchematicHolder getInstance()
     {
@@ -21,7 +28,13 @@ public class SchematicHolder
 
     public void clearLoadedSchematics()
     {
+        for (ISchematic schematic : this.schematics)
+        {
+            schematic.closeMappedContainers();
+        }
+
         this.schematics.clear();
+        MappedLongArray.retryPendingDeletions();
     }
 
     public List<ISchematic> getAllOf(Path file)
@@ -65,6 +78,61 @@ public class SchematicHolder
         return schematic;
     }
 
+    /**
+     * Reads the schematic from the given file on a background thread.
+     * The schematic is <b>not</b> added to the holder by this method,
+     * that should be done on the client thread once the returned future is done,
+     * see {@link litematica.scheduler.tasks.TaskLoadSchematic}.
+     * A new schematic instance is always read, even if the file is already loaded.
+     * Cancelling the returned future with interruption also aborts the file reading.
+     * The error messages from the reading are not shown from the loader thread,
+     * instead they are returned in the result, to be shown on the client thread.
+     */
+    public Future<LoadResult> loadAsync(Path file)
+    {
+        return this.getLoaderExecutor().submit(() -> {
+            ISchematic schematic = null;
+            List<SchematicReadMessages.Message> messages;
+
+            SchematicReadMessages.startCollecting();
+
+            try
+            {
+                schematic = SchematicType.tryCreateSchematicFrom(file);
+            }
+            finally
+            {
+                messages = SchematicReadMessages.stopCollecting();
+            }
+
+            return new LoadResult(schematic, messages);
+        });
+    }
+
+    /**
+     * Adds the given schematic, unless a schematic from the same file has already been added,
+     * in which case the existing schematic is returned instead.
+     */
+    public ISchematic getOrAdd(ISchematic schematic)
+    {
+        Path file = schematic.getFile();
+
+        if (file != null)
+        {
+            for (ISchematic tmp : this.schematics)
+            {
+                if (file.equals(tmp.getFile()))
+                {
+                    return tmp;
+                }
+            }
+        }
+
+        this.addSchematic(schematic, false);
+
+        return schematic;
+    }
+
     public void addSchematic(ISchematic schematic, boolean allowDuplicates)
     {
         if (allowDuplicates || this.schematics.contains(schematic) == false)
@@ -89,6 +157,12 @@ public class SchematicHolder
         if (this.schematics.remove(schematic))
         {
             DataManager.getSchematicPlacementManager().removeAllPlacementsOfSchematic(schematic);
+
+            // The same instance may have been added more than once
+            if (this.schematics.contains(schematic) == false)
+            {
+                schematic.closeMappedContainers();
+            }
             return true;
         }
 
@@ -99,4 +173,34 @@ public class SchematicHolder
     {
         return this.schematics;
     }
+
+    private ExecutorService getLoaderExecutor()
+    {
+        if (this.loaderExecutor == null)
+        {
+            AtomicInteger threadCount = new AtomicInteger();
+            int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+            this.loaderExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "Litematica Schematic Loader " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        }
+
+        return this.loaderExecutor;
+    }
+
+    public static class LoadResult
+    {
+        @Nullable public final ISchematic schematic;
+        public final List<SchematicReadMessages.Message> messages;
+
+        public LoadResult(@Nullable ISchematic schematic, List<SchematicReadMessages.Message> messages)
+        {
+            this.schematic = schematic;
+            this.messages = messages;
+        }
+    }
 }
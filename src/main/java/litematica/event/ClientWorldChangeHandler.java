@@ -5,6 +5,9 @@ import javax.annotation.Nullable;
 import net.minecraft.client.multiplayer.WorldClient;
 
 import litematica.data.DataManager;
+import litematica.materials.MaterialCache;
+import litematica.scheduler.tasks.TaskPasteSchematicPerChunkCommand;
+import litematica.util.ServerTickRateTracker;
 import litematica.world.SchematicWorldHandler;
 
 public class ClientWorldChangeHandler implements malilib.event.ClientWorldChangeHandler
@@ -17,6 +20,11 @@ public class ClientWorldChangeHandler implements malilib.event.ClientWorldChange
         {
             boolean isDimensionChange = worldAfter != null;
             DataManager.save(isDimensionChange);
+
+            if (isDimensionChange == false)
+            {
+                MaterialCache.getInstance().writeToFile();
+            }
         }
     }
 
@@ -24,11 +32,19 @@ public class ClientWorldChangeHandler implements malilib.event.ClientWorldChange
     public void onPostClientWorldChange(@Nullable WorldClient worldBefore, @Nullable WorldClient worldAfter)
     {
         SchematicWorldHandler.recreateSchematicWorld(worldAfter == null);
+        ServerTickRateTracker.INSTANCE.reset();
 
         if (worldAfter != null)
         {
             boolean isDimensionChange = worldBefore != null;
             DataManager.load(isDimensionChange);
+
+            if (isDimensionChange == false)
+            {
+                MaterialCache.getInstance().readFromFileAndPrecompute();
+            }
+
+            TaskPasteSchematicPerChunkCommand.resumeInterruptedPaste();
         }
         else
         {
@@ -14,6 +14,7 @@ import litematica.data.DataManager;
 import litematica.gui.util.SchematicBrowserIconProvider;
 import litematica.gui.widget.SchematicInfoWidgetByPath;
 import litematica.schematic.ISchematic;
+import litematica.schematic.SchematicMetadataIndex;
 import litematica.schematic.SchematicType;
 import litematica.util.LitematicaDirectories;
 
@@ -97,6 +98,7 @@ public class BaseSchematicBrowserScreen extends BaseListScreen<BaseFileBrowserWi
     protected void clearSchematicInfoCache()
     {
         this.schematicInfoWidget.clearCache();
+        SchematicMetadataIndex.getInstance().writeToFile();
     }
 
     protected void onSchematicChange()
@@ -1,6 +1,7 @@
 package litematica.gui;
 
 import java.nio.file.Path;
+import javax.annotation.Nullable;
 
 import malilib.gui.widget.CheckBoxWidget;
 import malilib.gui.widget.button.GenericButton;
@@ -12,6 +13,8 @@ import litematica.config.Configs;
 import litematica.data.DataManager;
 import litematica.data.SchematicHolder;
 import litematica.materials.MaterialListUtils;
+import litematica.scheduler.TaskScheduler;
+import litematica.scheduler.tasks.TaskLoadSchematic;
 import litematica.schematic.ISchematic;
 import litematica.schematic.SchematicType;
 import litematica.schematic.placement.SchematicPlacementManager;
@@ -63,25 +66,41 @@ public class SchematicBrowserScreen extends BaseSchematicBrowserScreen
 
     protected void loadSchematic()
     {
-        ISchematic schematic = tryLoadSchematic(this.getListWidget().getEntrySelectionHandler().getLastSelectedEntry());
+        DirectoryEntry entry = this.getListWidget().getEntrySelectionHandler().getLastSelectedEntry();
+        Path file = entry != null && entry.getType() == DirectoryEntryType.FILE ? entry.getFullPath() : null;
 
-        if (schematic == null)
+        if (file == null)
         {
+            MessageDispatcher.error("litematica.message.error.schematic_load.no_schematic_selected");
             return;
         }
 
-        SchematicHolder.getInstance().addSchematic(schematic, true);
-        MessageDispatcher.success("litematica.message.info.schematic_loaded_to_memory",
-                                  schematic.getFile().getFileName().toString());
+        // The schematic is read on a background thread, and added once it's ready
+        boolean createAsEnabled = isShiftDown() == false;
+        TaskLoadSchematic task = new TaskLoadSchematic(file, schematic -> onSchematicLoaded(schematic, createAsEnabled));
+        TaskScheduler.getInstanceClient().scheduleTask(task, 1);
 
         // Clear the parent after loading as schematic, as presumably in most cases
         // the user would just want to close the screen at that point.
         this.setParent(null);
+    }
+
+    protected static void onSchematicLoaded(@Nullable ISchematic schematic, boolean createAsEnabled)
+    {
+        if (schematic == null)
+        {
+            MessageDispatcher.error("litematica.message.error.schematic_load.invalid_schematic_file");
+            return;
+        }
+
+        SchematicHolder.getInstance().addSchematic(schematic, true);
+        MessageDispatcher.success("litematica.message.info.schematic_loaded_to_memory",
+                                  schematic.getFile().getFileName().toString());
 
         if (Configs.Internal.CREATE_PLACEMENT_ON_LOAD.getBooleanValue())
         {
             SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
-            manager.createPlacementForNewlyLoadedSchematic(schematic, isShiftDown() == false);
+            manager.createPlacementForNewlyLoadedSchematic(schematic, createAsEnabled);
         }
     }
 
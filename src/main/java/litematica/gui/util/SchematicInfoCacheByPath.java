@@ -5,15 +5,12 @@ import java.util.Locale;
 import javax.annotation.Nullable;
 
 import net.minecraft.client.renderer.texture.DynamicTexture;
-import net.minecraft.nbt.NBTTagCompound;
 
 import malilib.util.FileNameUtils;
 import malilib.util.data.Identifier;
-import malilib.util.nbt.NbtUtils;
 import litematica.Reference;
-import litematica.schematic.ISchematic;
 import litematica.schematic.SchematicMetadata;
-import litematica.schematic.SchematicType;
+import litematica.schematic.SchematicMetadataIndex;
 
 public class SchematicInfoCacheByPath extends AbstractSchematicInfoCache<Path>
 {
@@ -21,22 +18,15 @@ public class SchematicInfoCacheByPath extends AbstractSchematicInfoCache<Path>
     @Nullable
     protected SchematicInfo createSchematicInfo(Path file)
     {
-        // TODO Use a partial NBT read method to only read the metadata tag
-        // TODO (that's only beneficial if it's stored before the bulk schematic data in the stream)
-        NBTTagCompound tag = NbtUtils.readNbtFromFile(file);
+        // The index skips reading unchanged files when possible, otherwise only the Metadata tag is read
+        SchematicMetadata metadata = SchematicMetadataIndex.getInstance().getOrReadMetadata(file);
 
-        if (tag != null)
+        if (metadata != null)
         {
-            ISchematic schematic = SchematicType.tryCreateSchematicFrom(file, tag);
-
-            if (schematic != null)
-            {
-                SchematicMetadata metadata = schematic.getMetadata();
-                String filePath = FileNameUtils.generateSimpleSafeFileName(file.toAbsolutePath().toString().toLowerCase(Locale.ROOT));
-                Identifier iconName = new Identifier(Reference.MOD_ID, filePath);
-                DynamicTexture texture = this.createPreviewImage(iconName, metadata);
-                return new SchematicInfo(metadata, iconName, texture);
-            }
+            String filePath = FileNameUtils.generateSimpleSafeFileName(file.toAbsolutePath().toString().toLowerCase(Locale.ROOT));
+            Identifier iconName = new Identifier(Reference.MOD_ID, filePath);
+            DynamicTexture texture = this.createPreviewImage(iconName, metadata);
+            return new SchematicInfo(metadata, iconName, texture);
         }
 
         return null;
@@ -1,5 +1,6 @@
 package litematica.gui.widget.list.entry;
 
+import malilib.gui.util.ScreenContext;
 import malilib.gui.widget.button.GenericButton;
 import malilib.gui.widget.list.entry.BaseDataListEntryWidget;
 import malilib.gui.widget.list.entry.DataListEntryWidgetData;
@@ -10,6 +11,7 @@ import litematica.scheduler.TaskScheduler;
 public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
 {
     protected final GenericButton removeButton;
+    protected String displayName;
 
     public TaskEntryWidget(ITask data, DataListEntryWidgetData constructData)
     {
@@ -25,7 +27,8 @@ public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
             this.listWidget.refreshEntries();
         });
 
-        this.setText(StyledTextLine.of(data.getDisplayName()));
+        this.displayName = data.getDisplayName();
+        this.setText(StyledTextLine.of(this.displayName));
     }
 
     @Override
@@ -44,4 +47,19 @@ public class TaskEntryWidget extends BaseDataListEntryWidget<ITask>
         this.removeButton.setRight(this.getRight() - 2);
         this.removeButton.setY(this.getY() + 1);
     }
+
+    @Override
+    public void renderAt(int x, int y, float z, ScreenContext ctx)
+    {
+        // Some tasks, like the schematic loading task, show their progress in the display name
+        String displayName = this.getData().getDisplayName();
+
+        if (displayName.equals(this.displayName) == false)
+        {
+            this.displayName = displayName;
+            this.setText(StyledTextLine.of(displayName));
+        }
+
+        super.renderAt(x, y, z, ctx);
+    }
 }
@@ -1,11 +1,16 @@
 package litematica.materials;
 
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IdentityHashMap;
-import java.util.Map;
+import java.util.List;
 import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
 
@@ -22,11 +27,9 @@ import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.Minecraft;
 import net.minecraft.init.Blocks;
 import net.minecraft.init.Items;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.CompressedStreamTools;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
-import net.minecraft.nbt.NBTUtil;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3i;
 import net.minecraft.world.EnumDifficulty;
@@ -37,22 +40,39 @@ import net.minecraft.world.WorldType;
 
 import malilib.config.util.ConfigUtils;
 import malilib.util.FileUtils;
-import malilib.util.data.Constants;
 import malilib.util.game.wrap.ItemWrap;
-import malilib.util.game.wrap.NbtWrap;
 import litematica.Litematica;
 import litematica.Reference;
+import litematica.scheduler.TaskScheduler;
+import litematica.scheduler.tasks.TaskPrecomputeMaterialCache;
 import litematica.util.WorldUtils;
 import litematica.world.WorldSchematic;
 
+/**
+ * Caches the items required for building each block state, and the items used for displaying them.
+ * The items are stored in arrays indexed by the block state ID, and they are
+ * saved to a binary cache file, which is only used while the block and item registries
+ * (and so also the state and item IDs) are the same as when the file was written.
+ * All the registered block states get resolved in the background (time-sliced on the client thread)
+ * after joining a world, so that opening a material list doesn't need to resolve thousands of states.
+ */
 public class MaterialCache
 {
     private static final MaterialCache INSTANCE = new MaterialCache();
 
+    /** Increase this when the file format or the state to item logic changes, to invalidate the old cache files */
+    protected static final int CACHE_FORMAT_VERSION = 1;
+    protected static final int CACHE_FILE_MAGIC = 0x4C4D4331;
+
+    /** For the states that don't have a valid block state ID */
     protected final IdentityHashMap<IBlockState, ItemStack> buildItemsForStates = new IdentityHashMap<>();
     protected final IdentityHashMap<IBlockState, ItemStack> displayItemsForStates = new IdentityHashMap<>();
     protected final WorldSchematic tempWorld;
     protected final BlockPos checkPos;
+    protected ItemStack[] buildItemsById = new ItemStack[0];
+    protected ItemStack[] displayItemsById = new ItemStack[0];
+    @Nullable protected List<IBlockState> statesToPrecompute;
+    protected int precomputeIndex;
     protected boolean hasReadFromFile;
     protected boolean dirty;
 
@@ -68,19 +88,107 @@ public class MaterialCache
 
     public static MaterialCache getInstance()
     {
-        /*
-        if (INSTANCE.hasReadFromFile == false)
-        {
-            INSTANCE.readFromFile();
-        }
-        */
-
         return INSTANCE;
     }
 
     public void clearCache()
     {
         this.buildItemsForStates.clear();
+        this.displayItemsForStates.clear();
+        this.buildItemsById = new ItemStack[0];
+        this.displayItemsById = new ItemStack[0];
+        this.statesToPrecompute = null;
+        this.dirty = true;
+    }
+
+    /**
+     * Reads the cache file if it hasn't been read yet, and then schedules
+     * a task to resolve all the registered block states that are not cached yet.
+     * This is meant to be called when joining a world.
+     */
+    public void readFromFileAndPrecompute()
+    {
+        if (this.hasReadFromFile == false)
+        {
+            this.readFromFile();
+            this.hasReadFromFile = true;
+        }
+
+        // The task gets removed when leaving the world, in which case it just continues where it was
+        if (TaskScheduler.getInstanceClient().hasTask(TaskPrecomputeMaterialCache.class))
+        {
+            return;
+        }
+
+        if (this.statesToPrecompute == null)
+        {
+            List<IBlockState> states = new ArrayList<>();
+
+            for (Block block : Block.REGISTRY)
+            {
+                for (IBlockState state : block.getBlockState().getValidStates())
+                {
+                    int id = getStateId(state);
+
+                    if (id >= 0 && (getCachedItem(this.buildItemsById, id) == null ||
+                                    getCachedItem(this.displayItemsById, id) == null))
+                    {
+                        states.add(state);
+                    }
+                }
+            }
+
+            if (states.isEmpty())
+            {
+                return;
+            }
+
+            this.statesToPrecompute = states;
+            this.precomputeIndex = 0;
+        }
+
+        TaskScheduler.getInstanceClient().scheduleTask(new TaskPrecomputeMaterialCache(), 1);
+    }
+
+    /**
+     * Resolves the items for the not yet cached block states, until the given time has been used
+     * @return true if all the states have been resolved
+     */
+    public boolean precomputeStates(long maxNanos)
+    {
+        List<IBlockState> states = this.statesToPrecompute;
+
+        if (states == null)
+        {
+            return true;
+        }
+
+        final long startTime = System.nanoTime();
+
+        while (this.precomputeIndex < states.size())
+        {
+            IBlockState state = states.get(this.precomputeIndex++);
+
+            try
+            {
+                // The states with the same ID as an already resolved state get skipped in the getters
+                this.getRequiredBuildItemForState(state);
+                this.getItemForDisplayNameForState(state);
+            }
+            catch (Exception e)
+            {
+                Litematica.logger.warn("MaterialCache: Failed to get the item for block state '{}'", state, e);
+            }
+
+            if (System.nanoTime() - startTime >= maxNanos)
+            {
+                return false;
+            }
+        }
+
+        this.statesToPrecompute = null;
+
+        return true;
     }
 
     public ItemStack getRequiredBuildItemForState(IBlockState state)
@@ -90,7 +198,8 @@ public class MaterialCache
 
     public ItemStack getRequiredBuildItemForState(IBlockState state, World world, BlockPos pos)
     {
-        ItemStack stack = this.buildItemsForStates.get(state);
+        int id = getStateId(state);
+        ItemStack stack = id >= 0 ? getCachedItem(this.buildItemsById, id) : this.buildItemsForStates.get(state);
 
         if (stack == null)
         {
@@ -102,7 +211,8 @@ public class MaterialCache
 
     public ItemStack getItemForDisplayNameForState(IBlockState state)
     {
-        ItemStack stack = this.displayItemsForStates.get(state);
+        int id = getStateId(state);
+        ItemStack stack = id >= 0 ? getCachedItem(this.displayItemsById, id) : this.displayItemsForStates.get(state);
 
         if (stack == null)
         {
@@ -131,7 +241,20 @@ public class MaterialCache
             this.overrideStackSize(state, stack);
         }
 
-        if (isBuildItem)
+        int id = getStateId(state);
+
+        if (id >= 0)
+        {
+            if (isBuildItem)
+            {
+                this.buildItemsById = setCachedItem(this.buildItemsById, id, stack);
+            }
+            else
+            {
+                this.displayItemsById = setCachedItem(this.displayItemsById, id, stack);
+            }
+        }
+        else if (isBuildItem)
         {
             this.buildItemsForStates.put(state, stack);
         }
@@ -145,6 +268,34 @@ public class MaterialCache
         return stack;
     }
 
+    /**
+     * @return the ID of the block state, or -1 if the block is not registered.
+     * The states that only differ in their actual state properties share the same ID,
+     * which is fine here, as the items only depend on the meta value of the state.
+     */
+    protected static int getStateId(IBlockState state)
+    {
+        return Block.getIdFromBlock(state.getBlock()) >= 0 ? Block.getStateId(state) : -1;
+    }
+
+    @Nullable
+    protected static ItemStack getCachedItem(ItemStack[] items, int id)
+    {
+        return id < items.length ? items[id] : null;
+    }
+
+    protected static ItemStack[] setCachedItem(ItemStack[] items, int id, ItemStack stack)
+    {
+        if (id >= items.length)
+        {
+            items = Arrays.copyOf(items, Math.max(id + 1, items.length * 2));
+        }
+
+        items[id] = stack;
+
+        return items;
+    }
+
     public boolean requiresMultipleItems(IBlockState state)
     {
         Block block = state.getBlock();
@@ -286,68 +437,78 @@ public class MaterialCache
         }
     }
 
-    protected NBTTagCompound writeToNBT()
-    {
-        NBTTagCompound nbt = new NBTTagCompound();
-
-        NbtWrap.putTag(nbt, "MaterialCache", this.writeMapToNBT(this.buildItemsForStates));
-        NbtWrap.putTag(nbt, "DisplayMaterialCache", this.writeMapToNBT(this.displayItemsForStates));
-
-        return nbt;
-    }
-
-    protected NBTTagList writeMapToNBT(IdentityHashMap<IBlockState, ItemStack> map)
+    /**
+     * @return a hash of the block and item registries, which changes
+     * if the registered blocks or items or their IDs change
+     */
+    protected static long getRegistryHash()
     {
-        NBTTagList list = new NBTTagList();
+        long hash = CACHE_FORMAT_VERSION;
 
-        for (Map.Entry<IBlockState, ItemStack> entry : map.entrySet())
+        for (Block block : Block.REGISTRY)
         {
-            NBTTagCompound tag = new NBTTagCompound();
-            NBTTagCompound stateTag = new NBTTagCompound();
-            NBTUtil.writeBlockState(stateTag, entry.getKey());
-
-            NbtWrap.putTag(tag, "Block", stateTag);
-            NbtWrap.putTag(tag, "Item", entry.getValue().writeToNBT(new NBTTagCompound()));
+            ResourceLocation name = Block.REGISTRY.getNameForObject(block);
+            hash = hash * 31L + (name != null ? name.toString().hashCode() : 0);
+            hash = hash * 31L + Block.getIdFromBlock(block);
+        }
 
-            NbtWrap.addTag(list, tag);
+        for (Item item : Item.REGISTRY)
+        {
+            ResourceLocation name = Item.REGISTRY.getNameForObject(item);
+            hash = hash * 31L + (name != null ? name.toString().hashCode() : 0);
+            hash = hash * 31L + Item.getIdFromItem(item);
         }
 
-        return list;
+        return hash;
     }
 
-    protected void readFromNBT(NBTTagCompound nbt)
+    protected static void writeItems(DataOutputStream out, ItemStack[] items) throws IOException
     {
-        this.buildItemsForStates.clear();
-        this.displayItemsForStates.clear();
+        int count = 0;
 
-        this.readMapFromNBT(nbt, "MaterialCache", this.buildItemsForStates);
-        this.readMapFromNBT(nbt, "DisplayMaterialCache", this.displayItemsForStates);
-    }
+        // The stacks with NBT data can't be stored as plain IDs, they just get resolved again on the next run
+        for (ItemStack stack : items)
+        {
+            if (stack != null && stack.hasTagCompound() == false)
+            {
+                ++count;
+            }
+        }
 
-    protected void readMapFromNBT(NBTTagCompound nbt, String tagName, IdentityHashMap<IBlockState, ItemStack> map)
-    {
-        if (NbtWrap.containsList(nbt, tagName))
+        out.writeInt(count);
+
+        for (int id = 0; id < items.length; ++id)
         {
-            NBTTagList list = NbtWrap.getList(nbt, tagName, Constants.NBT.TAG_COMPOUND);
-            final int count = NbtWrap.getListSize(list);
+            ItemStack stack = items[id];
 
-            for (int i = 0; i < count; ++i)
+            if (stack != null && stack.hasTagCompound() == false)
             {
-                NBTTagCompound tag = NbtWrap.getCompoundAt(list, i);
+                out.writeInt(id);
+                out.writeInt(ItemWrap.isEmpty(stack) ? 0 : Item.getIdFromItem(stack.getItem()));
+                out.writeShort(stack.getMetadata());
+                out.writeByte(stack.getCount());
+            }
+        }
+    }
 
-                if (NbtWrap.containsCompound(tag, "Block") &&
-                    NbtWrap.containsCompound(tag, "Item"))
-                {
-                    IBlockState state = NBTUtil.readBlockState(NbtWrap.getCompound(tag, "Block"));
+    protected static ItemStack[] readItems(DataInputStream in) throws IOException
+    {
+        final int count = in.readInt();
+        ItemStack[] items = new ItemStack[0];
 
-                    if (state != null)
-                    {
-                        ItemStack stack = ItemWrap.fromTag(NbtWrap.getCompound(tag, "Item"));
-                        map.put(state, stack);
-                    }
-                }
-            }
+        for (int i = 0; i < count; ++i)
+        {
+            int id = in.readInt();
+            int itemId = in.readInt();
+            int meta = in.readShort();
+            int stackSize = in.readByte();
+            Item item = itemId != 0 ? Item.getItemById(itemId) : null;
+            ItemStack stack = item != null ? new ItemStack(item, stackSize, meta) : ItemStack.EMPTY;
+
+            items = setCachedItem(items, id, stack);
         }
+
+        return items;
     }
 
     protected Path getCacheDir()
@@ -357,7 +518,7 @@ public class MaterialCache
 
     protected Path getCacheFile()
     {
-        return this.getCacheDir().resolve("material_cache.nbt");
+        return this.getCacheDir().resolve("material_cache.bin");
     }
 
     public boolean writeToFile()
@@ -379,9 +540,15 @@ public class MaterialCache
                 return false;
             }
 
-            OutputStream os = Files.newOutputStream(file);
-            CompressedStreamTools.writeCompressed(this.writeToNBT(), os);
-            os.close();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+            {
+                out.writeInt(CACHE_FILE_MAGIC);
+                out.writeInt(CACHE_FORMAT_VERSION);
+                out.writeLong(getRegistryHash());
+                writeItems(out, this.buildItemsById);
+                writeItems(out, this.displayItemsById);
+            }
+
             this.dirty = false;
 
             return true;
@@ -406,14 +573,21 @@ public class MaterialCache
 
         try
         {
-            InputStream is = Files.newInputStream(file);
-            NBTTagCompound nbt = CompressedStreamTools.readCompressed(is);
-            is.close();
-
-            if (nbt != null)
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
             {
-                this.readFromNBT(nbt);
-                this.hasReadFromFile = true;
+                // A cache file from a different mod set or version would have wrong IDs, just start over in that case
+                if (in.readInt() != CACHE_FILE_MAGIC ||
+                    in.readInt() != CACHE_FORMAT_VERSION ||
+                    in.readLong() != getRegistryHash())
+                {
+                    return;
+                }
+
+                ItemStack[] buildItems = readItems(in);
+                ItemStack[] displayItems = readItems(in);
+
+                this.buildItemsById = buildItems;
+                this.displayItemsById = displayItems;
                 this.dirty = false;
             }
         }
@@ -1,16 +1,27 @@
 package litematica.materials;
 
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
 import com.google.gson.JsonObject;
 
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.StringUtils;
+import malilib.util.data.EnabledCondition;
+import malilib.util.position.LayerRange;
+import litematica.config.Configs;
+import litematica.data.DataManager;
 import litematica.scheduler.TaskScheduler;
 import litematica.scheduler.tasks.TaskCountBlocksPlacement;
+import litematica.scheduler.tasks.TaskCountContainerBlocks;
+import litematica.schematic.ISchematic;
 import litematica.schematic.placement.SchematicPlacement;
+import litematica.util.value.BlockInfoListType;
 
 public class MaterialListPlacement extends MaterialListBase
 {
     private final SchematicPlacement placement;
+    @Nullable private PlacementMaterialCounts trackedCounts;
 
     public MaterialListPlacement(SchematicPlacement placement, boolean reCreate)
     {
@@ -51,9 +62,111 @@ public class MaterialListPlacement extends MaterialListBase
     @Override
     public void reCreateMaterialList()
     {
+        this.scheduleCountTask(true);
+    }
+
+    public void scheduleCountTask(boolean printMessage)
+    {
+        // Show the totals from the schematic right away, while the placement is being compared to the world
+        if (this.materialListAll.isEmpty() && Configs.Generic.MATERIALS_FROM_CONTAINER.getBooleanValue())
+        {
+            this.createInitialListFromContainers();
+        }
+
         TaskCountBlocksPlacement task = new TaskCountBlocksPlacement(this.placement, this);
         TaskScheduler.getInstanceClient().scheduleTask(task, 20);
-        MessageDispatcher.generic(1000).translate("litematica.message.scheduled_task_added");
+
+        if (printMessage)
+        {
+            MessageDispatcher.generic(1000).translate("litematica.message.scheduled_task_added");
+        }
+    }
+
+    protected void createInitialListFromContainers()
+    {
+        ISchematic schematic = this.placement.getSchematic();
+
+        if (schematic == null)
+        {
+            return;
+        }
+
+        Collection<String> regions = this.placement.getSubRegionBoxes(EnabledCondition.ENABLED).keySet();
+        // The per Y-layer counts are only used when the render layer range cuts off some of the layers
+        boolean countLayers = this.getMaterialListType() == BlockInfoListType.RENDER_LAYERS &&
+                              MaterialListUtils.needsLayerCounts(this.placement, DataManager.getRenderLayerRange());
+
+        // Count the blocks in the background first, instead of blocking the client thread
+        if (TaskCountContainerBlocks.needsCounting(schematic, regions, countLayers))
+        {
+            TaskCountContainerBlocks task = new TaskCountContainerBlocks(schematic, regions, countLayers);
+            task.setCompletionListener(this::setInitialListFromContainers);
+            TaskScheduler.getInstanceClient().scheduleTask(task, 1);
+        }
+        else
+        {
+            this.setInitialListFromContainers();
+        }
+    }
+
+    protected void setInitialListFromContainers()
+    {
+        // The full count from the world may have already finished
+        if (this.trackedCounts != null || this.materialListAll.isEmpty() == false)
+        {
+            return;
+        }
+
+        LayerRange range = this.getMaterialListType() == BlockInfoListType.RENDER_LAYERS ? DataManager.getRenderLayerRange() : null;
+        List<MaterialListEntry> list = MaterialListUtils.createMaterialListFromContainers(this.placement, range);
+
+        if (list != null)
+        {
+            this.setMaterialListEntries(list);
+        }
+        else
+        {
+            ISchematic schematic = this.placement.getSchematic();
+            Collection<String> regions = this.placement.getSubRegionBoxes(EnabledCondition.ENABLED).keySet();
+            boolean countLayers = MaterialListUtils.needsLayerCounts(this.placement, range);
+
+            // The schematic was modified while it was being counted, so the counts were discarded. Count again in the background.
+            if (schematic != null && TaskCountContainerBlocks.needsCounting(schematic, regions, countLayers))
+            {
+                this.createInitialListFromContainers();
+            }
+        }
+    }
+
+    @Nullable
+    public PlacementMaterialCounts getTrackedCounts()
+    {
+        return this.trackedCounts;
+    }
+
+    /**
+     * Sets the counts from a finished count task, which will then be kept
+     * up to date by the {@link MaterialListUpdateManager}
+     */
+    public void setTrackedCounts(PlacementMaterialCounts counts)
+    {
+        this.trackedCounts = counts;
+        MaterialListUpdateManager.INSTANCE.setTrackedList(this.placement, this);
+    }
+
+    public void clearTrackedCounts()
+    {
+        this.trackedCounts = null;
+    }
+
+    void onTrackedCountsChanged()
+    {
+        if (this.trackedCounts != null)
+        {
+            this.setMaterialListEntries(MaterialListUtils.getMaterialList(this.trackedCounts.getCountsTotal(),
+                                                                          this.trackedCounts.getCountsMissing(),
+                                                                          this.trackedCounts.getCountsMismatch()));
+        }
     }
 
     public static MaterialListPlacement createFromJson(JsonObject obj, SchematicPlacement schematicPlacement)
@@ -1,15 +1,21 @@
 package litematica.materials;
 
 import java.util.Collection;
+import javax.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
 
+import malilib.listener.TaskCompletionListener;
 import malilib.util.StringUtils;
+import litematica.config.Configs;
+import litematica.scheduler.TaskScheduler;
+import litematica.scheduler.tasks.TaskCountContainerBlocks;
 import litematica.schematic.ISchematic;
 
 public class MaterialListSchematic extends MaterialListBase
 {
     private final ISchematic schematic;
     private final ImmutableList<String> regions;
+    @Nullable private TaskCountContainerBlocks countTask;
 
     public MaterialListSchematic(ISchematic schematic, boolean reCreate)
     {
@@ -32,11 +38,55 @@ public class MaterialListSchematic extends MaterialListBase
     @Override
     public void reCreateMaterialList()
     {
+        // Count the blocks in the background first, instead of blocking the client thread
+        if (Configs.Generic.MATERIALS_FROM_CONTAINER.getBooleanValue() &&
+            TaskCountContainerBlocks.needsCounting(this.schematic, this.regions))
+        {
+            // The previous count is still running
+            if (this.countTask != null)
+            {
+                return;
+            }
+
+            TaskCountContainerBlocks task = new TaskCountContainerBlocks(this.schematic, this.regions);
+            task.setCompletionListener(new TaskCompletionListener()
+            {
+                @Override
+                public void onTaskCompleted()
+                {
+                    MaterialListSchematic.this.countTask = null;
+                    MaterialListSchematic.this.setMaterialListEntries(MaterialListUtils.createMaterialListFor(
+                            MaterialListSchematic.this.schematic, MaterialListSchematic.this.regions));
+                }
+
+                @Override
+                public void onTaskAborted()
+                {
+                    // Keep showing the last completed list
+                    MaterialListSchematic.this.countTask = null;
+                }
+            });
+
+            this.countTask = task;
+            TaskScheduler.getInstanceClient().scheduleTask(task, 1);
+            return;
+        }
+
         this.materialListAll = ImmutableList.copyOf(MaterialListUtils.createMaterialListFor(this.schematic, this.regions));
         this.refreshPreFilteredList();
         this.updateCounts();
     }
 
+    /**
+     * @return true if this list is for the given regions of the given schematic
+     */
+    public boolean isFor(ISchematic schematic, Collection<String> regions)
+    {
+        return this.schematic == schematic &&
+               this.regions.size() == regions.size() &&
+               this.regions.containsAll(regions);
+    }
+
     @Override
     public String getName()
     {
@@ -0,0 +1,211 @@
+package litematica.materials;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import malilib.util.game.wrap.GameUtils;
+import litematica.config.Configs;
+import litematica.schematic.placement.SchematicPlacement;
+import litematica.world.SchematicWorldHandler;
+import litematica.world.WorldSchematic;
+
+/**
+ * Keeps the placement material lists up to date after they have been counted once.
+ * Block changes in the client world are applied to the counts as deltas,
+ * and modified placements get re-counted after they have not changed for a moment.
+ */
+public class MaterialListUpdateManager
+{
+    public static final MaterialListUpdateManager INSTANCE = new MaterialListUpdateManager();
+
+    /** The time to wait after the last modification of a placement before re-counting its material list */
+    protected static final long RECOUNT_DELAY_MS = 1000L;
+
+    protected final Map<SchematicPlacement, MaterialListPlacement> trackedLists = new HashMap<>();
+    protected final Map<SchematicPlacement, Long> pendingRecounts = new HashMap<>();
+    protected final LongOpenHashSet changedChunks = new LongOpenHashSet();
+    protected final LongOpenHashSet changedPositions = new LongOpenHashSet();
+
+    /**
+     * Starts tracking the given material list, replacing any previously tracked list of the same placement
+     */
+    public void setTrackedList(SchematicPlacement placement, MaterialListPlacement materialList)
+    {
+        this.trackedLists.put(placement, materialList);
+        this.pendingRecounts.remove(placement);
+    }
+
+    public void onPlacementRemoved(SchematicPlacement placement)
+    {
+        this.trackedLists.remove(placement);
+        this.pendingRecounts.remove(placement);
+    }
+
+    public void onPlacementModified(SchematicPlacement placement)
+    {
+        MaterialListPlacement materialList = this.trackedLists.get(placement);
+
+        if (materialList != null && Configs.Generic.MATERIAL_LIST_INCREMENTAL_UPDATES.getBooleanValue())
+        {
+            // The counted positions are no longer valid, but the old
+            // counts will be shown until the re-count has finished
+            materialList.clearTrackedCounts();
+            this.pendingRecounts.put(placement, System.currentTimeMillis());
+        }
+    }
+
+    public void onBlockChanged(BlockPos pos)
+    {
+        if (this.trackedLists.isEmpty() ||
+            Configs.Generic.MATERIAL_LIST_INCREMENTAL_UPDATES.getBooleanValue() == false)
+        {
+            return;
+        }
+
+        this.changedPositions.add(pos.toLong());
+
+        // The actual state of the adjacent blocks may also depend on the changed block,
+        // for example with fences, stairs or redstone wire
+        for (EnumFacing side : EnumFacing.VALUES)
+        {
+            this.changedPositions.add(pos.offset(side).toLong());
+        }
+    }
+
+    public void onChunkChanged(int cx, int cz)
+    {
+        if (this.trackedLists.isEmpty() == false &&
+            Configs.Generic.MATERIAL_LIST_INCREMENTAL_UPDATES.getBooleanValue())
+        {
+            this.changedChunks.add(ChunkPos.asLong(cx, cz));
+        }
+    }
+
+    public void processChanges()
+    {
+        this.checkSchematicModifications();
+        this.scheduleRecounts();
+
+        if (this.changedChunks.isEmpty() && this.changedPositions.isEmpty())
+        {
+            return;
+        }
+
+        WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+        World worldClient = GameUtils.getClientWorld();
+
+        if (worldSchematic != null && worldClient != null)
+        {
+            for (MaterialListPlacement materialList : this.trackedLists.values())
+            {
+                PlacementMaterialCounts counts = materialList.getTrackedCounts();
+
+                if (counts != null && this.updateCounts(counts, worldSchematic, worldClient))
+                {
+                    materialList.onTrackedCountsChanged();
+                }
+            }
+        }
+
+        this.changedChunks.clear();
+        this.changedPositions.clear();
+    }
+
+    protected boolean updateCounts(PlacementMaterialCounts counts, WorldSchematic worldSchematic, World worldClient)
+    {
+        boolean changed = false;
+
+        for (LongIterator it = this.changedChunks.iterator(); it.hasNext(); )
+        {
+            long chunkPosLong = it.nextLong();
+            changed |= counts.updateChunk((int) chunkPosLong, (int) (chunkPosLong >> 32), worldSchematic, worldClient);
+        }
+
+        for (LongIterator it = this.changedPositions.iterator(); it.hasNext(); )
+        {
+            BlockPos pos = BlockPos.fromLong(it.nextLong());
+
+            // Positions in chunks that were already fully re-checked don't need to be handled separately
+            if (this.changedChunks.contains(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4)) == false)
+            {
+                changed |= counts.updatePosition(pos, worldSchematic, worldClient);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * The position deltas would be applied against the counts from before a schematic edit,
+     * so the lists of modified schematics are re-counted instead
+     */
+    protected void checkSchematicModifications()
+    {
+        if (this.trackedLists.isEmpty() ||
+            Configs.Generic.MATERIAL_LIST_INCREMENTAL_UPDATES.getBooleanValue() == false)
+        {
+            return;
+        }
+
+        for (Map.Entry<SchematicPlacement, MaterialListPlacement> entry : this.trackedLists.entrySet())
+        {
+            PlacementMaterialCounts counts = entry.getValue().getTrackedCounts();
+
+            if (counts != null && counts.isOutdated(entry.getKey().getSchematic()))
+            {
+                this.onPlacementModified(entry.getKey());
+            }
+        }
+    }
+
+    protected void scheduleRecounts()
+    {
+        if (this.pendingRecounts.isEmpty())
+        {
+            return;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        List<MaterialListPlacement> lists = new ArrayList<>();
+
+        for (Iterator<Map.Entry<SchematicPlacement, Long>> it = this.pendingRecounts.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<SchematicPlacement, Long> entry = it.next();
+
+            if (currentTime - entry.getValue() >= RECOUNT_DELAY_MS)
+            {
+                MaterialListPlacement materialList = this.trackedLists.get(entry.getKey());
+
+                if (materialList != null && entry.getKey().isValid())
+                {
+                    lists.add(materialList);
+                }
+
+                it.remove();
+            }
+        }
+
+        for (MaterialListPlacement materialList : lists)
+        {
+            materialList.scheduleCountTask(false);
+        }
+    }
+
+    public void clear()
+    {
+        this.trackedLists.clear();
+        this.pendingRecounts.clear();
+        this.changedChunks.clear();
+        this.changedPositions.clear();
+    }
+}
@@ -4,26 +4,37 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.item.ItemStack;
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.Vec3i;
 
 import malilib.gui.BaseScreen;
 import malilib.gui.StringListSelectionScreen;
+import malilib.util.data.EnabledCondition;
 import malilib.util.data.ItemType;
 import malilib.util.game.wrap.GameUtils;
 import malilib.util.game.wrap.ItemWrap;
 import malilib.util.inventory.InventoryUtils;
+import malilib.util.position.LayerRange;
 import litematica.config.Configs;
 import litematica.data.DataManager;
 import litematica.gui.MaterialListScreen;
 import litematica.schematic.ISchematic;
 import litematica.schematic.ISchematicRegion;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
+import litematica.schematic.container.LitematicaBlockStateContainerBase;
+import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.container.LitematicaBlockStateContainerMapped;
+import litematica.schematic.container.LitematicaBlockStateContainerSectioned;
+import litematica.schematic.container.ParallelBlockCounter;
+import litematica.schematic.placement.SchematicPlacement;
+import litematica.selection.SelectionBox;
 
 public class MaterialListUtils
 {
@@ -81,6 +92,126 @@ public class MaterialListUtils
         return getMaterialList(countsTotal, countsTotal, new Object2LongOpenHashMap<>());
     }
 
+    /**
+     * Creates the total counts of a placement material list directly from the per Y-layer block counts
+     * of the schematic containers, without going through the blocks in the (schematic) world.
+     * All the blocks are counted as missing, as that requires comparing against the client world.
+     * @param range the layer range to restrict the counts to, or null for the entire placement
+     * @return the material list, or null if it can't be created from the containers,
+     * because the layer range is not on the Y-axis, or because it would be too slow
+     * to build the per-layer counts on the client thread.
+     */
+    @Nullable
+    public static List<MaterialListEntry> createMaterialListFromContainers(SchematicPlacement placement, @Nullable LayerRange range)
+    {
+        ISchematic schematic = placement.getSchematic();
+
+        // The rotation and mirroring of the placement and the sub-regions only affect the horizontal axes,
+        // so only the Y-layers of the containers map directly to the layers in the world
+        if (schematic == null || (range != null && range.getAxis() != EnumFacing.Axis.Y))
+        {
+            return null;
+        }
+
+        Object2LongOpenHashMap<IBlockState> countsTotal = new Object2LongOpenHashMap<>();
+
+        for (Map.Entry<String, SelectionBox> entry : placement.getSubRegionBoxes(EnabledCondition.ENABLED).entrySet())
+        {
+            ISchematicRegion region = schematic.getSchematicRegion(entry.getKey());
+            ILitematicaBlockStateContainer container = region != null ? region.getBlockStateContainer() : null;
+
+            if (container == null)
+            {
+                continue;
+            }
+
+            SelectionBox box = entry.getValue();
+            int boxMinY = Math.min(box.getCorner1().getY(), box.getCorner2().getY());
+            int boxMaxY = Math.max(box.getCorner1().getY(), box.getCorner2().getY());
+            int minY = range != null ? Math.max(range.getMinLayerBoundary(), boxMinY) : boxMinY;
+            int maxY = range != null ? Math.min(range.getMaxLayerBoundary(), boxMaxY) : boxMaxY;
+
+            if (minY > maxY)
+            {
+                continue;
+            }
+
+            boolean wholeBox = minY == boxMinY && maxY == boxMaxY;
+
+            // Going through all the blocks of a large container would block the client thread for too long
+            if (isCountingSlow(container, wholeBox))
+            {
+                return null;
+            }
+
+            // The containers are indexed from the minimum corner of the region
+            Map<IBlockState, Long> counts = wholeBox ? container.getBlockCountsMap() :
+                                                       container.getBlockCountsMapForLayers(minY - boxMinY, maxY - boxMinY);
+
+            for (Map.Entry<IBlockState, Long> countEntry : counts.entrySet())
+            {
+                countsTotal.addTo(countEntry.getKey(), countEntry.getValue().longValue());
+            }
+        }
+
+        return getMaterialList(countsTotal, countsTotal, new Object2LongOpenHashMap<>());
+    }
+
+    /**
+     * @return true if the given layer range excludes some layers of any of the enabled sub-region boxes
+     * of the placement, meaning that the material list from the containers needs the per Y-layer block counts
+     */
+    public static boolean needsLayerCounts(SchematicPlacement placement, @Nullable LayerRange range)
+    {
+        if (range == null || range.getAxis() != EnumFacing.Axis.Y)
+        {
+            return false;
+        }
+
+        for (SelectionBox box : placement.getSubRegionBoxes(EnabledCondition.ENABLED).values())
+        {
+            int boxMinY = Math.min(box.getCorner1().getY(), box.getCorner2().getY());
+            int boxMaxY = Math.max(box.getCorner1().getY(), box.getCorner2().getY());
+
+            if (range.getMinLayerBoundary() > boxMinY || range.getMaxLayerBoundary() < boxMaxY)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if getting the counts from the given container would need to go through all of its blocks
+     * on the calling thread. The full containers get counted in the background via
+     * {@link litematica.scheduler.tasks.TaskCountContainerBlocks}, but their counts may have been
+     * invalidated by modifications since then. Only the sparse and the small full containers are cheap to count.
+     */
+    private static boolean isCountingSlow(ILitematicaBlockStateContainer container, boolean wholeBox)
+    {
+        if (container instanceof LitematicaBlockStateContainerFull)
+        {
+            Vec3i size = container.getSize();
+            long volume = (long) size.getX() * (long) size.getY() * (long) size.getZ();
+
+            if (volume < ParallelBlockCounter.PARALLEL_THRESHOLD)
+            {
+                return false;
+            }
+        }
+
+        if (container instanceof LitematicaBlockStateContainerFull ||
+            container instanceof LitematicaBlockStateContainerMapped ||
+            container instanceof LitematicaBlockStateContainerSectioned)
+        {
+            LitematicaBlockStateContainerBase base = (LitematicaBlockStateContainerBase) container;
+            return wholeBox ? base.hasBlockCounts() == false : base.hasLayerBlockCounts() == false;
+        }
+
+        return false;
+    }
+
     public static List<MaterialListEntry> getMaterialList(
             Object2LongOpenHashMap<IBlockState> countsTotal,
             Object2LongOpenHashMap<IBlockState> countsMissing,
@@ -167,15 +298,27 @@ public class MaterialListUtils
         }
         else
         {
-            MaterialListSchematic materialList = new MaterialListSchematic(schematic, true);
-            DataManager.setMaterialList(materialList); // Remember the last opened material list for the hotkey to (re-) open it
-            BaseScreen.openScreen(new MaterialListScreen(materialList));
+            createMaterialListOfRegions(schematic, schematic.getRegionNames());
         }
     }
 
     public static void createMaterialListOfRegions(ISchematic schematic, Collection<String> regions)
     {
-        MaterialListSchematic materialList = new MaterialListSchematic(schematic, regions, true);
+        MaterialListBase lastList = DataManager.getMaterialList();
+        MaterialListSchematic materialList;
+
+        // Re-count the last opened list, so that it keeps showing the last completed
+        // list until the new count finishes, even if the new count gets aborted
+        if (lastList instanceof MaterialListSchematic && ((MaterialListSchematic) lastList).isFor(schematic, regions))
+        {
+            materialList = (MaterialListSchematic) lastList;
+            materialList.reCreateMaterialList();
+        }
+        else
+        {
+            materialList = new MaterialListSchematic(schematic, regions, true);
+        }
+
         DataManager.setMaterialList(materialList); // Remember the last opened material list for the hotkey to (re-) open it
         BaseScreen.openScreen(new MaterialListScreen(materialList));
     }
@@ -0,0 +1,213 @@
+package litematica.materials;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import litematica.schematic.ISchematic;
+
+/**
+ * The per block state counts of a placement material list, along with the type
+ * (correct, missing or mismatched) of every counted position. Storing the position types
+ * allows updating the counts in place when blocks change in the client world,
+ * instead of having to re-count the entire placement.
+ */
+public class PlacementMaterialCounts
+{
+    public static final byte TYPE_NONE     = 0;
+    public static final byte TYPE_CORRECT  = 1;
+    public static final byte TYPE_MISSING  = 2;
+    public static final byte TYPE_MISMATCH = 3;
+
+    protected final Object2LongOpenHashMap<IBlockState> countsTotal = new Object2LongOpenHashMap<>();
+    protected final Object2LongOpenHashMap<IBlockState> countsMissing = new Object2LongOpenHashMap<>();
+    protected final Object2LongOpenHashMap<IBlockState> countsMismatch = new Object2LongOpenHashMap<>();
+    /** The position types per sub-chunk, indexed by (y << 8) | (z << 4) | x */
+    protected final Long2ObjectOpenHashMap<byte[]> positionTypes = new Long2ObjectOpenHashMap<>();
+    protected final boolean ignoreState;
+    /** The modification time of the schematic when the counting started */
+    protected final long schematicTimeModified;
+
+    public PlacementMaterialCounts(boolean ignoreState, long schematicTimeModified)
+    {
+        this.ignoreState = ignoreState;
+        this.schematicTimeModified = schematicTimeModified;
+    }
+
+    /**
+     * @return true if the given schematic has been modified since these counts were started.
+     * Then the counted schematic states may be wrong, and the position deltas can't be applied.
+     */
+    public boolean isOutdated(@Nullable ISchematic schematic)
+    {
+        return schematic == null || schematic.getMetadata().getTimeModified() != this.schematicTimeModified;
+    }
+
+    public Object2LongOpenHashMap<IBlockState> getCountsTotal()
+    {
+        return this.countsTotal;
+    }
+
+    public Object2LongOpenHashMap<IBlockState> getCountsMissing()
+    {
+        return this.countsMissing;
+    }
+
+    public Object2LongOpenHashMap<IBlockState> getCountsMismatch()
+    {
+        return this.countsMismatch;
+    }
+
+    /**
+     * Counts the given position. The schematic state must not be air.
+     */
+    public void addPosition(BlockPos pos, IBlockState stateSchematic, IBlockState stateClient)
+    {
+        byte type = this.getPositionType(stateSchematic, stateClient);
+
+        this.countsTotal.addTo(stateSchematic, 1);
+        this.addTypeCount(stateSchematic, type, 1);
+
+        byte[] types = this.positionTypes.get(getSectionKey(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+
+        if (types == null)
+        {
+            types = new byte[4096];
+            this.positionTypes.put(getSectionKey(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4), types);
+        }
+
+        types[getIndex(pos.getX(), pos.getY(), pos.getZ())] = type;
+    }
+
+    /**
+     * Re-checks the given position, if it was counted, and updates the counts if its type changed
+     * @return true if the counts changed
+     */
+    public boolean updatePosition(BlockPos pos, World worldSchematic, World worldClient)
+    {
+        byte[] types = this.positionTypes.get(getSectionKey(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+
+        if (types == null)
+        {
+            return false;
+        }
+
+        return this.updatePosition(pos, types, getIndex(pos.getX(), pos.getY(), pos.getZ()), worldSchematic, worldClient);
+    }
+
+    /**
+     * Re-checks all the counted positions in the given chunk column,
+     * for example after the client received the entire chunk from the server
+     * @return true if the counts changed
+     */
+    public boolean updateChunk(int chunkX, int chunkZ, World worldSchematic, World worldClient)
+    {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        boolean changed = false;
+
+        for (int cy = 0; cy < 16; ++cy)
+        {
+            byte[] types = this.positionTypes.get(getSectionKey(chunkX, cy, chunkZ));
+
+            if (types == null)
+            {
+                continue;
+            }
+
+            for (int i = 0; i < 4096; ++i)
+            {
+                if (types[i] != TYPE_NONE)
+                {
+                    pos.setPos((chunkX << 4) | (i & 0xF), (cy << 4) | (i >> 8), (chunkZ << 4) | ((i >> 4) & 0xF));
+                    changed |= this.updatePosition(pos, types, i, worldSchematic, worldClient);
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    protected boolean updatePosition(BlockPos pos, byte[] types, int index, World worldSchematic, World worldClient)
+    {
+        byte oldType = types[index];
+
+        if (oldType == TYPE_NONE)
+        {
+            return false;
+        }
+
+        IBlockState stateSchematic = worldSchematic.getBlockState(pos).getActualState(worldSchematic, pos);
+
+        // The schematic chunk may be currently unloaded, or the schematic world may have been edited,
+        // in which case the delta can't be applied to the state that was originally counted
+        if (stateSchematic.getBlock() == Blocks.AIR || this.countsTotal.getLong(stateSchematic) <= 0L)
+        {
+            return false;
+        }
+
+        IBlockState stateClient = worldClient.getBlockState(pos).getActualState(worldClient, pos);
+        byte newType = this.getPositionType(stateSchematic, stateClient);
+
+        if (newType == oldType)
+        {
+            return false;
+        }
+
+        this.addTypeCount(stateSchematic, oldType, -1);
+        this.addTypeCount(stateSchematic, newType, 1);
+        types[index] = newType;
+
+        return true;
+    }
+
+    protected byte getPositionType(IBlockState stateSchematic, IBlockState stateClient)
+    {
+        if (stateClient.getBlock() == Blocks.AIR)
+        {
+            return TYPE_MISSING;
+        }
+        else if (this.ignoreState ? stateClient.getBlock() != stateSchematic.getBlock() : stateClient != stateSchematic)
+        {
+            return TYPE_MISMATCH;
+        }
+
+        return TYPE_CORRECT;
+    }
+
+    protected void addTypeCount(IBlockState state, byte type, int amount)
+    {
+        // Mismatched blocks are also counted as missing, as the correct block is still needed
+        if (type == TYPE_MISSING || type == TYPE_MISMATCH)
+        {
+            addCount(this.countsMissing, state, amount);
+        }
+
+        if (type == TYPE_MISMATCH)
+        {
+            addCount(this.countsMismatch, state, amount);
+        }
+    }
+
+    protected static void addCount(Object2LongOpenHashMap<IBlockState> counts, IBlockState state, int amount)
+    {
+        if (counts.addTo(state, amount) + amount <= 0L)
+        {
+            counts.removeLong(state);
+        }
+    }
+
+    protected static int getIndex(int x, int y, int z)
+    {
+        return ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+
+    protected static long getSectionKey(int chunkX, int chunkY, int chunkZ)
+    {
+        return ((long) (chunkX & 0xFFFFFF)) | ((long) (chunkZ & 0xFFFFFF) << 24) | ((long) (chunkY & 0xFF) << 48);
+    }
+}
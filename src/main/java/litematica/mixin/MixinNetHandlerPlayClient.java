@@ -7,9 +7,12 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import net.minecraft.client.network.NetHandlerPlayClient;
 import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.network.play.server.SPacketTimeUpdate;
 
 import litematica.config.Configs;
+import litematica.materials.MaterialListUpdateManager;
 import litematica.schematic.verifier.SchematicVerifierManager;
+import litematica.util.ServerTickRateTracker;
 import litematica.world.SchematicWorldRenderingNotifier;
 
 @Mixin(NetHandlerPlayClient.class)
@@ -25,5 +28,12 @@ public abstract class MixinNetHandlerPlayClient
         }
 
         SchematicVerifierManager.INSTANCE.onChunkChanged(packetIn.getChunkX(), packetIn.getChunkZ());
+        MaterialListUpdateManager.INSTANCE.onChunkChanged(packetIn.getChunkX(), packetIn.getChunkZ());
+    }
+
+    @Inject(method = "handleTimeUpdate", at = @At("RETURN"))
+    private void onTimeUpdate(SPacketTimeUpdate packetIn, CallbackInfo ci)
+    {
+        ServerTickRateTracker.INSTANCE.onTimeUpdate(packetIn.getTotalWorldTime());
     }
 }
@@ -7,6 +7,7 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 import litematica.config.Configs;
+import litematica.materials.MaterialListUpdateManager;
 import litematica.render.LitematicaRenderer;
 import litematica.schematic.verifier.SchematicVerifierManager;
 import litematica.world.SchematicWorldRenderingNotifier;
@@ -36,6 +37,7 @@ public abstract class MixinRenderGlobal
         if (oldState != newState)
         {
             SchematicVerifierManager.INSTANCE.onBlockChanged(pos);
+            MaterialListUpdateManager.INSTANCE.onBlockChanged(pos);
 
             if (Configs.Visuals.MAIN_RENDERING_TOGGLE.getBooleanValue() &&
                 Configs.Visuals.SCHEMATIC_RENDERING.getBooleanValue())
@@ -21,6 +21,8 @@ import malilib.util.game.wrap.GameUtils;
 import litematica.config.Configs;
 import litematica.config.Hotkeys;
 import litematica.render.schematic.RenderGlobalSchematic;
+import litematica.render.schematic.RenderMetrics;
+import litematica.render.schematic.SchematicLodRenderer;
 
 public class LitematicaRenderer
 {
@@ -30,6 +32,7 @@ public class LitematicaRenderer
 
     private Minecraft mc;
     private RenderGlobalSchematic worldRenderer;
+    private final SchematicLodRenderer lodRenderer = new SchematicLodRenderer();
     private int frameCount;
     private long finishTimeNano;
 
@@ -65,14 +68,22 @@ public class LitematicaRenderer
         return this.worldRenderer;
     }
 
+    public SchematicLodRenderer getLodRenderer()
+    {
+        return this.lodRenderer;
+    }
+
     public void loadRenderers()
     {
         this.getWorldRenderer().loadRenderers();
+        this.lodRenderer.clear();
     }
 
     public void onSchematicWorldChanged(@Nullable WorldClient worldClient)
     {
         this.getWorldRenderer().setWorldAndLoadRenderers(worldClient);
+        this.lodRenderer.clear();
+        RenderMetrics.getInstance().clear();
     }
 
     private void calculateFinishTime()
@@ -207,6 +218,11 @@ public class LitematicaRenderer
             GlStateManager.popMatrix();
 
             this.disableShader();
+
+            GameUtils.profilerSwap("lod");
+            GlStateManager.depthMask(true);
+            this.lodRenderer.render(entity, icamera, partialTicks);
+            GlStateManager.depthMask(false);
         }
 
         GameUtils.profilerSwap("overlay");
@@ -343,6 +359,11 @@ public class LitematicaRenderer
 
             this.disableShader();
 
+            if (this.camera != null)
+            {
+                this.lodRenderer.render(this.entity, this.camera, partialTicks);
+            }
+
             if (renderColliding)
             {
                 GlStateManager.doPolygonOffset(0f, 0f);
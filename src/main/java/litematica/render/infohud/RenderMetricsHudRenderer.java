@@ -0,0 +1,76 @@
+package litematica.render.infohud;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.minecraft.util.BlockRenderLayer;
+
+import malilib.util.StringUtils;
+import litematica.config.Configs;
+import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
+import litematica.render.schematic.RenderMetrics;
+
+public class RenderMetricsHudRenderer implements IInfoHudRenderer
+{
+    private static final RenderMetricsHudRenderer INSTANCE = new RenderMetricsHudRenderer();
+
+    public static void init()
+    {
+        ToolHud.getInstance().addInfoHudRenderer(INSTANCE, true);
+    }
+
+    @Override
+    public boolean getShouldRenderText(RenderPhase phase)
+    {
+        return phase == RenderPhase.POST && Configs.InfoOverlays.RENDER_METRICS_HUD.getBooleanValue();
+    }
+
+    @Override
+    public List<String> getText(RenderPhase phase)
+    {
+        RenderMetrics.Sample sample = RenderMetrics.getInstance().getLastSample();
+
+        if (sample == null)
+        {
+            return Collections.singletonList(StringUtils.translate("litematica.hud.render_metrics.no_samples"));
+        }
+
+        List<String> lines = new ArrayList<>();
+        RenderMetrics.HistogramData compile = sample.getCompileTimes();
+        RenderMetrics.HistogramData latency = sample.getTaskLatencies();
+
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.frame",
+                                        sample.getFrameTimeMs(), sample.getSetupTerrainMs(), sample.getUpdateChunksMs()));
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.queue",
+                                        sample.getQueuedTasks(), sample.getPendingUploads(), sample.getWorkers(),
+                                        sample.getFreeBuffers(), sample.getCreatedBuffers(), sample.getMaxBuffers()));
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.buffer_pool",
+                                        sample.getPoolFreeBytes() / 1048576.0, sample.getBufferAllocations(), sample.getBufferGrowths()));
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.compile",
+                                        compile.getCount(), sample.getRebuiltChunks(), compile.getPercentileMs(0.5),
+                                        compile.getPercentileMs(0.95), compile.getMaxMs()));
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.latency",
+                                        latency.getPercentileMs(0.5), latency.getPercentileMs(0.95), latency.getMaxMs()));
+        lines.add(StringUtils.translate("litematica.hud.render_metrics.upload",
+                                        sample.getUploadBytesPerFrame() / 1024.0, sample.getMaxFrameUploadBytes() / 1024.0));
+
+        StringBuilder sb = new StringBuilder(StringUtils.translate("litematica.hud.render_metrics.vertices"));
+
+        for (BlockRenderLayer layer : BlockRenderLayer.values())
+        {
+            sb.append(' ').append(StringUtils.translate("litematica.hud.render_metrics.vertices_entry",
+                                                        layer.name().toLowerCase(), sample.getUploadedVertices(layer)));
+        }
+
+        for (OverlayRenderType type : OverlayRenderType.values())
+        {
+            sb.append(' ').append(StringUtils.translate("litematica.hud.render_metrics.vertices_entry",
+                                                        "overlay_" + type.name().toLowerCase(), sample.getUploadedVertices(type)));
+        }
+
+        lines.add(sb.toString());
+
+        return lines;
+    }
+}
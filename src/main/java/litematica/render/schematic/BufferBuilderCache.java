@@ -1,43 +1,140 @@
 package litematica.render.schematic;
 
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
 import net.minecraft.client.renderer.BufferBuilder;
 import net.minecraft.util.BlockRenderLayer;
 
 import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 
+/**
+ * The buffers of one compile task. The builders are taken from the {@link BufferBuilderPool}
+ * when they are first needed, sized by the size hints of the compiled render chunk,
+ * and they get returned to the pool via {@link #releaseBuffers()} after the upload.
+ */
 public class BufferBuilderCache
 {
-    private final BufferBuilder[] worldRenderers;
-    private final BufferBuilder[] overlayBufferBuilders;
+    private static final int LAYER_COUNT = BlockRenderLayer.values().length;
+    private static final int BUFFER_COUNT = LAYER_COUNT + OverlayRenderType.values().length;
+    /** The initial buffer sizes in bytes, when there is no size hint from a previous compile */
+    private static final int[] DEFAULT_SIZES = new int[BUFFER_COUNT];
 
-    public BufferBuilderCache()
+    static
     {
-        this.worldRenderers = new BufferBuilder[BlockRenderLayer.values().length];
-        this.overlayBufferBuilders = new BufferBuilder[OverlayRenderType.values().length];
-
-        this.worldRenderers[BlockRenderLayer.SOLID.ordinal()] = new BufferBuilder(2097152);
-        this.worldRenderers[BlockRenderLayer.CUTOUT.ordinal()] = new BufferBuilder(131072);
-        this.worldRenderers[BlockRenderLayer.CUTOUT_MIPPED.ordinal()] = new BufferBuilder(131072);
-        this.worldRenderers[BlockRenderLayer.TRANSLUCENT.ordinal()] = new BufferBuilder(262144);
+        DEFAULT_SIZES[BlockRenderLayer.SOLID.ordinal()] = 8388608;
+        DEFAULT_SIZES[BlockRenderLayer.CUTOUT.ordinal()] = 524288;
+        DEFAULT_SIZES[BlockRenderLayer.CUTOUT_MIPPED.ordinal()] = 524288;
+        DEFAULT_SIZES[BlockRenderLayer.TRANSLUCENT.ordinal()] = 1048576;
 
-        for (int i = 0; i < this.overlayBufferBuilders.length; ++i)
+        for (int i = LAYER_COUNT; i < BUFFER_COUNT; ++i)
         {
-            this.overlayBufferBuilders[i] = new BufferBuilder(262144);
+            DEFAULT_SIZES[i] = 1048576;
         }
     }
 
+    private final BufferBuilder[] buffers = new BufferBuilder[BUFFER_COUNT];
+    private final int[] acquiredCapacities = new int[BUFFER_COUNT];
+    @Nullable private int[] sizeHints;
+
+    /**
+     * @return a new size hint array for a render chunk, see {@link #setSizeHints(int[])}
+     */
+    public static int[] createSizeHints()
+    {
+        int[] hints = new int[BUFFER_COUNT];
+        Arrays.fill(hints, -1);
+        return hints;
+    }
+
+    /**
+     * Sets the used buffer sizes from the previous compile of the render chunk
+     * that is about to be compiled using this cache. A negative value means unknown.
+     */
+    public void setSizeHints(@Nullable int[] sizeHints)
+    {
+        this.sizeHints = sizeHints;
+    }
+
     public BufferBuilder getWorldRendererByLayer(BlockRenderLayer layer)
     {
-        return this.worldRenderers[layer.ordinal()];
+        return this.getOrAcquireBuffer(layer.ordinal());
     }
 
     public BufferBuilder getWorldRendererByLayerId(int id)
     {
-        return this.worldRenderers[id];
+        return this.getOrAcquireBuffer(id);
     }
 
     public BufferBuilder getOverlayBuffer(OverlayRenderType type)
     {
-        return this.overlayBufferBuilders[type.ordinal()];
+        return this.getOrAcquireBuffer(LAYER_COUNT + type.ordinal());
+    }
+
+    private BufferBuilder getOrAcquireBuffer(int index)
+    {
+        BufferBuilder buffer = this.buffers[index];
+
+        if (buffer == null)
+        {
+            int hint = this.sizeHints != null ? this.sizeHints[index] : -1;
+            // Some extra room for small changes, to not have to grow the buffer right away
+            int size = hint >= 0 ? hint + hint / 4 : DEFAULT_SIZES[index];
+
+            buffer = BufferBuilderPool.getInstance().acquire(size);
+            this.buffers[index] = buffer;
+            this.acquiredCapacities[index] = buffer.getByteBuffer().capacity();
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Stores the used sizes of the buffers into the size hints, for the next compile of the same render chunk.
+     * This must be called after the compile, but before the upload, as the upload resets the buffers.
+     * @param clearUnused if true, then the hints of the buffers that were not used get set to 0.
+     * This should only be done when all the layers were rebuilt.
+     */
+    public void storeUsedSizes(boolean clearUnused)
+    {
+        if (this.sizeHints == null)
+        {
+            return;
+        }
+
+        for (int i = 0; i < BUFFER_COUNT; ++i)
+        {
+            BufferBuilder buffer = this.buffers[i];
+
+            if (buffer != null && buffer.getVertexFormat() != null)
+            {
+                this.sizeHints[i] = buffer.getVertexCount() * buffer.getVertexFormat().getSize();
+            }
+            else if (clearUnused)
+            {
+                this.sizeHints[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns all the taken builders to the pool
+     */
+    public void releaseBuffers()
+    {
+        BufferBuilderPool pool = BufferBuilderPool.getInstance();
+
+        for (int i = 0; i < BUFFER_COUNT; ++i)
+        {
+            BufferBuilder buffer = this.buffers[i];
+
+            if (buffer != null)
+            {
+                pool.release(buffer, buffer.getByteBuffer().capacity() > this.acquiredCapacities[i]);
+                this.buffers[i] = null;
+            }
+        }
+
+        this.sizeHints = null;
     }
 }
@@ -0,0 +1,238 @@
+package litematica.render.schematic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.client.renderer.BufferBuilder;
+
+/**
+ * A pool of BufferBuilders (and thus of their direct buffers) in power of two size classes.
+ * The builders are taken for the duration of one compile task and upload, and then returned here,
+ * so that the memory only needs to be as large as the concurrently compiled render chunks need,
+ * and not as large as the worst case for every layer of every buffer cache.
+ * The free builders that have not been used for a while are dropped.
+ */
+public class BufferBuilderPool
+{
+    private static final BufferBuilderPool INSTANCE = new BufferBuilderPool();
+
+    /** The smallest size class is 64 KiB */
+    private static final int MIN_SIZE_SHIFT = 16;
+    /** The largest size class is 32 MiB. Larger builders are not pooled. */
+    private static final int MAX_SIZE_SHIFT = 25;
+    private static final int SIZE_CLASS_COUNT = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+    /** A request can be served with a free builder from at most this many size classes larger than requested */
+    private static final int MAX_SIZE_CLASS_OVERSHOOT = 2;
+    /** The total capacity of free builders to keep, the rest are dropped when returned */
+    private static final long MAX_FREE_BYTES = 256L * 1024L * 1024L;
+    /** The free builders that have not been used in this long are dropped */
+    private static final long IDLE_TRIM_NANOS = 10000000000L;
+    private static final long TRIM_INTERVAL_NANOS = 1000000000L;
+
+    private final List<ArrayDeque<FreeBuffer>> freeBuffers = new ArrayList<>();
+    private long freeBytes;
+    private long lastTrimTime;
+    private int allocationCount;
+    private int growthCount;
+
+    public static BufferBuilderPool getInstance()
+    {
+        return INSTANCE;
+    }
+
+    private BufferBuilderPool()
+    {
+        for (int i = 0; i < SIZE_CLASS_COUNT; ++i)
+        {
+            this.freeBuffers.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * @return a builder with a capacity of at least the given number of bytes,
+     * either a free one from the pool or a newly allocated one
+     */
+    public BufferBuilder acquire(int bytes)
+    {
+        int sizeClass = getSizeClassAtLeast(bytes);
+
+        if (sizeClass >= SIZE_CLASS_COUNT)
+        {
+            return this.allocate(bytes);
+        }
+
+        synchronized (this)
+        {
+            int maxClass = Math.min(sizeClass + MAX_SIZE_CLASS_OVERSHOOT, SIZE_CLASS_COUNT - 1);
+
+            for (int i = sizeClass; i <= maxClass; ++i)
+            {
+                FreeBuffer entry = this.freeBuffers.get(i).pollFirst();
+
+                if (entry != null)
+                {
+                    this.freeBytes -= entry.buffer.getByteBuffer().capacity();
+                    return entry.buffer;
+                }
+            }
+        }
+
+        return this.allocate(getSizeClassBytes(sizeClass));
+    }
+
+    /**
+     * Returns a builder to the pool, after its data has been uploaded or discarded
+     * @param grown true if the builder had to grow beyond its capacity while it was in use
+     */
+    public void release(BufferBuilder buffer, boolean grown)
+    {
+        int capacity = buffer.getByteBuffer().capacity();
+        int sizeClass = getSizeClassAtMost(capacity);
+
+        synchronized (this)
+        {
+            if (grown)
+            {
+                ++this.growthCount;
+            }
+
+            if (sizeClass < 0 || capacity > getSizeClassBytes(SIZE_CLASS_COUNT - 1) ||
+                this.freeBytes + capacity > MAX_FREE_BYTES)
+            {
+                return;
+            }
+
+            buffer.reset();
+            buffer.setTranslation(0.0D, 0.0D, 0.0D);
+
+            // The most recently used builders are at the front, and the idle ones get trimmed from the back
+            this.freeBuffers.get(sizeClass).addFirst(new FreeBuffer(buffer, System.nanoTime()));
+            this.freeBytes += capacity;
+        }
+    }
+
+    /**
+     * Drops the free builders that have not been used in a while.
+     * This should be called periodically from the render thread.
+     */
+    public void trimIdleBuffers()
+    {
+        long now = System.nanoTime();
+
+        if (now - this.lastTrimTime < TRIM_INTERVAL_NANOS)
+        {
+            return;
+        }
+
+        this.lastTrimTime = now;
+
+        synchronized (this)
+        {
+            for (ArrayDeque<FreeBuffer> queue : this.freeBuffers)
+            {
+                while (queue.isEmpty() == false && now - queue.peekLast().releaseTime > IDLE_TRIM_NANOS)
+                {
+                    this.freeBytes -= queue.pollLast().buffer.getByteBuffer().capacity();
+                }
+            }
+        }
+    }
+
+    public synchronized void clear()
+    {
+        for (ArrayDeque<FreeBuffer> queue : this.freeBuffers)
+        {
+            queue.clear();
+        }
+
+        this.freeBytes = 0L;
+    }
+
+    public synchronized long getFreeBytes()
+    {
+        return this.freeBytes;
+    }
+
+    /**
+     * @return the number of new builders allocated since the last call of this method
+     */
+    public synchronized int getAndResetAllocationCount()
+    {
+        int count = this.allocationCount;
+        this.allocationCount = 0;
+        return count;
+    }
+
+    /**
+     * @return the number of builders that had to grow while in use, since the last call of this method
+     */
+    public synchronized int getAndResetGrowthCount()
+    {
+        int count = this.growthCount;
+        this.growthCount = 0;
+        return count;
+    }
+
+    private BufferBuilder allocate(int bytes)
+    {
+        synchronized (this)
+        {
+            ++this.allocationCount;
+        }
+
+        // The BufferBuilder size is in ints
+        return new BufferBuilder((bytes + 3) / 4);
+    }
+
+    private static int getSizeClassBytes(int sizeClass)
+    {
+        return 1 << (sizeClass + MIN_SIZE_SHIFT);
+    }
+
+    /**
+     * @return the smallest size class that has at least the given size,
+     * or SIZE_CLASS_COUNT if the size is larger than the largest size class
+     */
+    private static int getSizeClassAtLeast(int bytes)
+    {
+        for (int i = 0; i < SIZE_CLASS_COUNT; ++i)
+        {
+            if (getSizeClassBytes(i) >= bytes)
+            {
+                return i;
+            }
+        }
+
+        return SIZE_CLASS_COUNT;
+    }
+
+    /**
+     * @return the largest size class that is not larger than the given size,
+     * or -1 if the size is smaller than the smallest size class
+     */
+    private static int getSizeClassAtMost(int bytes)
+    {
+        for (int i = SIZE_CLASS_COUNT - 1; i >= 0; --i)
+        {
+            if (getSizeClassBytes(i) <= bytes)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static class FreeBuffer
+    {
+        private final BufferBuilder buffer;
+        private final long releaseTime;
+
+        private FreeBuffer(BufferBuilder buffer, long releaseTime)
+        {
+            this.buffer = buffer;
+            this.releaseTime = releaseTime;
+        }
+    }
+}
@@ -14,6 +14,8 @@ public class ChunkCompileTaskGeneratorSchematic implements Comparable<ChunkCompi
     private final List<Runnable> listFinishRunnables = Lists.<Runnable>newArrayList();
     private final ChunkCompileTaskGeneratorSchematic.Type type;
     private final double distanceSq;
+    private final long creationTime;
+    private double priority;
     private BufferBuilderCache bufferBuilderCache;
     private CompiledChunk compiledChunk;
     private ChunkCompileTaskGeneratorSchematic.Status status = ChunkCompileTaskGeneratorSchematic.Status.PENDING;
@@ -24,6 +26,8 @@ public class ChunkCompileTaskGeneratorSchematic implements Comparable<ChunkCompi
         this.renderChunk = renderChunkIn;
         this.type = typeIn;
         this.distanceSq = distanceSqIn;
+        this.priority = distanceSqIn;
+        this.creationTime = System.nanoTime();
     }
 
     public ChunkCompileTaskGeneratorSchematic.Status getStatus()
@@ -78,7 +82,8 @@ public class ChunkCompileTaskGeneratorSchematic implements Comparable<ChunkCompi
         {
             if (this.type == ChunkCompileTaskGeneratorSchematic.Type.REBUILD_CHUNK && this.status != ChunkCompileTaskGeneratorSchematic.Status.DONE)
             {
-                this.renderChunk.setNeedsUpdate(false);
+                // The cancelled task may have already uploaded some of the buffers, so always do a full rebuild
+                this.renderChunk.setNeedsUpdate(false, false);
             }
 
             this.finished = true;
@@ -131,7 +136,7 @@ public class ChunkCompileTaskGeneratorSchematic implements Comparable<ChunkCompi
 
     public int compareTo(ChunkCompileTaskGeneratorSchematic other)
     {
-        return Doubles.compare(this.distanceSq, other.distanceSq);
+        return Doubles.compare(this.priority, other.priority);
     }
 
     public double getDistanceSq()
@@ -139,6 +144,23 @@ public class ChunkCompileTaskGeneratorSchematic implements Comparable<ChunkCompi
         return this.distanceSq;
     }
 
+    /**
+     * Sets the queue priority of this task, smaller values get compiled first.
+     * This must not be called while the task is in a priority queue.
+     */
+    public void setPriority(double priority)
+    {
+        this.priority = priority;
+    }
+
+    /**
+     * @return the System.nanoTime() when this task was created
+     */
+    public long getCreationTime()
+    {
+        return this.creationTime;
+    }
+
     public static enum Status
     {
         PENDING,
@@ -6,6 +6,8 @@ import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
 import com.google.common.primitives.Doubles;
@@ -26,15 +28,31 @@ import net.minecraft.client.renderer.chunk.CompiledChunk;
 import net.minecraft.client.renderer.chunk.RenderChunk;
 import net.minecraft.client.renderer.vertex.VertexBuffer;
 import net.minecraft.util.BlockRenderLayer;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 
 import litematica.Litematica;
+import litematica.config.Configs;
 import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 
 public class ChunkRenderDispatcherLitematica
 {
     private static final Logger LOGGER = Litematica.logger;
     private static final ThreadFactory THREAD_FACTORY = (new ThreadFactoryBuilder()).setNameFormat("Litematica Chunk Batcher %d").setDaemon(true).build();
+    /** Pending tasks of render chunks that have not been visible in this many view updates get cancelled */
+    private static final int OBSOLETE_TASK_VIEW_UPDATES = 20;
+    /** The priority (squared distance) multiplier for render chunks that are not currently visible */
+    private static final double NOT_VISIBLE_PRIORITY_MULTIPLIER = 4.0;
+    /** The pending tasks are re-ranked at least this often, even if the camera stays within the same render chunk */
+    private static final long PRIORITY_UPDATE_INTERVAL_NANOS = 250000000L;
+    private static final long WORKER_ADJUST_INTERVAL_NANOS = 500000000L;
+    private static final long IDLE_TIMEOUT_NANOS = 5000000000L;
+    /** Add workers only while the average frame time is below this */
+    private static final double FAST_FRAME_TIME_MS = 20.0;
+    /** Remove workers if the average frame time is above this */
+    private static final double SLOW_FRAME_TIME_MS = 40.0;
+    /** The number of queued tasks per worker, above which a new worker is started */
+    private static final int BACKLOG_PER_WORKER = 8;
 
     private final List<Thread> listWorkerThreads = Lists.<Thread>newArrayList();
     private final List<ChunkRenderWorkerLitematica> listThreadedWorkers = new ArrayList<>();
@@ -45,42 +63,273 @@ public class ChunkRenderDispatcherLitematica
     private final Queue<ChunkRenderDispatcherLitematica.PendingUpload> queueChunkUploads = Queues.newPriorityQueue();
     private final ChunkRenderWorkerLitematica renderWorker;
     private final int countRenderBuilders;
+    private final int threadLimit;
+    private int createdRenderBuilders;
+    private long lastFrameTime;
+    private long lastWorkerAdjustTime;
+    private long lastPriorityUpdateTime;
+    private long lastPriorityUpdatePos = Long.MIN_VALUE;
+    private long idleStartTime;
+    private double averageFrameTimeMs;
+    private long completedTaskCount;
+    private long cancelledTaskCount;
+    private double averageTaskLatencyMs;
+    private double maxTaskLatencyMs;
 
     public ChunkRenderDispatcherLitematica()
     {
         int threadLimitMemory = Math.max(1, (int)((double)Runtime.getRuntime().maxMemory() * 0.15D) / 10485760);
         int threadLimitCPU = Math.max(1, MathHelper.clamp(Runtime.getRuntime().availableProcessors(), 1, threadLimitMemory / 5));
+        this.threadLimit = threadLimitCPU;
         this.countRenderBuilders = MathHelper.clamp(threadLimitCPU * 8, 1, threadLimitMemory);
 
         if (threadLimitCPU > 1)
         {
-            Litematica.logger.info("Creating {} render threads", threadLimitCPU);
+            // Start with half of the threads, the rest get added on demand
+            int initialThreads = Math.max(1, this.getMaxWorkerCount() / 2);
+            Litematica.logger.info("Creating {} render threads, max {}", initialThreads, this.getMaxWorkerCount());
 
-            for (int i = 0; i < threadLimitCPU; ++i)
+            for (int i = 0; i < initialThreads; ++i)
             {
-                ChunkRenderWorkerLitematica worker = new ChunkRenderWorkerLitematica(this);
-                Thread thread = THREAD_FACTORY.newThread(worker);
-                thread.start();
-                this.listThreadedWorkers.add(worker);
-                this.listWorkerThreads.add(thread);
+                this.addWorker();
             }
         }
 
-        Litematica.logger.info("Using {} total BufferBuilder caches", this.countRenderBuilders + 1);
+        Litematica.logger.info("Using up to {} total BufferBuilder caches", this.countRenderBuilders + 1);
 
+        // The caches are created on demand in allocateRenderBuilder(), and released when idle
         this.queueFreeRenderBuilders = Queues.newArrayBlockingQueue(this.countRenderBuilders);
+        this.renderWorker = new ChunkRenderWorkerLitematica(this, new BufferBuilderCache());
+    }
+
+    /**
+     * @return the current maximum number of worker threads, from the config or the CPU and memory limits
+     */
+    public int getMaxWorkerCount()
+    {
+        int configLimit = Configs.Generic.RENDER_THREADS_MAX.getIntegerValue();
+        return configLimit > 0 ? Math.min(configLimit, this.threadLimit) : this.threadLimit;
+    }
+
+    public int getWorkerCount()
+    {
+        return this.listThreadedWorkers.size();
+    }
+
+    private void addWorker()
+    {
+        ChunkRenderWorkerLitematica worker = new ChunkRenderWorkerLitematica(this);
+        Thread thread = THREAD_FACTORY.newThread(worker);
+        thread.start();
+        this.listThreadedWorkers.add(worker);
+        this.listWorkerThreads.add(thread);
+    }
+
+    private void removeWorker()
+    {
+        int index = this.listThreadedWorkers.size() - 1;
+
+        // The worker finishes its current task, and stops when it next checks for more work
+        this.listThreadedWorkers.remove(index).notifyToStop();
+        this.listWorkerThreads.remove(index);
+    }
 
-        for (int i = 0; i < this.countRenderBuilders; ++i)
+    /**
+     * Adjusts the number of worker threads from the task backlog and the measured frame time,
+     * and releases the free buffer caches after being idle for a while.
+     * This should be called once per frame from the render thread.
+     */
+    public void updateWorkers()
+    {
+        long now = System.nanoTime();
+
+        if (this.lastFrameTime != 0L)
         {
-            this.queueFreeRenderBuilders.add(new BufferBuilderCache());
+            double frameTimeMs = (double) (now - this.lastFrameTime) / 1000000.0;
+            this.averageFrameTimeMs = this.averageFrameTimeMs * 0.9 + frameTimeMs * 0.1;
         }
 
-        this.renderWorker = new ChunkRenderWorkerLitematica(this, new BufferBuilderCache());
+        this.lastFrameTime = now;
+        BufferBuilderPool.getInstance().trimIdleBuffers();
+
+        // Single-threaded mode, the tasks are processed on the render thread
+        if (this.listWorkerThreads.isEmpty() || now - this.lastWorkerAdjustTime < WORKER_ADJUST_INTERVAL_NANOS)
+        {
+            return;
+        }
+
+        this.lastWorkerAdjustTime = now;
+
+        int backlog = this.queueChunkUpdates.size();
+        int workers = this.listThreadedWorkers.size();
+        int maxWorkers = this.getMaxWorkerCount();
+
+        if (backlog > 0 || this.getPendingUploadCount() > 0)
+        {
+            this.idleStartTime = now;
+        }
+
+        if (workers > maxWorkers || (workers > 1 && this.averageFrameTimeMs > SLOW_FRAME_TIME_MS))
+        {
+            this.removeWorker();
+        }
+        else if (workers < maxWorkers && backlog > workers * BACKLOG_PER_WORKER && this.averageFrameTimeMs < FAST_FRAME_TIME_MS)
+        {
+            this.addWorker();
+        }
+        else if (now - this.idleStartTime > IDLE_TIMEOUT_NANOS)
+        {
+            if (workers > 1)
+            {
+                this.removeWorker();
+            }
+
+            this.releaseFreeRenderBuilders();
+        }
+    }
+
+    private void releaseFreeRenderBuilders()
+    {
+        synchronized (this.queueFreeRenderBuilders)
+        {
+            while (this.queueFreeRenderBuilders.poll() != null)
+            {
+                --this.createdRenderBuilders;
+            }
+        }
     }
 
     public String getDebugInfo()
     {
-        return this.listWorkerThreads.isEmpty() ? String.format("pC: %03d, single-threaded", this.queueChunkUpdates.size()) : String.format("pC: %03d, pU: %1d, aB: %1d", this.queueChunkUpdates.size(), this.queueChunkUploads.size(), this.queueFreeRenderBuilders.size());
+        String str = this.listWorkerThreads.isEmpty() ? String.format("pC: %03d, single-threaded", this.queueChunkUpdates.size()) : String.format("pC: %03d, pU: %1d, aB: %1d", this.queueChunkUpdates.size(), this.queueChunkUploads.size(), this.queueFreeRenderBuilders.size());
+        return str + String.format(", W: %d, lat: %.1f ms, cancel: %d", this.getWorkerCount(), this.getAverageTaskLatencyMs(), this.getCancelledTaskCount());
+    }
+
+    public int getQueuedTaskCount()
+    {
+        return this.queueChunkUpdates.size();
+    }
+
+    public int getPendingUploadCount()
+    {
+        synchronized (this.queueChunkUploads)
+        {
+            return this.queueChunkUploads.size();
+        }
+    }
+
+    public synchronized long getCompletedTaskCount()
+    {
+        return this.completedTaskCount;
+    }
+
+    public synchronized long getCancelledTaskCount()
+    {
+        return this.cancelledTaskCount;
+    }
+
+    /**
+     * @return the moving average of the time from creating a task to having its results uploaded
+     */
+    public synchronized double getAverageTaskLatencyMs()
+    {
+        return this.averageTaskLatencyMs;
+    }
+
+    /**
+     * @return the maximum task latency since the last call of this method
+     */
+    public synchronized double getAndResetMaxTaskLatencyMs()
+    {
+        double max = this.maxTaskLatencyMs;
+        this.maxTaskLatencyMs = 0.0;
+        return max;
+    }
+
+    synchronized void onTaskCompleted(ChunkCompileTaskGeneratorSchematic generator)
+    {
+        long latencyNanos = System.nanoTime() - generator.getCreationTime();
+        double latencyMs = (double) latencyNanos / 1000000.0;
+
+        this.averageTaskLatencyMs = this.completedTaskCount == 0 ? latencyMs : this.averageTaskLatencyMs * 0.95 + latencyMs * 0.05;
+        this.maxTaskLatencyMs = Math.max(this.maxTaskLatencyMs, latencyMs);
+        ++this.completedTaskCount;
+
+        RenderMetrics.getInstance().addTaskLatency(latencyNanos);
+    }
+
+    /**
+     * Re-ranks the pending compile tasks by the distance from the given camera position,
+     * giving a lower priority to the render chunks that are not currently visible.
+     * The tasks of render chunks that have not been visible in a while are cancelled
+     * (which marks them for an update again), before any worker takes a buffer cache for them.
+     * To keep this off the render thread most of the time, the queue is only re-ranked when the camera
+     * has moved to another render chunk, or when enough time has passed since the previous re-ranking.
+     * @param viewUpdate the index of the current view update, see {@link RenderChunkSchematicVbo#getLastVisibleViewUpdate()}
+     */
+    public void updateTaskPriorities(double x, double y, double z, int viewUpdate)
+    {
+        if (this.queueChunkUpdates.isEmpty())
+        {
+            return;
+        }
+
+        long currentTime = System.nanoTime();
+        long cameraPos = (new BlockPos(MathHelper.floor(x) >> 4, MathHelper.floor(y) >> 4, MathHelper.floor(z) >> 4)).toLong();
+
+        if (cameraPos == this.lastPriorityUpdatePos &&
+            currentTime - this.lastPriorityUpdateTime < PRIORITY_UPDATE_INTERVAL_NANOS)
+        {
+            return;
+        }
+
+        this.lastPriorityUpdatePos = cameraPos;
+        this.lastPriorityUpdateTime = currentTime;
+
+        List<ChunkCompileTaskGeneratorSchematic> tasks = new ArrayList<>(this.queueChunkUpdates.size());
+
+        // The priority of the tasks can't be changed while they are in the queue
+        this.queueChunkUpdates.drainTo(tasks);
+
+        List<ChunkCompileTaskGeneratorSchematic> keptTasks = new ArrayList<>(tasks.size());
+        int cancelled = 0;
+
+        for (ChunkCompileTaskGeneratorSchematic task : tasks)
+        {
+            RenderChunkSchematicVbo renderChunk = task.getRenderChunk();
+            int notVisibleFor = viewUpdate - renderChunk.getLastVisibleViewUpdate();
+
+            if (notVisibleFor > OBSOLETE_TASK_VIEW_UPDATES)
+            {
+                task.finish();
+                ++cancelled;
+                continue;
+            }
+
+            BlockPos pos = renderChunk.getPosition();
+            double dx = pos.getX() + 8.0 - x;
+            double dy = pos.getY() + 8.0 - y;
+            double dz = pos.getZ() + 8.0 - z;
+            double priority = dx * dx + dy * dy + dz * dz;
+
+            if (notVisibleFor > 0)
+            {
+                priority *= NOT_VISIBLE_PRIORITY_MULTIPLIER;
+            }
+
+            task.setPriority(priority);
+            keptTasks.add(task);
+        }
+
+        this.queueChunkUpdates.addAll(keptTasks);
+
+        if (cancelled > 0)
+        {
+            synchronized (this)
+            {
+                this.cancelledTaskCount += cancelled;
+            }
+        }
     }
 
     public boolean runChunkUploads(long finishTimeNano)
@@ -196,13 +445,13 @@ public class ChunkRenderDispatcherLitematica
         this.clearChunkUpdates();
         List<BufferBuilderCache> list = new ArrayList<>();
 
-        while (list.size() != this.countRenderBuilders)
+        while (list.size() != this.getCreatedRenderBuilderCount())
         {
             this.runChunkUploads(Long.MAX_VALUE);
 
             try
             {
-                list.add(this.allocateRenderBuilder());
+                list.add(this.queueFreeRenderBuilders.take());
             }
             catch (InterruptedException e)
             {
@@ -219,12 +468,51 @@ public class ChunkRenderDispatcherLitematica
 
     public BufferBuilderCache allocateRenderBuilder() throws InterruptedException
     {
+        BufferBuilderCache cache = this.queueFreeRenderBuilders.poll();
+
+        if (cache != null)
+        {
+            return cache;
+        }
+
+        synchronized (this.queueFreeRenderBuilders)
+        {
+            if (this.createdRenderBuilders < this.countRenderBuilders)
+            {
+                ++this.createdRenderBuilders;
+                return new BufferBuilderCache();
+            }
+        }
+
         return this.queueFreeRenderBuilders.take();
     }
 
+    public int getCreatedRenderBuilderCount()
+    {
+        synchronized (this.queueFreeRenderBuilders)
+        {
+            return this.createdRenderBuilders;
+        }
+    }
+
+    public int getFreeRenderBuilderCount()
+    {
+        return this.queueFreeRenderBuilders.size();
+    }
+
+    public int getMaxRenderBuilderCount()
+    {
+        return this.countRenderBuilders;
+    }
+
+    /**
+     * @return the next task, or null if there were no tasks within a short while.
+     * The timeout allows the removed workers to notice that they should stop.
+     */
+    @Nullable
     public ChunkCompileTaskGeneratorSchematic getNextChunkUpdate() throws InterruptedException
     {
-        return this.queueChunkUpdates.take();
+        return this.queueChunkUpdates.poll(100, TimeUnit.MILLISECONDS);
     }
 
     public boolean updateTransparencyLater(RenderChunkSchematicVbo renderChunk)
@@ -267,6 +555,8 @@ public class ChunkRenderDispatcherLitematica
         if (Minecraft.getMinecraft().isCallingFromMinecraftThread())
         {
             //if (GuiBase.isCtrlDown()) System.out.printf("uploadChunkBlocks()\n");
+            RenderMetrics.getInstance().onBlockLayerUpload(layer, buffer);
+
             if (OpenGlHelper.useVbo())
             {
                 this.uploadVertexBuffer(buffer, renderChunk.getVertexBufferByLayer(layer.ordinal()));
@@ -305,6 +595,8 @@ public class ChunkRenderDispatcherLitematica
         if (Minecraft.getMinecraft().isCallingFromMinecraftThread())
         {
             //if (GuiBase.isCtrlDown()) System.out.printf("uploadChunkOverlay()\n");
+            RenderMetrics.getInstance().onOverlayUpload(type, buffer);
+
             if (OpenGlHelper.useVbo())
             {
                 this.uploadVertexBuffer(buffer, renderChunk.getOverlayVertexBuffer(type));
@@ -395,12 +687,13 @@ public class ChunkRenderDispatcherLitematica
             }
         }
 
-        this.queueFreeRenderBuilders.clear();
+        this.releaseFreeRenderBuilders();
+        BufferBuilderPool.getInstance().clear();
     }
 
     public boolean hasNoFreeRenderBuilders()
     {
-        return this.queueFreeRenderBuilders.isEmpty();
+        return this.queueFreeRenderBuilders.isEmpty() && this.getCreatedRenderBuilderCount() >= this.countRenderBuilders;
     }
 
     public static class PendingUpload implements Comparable<ChunkRenderDispatcherLitematica.PendingUpload>
@@ -26,7 +26,7 @@ public class ChunkRenderWorkerLitematica implements Runnable
 
     private final ChunkRenderDispatcherLitematica chunkRenderDispatcher;
     @Nullable private final BufferBuilderCache bufferCache;
-    private boolean shouldRun;
+    private volatile boolean shouldRun;
 
     public ChunkRenderWorkerLitematica(ChunkRenderDispatcherLitematica chunkRenderDispatcherIn)
     {
@@ -47,7 +47,12 @@ public class ChunkRenderWorkerLitematica implements Runnable
         {
             try
             {
-                this.processTask(this.chunkRenderDispatcher.getNextChunkUpdate());
+                ChunkCompileTaskGeneratorSchematic generator = this.chunkRenderDispatcher.getNextChunkUpdate();
+
+                if (generator != null)
+                {
+                    this.processTask(generator);
+                }
             }
             catch (InterruptedException e)
             {
@@ -95,11 +100,13 @@ public class ChunkRenderWorkerLitematica implements Runnable
         else
         {
             generator.setRegionRenderCacheBuilder(this.getRegionRenderCacheBuilder());
+            generator.getBufferCache().setSizeHints(generator.getRenderChunk().getBufferSizeHints());
 
             ChunkCompileTaskGeneratorSchematic.Type generatorType = generator.getType();
             float x = (float) EntityWrap.getX(entity);
             float y = (float) EntityWrap.getY(entity) + entity.getEyeHeight();
             float z = (float) EntityWrap.getZ(entity);
+            long compileStartTime = System.nanoTime();
 
             if (generatorType == ChunkCompileTaskGeneratorSchematic.Type.REBUILD_CHUNK)
             {
@@ -110,6 +117,8 @@ public class ChunkRenderWorkerLitematica implements Runnable
                 generator.getRenderChunk().resortTransparency(x, y, z, generator);
             }
 
+            RenderMetrics.getInstance().addCompileTime(System.nanoTime() - compileStartTime);
+
             generator.getLock().lock();
 
             try
@@ -137,12 +146,16 @@ public class ChunkRenderWorkerLitematica implements Runnable
             BufferBuilderCache buffers = generator.getBufferCache();
             RenderChunkSchematicVbo renderChunk = (RenderChunkSchematicVbo) generator.getRenderChunk();
 
+            buffers.storeUsedSizes(generatorType == ChunkCompileTaskGeneratorSchematic.Type.REBUILD_CHUNK &&
+                                   compiledChunk.areBlockLayersReused() == false);
+
             if (generatorType == ChunkCompileTaskGeneratorSchematic.Type.REBUILD_CHUNK)
             {
                 //if (GuiBase.isCtrlDown()) System.out.printf("pre uploadChunk()\n");
                 for (BlockRenderLayer layer : BlockRenderLayer.values())
                 {
-                    if (compiledChunk.isLayerEmpty(layer) == false)
+                    // An overlay-only rebuild keeps the already uploaded block model buffers
+                    if (compiledChunk.isLayerEmpty(layer) == false && compiledChunk.areBlockLayersReused() == false)
                     {
                         //if (GuiBase.isCtrlDown()) System.out.printf("REBUILD_CHUNK pre uploadChunkBlocks()\n");
                         BufferBuilder buffer = buffers.getWorldRendererByLayer(layer);
@@ -216,6 +229,7 @@ public class ChunkRenderWorkerLitematica implements Runnable
                         return;
                     }
 
+                    ChunkRenderWorkerLitematica.this.chunkRenderDispatcher.onTaskCompleted(generator);
                     generator.getRenderChunk().setChunkRenderData(compiledChunk);
                 }
 
@@ -240,9 +254,13 @@ public class ChunkRenderWorkerLitematica implements Runnable
 
     private void freeRenderBuilder(ChunkCompileTaskGeneratorSchematic generator)
     {
+        BufferBuilderCache cache = generator.getBufferCache();
+
+        cache.releaseBuffers();
+
         if (this.bufferCache == null)
         {
-            this.chunkRenderDispatcher.freeRenderBuilder(generator.getBufferCache());
+            this.chunkRenderDispatcher.freeRenderBuilder(cache);
         }
     }
 
@@ -1,9 +1,15 @@
 package litematica.render.schematic;
 
+import java.util.BitSet;
+import javax.annotation.Nullable;
+
 import net.minecraft.client.renderer.BufferBuilder;
 import net.minecraft.client.renderer.chunk.CompiledChunk;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.BlockRenderLayer;
+import net.minecraft.util.math.BlockPos;
 
+import litematica.mixin.IMixinCompiledChunk;
 import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
 
 public class CompiledChunkSchematic extends CompiledChunk
@@ -12,7 +18,84 @@ public class CompiledChunkSchematic extends CompiledChunk
     private final boolean[] overlayLayersStarted = new boolean[OverlayRenderType.values().length];
     private final BufferBuilder.State[] blockBufferStates = new BufferBuilder.State[BlockRenderLayer.values().length];
     private final BufferBuilder.State[] overlayBufferStates = new BufferBuilder.State[OverlayRenderType.values().length];
+    private final BitSet renderedBlocks = new BitSet(4096);
     private boolean overlayEmpty = true;
+    private boolean blockLayersReused;
+    @Nullable private BlockPos origin;
+
+    /**
+     * @return the position of the render chunk at the time this data was compiled,
+     * or null if this is the empty placeholder data
+     */
+    @Nullable
+    public BlockPos getOrigin()
+    {
+        return this.origin;
+    }
+
+    public void setOrigin(BlockPos origin)
+    {
+        this.origin = origin;
+    }
+
+    /**
+     * Marks the given position as one where the schematic block was rendered.
+     * The block model layers depend on the client world only via this set of positions.
+     */
+    public void markBlockRendered(BlockPos pos)
+    {
+        this.renderedBlocks.set(((pos.getY() & 0xF) << 8) | ((pos.getZ() & 0xF) << 4) | (pos.getX() & 0xF));
+    }
+
+    public BitSet getRenderedBlocks()
+    {
+        return this.renderedBlocks;
+    }
+
+    public void setRenderedBlocks(BitSet renderedBlocks)
+    {
+        this.renderedBlocks.clear();
+        this.renderedBlocks.or(renderedBlocks);
+    }
+
+    /**
+     * @return true if this data re-uses the already uploaded block model layers
+     * of the previous data, and only the overlay buffers need to be uploaded
+     */
+    public boolean areBlockLayersReused()
+    {
+        return this.blockLayersReused;
+    }
+
+    /**
+     * Copies the block model layer state from the previous data of the same render chunk,
+     * for an overlay-only rebuild which keeps the already uploaded block model buffers.
+     */
+    public void copyBlockLayersFrom(CompiledChunkSchematic other)
+    {
+        for (BlockRenderLayer layer : BlockRenderLayer.values())
+        {
+            if (other.isLayerStarted(layer))
+            {
+                this.setLayerStarted(layer);
+            }
+
+            if (other.isLayerEmpty(layer) == false)
+            {
+                ((IMixinCompiledChunk) this).invokeSetLayerUsed(layer);
+            }
+
+            this.blockBufferStates[layer.ordinal()] = other.blockBufferStates[layer.ordinal()];
+        }
+
+        for (TileEntity te : other.getTileEntities())
+        {
+            this.addTileEntity(te);
+        }
+
+        this.setRenderedBlocks(other.renderedBlocks);
+        this.blockLayersReused = true;
+    }
 
     public boolean isOverlayEmpty()
     {
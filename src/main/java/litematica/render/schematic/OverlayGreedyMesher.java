@@ -0,0 +1,252 @@
+package litematica.render.schematic;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+
+import malilib.util.data.Color4f;
+import litematica.util.PositionUtils;
+
+/**
+ * Collects the simple box shaped overlay sides and edges of one sub-chunk,
+ * and then merges the coplanar same-colored sides into larger quads,
+ * and the collinear same-colored edges into longer lines.
+ * The resulting geometry covers exactly the same area as the individual per-block
+ * sides and edges would, just with much fewer vertices.
+ */
+public class OverlayGreedyMesher
+{
+    /** Per side, plane and color: a 16 x 16 grid of the sides, one int of bits per row */
+    protected final Long2ObjectOpenHashMap<int[]> faces = new Long2ObjectOpenHashMap<>();
+    /** Per axis, line and color: the bits of the unit length edges along that line */
+    protected final Long2ObjectOpenHashMap<int[]> edges = new Long2ObjectOpenHashMap<>();
+
+    public boolean hasFaces()
+    {
+        return this.faces.isEmpty() == false;
+    }
+
+    public boolean hasEdges()
+    {
+        return this.edges.isEmpty() == false;
+    }
+
+    public void clear()
+    {
+        this.faces.clear();
+        this.edges.clear();
+    }
+
+    public void addAllFaces(BlockPos pos, Color4f color)
+    {
+        for (EnumFacing side : PositionUtils.FACING_ALL)
+        {
+            this.addFace(pos, side, color);
+        }
+    }
+
+    public void addFace(BlockPos pos, EnumFacing side, Color4f color)
+    {
+        int x = pos.getX() & 0xF;
+        int y = pos.getY() & 0xF;
+        int z = pos.getZ() & 0xF;
+        int positive = side.getAxisDirection() == EnumFacing.AxisDirection.POSITIVE ? 1 : 0;
+        int plane;
+        int u;
+        int v;
+
+        switch (side.getAxis())
+        {
+            case X:     plane = x + positive; u = z; v = y; break;
+            case Y:     plane = y + positive; u = x; v = z; break;
+            default:    plane = z + positive; u = x; v = y; break;
+        }
+
+        long key = ((long) color.intValue << 32) | (side.ordinal() << 8) | plane;
+        int[] rows = this.faces.get(key);
+
+        if (rows == null)
+        {
+            rows = new int[16];
+            this.faces.put(key, rows);
+        }
+
+        rows[v] |= (1 << u);
+    }
+
+    public void addAllEdges(BlockPos pos, Color4f color)
+    {
+        for (EnumFacing.Axis axis : PositionUtils.AXES_ALL)
+        {
+            for (int corner = 0; corner < 4; ++corner)
+            {
+                this.addEdge(pos, axis, corner, color);
+            }
+        }
+    }
+
+    /**
+     * Adds the same edge as {@link litematica.render.RenderUtils#drawBlockBoxEdgeBatchedLines} would render
+     */
+    public void addEdge(BlockPos pos, EnumFacing.Axis axis, int corner, Color4f color)
+    {
+        Vec3i offset = PositionUtils.getEdgeNeighborOffsets(axis, corner)[corner];
+        int x = (pos.getX() & 0xF) + offset.getX();
+        int y = (pos.getY() & 0xF) + offset.getY();
+        int z = (pos.getZ() & 0xF) + offset.getZ();
+        int along;
+        int a;
+        int b;
+
+        switch (axis)
+        {
+            case X:     along = x; a = y; b = z; break;
+            case Y:     along = y; a = x; b = z; break;
+            default:    along = z; a = x; b = y; break;
+        }
+
+        long key = ((long) color.intValue << 32) | (axis.ordinal() << 16) | (a << 8) | b;
+        int[] bits = this.edges.get(key);
+
+        if (bits == null)
+        {
+            bits = new int[1];
+            this.edges.put(key, bits);
+        }
+
+        bits[0] |= (1 << along);
+    }
+
+    /**
+     * Renders the merged sides as quads, and clears the collected sides
+     * @param origin the minimum corner of the sub-chunk
+     */
+    public void renderQuads(BlockPos origin, BufferBuilder buffer)
+    {
+        for (Long2ObjectMap.Entry<int[]> entry : this.faces.long2ObjectEntrySet())
+        {
+            long key = entry.getLongKey();
+            int[] rows = entry.getValue();
+            int color = (int) (key >>> 32);
+            EnumFacing side = EnumFacing.values()[(int) (key >>> 8) & 0xFF];
+            int plane = (int) key & 0xFF;
+
+            for (int v = 0; v < 16; ++v)
+            {
+                while (rows[v] != 0)
+                {
+                    int u = Integer.numberOfTrailingZeros(rows[v]);
+                    int width = Integer.numberOfTrailingZeros(~(rows[v] >>> u));
+                    int mask = ((1 << width) - 1) << u;
+                    int height = 1;
+
+                    // Extend the rectangle to the following rows, as long as they have the entire run
+                    while (v + height < 16 && (rows[v + height] & mask) == mask)
+                    {
+                        rows[v + height] &= ~mask;
+                        ++height;
+                    }
+
+                    rows[v] &= ~mask;
+                    addQuad(origin, side.getAxis(), plane, u, v, u + width, v + height, color, buffer);
+                }
+            }
+        }
+
+        this.faces.clear();
+    }
+
+    /**
+     * Renders the merged edges as lines, and clears the collected edges
+     * @param origin the minimum corner of the sub-chunk
+     */
+    public void renderLines(BlockPos origin, BufferBuilder buffer)
+    {
+        for (Long2ObjectMap.Entry<int[]> entry : this.edges.long2ObjectEntrySet())
+        {
+            long key = entry.getLongKey();
+            int bits = entry.getValue()[0];
+            int color = (int) (key >>> 32);
+            EnumFacing.Axis axis = EnumFacing.Axis.values()[(int) (key >>> 16) & 0xFF];
+            int a = (int) (key >>> 8) & 0xFF;
+            int b = (int) key & 0xFF;
+
+            while (bits != 0)
+            {
+                int start = Integer.numberOfTrailingZeros(bits);
+                int length = Integer.numberOfTrailingZeros(~(bits >>> start));
+                bits &= ~(((1 << length) - 1) << start);
+
+                addLine(origin, axis, a, b, start, start + length, color, buffer);
+            }
+        }
+
+        this.edges.clear();
+    }
+
+    protected static void addQuad(BlockPos origin, EnumFacing.Axis axis, int plane, int u1, int v1, int u2, int v2,
+                                  int color, BufferBuilder buffer)
+    {
+        int r = (color >>> 16) & 0xFF;
+        int g = (color >>>  8) & 0xFF;
+        int b =  color         & 0xFF;
+        int a = (color >>> 24) & 0xFF;
+        double ox = origin.getX();
+        double oy = origin.getY();
+        double oz = origin.getZ();
+
+        switch (axis)
+        {
+            case X:
+                buffer.pos(ox + plane, oy + v1, oz + u1).color(r, g, b, a).endVertex();
+                buffer.pos(ox + plane, oy + v1, oz + u2).color(r, g, b, a).endVertex();
+                buffer.pos(ox + plane, oy + v2, oz + u2).color(r, g, b, a).endVertex();
+                buffer.pos(ox + plane, oy + v2, oz + u1).color(r, g, b, a).endVertex();
+                break;
+            case Y:
+                buffer.pos(ox + u1, oy + plane, oz + v1).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u1, oy + plane, oz + v2).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u2, oy + plane, oz + v2).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u2, oy + plane, oz + v1).color(r, g, b, a).endVertex();
+                break;
+            default:
+                buffer.pos(ox + u1, oy + v1, oz + plane).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u2, oy + v1, oz + plane).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u2, oy + v2, oz + plane).color(r, g, b, a).endVertex();
+                buffer.pos(ox + u1, oy + v2, oz + plane).color(r, g, b, a).endVertex();
+                break;
+        }
+    }
+
+    protected static void addLine(BlockPos origin, EnumFacing.Axis axis, int a, int b, int start, int end,
+                                  int color, BufferBuilder buffer)
+    {
+        int red   = (color >>> 16) & 0xFF;
+        int green = (color >>>  8) & 0xFF;
+        int blue  =  color         & 0xFF;
+        int alpha = (color >>> 24) & 0xFF;
+        double ox = origin.getX();
+        double oy = origin.getY();
+        double oz = origin.getZ();
+
+        switch (axis)
+        {
+            case X:
+                buffer.pos(ox + start, oy + a, oz + b).color(red, green, blue, alpha).endVertex();
+                buffer.pos(ox + end  , oy + a, oz + b).color(red, green, blue, alpha).endVertex();
+                break;
+            case Y:
+                buffer.pos(ox + a, oy + start, oz + b).color(red, green, blue, alpha).endVertex();
+                buffer.pos(ox + a, oy + end  , oz + b).color(red, green, blue, alpha).endVertex();
+                break;
+            default:
+                buffer.pos(ox + a, oy + b, oz + start).color(red, green, blue, alpha).endVertex();
+                buffer.pos(ox + a, oy + b, oz + end  ).color(red, green, blue, alpha).endVertex();
+                break;
+        }
+    }
+}
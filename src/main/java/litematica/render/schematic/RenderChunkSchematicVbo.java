@@ -1,6 +1,7 @@
 package litematica.render.schematic;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -20,6 +21,8 @@ import net.minecraft.client.renderer.RenderGlobal;
 import net.minecraft.client.renderer.block.model.IBakedModel;
 import net.minecraft.client.renderer.chunk.CompiledChunk;
 import net.minecraft.client.renderer.chunk.RenderChunk;
+import net.minecraft.client.renderer.chunk.SetVisibility;
+import net.minecraft.client.renderer.chunk.VisGraph;
 import net.minecraft.client.renderer.tileentity.TileEntityRendererDispatcher;
 import net.minecraft.client.renderer.tileentity.TileEntitySpecialRenderer;
 import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
@@ -48,11 +51,12 @@ import litematica.util.value.OverlayType;
 
 public class RenderChunkSchematicVbo extends RenderChunk
 {
-    public static int schematicRenderChunksUpdated;
+    private static final ThreadLocal<OverlayGreedyMesher> OVERLAY_MESHER = ThreadLocal.withInitial(OverlayGreedyMesher::new);
 
     private final RenderGlobalSchematic renderGlobal;
     private final VertexBuffer[] vertexBufferOverlay = new VertexBuffer[OverlayRenderType.values().length];
     private final Set<TileEntity> setTileEntities = new HashSet<>();
+    private final int[] bufferSizeHints = BufferBuilderCache.createSizeHints();
     private final List<IntBoundingBox> boxes = new ArrayList<>();
     private final EnumSet<OverlayRenderType> existingOverlays = EnumSet.noneOf(OverlayRenderType.class);
     private ChunkCompileTaskGeneratorSchematic compileTask;
@@ -62,11 +66,17 @@ public class RenderChunkSchematicVbo extends RenderChunk
     private ChunkCacheSchematic clientWorldView;
 
     private CompiledChunkSchematic schematicChunkRenderData;
+    @Nullable private CompiledChunkSchematic overlayUpdateBaseData;
 
     private boolean hasOverlay = false;
+    private boolean overlayOnlyUpdate;
+    /** Set when the block layers need to be rebuilt. Unlike the needsUpdate flag, this only gets cleared by starting a full rebuild. */
+    private boolean fullRebuildPending = true;
+    private int lastVisibleViewUpdate;
 
     private boolean ignoreClientWorldFluids;
     private boolean overlayEnabled;
+    private boolean overlayGreedyMeshing;
     private boolean overlayLinesEnabled;
     private boolean overlayModelLines;
     private boolean overlayModelSides;
@@ -78,6 +88,7 @@ public class RenderChunkSchematicVbo extends RenderChunk
     private boolean overlayTypeWrongState;
     private boolean renderColliding;
     private boolean renderAsTranslucent;
+    private boolean useMeshCache;
     private Color4f overlayColorExtra;
     private Color4f overlayColorMissing;
     private Color4f overlayColorWrongBlock;
@@ -105,6 +116,41 @@ public class RenderChunkSchematicVbo extends RenderChunk
         return this.schematicChunkRenderData;
     }
 
+    /**
+     * @return the index of the last view update (in RenderGlobalSchematic) where this render chunk was visible
+     */
+    public int getLastVisibleViewUpdate()
+    {
+        return this.lastVisibleViewUpdate;
+    }
+
+    public void setLastVisibleViewUpdate(int viewUpdate)
+    {
+        this.lastVisibleViewUpdate = viewUpdate;
+    }
+
+    /**
+     * Marks this render chunk for a rebuild.
+     * @param overlayOnly true if only the client world has changed in this render chunk.
+     * Then the rebuild can keep the current block model buffers, unless something else
+     * requests a full rebuild before this render chunk gets rebuilt.
+     */
+    public void setNeedsUpdate(boolean immediate, boolean overlayOnly)
+    {
+        if (overlayOnly == false)
+        {
+            this.overlayOnlyUpdate = false;
+            this.fullRebuildPending = true;
+        }
+        // Don't downgrade an already pending full rebuild
+        else if (this.needsUpdate() == false)
+        {
+            this.overlayOnlyUpdate = true;
+        }
+
+        this.setNeedsUpdate(immediate);
+    }
+
     public void setChunkRenderData(CompiledChunkSchematic data)
     {
         this.chunkRenderDataLock.lock();
@@ -135,6 +181,14 @@ public class RenderChunkSchematicVbo extends RenderChunk
         return this.vertexBufferOverlay[type.ordinal()];
     }
 
+    /**
+     * @return the used buffer sizes of the previous compile, see {@link BufferBuilderCache#setSizeHints(int[])}
+     */
+    public int[] getBufferSizeHints()
+    {
+        return this.bufferSizeHints;
+    }
+
     @Override
     public void deleteGlResources()
     {
@@ -220,9 +274,15 @@ public class RenderChunkSchematicVbo extends RenderChunk
         Set<TileEntity> tileEntities = new HashSet<>();
         BlockPos posChunk = this.getPosition();
         LayerRange range = DataManager.getRenderLayerRange();
+        VisGraph visGraph = new VisGraph();
+        SetVisibility visibility = null;
+        SchematicMeshCache.MeshKey meshKey = null;
+
+        data.setOrigin(posChunk.toImmutable());
 
         this.existingOverlays.clear();
         this.hasOverlay = false;
+        OVERLAY_MESHER.get().clear();
 
         synchronized (this.boxes)
         {
@@ -230,58 +290,49 @@ public class RenderChunkSchematicVbo extends RenderChunk
                 (this.schematicWorldView.isEmpty() == false || this.clientWorldView.isEmpty() == false) &&
                  range.intersects(new ChunkSectionPos(posChunk.getX() >> 4, posChunk.getY() >> 4, posChunk.getZ() >> 4)))
             {
-                ++schematicRenderChunksUpdated;
+                RenderMetrics.getInstance().onChunkRebuilt();
 
-                boolean[] usedLayers = new boolean[BlockRenderLayer.values().length];
                 BufferBuilderCache buffers = generator.getBufferCache();
+                CompiledChunkSchematic baseData = this.overlayUpdateBaseData;
 
-                for (IntBoundingBox box : this.boxes)
+                if (baseData != null && posChunk.equals(baseData.getOrigin()) &&
+                    this.tryRebuildOverlayOnly(x, y, z, baseData, range, visGraph, data, buffers))
                 {
-                    box = range.getClampedBox(box);
-
-                    // The rendered layer(s) don't intersect this sub-volume
-                    if (box == null)
-                    {
-                        continue;
-                    }
-
-                    BlockPos posFrom = new BlockPos(box.minX, box.minY, box.minZ);
-                    BlockPos posTo   = new BlockPos(box.maxX, box.maxY, box.maxZ);
-
-                    for (BlockPos.MutableBlockPos posMutable : BlockPos.getAllInBoxMutable(posFrom, posTo))
-                    {
-                        this.renderBlocksAndOverlay(posMutable, tileEntities, usedLayers, data, buffers);
-                    }
+                    this.addClientWorldOpaqueBlocks(posChunk, visGraph);
+                    data.setVisibility(visGraph.computeVisibility());
+                    // The tile entities only depend on the rendered blocks, so they didn't change either
+                    return;
                 }
 
-                for (BlockRenderLayer layerTmp : BlockRenderLayer.values())
-                {
-                    if (usedLayers[layerTmp.ordinal()])
-                    {
-                        ((IMixinCompiledChunk) data).invokeSetLayerUsed(layerTmp);
-                    }
+                meshKey = this.useMeshCache ? this.createMeshKey(posChunk, range) : null;
+                SchematicMeshCache.CachedMesh cachedMesh = meshKey != null ? SchematicMeshCache.getInstance().get(meshKey) : null;
 
-                    if (data.isLayerStarted(layerTmp))
-                    {
-                        this.postRenderBlocks(layerTmp, x, y, z, buffers.getWorldRendererByLayer(layerTmp), data);
-                    }
+                if (cachedMesh != null)
+                {
+                    this.applyCachedMesh(cachedMesh, x, y, z, data, buffers);
+                    visibility = cachedMesh.getVisibility();
+                    meshKey = null;
                 }
-
-                if (this.hasOverlay)
+                else
                 {
-                    //if (GuiBase.isCtrlDown()) System.out.printf("postRenderOverlays\n");
-                    for (OverlayRenderType type : this.existingOverlays)
-                    {
-                        if (data.isOverlayTypeStarted(type))
-                        {
-                            data.setOverlayTypeUsed(type);
-                            this.postRenderOverlay(type, x, y, z, buffers.getOverlayBuffer(type), data);
-                        }
-                    }
+                    this.renderAllBlocksAndOverlays(x, y, z, tileEntities, range, visGraph, data, buffers);
                 }
             }
         }
 
+        if (visibility == null)
+        {
+            this.addClientWorldOpaqueBlocks(posChunk, visGraph);
+            visibility = visGraph.computeVisibility();
+
+            if (meshKey != null)
+            {
+                SchematicMeshCache.getInstance().put(meshKey, this.createCachedMesh(data, generator.getBufferCache(), visibility));
+            }
+        }
+
+        data.setVisibility(visibility);
+
         this.getLockCompileTask().lock();
 
         try
@@ -300,7 +351,329 @@ public class RenderChunkSchematicVbo extends RenderChunk
         }
     }
 
-    protected void renderBlocksAndOverlay(BlockPos pos, Set<TileEntity> tileEntities, boolean[] usedLayers, CompiledChunkSchematic data, BufferBuilderCache buffers)
+    protected void renderAllBlocksAndOverlays(float x, float y, float z, Set<TileEntity> tileEntities, LayerRange range,
+                                              VisGraph visGraph, CompiledChunkSchematic data, BufferBuilderCache buffers)
+    {
+        boolean[] usedLayers = new boolean[BlockRenderLayer.values().length];
+
+        for (IntBoundingBox box : this.boxes)
+        {
+            box = range.getClampedBox(box);
+
+            // The rendered layer(s) don't intersect this sub-volume
+            if (box == null)
+            {
+                continue;
+            }
+
+            BlockPos posFrom = new BlockPos(box.minX, box.minY, box.minZ);
+            BlockPos posTo   = new BlockPos(box.maxX, box.maxY, box.maxZ);
+
+            for (BlockPos.MutableBlockPos posMutable : BlockPos.getAllInBoxMutable(posFrom, posTo))
+            {
+                this.renderBlocksAndOverlay(posMutable, tileEntities, usedLayers, visGraph, data, buffers);
+            }
+        }
+
+        for (BlockRenderLayer layerTmp : BlockRenderLayer.values())
+        {
+            if (usedLayers[layerTmp.ordinal()])
+            {
+                ((IMixinCompiledChunk) data).invokeSetLayerUsed(layerTmp);
+            }
+
+            if (data.isLayerStarted(layerTmp))
+            {
+                this.postRenderBlocks(layerTmp, x, y, z, buffers.getWorldRendererByLayer(layerTmp), data);
+            }
+        }
+
+        this.postRenderOverlays(x, y, z, data, buffers);
+    }
+
+    protected void postRenderOverlays(float x, float y, float z, CompiledChunkSchematic data, BufferBuilderCache buffers)
+    {
+        if (this.hasOverlay)
+        {
+            OverlayGreedyMesher mesher = OVERLAY_MESHER.get();
+
+            if (mesher.hasFaces() && data.isOverlayTypeStarted(OverlayRenderType.QUAD))
+            {
+                mesher.renderQuads(this.getPosition(), buffers.getOverlayBuffer(OverlayRenderType.QUAD));
+            }
+
+            if (mesher.hasEdges() && data.isOverlayTypeStarted(OverlayRenderType.OUTLINE))
+            {
+                mesher.renderLines(this.getPosition(), buffers.getOverlayBuffer(OverlayRenderType.OUTLINE));
+            }
+
+            mesher.clear();
+
+            //if (GuiBase.isCtrlDown()) System.out.printf("postRenderOverlays\n");
+            for (OverlayRenderType type : this.existingOverlays)
+            {
+                if (data.isOverlayTypeStarted(type))
+                {
+                    data.setOverlayTypeUsed(type);
+                    this.postRenderOverlay(type, x, y, z, buffers.getOverlayBuffer(type), data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds only the overlay buffers, if the client world changes didn't change
+     * the set of positions where the schematic blocks are rendered. The block model layers
+     * only depend on the client world via that set, so the already uploaded block model
+     * buffers of the previous data can be kept as they are.
+     * @return true if the overlay-only rebuild was done, false if a full rebuild is needed
+     */
+    protected boolean tryRebuildOverlayOnly(float x, float y, float z, CompiledChunkSchematic previousData, LayerRange range,
+                                            VisGraph visGraph, CompiledChunkSchematic data, BufferBuilderCache buffers)
+    {
+        BitSet renderedBlocks = new BitSet(4096);
+
+        for (IntBoundingBox box : this.boxes)
+        {
+            box = range.getClampedBox(box);
+
+            if (box == null)
+            {
+                continue;
+            }
+
+            BlockPos posFrom = new BlockPos(box.minX, box.minY, box.minZ);
+            BlockPos posTo   = new BlockPos(box.maxX, box.maxY, box.maxZ);
+
+            for (BlockPos.MutableBlockPos pos : BlockPos.getAllInBoxMutable(posFrom, posTo))
+            {
+                IBlockState stateSchematic = this.schematicWorldView.getBlockState(pos).getActualState(this.schematicWorldView, pos);
+                IBlockState stateClient    = this.clientWorldView.getBlockState(pos).getActualState(this.clientWorldView, pos);
+
+                if (this.isSchematicBlockRendered(stateSchematic, stateClient))
+                {
+                    renderedBlocks.set(((pos.getY() & 0xF) << 8) | ((pos.getZ() & 0xF) << 4) | (pos.getX() & 0xF));
+
+                    if (this.renderAsTranslucent == false && stateSchematic.isOpaqueCube())
+                    {
+                        visGraph.setOpaqueCube(pos);
+                    }
+                }
+            }
+        }
+
+        if (renderedBlocks.equals(previousData.getRenderedBlocks()) == false)
+        {
+            return false;
+        }
+
+        data.copyBlockLayersFrom(previousData);
+
+        if (this.overlayEnabled)
+        {
+            for (IntBoundingBox box : this.boxes)
+            {
+                box = range.getClampedBox(box);
+
+                if (box == null)
+                {
+                    continue;
+                }
+
+                BlockPos posFrom = new BlockPos(box.minX, box.minY, box.minZ);
+                BlockPos posTo   = new BlockPos(box.maxX, box.maxY, box.maxZ);
+
+                for (BlockPos.MutableBlockPos pos : BlockPos.getAllInBoxMutable(posFrom, posTo))
+                {
+                    IBlockState stateSchematic = this.schematicWorldView.getBlockState(pos).getActualState(this.schematicWorldView, pos);
+                    IBlockState stateClient    = this.clientWorldView.getBlockState(pos).getActualState(this.clientWorldView, pos);
+                    this.renderOverlayAt(pos, stateSchematic, stateClient, data, buffers);
+                }
+            }
+
+            this.postRenderOverlays(x, y, z, data, buffers);
+        }
+
+        return true;
+    }
+
+    /**
+     * Marks the opaque blocks of the client world in this sub-chunk into the visibility graph.
+     * Those get rendered by the vanilla renderer, so they hide the schematic blocks behind them.
+     */
+    protected void addClientWorldOpaqueBlocks(BlockPos posChunk, VisGraph visGraph)
+    {
+        if (this.clientWorldView.isEmpty())
+        {
+            return;
+        }
+
+        BlockPos posEnd = posChunk.add(15, 15, 15);
+
+        for (BlockPos.MutableBlockPos posMutable : BlockPos.getAllInBoxMutable(posChunk, posEnd))
+        {
+            if (this.clientWorldView.getBlockState(posMutable).isOpaqueCube())
+            {
+                visGraph.setOpaqueCube(posMutable);
+            }
+        }
+    }
+
+    /**
+     * Creates the content fingerprint of this sub-chunk for the shared mesh cache.
+     * The fingerprinted volume has a one block margin around the sub-chunk,
+     * because the rendered geometry also depends on the adjacent blocks
+     * (face culling, block connections and the reduced overlay sides and edges).
+     * @return the cache key, or null if this sub-chunk can't be cached, because it has tile entities
+     */
+    @Nullable
+    protected SchematicMeshCache.MeshKey createMeshKey(BlockPos posChunk, LayerRange range)
+    {
+        SchematicMeshCache.MeshKeyBuilder builder = new SchematicMeshCache.MeshKeyBuilder();
+        int originX = posChunk.getX();
+        int originY = posChunk.getY();
+        int originZ = posChunk.getZ();
+
+        this.addRenderSettingsToKey(builder);
+
+        for (IntBoundingBox box : this.boxes)
+        {
+            box = range.getClampedBox(box);
+
+            if (box != null)
+            {
+                builder.add(box.minX - originX).add(box.minY - originY).add(box.minZ - originZ);
+                builder.add(box.maxX - originX).add(box.maxY - originY).add(box.maxZ - originZ);
+            }
+        }
+
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+
+        for (int y = -1; y <= 16; ++y)
+        {
+            for (int z = -1; z <= 16; ++z)
+            {
+                for (int x = -1; x <= 16; ++x)
+                {
+                    posMutable.setPos(originX + x, originY + y, originZ + z);
+                    IBlockState stateSchematic = this.schematicWorldView.getBlockState(posMutable);
+                    IBlockState stateClient    = this.clientWorldView.getBlockState(posMutable);
+
+                    // The tile entity data can affect the rendered models, and the tile entities need to be collected anyway
+                    if (stateSchematic.getBlock().hasTileEntity() || stateClient.getBlock().hasTileEntity())
+                    {
+                        return null;
+                    }
+
+                    builder.add(((long) Block.getStateId(stateSchematic) << 32) | (Block.getStateId(stateClient) & 0xFFFFFFFFL));
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    protected void addRenderSettingsToKey(SchematicMeshCache.MeshKeyBuilder builder)
+    {
+        int flags = 0;
+
+        flags |= this.ignoreClientWorldFluids   ? 0x0001 : 0;
+        flags |= this.overlayEnabled            ? 0x0002 : 0;
+        flags |= this.overlayLinesEnabled       ? 0x0004 : 0;
+        flags |= this.overlayModelLines         ? 0x0008 : 0;
+        flags |= this.overlayModelSides         ? 0x0010 : 0;
+        flags |= this.overlayReducedInnerSides  ? 0x0020 : 0;
+        flags |= this.overlaySidesEnabled       ? 0x0040 : 0;
+        flags |= this.overlayTypeExtra          ? 0x0080 : 0;
+        flags |= this.overlayTypeMissing        ? 0x0100 : 0;
+        flags |= this.overlayTypeWrongBlock     ? 0x0200 : 0;
+        flags |= this.overlayTypeWrongState     ? 0x0400 : 0;
+        flags |= this.renderColliding           ? 0x0800 : 0;
+        flags |= this.renderAsTranslucent       ? 0x1000 : 0;
+        flags |= this.overlayGreedyMeshing      ? 0x2000 : 0;
+
+        builder.add(flags);
+        builder.add(this.overlayColorExtra.intValue).add(this.overlayColorMissing.intValue);
+        builder.add(this.overlayColorWrongBlock.intValue).add(this.overlayColorWrongState.intValue);
+    }
+
+    /**
+     * Fills the buffers from a cached mesh, instead of rendering all the blocks again
+     */
+    protected void applyCachedMesh(SchematicMeshCache.CachedMesh mesh, float x, float y, float z,
+                                   CompiledChunkSchematic data, BufferBuilderCache buffers)
+    {
+        for (BlockRenderLayer layer : BlockRenderLayer.values())
+        {
+            int layerIndex = layer.ordinal();
+            int[] vertexData = mesh.getBlockLayerData(layerIndex);
+
+            if (vertexData != null)
+            {
+                BufferBuilder buffer = buffers.getWorldRendererByLayerId(layerIndex);
+
+                data.setLayerStarted(layer);
+                this.preRenderBlocks(buffer, this.getPosition());
+                buffer.addVertexData(vertexData);
+
+                if (mesh.isLayerUsed(layerIndex))
+                {
+                    ((IMixinCompiledChunk) data).invokeSetLayerUsed(layer);
+                }
+
+                this.postRenderBlocks(layer, x, y, z, buffer, data);
+            }
+        }
+
+        for (OverlayRenderType type : OverlayRenderType.values())
+        {
+            int[] vertexData = mesh.getOverlayData(type.ordinal());
+
+            if (vertexData != null)
+            {
+                BufferBuilder buffer = buffers.getOverlayBuffer(type);
+
+                data.setOverlayTypeStarted(type);
+                this.preRenderOverlay(buffer, type);
+                buffer.addVertexData(vertexData);
+                data.setOverlayTypeUsed(type);
+                this.postRenderOverlay(type, x, y, z, buffer, data);
+            }
+        }
+
+        data.setRenderedBlocks(mesh.getRenderedBlocks());
+    }
+
+    protected SchematicMeshCache.CachedMesh createCachedMesh(CompiledChunkSchematic data, BufferBuilderCache buffers, SetVisibility visibility)
+    {
+        BlockRenderLayer[] layers = BlockRenderLayer.values();
+        OverlayRenderType[] overlayTypes = OverlayRenderType.values();
+        int[][] blockLayerData = new int[layers.length][];
+        boolean[] usedLayers = new boolean[layers.length];
+        int[][] overlayData = new int[overlayTypes.length][];
+
+        for (BlockRenderLayer layer : layers)
+        {
+            if (data.isLayerStarted(layer))
+            {
+                blockLayerData[layer.ordinal()] = SchematicMeshCache.getVertexData(buffers.getWorldRendererByLayer(layer));
+                usedLayers[layer.ordinal()] = data.isLayerEmpty(layer) == false;
+            }
+        }
+
+        for (OverlayRenderType type : overlayTypes)
+        {
+            if (data.isOverlayTypeStarted(type))
+            {
+                overlayData[type.ordinal()] = SchematicMeshCache.getVertexData(buffers.getOverlayBuffer(type));
+            }
+        }
+
+        return new SchematicMeshCache.CachedMesh(blockLayerData, usedLayers, overlayData,
+                                                 (BitSet) data.getRenderedBlocks().clone(), visibility);
+    }
+
+    protected void renderBlocksAndOverlay(BlockPos pos, Set<TileEntity> tileEntities, boolean[] usedLayers, VisGraph visGraph, CompiledChunkSchematic data, BufferBuilderCache buffers)
     {
         IBlockState stateSchematic = this.schematicWorldView.getBlockState(pos);
         IBlockState stateClient    = this.clientWorldView.getBlockState(pos);
@@ -317,8 +690,10 @@ public class RenderChunkSchematicVbo extends RenderChunk
         }
 
         // Schematic has a block, client has air
-        if (clientHasAir || (stateSchematic != stateClient && this.renderColliding))
+        if (this.isSchematicBlockRendered(stateSchematic, stateClient))
         {
+            data.markBlockRendered(pos);
+
             if (blockSchematic.hasTileEntity())
             {
                 this.addTileEntity(pos, data, tileEntities);
@@ -339,17 +714,40 @@ public class RenderChunkSchematicVbo extends RenderChunk
 
                 usedLayers[layerIndex] |= this.renderGlobal.renderBlock(stateSchematic, pos, this.schematicWorldView, bufferSchematic);
             }
+
+            // Only schematic blocks rendered as solid can hide other render chunks
+            if (this.renderAsTranslucent == false && stateSchematic.isOpaqueCube())
+            {
+                visGraph.setOpaqueCube(pos);
+            }
         }
 
         if (this.overlayEnabled)
         {
-            OverlayType type = this.getOverlayType(stateSchematic, stateClient);
-            Color4f overlayColor = this.getOverlayColor(type);
+            this.renderOverlayAt(pos, stateSchematic, stateClient, data, buffers);
+        }
+    }
 
-            if (overlayColor != null)
-            {
-                this.renderOverlay(pos, stateSchematic, type, overlayColor, data, buffers);
-            }
+    /**
+     * @return true if the schematic block gets rendered at a position with the given (actual) states.
+     * This is the only way the block model layers depend on the client world.
+     */
+    protected boolean isSchematicBlockRendered(IBlockState stateSchematic, IBlockState stateClient)
+    {
+        boolean clientHasAir = stateClient.getBlock() == Blocks.AIR;
+        boolean schematicHasAir = stateSchematic.getBlock() == Blocks.AIR;
+
+        return (clientHasAir && schematicHasAir == false) || (stateSchematic != stateClient && this.renderColliding);
+    }
+
+    protected void renderOverlayAt(BlockPos pos, IBlockState stateSchematic, IBlockState stateClient, CompiledChunkSchematic data, BufferBuilderCache buffers)
+    {
+        OverlayType type = this.getOverlayType(stateSchematic, stateClient);
+        Color4f overlayColor = this.getOverlayColor(type);
+
+        if (overlayColor != null)
+        {
+            this.renderOverlay(pos, stateSchematic, type, overlayColor, data, buffers);
         }
     }
 
@@ -395,7 +793,14 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     {
                         if (type.getRenderPriority() > typeAdj.getRenderPriority())
                         {
-                            ShapeRenderUtils.renderBlockPosSideQuad(pos, side, 0, overlayColor, bufferOverlayQuads);
+                            if (this.overlayGreedyMeshing)
+                            {
+                                OVERLAY_MESHER.get().addFace(pos, side, overlayColor);
+                            }
+                            else
+                            {
+                                ShapeRenderUtils.renderBlockPosSideQuad(pos, side, 0, overlayColor, bufferOverlayQuads);
+                            }
                         }
                     }
                 }
@@ -410,6 +815,10 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     IBakedModel bakedModel = this.renderGlobal.getModelForState(stateSchematic);
                     RenderUtils.drawBlockModelQuadOverlayBatched(bakedModel, stateSchematic, pos, overlayColor, 0, bufferOverlayQuads);
                 }
+                else if (this.overlayGreedyMeshing)
+                {
+                    OVERLAY_MESHER.get().addAllFaces(pos, overlayColor);
+                }
                 else
                 {
                     ShapeRenderUtils.renderBlockPosSideQuads(pos, 0, overlayColor, bufferOverlayQuads);
@@ -485,6 +894,10 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     IBakedModel bakedModel = this.renderGlobal.getModelForState(stateSchematic);
                     RenderUtils.drawBlockModelOutlinesBatched(bakedModel, stateSchematic, pos, overlayColor, bufferOverlayOutlines);
                 }
+                else if (this.overlayGreedyMeshing)
+                {
+                    OVERLAY_MESHER.get().addAllEdges(pos, overlayColor);
+                }
                 else
                 {
                     ShapeRenderUtils.renderBlockPosEdgeLines(pos, 0, overlayColor, bufferOverlayOutlines);
@@ -562,7 +975,14 @@ public class RenderChunkSchematicVbo extends RenderChunk
                     if (posTmp.getX() == pos.getX() && posTmp.getY() == pos.getY() && posTmp.getZ() == pos.getZ())
                     {
                         //System.out.printf("plop 2 index: %d, ind: %d, pos: %s, off: %s\n", index, ind, pos, posTmp);
-                        RenderUtils.drawBlockBoxEdgeBatchedLines(pos, axis, corner, overlayColor, bufferOverlayOutlines);
+                        if (this.overlayGreedyMeshing)
+                        {
+                            OVERLAY_MESHER.get().addEdge(pos, axis, corner, overlayColor);
+                        }
+                        else
+                        {
+                            RenderUtils.drawBlockBoxEdgeBatchedLines(pos, axis, corner, overlayColor, bufferOverlayOutlines);
+                        }
                         lines++;
                     }
                 }
@@ -714,9 +1134,18 @@ public class RenderChunkSchematicVbo extends RenderChunk
         try
         {
             //if (GuiBase.isCtrlDown()) System.out.printf("makeCompileTaskChunk()\n");
+            // Cancelling an unfinished previous task marks a full rebuild as pending,
+            // because its block model buffers might have been partially uploaded already
             this.finishCompileTask();
+
+            // The current block layers can only be reused if they come from a completed full rebuild,
+            // and nothing has requested a full rebuild since, even if that request was already cleared
+            boolean reuseBlockLayers = this.overlayOnlyUpdate && this.fullRebuildPending == false;
+            this.overlayOnlyUpdate = false;
+            this.fullRebuildPending = false;
+
             this.compileTask = new ChunkCompileTaskGeneratorSchematic(this, ChunkCompileTaskGeneratorSchematic.Type.REBUILD_CHUNK, this.getDistanceSq());
-            this.rebuildWorldView();
+            this.rebuildWorldView(reuseBlockLayers ? this.schematicChunkRenderData : null);
             generator = this.compileTask;
         }
         finally
@@ -773,19 +1202,23 @@ public class RenderChunkSchematicVbo extends RenderChunk
         }
     }
 
-    private void rebuildWorldView()
+    private void rebuildWorldView(@Nullable CompiledChunkSchematic overlayUpdateBaseData)
     {
         synchronized (this.boxes)
         {
+            this.overlayUpdateBaseData = overlayUpdateBaseData;
             this.ignoreClientWorldFluids = Configs.Visuals.IGNORE_EXISTING_FLUIDS.getBooleanValue();
             this.overlayEnabled = Configs.Visuals.SCHEMATIC_OVERLAY.getBooleanValue();
             this.overlayReducedInnerSides = Configs.Visuals.OVERLAY_REDUCED_INNER_SIDES.getBooleanValue();
+            this.overlayGreedyMeshing = Configs.Visuals.SCHEMATIC_OVERLAY_GREEDY_MESHING.getBooleanValue();
             this.overlayLinesEnabled = Configs.Visuals.SCHEMATIC_OVERLAY_OUTLINES.getBooleanValue();
             this.overlayModelLines = Configs.Visuals.SCHEMATIC_OVERLAY_MODEL_OUTLINE.getBooleanValue();
             this.overlayModelSides = Configs.Visuals.SCHEMATIC_OVERLAY_MODEL_SIDES.getBooleanValue();
             this.overlaySidesEnabled = Configs.Visuals.SCHEMATIC_OVERLAY_SIDES.getBooleanValue();
             this.renderColliding = Configs.Visuals.RENDER_COLLIDING_SCHEMATIC_BLOCKS.getBooleanValue();
             this.renderAsTranslucent = Configs.Visuals.TRANSLUCENT_SCHEMATIC_RENDERING.getBooleanValue();
+            this.useMeshCache = Configs.Visuals.SCHEMATIC_MESH_CACHE.getBooleanValue() &&
+                                DataManager.getSchematicPlacementManager().hasGridPlacements();
             this.overlayTypeExtra = Configs.Visuals.SCHEMATIC_OVERLAY_TYPE_EXTRA.getBooleanValue();
             this.overlayTypeMissing = Configs.Visuals.SCHEMATIC_OVERLAY_TYPE_MISSING.getBooleanValue();
             this.overlayTypeWrongBlock = Configs.Visuals.SCHEMATIC_OVERLAY_TYPE_WRONG_BLOCK.getBooleanValue();
@@ -1,5 +1,6 @@
 package litematica.render.schematic;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -8,6 +9,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.lwjgl.opengl.GL11;
 
 import net.minecraft.block.state.IBlockState;
@@ -39,9 +41,11 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.BlockRenderLayer;
 import net.minecraft.util.ClassInheritanceMultiMap;
 import net.minecraft.util.EnumBlockRenderType;
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.ReportedException;
 import net.minecraft.util.SoundCategory;
 import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.IBlockAccess;
@@ -53,6 +57,8 @@ import malilib.util.game.wrap.EntityWrap;
 import malilib.util.game.wrap.GameUtils;
 import malilib.util.position.ChunkSectionPos;
 import malilib.util.position.LayerRange;
+import litematica.config.Configs;
+import litematica.config.Hotkeys;
 import litematica.data.DataManager;
 import litematica.mixin.IMixinBlockRendererDispatcher;
 import litematica.mixin.IMixinViewFrustum;
@@ -68,6 +74,8 @@ public class RenderGlobalSchematic extends RenderGlobal
     private final Set<TileEntity> setTileEntities = new HashSet<>();
     private final List<RenderChunkSchematicVbo> renderInfos = new ArrayList<>(1024);
     private final List<ChunkSectionPos> subChunksWithinRenderRange = new ArrayList<>();
+    private final LongOpenHashSet touchedSubChunksInRange = new LongOpenHashSet();
+    private final LongOpenHashSet visibleSubChunks = new LongOpenHashSet();
     private Set<RenderChunkSchematicVbo> chunksToUpdate = new LinkedHashSet<>();
     private WorldClient world;
     private ViewFrustum viewFrustum;
@@ -95,6 +103,7 @@ public class RenderGlobalSchematic extends RenderGlobal
     private int countEntitiesTotal;
     private int countEntitiesRendered;
     private int countEntitiesHidden;
+    private int viewUpdateCount;
 
     private boolean vboEnabled;
     private double prevRenderSortX;
@@ -255,6 +264,9 @@ public class RenderGlobalSchematic extends RenderGlobal
                 this.setTileEntities.clear();
             }
 
+            // The cached meshes may be from the old resource pack or world
+            SchematicMeshCache.getInstance().clear();
+
             this.viewFrustum = new ViewFrustum(world, GameUtils.getRenderDistanceChunks(), this, this.renderChunkFactory);
 
             Entity entity = this.mc.getRenderViewEntity();
@@ -279,6 +291,7 @@ public class RenderGlobalSchematic extends RenderGlobal
     public void setupTerrain(Entity viewEntity, double partialTicks, ICamera camera, int frameCount, boolean playerSpectator)
     {
         World world = this.world;
+        long startTime = System.nanoTime();
         GameUtils.profilerPush("setup_terrain");
 
         if (this.viewFrustum == null || GameUtils.getRenderDistanceChunks() != this.renderDistanceChunks)
@@ -344,6 +357,7 @@ public class RenderGlobalSchematic extends RenderGlobal
 
             this.displayListEntitiesDirty = false;
             this.renderInfos.clear();
+            ++this.viewUpdateCount;
 
             Entity.setRenderDistanceWeight(MathHelper.clamp((double) renderDistance / 8.0D, 1.0D, 2.5D));
 
@@ -371,6 +385,14 @@ public class RenderGlobalSchematic extends RenderGlobal
 
             //if (GuiBase.isCtrlDown()) System.out.printf("sorted positions: %d\n", positions.size());
 
+            boolean occlusionCulling = this.shouldUseOcclusionCulling(viewEntity, playerSpectator);
+
+            if (occlusionCulling)
+            {
+                GameUtils.profilerSwap("occlusion");
+                this.updateVisibleSubChunks(viewSubChunk, camera, renderDistance);
+            }
+
             GameUtils.profilerSwap("iteration");
 
             //while (queuePositions.isEmpty() == false)
@@ -383,7 +405,8 @@ public class RenderGlobalSchematic extends RenderGlobal
                 // have been already properly loaded on the client
                 if (Math.abs(subChunk.getX() - centerChunkX) <= renderDistance &&
                     Math.abs(subChunk.getZ() - centerChunkZ) <= renderDistance &&
-                    world.getChunkProvider().isChunkGeneratedAt(subChunk.getX(), subChunk.getZ()))
+                    world.getChunkProvider().isChunkGeneratedAt(subChunk.getX(), subChunk.getZ()) &&
+                    (occlusionCulling == false || this.visibleSubChunks.contains(packSubChunkPos(subChunk.getX(), subChunk.getY(), subChunk.getZ()))))
                 {
                     BlockPos subChunkCornerPos = new BlockPos(subChunk.getX() << 4, subChunk.getY() << 4, subChunk.getZ() << 4);
                     RenderChunkSchematicVbo renderChunk = (RenderChunkSchematicVbo) ((IMixinViewFrustum) this.viewFrustum).invokeGetRenderChunk(subChunkCornerPos);
@@ -398,12 +421,17 @@ public class RenderGlobalSchematic extends RenderGlobal
                                 renderChunk.setNeedsUpdate(true);
                             }
 
+                            renderChunk.setLastVisibleViewUpdate(this.viewUpdateCount);
                             this.renderInfos.add(renderChunk);
                         }
                     }
                 }
             }
 
+            // Re-rank the pending compile tasks for the new view, and drop the obsolete ones
+            GameUtils.profilerSwap("reprioritize");
+            this.renderDispatcher.updateTaskPriorities(x, y, z, this.viewUpdateCount);
+
             GameUtils.profilerPop();
         }
 
@@ -440,11 +468,170 @@ public class RenderGlobalSchematic extends RenderGlobal
 
         GameUtils.profilerPop();
         GameUtils.profilerPop();
+
+        RenderMetrics.getInstance().addSetupTerrainTime(System.nanoTime() - startTime);
+    }
+
+    protected boolean shouldUseOcclusionCulling(Entity viewEntity, boolean playerSpectator)
+    {
+        if (Configs.Visuals.SCHEMATIC_OCCLUSION_CULLING.getBooleanValue() == false)
+        {
+            return false;
+        }
+
+        // The overlays would be visible through the occluding blocks
+        if (Configs.Visuals.SCHEMATIC_OVERLAY_RENDER_THROUGH.getBooleanValue() ||
+            Hotkeys.RENDER_OVERLAY_THROUGH_BLOCKS.getKeyBind().isKeyBindHeld())
+        {
+            return false;
+        }
+
+        // Spectators inside opaque blocks can see through everything, same as in vanilla
+        return playerSpectator == false || this.world.getBlockState(new BlockPos(viewEntity)).isOpaqueCube() == false;
+    }
+
+    /**
+     * Does a breadth-first search from the camera's sub-chunk through the sub-chunks,
+     * similar to the vanilla renderer. The search only continues through a sub-chunk
+     * between the faces that are connected in its visibility graph, and never turns back
+     * towards the camera. The sub-chunks reached by the search are stored in visibleSubChunks.
+     * Sub-chunks without any schematic render data are treated as fully see-through.
+     */
+    protected void updateVisibleSubChunks(ChunkSectionPos viewSubChunk, ICamera camera, int renderDistance)
+    {
+        final int viewX = viewSubChunk.getX();
+        final int viewZ = viewSubChunk.getZ();
+        final int startY = MathHelper.clamp(viewSubChunk.getY(), 0, 15);
+        int minX = viewX;
+        int minY = startY;
+        int minZ = viewZ;
+        int maxX = viewX;
+        int maxY = startY;
+        int maxZ = viewZ;
+
+        this.touchedSubChunksInRange.clear();
+        this.visibleSubChunks.clear();
+
+        for (ChunkSectionPos pos : this.subChunksWithinRenderRange)
+        {
+            this.touchedSubChunksInRange.add(packSubChunkPos(pos.getX(), pos.getY(), pos.getZ()));
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            minZ = Math.min(minZ, pos.getZ());
+            maxX = Math.max(maxX, pos.getX());
+            maxY = Math.max(maxY, pos.getY());
+            maxZ = Math.max(maxZ, pos.getZ());
+        }
+
+        // The search only needs to cover the area between the camera and the schematic sub-chunks
+        minX = Math.max(minX, viewX - renderDistance);
+        minZ = Math.max(minZ, viewZ - renderDistance);
+        maxX = Math.min(maxX, viewX + renderDistance);
+        maxZ = Math.min(maxZ, viewZ + renderDistance);
+        minY = Math.max(minY, 0);
+        maxY = Math.min(maxY, 15);
+
+        ArrayDeque<OcclusionNode> queue = new ArrayDeque<>();
+        queue.add(new OcclusionNode(viewX, startY, viewZ, null, 0));
+        this.visibleSubChunks.add(packSubChunkPos(viewX, startY, viewZ));
+
+        while (queue.isEmpty() == false)
+        {
+            OcclusionNode node = queue.poll();
+
+            for (EnumFacing side : EnumFacing.VALUES)
+            {
+                // Don't turn back towards the camera
+                if ((node.directions & (1 << side.getOpposite().ordinal())) != 0)
+                {
+                    continue;
+                }
+
+                if (node.enteredFrom != null &&
+                    this.isSubChunkVisibleThrough(node.x, node.y, node.z, node.enteredFrom.getOpposite(), side) == false)
+                {
+                    continue;
+                }
+
+                int x = node.x + side.getXOffset();
+                int y = node.y + side.getYOffset();
+                int z = node.z + side.getZOffset();
+
+                if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ)
+                {
+                    continue;
+                }
+
+                long posLong = packSubChunkPos(x, y, z);
+
+                if (this.visibleSubChunks.contains(posLong) ||
+                    camera.isBoundingBoxInFrustum(new AxisAlignedBB(x << 4, y << 4, z << 4, (x << 4) + 16, (y << 4) + 16, (z << 4) + 16)) == false)
+                {
+                    continue;
+                }
+
+                this.visibleSubChunks.add(posLong);
+                queue.add(new OcclusionNode(x, y, z, side, node.directions | (1 << side.ordinal())));
+            }
+        }
+    }
+
+    protected boolean isSubChunkVisibleThrough(int x, int y, int z, EnumFacing from, EnumFacing to)
+    {
+        if (this.touchedSubChunksInRange.contains(packSubChunkPos(x, y, z)) == false)
+        {
+            return true;
+        }
+
+        BlockPos pos = new BlockPos(x << 4, y << 4, z << 4);
+        RenderChunkSchematicVbo renderChunk = (RenderChunkSchematicVbo) ((IMixinViewFrustum) this.viewFrustum).invokeGetRenderChunk(pos);
+
+        if (renderChunk == null)
+        {
+            return true;
+        }
+
+        CompiledChunkSchematic data = renderChunk.getChunkRenderData();
+
+        // Not compiled yet, or the data is still from before the render chunk was moved
+        if (data.getOrigin() == null || data.getOrigin().equals(pos) == false)
+        {
+            return true;
+        }
+
+        return data.isVisible(from, to);
+    }
+
+    protected static long packSubChunkPos(int x, int y, int z)
+    {
+        return ((long) (x & 0x3FFFFF) << 42) | ((long) (z & 0x3FFFFF) << 20) | (long) (y & 0xFFFFF);
+    }
+
+    private static class OcclusionNode
+    {
+        private final int x;
+        private final int y;
+        private final int z;
+        @Nullable private final EnumFacing enteredFrom;
+        private final int directions;
+
+        private OcclusionNode(int x, int y, int z, @Nullable EnumFacing enteredFrom, int directions)
+        {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.enteredFrom = enteredFrom;
+            this.directions = directions;
+        }
     }
 
     @Override
     public void updateChunks(long finishTimeNano)
     {
+        long startTime = System.nanoTime();
+
+        RenderMetrics.getInstance().onFrame(this.renderDispatcher);
+        this.renderDispatcher.updateWorkers();
         this.displayListEntitiesDirty |= this.renderDispatcher.runChunkUploads(finishTimeNano);
 
         if (this.chunksToUpdate.isEmpty() == false)
@@ -480,6 +667,8 @@ public class RenderGlobalSchematic extends RenderGlobal
                 }
             }
         }
+
+        RenderMetrics.getInstance().addUpdateChunksTime(System.nanoTime() - startTime);
     }
 
     public int renderBlockLayer(BlockRenderLayer blockLayerIn, double partialTicks, Entity entityIn)
@@ -890,11 +1079,49 @@ public class RenderGlobalSchematic extends RenderGlobal
         this.markBlocksForUpdate(x1 - 1, y1 - 1, z1 - 1, x2 + 1, y2 + 1, z2 + 1, false);
     }
 
+    /**
+     * Marks the render chunks in the given range for a rebuild, when only the client world has changed.
+     * Such a rebuild only needs to re-build the overlay, if the set of rendered schematic blocks stays the same.
+     */
+    public void markBlockRangeForOverlayUpdate(int x1, int y1, int z1, int x2, int y2, int z2)
+    {
+        this.markRenderChunksForUpdate(x1 - 1, y1 - 1, z1 - 1, x2 + 1, y2 + 1, z2 + 1, false, true);
+    }
+
     private void markBlocksForUpdate(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, boolean updateImmediately)
+    {
+        this.markRenderChunksForUpdate(minX, minY, minZ, maxX, maxY, maxZ, updateImmediately, false);
+    }
+
+    private void markRenderChunksForUpdate(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                           boolean updateImmediately, boolean overlayOnly)
     {
         if (this.viewFrustum != null)
         {
-            this.viewFrustum.markBlocksForUpdate(minX, minY, minZ, maxX, maxY, maxZ, updateImmediately);
+            final int minCX = MathHelper.intFloorDiv(minX, 16);
+            final int minCY = MathHelper.intFloorDiv(minY, 16);
+            final int minCZ = MathHelper.intFloorDiv(minZ, 16);
+            final int maxCX = MathHelper.intFloorDiv(maxX, 16);
+            final int maxCY = MathHelper.intFloorDiv(maxY, 16);
+            final int maxCZ = MathHelper.intFloorDiv(maxZ, 16);
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+
+            for (int cy = minCY; cy <= maxCY; ++cy)
+            {
+                for (int cz = minCZ; cz <= maxCZ; ++cz)
+                {
+                    for (int cx = minCX; cx <= maxCX; ++cx)
+                    {
+                        pos.setPos(cx << 4, cy << 4, cz << 4);
+                        RenderChunkSchematicVbo renderChunk = (RenderChunkSchematicVbo) ((IMixinViewFrustum) this.viewFrustum).invokeGetRenderChunk(pos);
+
+                        if (renderChunk != null)
+                        {
+                            renderChunk.setNeedsUpdate(updateImmediately, overlayOnly);
+                        }
+                    }
+                }
+            }
         }
     }
 
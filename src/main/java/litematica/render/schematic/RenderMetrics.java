@@ -0,0 +1,521 @@
+package litematica.render.schematic;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.util.BlockRenderLayer;
+
+import malilib.util.datadump.DataDump;
+import litematica.render.schematic.RenderChunkSchematicVbo.OverlayRenderType;
+import litematica.util.LitematicaDirectories;
+
+/**
+ * Collects timing and throughput metrics of the schematic render pipeline,
+ * and keeps a history of per-second samples of them, for the metrics HUD and the CSV dumps.
+ */
+public class RenderMetrics
+{
+    private static final RenderMetrics INSTANCE = new RenderMetrics();
+
+    private static final long SAMPLE_INTERVAL_NANOS = 1000000000L;
+    private static final int MAX_SAMPLES = 600;
+    /** The upper limits of the histogram buckets, in milliseconds. The last bucket is for everything above these. */
+    private static final int[] BUCKET_LIMITS_MS = new int[] { 1, 2, 4, 8, 16, 32, 64, 128, 256, 512 };
+    private static final BlockRenderLayer[] BLOCK_LAYERS = BlockRenderLayer.values();
+    private static final OverlayRenderType[] OVERLAY_TYPES = OverlayRenderType.values();
+
+    private final Histogram compileTimes = new Histogram();
+    private final Histogram taskLatencies = new Histogram();
+    private final AtomicInteger rebuiltChunks = new AtomicInteger();
+    private final long[] uploadedVertices = new long[BLOCK_LAYERS.length + OVERLAY_TYPES.length];
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    private long startTime = System.nanoTime();
+    private long intervalStartTime;
+    private long setupTerrainNanos;
+    private long updateChunksNanos;
+    private long frameUploadBytes;
+    private long intervalUploadBytes;
+    private long maxFrameUploadBytes;
+    private int intervalFrames;
+    @Nullable private Sample lastSample;
+
+    public static RenderMetrics getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the time spent in compiling one render chunk. Called from the worker threads.
+     */
+    public void addCompileTime(long nanos)
+    {
+        this.compileTimes.add(nanos);
+    }
+
+    /**
+     * Records the time from creating a compile task to having its results uploaded
+     */
+    public void addTaskLatency(long nanos)
+    {
+        this.taskLatencies.add(nanos);
+    }
+
+    /**
+     * Called from the worker threads when a render chunk is actually rebuilt
+     */
+    public void onChunkRebuilt()
+    {
+        this.rebuiltChunks.incrementAndGet();
+    }
+
+    public void addSetupTerrainTime(long nanos)
+    {
+        this.setupTerrainNanos += nanos;
+    }
+
+    public void addUpdateChunksTime(long nanos)
+    {
+        this.updateChunksNanos += nanos;
+    }
+
+    /**
+     * Records the upload of a block layer buffer. This must be called on the render thread,
+     * before the buffer gets uploaded, as the upload resets the buffer.
+     */
+    public void onBlockLayerUpload(BlockRenderLayer layer, BufferBuilder buffer)
+    {
+        this.onUpload(layer.ordinal(), buffer);
+    }
+
+    /**
+     * Records the upload of an overlay buffer. This must be called on the render thread,
+     * before the buffer gets uploaded, as the upload resets the buffer.
+     */
+    public void onOverlayUpload(OverlayRenderType type, BufferBuilder buffer)
+    {
+        this.onUpload(BLOCK_LAYERS.length + type.ordinal(), buffer);
+    }
+
+    private void onUpload(int index, BufferBuilder buffer)
+    {
+        int vertexCount = buffer.getVertexCount();
+
+        this.uploadedVertices[index] += vertexCount;
+        this.frameUploadBytes += (long) vertexCount * buffer.getVertexFormat().getSize();
+    }
+
+    /**
+     * Ends the current frame, and takes a new sample once per sample interval.
+     * This should be called once per frame from the render thread.
+     */
+    public void onFrame(ChunkRenderDispatcherLitematica dispatcher)
+    {
+        long now = System.nanoTime();
+
+        this.intervalUploadBytes += this.frameUploadBytes;
+        this.maxFrameUploadBytes = Math.max(this.maxFrameUploadBytes, this.frameUploadBytes);
+        this.frameUploadBytes = 0L;
+
+        if (this.intervalStartTime == 0L)
+        {
+            this.intervalStartTime = now;
+            return;
+        }
+
+        ++this.intervalFrames;
+
+        if (now - this.intervalStartTime >= SAMPLE_INTERVAL_NANOS)
+        {
+            this.takeSample(now, dispatcher);
+        }
+    }
+
+    private void takeSample(long now, ChunkRenderDispatcherLitematica dispatcher)
+    {
+        Sample sample = new Sample();
+        int frames = Math.max(1, this.intervalFrames);
+
+        sample.timeMs = (now - this.startTime) / 1000000L;
+        sample.frames = this.intervalFrames;
+        sample.frameTimeMs = nanosToMs(now - this.intervalStartTime) / frames;
+        sample.setupTerrainMs = nanosToMs(this.setupTerrainNanos) / frames;
+        sample.updateChunksMs = nanosToMs(this.updateChunksNanos) / frames;
+        sample.queuedTasks = dispatcher.getQueuedTaskCount();
+        sample.pendingUploads = dispatcher.getPendingUploadCount();
+        sample.workers = dispatcher.getWorkerCount();
+        sample.freeBuffers = dispatcher.getFreeRenderBuilderCount();
+        sample.createdBuffers = dispatcher.getCreatedRenderBuilderCount();
+        sample.maxBuffers = dispatcher.getMaxRenderBuilderCount();
+        sample.poolFreeBytes = BufferBuilderPool.getInstance().getFreeBytes();
+        sample.bufferAllocations = BufferBuilderPool.getInstance().getAndResetAllocationCount();
+        sample.bufferGrowths = BufferBuilderPool.getInstance().getAndResetGrowthCount();
+        sample.rebuiltChunks = this.rebuiltChunks.getAndSet(0);
+        sample.uploadBytesPerFrame = this.intervalUploadBytes / frames;
+        sample.maxFrameUploadBytes = this.maxFrameUploadBytes;
+        sample.uploadedVertices = this.uploadedVertices.clone();
+        sample.compileTimes = this.compileTimes.getAndReset();
+        sample.taskLatencies = this.taskLatencies.getAndReset();
+
+        this.samples.addLast(sample);
+
+        if (this.samples.size() > MAX_SAMPLES)
+        {
+            this.samples.removeFirst();
+        }
+
+        this.lastSample = sample;
+        this.intervalStartTime = now;
+        this.intervalFrames = 0;
+        this.setupTerrainNanos = 0L;
+        this.updateChunksNanos = 0L;
+        this.intervalUploadBytes = 0L;
+        this.maxFrameUploadBytes = 0L;
+        Arrays.fill(this.uploadedVertices, 0L);
+    }
+
+    /**
+     * @return the most recent completed sample, or null if there are no samples yet
+     */
+    @Nullable
+    public Sample getLastSample()
+    {
+        return this.lastSample;
+    }
+
+    public void clear()
+    {
+        this.samples.clear();
+        this.lastSample = null;
+        this.startTime = System.nanoTime();
+        this.intervalStartTime = 0L;
+        this.intervalFrames = 0;
+        this.setupTerrainNanos = 0L;
+        this.updateChunksNanos = 0L;
+        this.frameUploadBytes = 0L;
+        this.intervalUploadBytes = 0L;
+        this.maxFrameUploadBytes = 0L;
+        this.rebuiltChunks.set(0);
+        this.compileTimes.getAndReset();
+        this.taskLatencies.getAndReset();
+        Arrays.fill(this.uploadedVertices, 0L);
+    }
+
+    /**
+     * Writes all the currently stored samples to a new CSV file in the render_metrics data directory
+     * @return the written file, or null if there were no samples or the writing failed
+     */
+    @Nullable
+    public Path dumpToFile()
+    {
+        if (this.samples.isEmpty())
+        {
+            return null;
+        }
+
+        String[] columns = getColumnNames();
+        DataDump dump = new DataDump(columns.length, DataDump.Format.CSV);
+
+        for (Sample sample : this.samples)
+        {
+            dump.addData(sample.getValues());
+        }
+
+        dump.addTitle(columns);
+        dump.setSort(false);
+
+        Path dir = LitematicaDirectories.getDataDirectory("render_metrics");
+
+        return DataDump.dumpDataToFile(dir, "render_metrics", ".csv", dump.getLines());
+    }
+
+    private static String[] getColumnNames()
+    {
+        String[] names = new String[]
+        {
+            "time_ms", "frames", "frame_ms", "setup_terrain_ms", "update_chunks_ms",
+            "queued_tasks", "pending_uploads", "workers", "free_buffers", "created_buffers", "max_buffers",
+            "pool_free_bytes", "buffer_allocations", "buffer_growths",
+            "rebuilt_chunks", "upload_bytes_per_frame", "upload_bytes_max_frame",
+            "compile_count", "compile_max_ms", "task_latency_count", "task_latency_max_ms"
+        };
+        int index = names.length;
+
+        names = Arrays.copyOf(names, names.length + BLOCK_LAYERS.length + OVERLAY_TYPES.length + 2 * (BUCKET_LIMITS_MS.length + 1));
+
+        for (BlockRenderLayer layer : BLOCK_LAYERS)
+        {
+            names[index++] = "vertices_" + layer.name().toLowerCase();
+        }
+
+        for (OverlayRenderType type : OVERLAY_TYPES)
+        {
+            names[index++] = "vertices_overlay_" + type.name().toLowerCase();
+        }
+
+        for (String prefix : new String[] { "compile", "task_latency" })
+        {
+            for (int limit : BUCKET_LIMITS_MS)
+            {
+                names[index++] = prefix + "_le_" + limit + "ms";
+            }
+
+            names[index++] = prefix + "_gt_" + BUCKET_LIMITS_MS[BUCKET_LIMITS_MS.length - 1] + "ms";
+        }
+
+        return names;
+    }
+
+    private static double nanosToMs(long nanos)
+    {
+        return (double) nanos / 1000000.0;
+    }
+
+    public static class Sample
+    {
+        private long timeMs;
+        private int frames;
+        private double frameTimeMs;
+        private double setupTerrainMs;
+        private double updateChunksMs;
+        private int queuedTasks;
+        private int pendingUploads;
+        private int workers;
+        private int freeBuffers;
+        private int createdBuffers;
+        private int maxBuffers;
+        private long poolFreeBytes;
+        private int bufferAllocations;
+        private int bufferGrowths;
+        private int rebuiltChunks;
+        private long uploadBytesPerFrame;
+        private long maxFrameUploadBytes;
+        private long[] uploadedVertices;
+        private HistogramData compileTimes;
+        private HistogramData taskLatencies;
+
+        public double getFrameTimeMs()
+        {
+            return this.frameTimeMs;
+        }
+
+        public double getSetupTerrainMs()
+        {
+            return this.setupTerrainMs;
+        }
+
+        public double getUpdateChunksMs()
+        {
+            return this.updateChunksMs;
+        }
+
+        public int getQueuedTasks()
+        {
+            return this.queuedTasks;
+        }
+
+        public int getPendingUploads()
+        {
+            return this.pendingUploads;
+        }
+
+        public int getWorkers()
+        {
+            return this.workers;
+        }
+
+        public int getFreeBuffers()
+        {
+            return this.freeBuffers;
+        }
+
+        public int getCreatedBuffers()
+        {
+            return this.createdBuffers;
+        }
+
+        public int getMaxBuffers()
+        {
+            return this.maxBuffers;
+        }
+
+        public long getPoolFreeBytes()
+        {
+            return this.poolFreeBytes;
+        }
+
+        public int getBufferAllocations()
+        {
+            return this.bufferAllocations;
+        }
+
+        public int getBufferGrowths()
+        {
+            return this.bufferGrowths;
+        }
+
+        public int getRebuiltChunks()
+        {
+            return this.rebuiltChunks;
+        }
+
+        public long getUploadBytesPerFrame()
+        {
+            return this.uploadBytesPerFrame;
+        }
+
+        public long getMaxFrameUploadBytes()
+        {
+            return this.maxFrameUploadBytes;
+        }
+
+        public long getUploadedVertices(BlockRenderLayer layer)
+        {
+            return this.uploadedVertices[layer.ordinal()];
+        }
+
+        public long getUploadedVertices(OverlayRenderType type)
+        {
+            return this.uploadedVertices[BLOCK_LAYERS.length + type.ordinal()];
+        }
+
+        public HistogramData getCompileTimes()
+        {
+            return this.compileTimes;
+        }
+
+        public HistogramData getTaskLatencies()
+        {
+            return this.taskLatencies;
+        }
+
+        private String[] getValues()
+        {
+            String[] values = new String[]
+            {
+                String.valueOf(this.timeMs),
+                String.valueOf(this.frames),
+                String.format(Locale.ROOT, "%.3f", this.frameTimeMs),
+                String.format(Locale.ROOT, "%.3f", this.setupTerrainMs),
+                String.format(Locale.ROOT, "%.3f", this.updateChunksMs),
+                String.valueOf(this.queuedTasks),
+                String.valueOf(this.pendingUploads),
+                String.valueOf(this.workers),
+                String.valueOf(this.freeBuffers),
+                String.valueOf(this.createdBuffers),
+                String.valueOf(this.maxBuffers),
+                String.valueOf(this.poolFreeBytes),
+                String.valueOf(this.bufferAllocations),
+                String.valueOf(this.bufferGrowths),
+                String.valueOf(this.rebuiltChunks),
+                String.valueOf(this.uploadBytesPerFrame),
+                String.valueOf(this.maxFrameUploadBytes),
+                String.valueOf(this.compileTimes.getCount()),
+                String.format(Locale.ROOT, "%.3f", this.compileTimes.getMaxMs()),
+                String.valueOf(this.taskLatencies.getCount()),
+                String.format(Locale.ROOT, "%.3f", this.taskLatencies.getMaxMs())
+            };
+            int index = values.length;
+
+            values = Arrays.copyOf(values, values.length + this.uploadedVertices.length + 2 * (BUCKET_LIMITS_MS.length + 1));
+
+            for (long count : this.uploadedVertices)
+            {
+                values[index++] = String.valueOf(count);
+            }
+
+            for (HistogramData data : new HistogramData[] { this.compileTimes, this.taskLatencies })
+            {
+                for (long count : data.counts)
+                {
+                    values[index++] = String.valueOf(count);
+                }
+            }
+
+            return values;
+        }
+    }
+
+    public static class HistogramData
+    {
+        private final long[] counts;
+        private final long count;
+        private final double maxMs;
+
+        private HistogramData(long[] counts, long count, double maxMs)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.maxMs = maxMs;
+        }
+
+        public long getCount()
+        {
+            return this.count;
+        }
+
+        public double getMaxMs()
+        {
+            return this.maxMs;
+        }
+
+        /**
+         * @return the upper limit of the bucket that contains the given percentile,
+         * capped to the maximum recorded value
+         */
+        public double getPercentileMs(double percentile)
+        {
+            long threshold = (long) Math.ceil(this.count * percentile);
+            long sum = 0;
+
+            for (int i = 0; i < BUCKET_LIMITS_MS.length; ++i)
+            {
+                sum += this.counts[i];
+
+                if (sum >= threshold)
+                {
+                    return Math.min(BUCKET_LIMITS_MS[i], this.maxMs);
+                }
+            }
+
+            return this.maxMs;
+        }
+    }
+
+    private static class Histogram
+    {
+        private long[] counts = new long[BUCKET_LIMITS_MS.length + 1];
+        private long count;
+        private long maxNanos;
+
+        public synchronized void add(long nanos)
+        {
+            double ms = nanosToMs(nanos);
+            int bucket = 0;
+
+            while (bucket < BUCKET_LIMITS_MS.length && ms > BUCKET_LIMITS_MS[bucket])
+            {
+                ++bucket;
+            }
+
+            ++this.counts[bucket];
+            ++this.count;
+            this.maxNanos = Math.max(this.maxNanos, nanos);
+        }
+
+        public synchronized HistogramData getAndReset()
+        {
+            HistogramData data = new HistogramData(this.counts, this.count, nanosToMs(this.maxNanos));
+
+            this.counts = new long[BUCKET_LIMITS_MS.length + 1];
+            this.count = 0L;
+            this.maxNanos = 0L;
+
+            return data;
+        }
+    }
+}
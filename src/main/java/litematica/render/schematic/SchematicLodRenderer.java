@@ -0,0 +1,706 @@
+package litematica.render.schematic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import org.lwjgl.opengl.GL11;
+
+import net.minecraft.block.material.MapColor;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.GlStateManager;
+import net.minecraft.client.renderer.OpenGlHelper;
+import net.minecraft.client.renderer.culling.ICamera;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.client.renderer.vertex.VertexBuffer;
+import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+
+import malilib.listener.EventListener;
+import malilib.util.game.wrap.EntityWrap;
+import malilib.util.game.wrap.GameUtils;
+import malilib.util.position.IntBoundingBox;
+import litematica.Litematica;
+import litematica.config.Configs;
+import litematica.data.DataManager;
+import litematica.schematic.ISchematic;
+import litematica.schematic.ISchematicRegion;
+import litematica.schematic.container.ILitematicaBlockStateContainer;
+import litematica.schematic.placement.SchematicPlacement;
+import litematica.schematic.placement.SchematicPlacementManager;
+import litematica.schematic.placement.SubRegionPlacement;
+import litematica.util.PositionUtils;
+
+/**
+ * Renders a coarse, low detail heightmap of the schematic placements in the areas
+ * that are outside of the normal schematic render distance.
+ * The meshes are built on a background thread directly from the block state containers,
+ * and they are cached by the placement's contents and orientation, so that for example
+ * all the repeated copies of a grid placement share the same mesh.
+ */
+public class SchematicLodRenderer
+{
+    private static final ThreadFactory THREAD_FACTORY = (new ThreadFactoryBuilder()).setNameFormat("Litematica LOD Builder").setDaemon(true).build();
+
+    /** The maximum number of cells along either horizontal axis of one mesh */
+    private static final int MAX_CELLS_PER_AXIS = 512;
+    /** The size of one separately culled mesh tile, in cells along each horizontal axis */
+    private static final int TILE_SIZE_CELLS = 32;
+    /** Unused meshes are deleted after this many frames */
+    private static final int UNUSED_MESH_TIMEOUT_FRAMES = 600;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+    private final Map<LodMeshKey, LodMesh> meshes = new HashMap<>();
+    private final Set<LodMeshKey> pendingBuilds = new HashSet<>();
+    private final Queue<LodMesh> finishedBuilds = new ConcurrentLinkedQueue<>();
+    private final Map<SchematicPlacement, LodMeshKey> placementKeys = new IdentityHashMap<>();
+    private final EventListener rebuildListener = this::onPlacementsChanged;
+    private boolean placementsChanged = true;
+    private int frameCount;
+
+    public void onPlacementsChanged()
+    {
+        this.placementsChanged = true;
+    }
+
+    /**
+     * Renders the LOD meshes of all the visible placements, excluding the parts
+     * that are within the normal schematic render distance.
+     */
+    public void render(Entity entity, ICamera camera, float partialTicks)
+    {
+        if (Configs.Visuals.SCHEMATIC_LOD_RENDERING.getBooleanValue() == false || OpenGlHelper.useVbo() == false)
+        {
+            // Release the meshes right away when the LOD rendering gets disabled,
+            // instead of keeping them and the schematics they reference until the world is unloaded
+            if (this.meshes.isEmpty() == false || this.finishedBuilds.isEmpty() == false)
+            {
+                this.discardFinishedMeshes();
+                this.clear();
+            }
+
+            return;
+        }
+
+        GameUtils.profilerPush("litematica_lod");
+
+        SchematicPlacementManager manager = DataManager.getSchematicPlacementManager();
+        manager.addRebuildListener(this.rebuildListener);
+
+        if (this.placementsChanged)
+        {
+            this.placementKeys.clear();
+            this.placementsChanged = false;
+        }
+
+        this.uploadFinishedMeshes();
+
+        double cameraX = EntityWrap.lerpX(entity, partialTicks);
+        double cameraY = EntityWrap.lerpY(entity, partialTicks);
+        double cameraZ = EntityWrap.lerpZ(entity, partialTicks);
+        int renderDistance = GameUtils.getRenderDistanceChunks() << 4;
+        int viewChunkMinX = ((int) Math.floor(cameraX)) & ~0xF;
+        int viewChunkMinZ = ((int) Math.floor(cameraZ)) & ~0xF;
+
+        // The area that the normal schematic renderer covers
+        IntBoundingBox nearArea = new IntBoundingBox(viewChunkMinX - renderDistance, 0, viewChunkMinZ - renderDistance,
+                                                     viewChunkMinX + renderDistance + 15, 255, viewChunkMinZ + renderDistance + 15);
+
+        GlStateManager.disableTexture2D();
+        GlStateManager.disableCull();
+        // Push the LOD behind any real schematic geometry in the same place
+        GlStateManager.enablePolygonOffset();
+        GlStateManager.doPolygonOffset(1.0f, 2.0f);
+        GlStateManager.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GlStateManager.glEnableClientState(GL11.GL_COLOR_ARRAY);
+
+        ++this.frameCount;
+
+        for (SchematicPlacement placement : manager.getVisibleSchematicPlacements())
+        {
+            IntBoundingBox box = placement.getEnclosingBox();
+
+            if (placement.isEnabled() == false || placement.isSchematicLoaded() == false ||
+                box == null || isWithin(box.minX, box.minZ, box.maxX, box.maxZ, nearArea))
+            {
+                continue;
+            }
+
+            LodMeshKey key = this.getMeshKey(placement);
+            LodMesh mesh = this.meshes.get(key);
+
+            if (mesh == null)
+            {
+                this.scheduleBuild(key, placement);
+                continue;
+            }
+
+            mesh.lastUsedFrame = this.frameCount;
+            this.renderMesh(mesh, placement.getPosition(), cameraX, cameraY, cameraZ, nearArea, camera);
+        }
+
+        OpenGlHelper.glBindBuffer(OpenGlHelper.GL_ARRAY_BUFFER, 0);
+        GlStateManager.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        GlStateManager.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GlStateManager.resetColor();
+        GlStateManager.doPolygonOffset(0f, 0f);
+        GlStateManager.disablePolygonOffset();
+        GlStateManager.enableCull();
+        GlStateManager.enableTexture2D();
+
+        if ((this.frameCount % 100) == 0)
+        {
+            this.deleteUnusedMeshes();
+        }
+
+        GameUtils.profilerPop();
+    }
+
+    private void renderMesh(LodMesh mesh, BlockPos origin, double cameraX, double cameraY, double cameraZ,
+                            IntBoundingBox nearArea, ICamera camera)
+    {
+        GlStateManager.pushMatrix();
+        GlStateManager.translate(origin.getX() - cameraX, origin.getY() - cameraY, origin.getZ() - cameraZ);
+
+        for (LodTile tile : mesh.tiles)
+        {
+            int minX = origin.getX() + tile.minX;
+            int minZ = origin.getZ() + tile.minZ;
+            int maxX = origin.getX() + tile.maxX;
+            int maxZ = origin.getZ() + tile.maxZ;
+
+            if (tile.vertexBuffer == null ||
+                isWithin(minX, minZ, maxX, maxZ, nearArea) ||
+                camera.isBoundingBoxInFrustum(new AxisAlignedBB(minX, origin.getY() + tile.minY, minZ,
+                                                                maxX, origin.getY() + tile.maxY, maxZ)) == false)
+            {
+                continue;
+            }
+
+            tile.vertexBuffer.bindBuffer();
+            GlStateManager.glVertexPointer(3, GL11.GL_FLOAT, 16, 0);
+            GlStateManager.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, 16, 12);
+            tile.vertexBuffer.drawArrays(GL11.GL_QUADS);
+        }
+
+        GlStateManager.popMatrix();
+    }
+
+    private static boolean isWithin(int minX, int minZ, int maxX, int maxZ, IntBoundingBox area)
+    {
+        return minX >= area.minX && maxX <= area.maxX && minZ >= area.minZ && maxZ <= area.maxZ;
+    }
+
+    private LodMeshKey getMeshKey(SchematicPlacement placement)
+    {
+        LodMeshKey key = this.placementKeys.get(placement);
+
+        if (key == null)
+        {
+            key = createMeshKey(placement);
+            this.placementKeys.put(placement, key);
+        }
+
+        return key;
+    }
+
+    private static LodMeshKey createMeshKey(SchematicPlacement placement)
+    {
+        List<Object> values = new ArrayList<>();
+        IntBoundingBox box = placement.getEnclosingBox();
+        int sizeX = box.maxX - box.minX + 1;
+        int sizeZ = box.maxZ - box.minZ + 1;
+        int cellSize = Math.max(Configs.Visuals.SCHEMATIC_LOD_CELL_SIZE.getIntegerValue(),
+                                (Math.max(sizeX, sizeZ) + MAX_CELLS_PER_AXIS - 1) / MAX_CELLS_PER_AXIS);
+
+        values.add(cellSize);
+        values.add(placement.getRotation());
+        values.add(placement.getMirror());
+
+        for (SubRegionPlacement region : placement.getEnabledSubRegions())
+        {
+            values.add(region.getName());
+            values.add(region.getPosition());
+            values.add(region.getRotation());
+            values.add(region.getMirror());
+        }
+
+        return new LodMeshKey(placement.getSchematic(), values, cellSize);
+    }
+
+    private void scheduleBuild(LodMeshKey key, SchematicPlacement placement)
+    {
+        if (this.pendingBuilds.add(key) == false)
+        {
+            return;
+        }
+
+        // Capture everything on the main thread, the placement may change while building
+        ISchematic schematic = placement.getSchematic();
+        BlockPos origin = placement.getPosition();
+        IntBoundingBox box = placement.getEnclosingBox();
+        IntBoundingBox relativeBox = new IntBoundingBox(box.minX - origin.getX(), box.minY - origin.getY(), box.minZ - origin.getZ(),
+                                                        box.maxX - origin.getX(), box.maxY - origin.getY(), box.maxZ - origin.getZ());
+        List<LodRegion> regions = new ArrayList<>();
+
+        for (SubRegionPlacement regionPlacement : placement.getEnabledSubRegions())
+        {
+            ISchematicRegion region = schematic.getSchematicRegion(regionPlacement.getName());
+            ILitematicaBlockStateContainer container = region != null ? region.getBlockStateContainer() : null;
+
+            if (container != null)
+            {
+                regions.add(new LodRegion(container, region.getSize(), regionPlacement.getPosition(),
+                                          placement.getMirror(), placement.getRotation(),
+                                          regionPlacement.getMirror(), regionPlacement.getRotation()));
+            }
+        }
+
+        this.executor.submit(() -> {
+            try
+            {
+                this.finishedBuilds.add(buildMesh(key, relativeBox, regions));
+            }
+            catch (Exception e)
+            {
+                Litematica.logger.warn("Failed to build the LOD mesh for schematic '{}'", schematic.getMetadata().getName(), e);
+            }
+        });
+    }
+
+    private void uploadFinishedMeshes()
+    {
+        LodMesh mesh;
+
+        while ((mesh = this.finishedBuilds.poll()) != null)
+        {
+            this.pendingBuilds.remove(mesh.key);
+
+            for (LodTile tile : mesh.tiles)
+            {
+                if (tile.buffer != null)
+                {
+                    tile.vertexBuffer = new VertexBuffer(DefaultVertexFormats.POSITION_COLOR);
+                    tile.vertexBuffer.bufferData(tile.buffer.getByteBuffer());
+                    tile.buffer = null;
+                }
+            }
+
+            mesh.lastUsedFrame = this.frameCount;
+            LodMesh old = this.meshes.put(mesh.key, mesh);
+
+            if (old != null)
+            {
+                old.deleteGlBuffers();
+            }
+        }
+    }
+
+    private void discardFinishedMeshes()
+    {
+        LodMesh mesh;
+
+        while ((mesh = this.finishedBuilds.poll()) != null)
+        {
+            this.pendingBuilds.remove(mesh.key);
+        }
+    }
+
+    private void deleteUnusedMeshes()
+    {
+        Iterator<LodMesh> iter = this.meshes.values().iterator();
+
+        while (iter.hasNext())
+        {
+            LodMesh mesh = iter.next();
+
+            if (this.frameCount - mesh.lastUsedFrame > UNUSED_MESH_TIMEOUT_FRAMES)
+            {
+                mesh.deleteGlBuffers();
+                iter.remove();
+            }
+        }
+    }
+
+    public void clear()
+    {
+        for (LodMesh mesh : this.meshes.values())
+        {
+            mesh.deleteGlBuffers();
+        }
+
+        this.meshes.clear();
+        this.placementKeys.clear();
+        // Builds still in progress get uploaded, and then deleted once they are no longer used
+        this.placementsChanged = true;
+    }
+
+    private static LodMesh buildMesh(LodMeshKey key, IntBoundingBox box, List<LodRegion> regions)
+    {
+        final int cellSize = key.cellSize;
+        final int cellsX = (box.maxX - box.minX) / cellSize + 1;
+        final int cellsZ = (box.maxZ - box.minZ) / cellSize + 1;
+        final int[] heights = new int[cellsX * cellsZ];
+        final int[] colors = new int[cellsX * cellsZ];
+        Reference2IntOpenHashMap<IBlockState> colorCache = new Reference2IntOpenHashMap<>();
+
+        Arrays.fill(heights, Integer.MIN_VALUE);
+
+        for (LodRegion region : regions)
+        {
+            sampleRegion(region, box, cellSize, cellsX, heights, colors, colorCache);
+        }
+
+        LodMesh mesh = new LodMesh(key);
+
+        for (int tileZ = 0; tileZ < cellsZ; tileZ += TILE_SIZE_CELLS)
+        {
+            for (int tileX = 0; tileX < cellsX; tileX += TILE_SIZE_CELLS)
+            {
+                LodTile tile = buildTile(box, cellSize, cellsX, cellsZ, tileX, tileZ, heights, colors);
+
+                if (tile != null)
+                {
+                    mesh.tiles.add(tile);
+                }
+            }
+        }
+
+        return mesh;
+    }
+
+    /**
+     * Finds the top-most block in one column per cell, in the placement-relative transformed coordinates
+     */
+    private static void sampleRegion(LodRegion region, IntBoundingBox box, int cellSize, int cellsX,
+                                     int[] heights, int[] colors, Reference2IntOpenHashMap<IBlockState> colorCache)
+    {
+        ILitematicaBlockStateContainer container = region.container;
+        Vec3i size = region.size;
+        BlockPos regionPos = region.regionPos;
+
+        // These are the untransformed relative positions, see SchematicPlacingUtils#placeBlocksWithinChunk()
+        BlockPos posEndRel = (new BlockPos(PositionUtils.getRelativeEndPositionFromAreaSize(size))).add(regionPos);
+        BlockPos posMinRel = malilib.util.position.PositionUtils.getMinCorner(regionPos, posEndRel);
+        BlockPos regionPosTransformed = PositionUtils.getTransformedBlockPos(regionPos, region.mirrorMain, region.rotationMain);
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+
+        final int sizeX = Math.min(Math.abs(size.getX()), container.getSize().getX());
+        final int sizeY = Math.min(Math.abs(size.getY()), container.getSize().getY());
+        final int sizeZ = Math.min(Math.abs(size.getZ()), container.getSize().getZ());
+
+        for (int z = 0; z < sizeZ; z += cellSize)
+        {
+            for (int x = 0; x < sizeX; x += cellSize)
+            {
+                IBlockState state = null;
+                int y = sizeY - 1;
+
+                for (; y >= 0; --y)
+                {
+                    state = container.getBlockState(x, y, z);
+
+                    if (state.getMaterial() != Material.AIR && state.getBlock() != Blocks.STRUCTURE_VOID)
+                    {
+                        break;
+                    }
+                }
+
+                if (y < 0)
+                {
+                    continue;
+                }
+
+                posMutable.setPos(posMinRel.getX() + x - regionPos.getX(),
+                                  posMinRel.getY() + y - regionPos.getY(),
+                                  posMinRel.getZ() + z - regionPos.getZ());
+
+                BlockPos pos = PositionUtils.getTransformedBlockPos(posMutable, region.mirrorMain, region.rotationMain);
+                pos = PositionUtils.getTransformedBlockPos(pos, region.mirrorSub, region.rotationSub);
+                pos = pos.add(regionPosTransformed);
+
+                int cellX = (pos.getX() - box.minX) / cellSize;
+                int cellZ = (pos.getZ() - box.minZ) / cellSize;
+
+                if (pos.getX() < box.minX || pos.getZ() < box.minZ || cellX >= cellsX || cellZ >= heights.length / cellsX)
+                {
+                    continue;
+                }
+
+                int index = cellZ * cellsX + cellX;
+                int height = pos.getY() + 1;
+
+                if (height > heights[index])
+                {
+                    heights[index] = height;
+                    colors[index] = getStateColor(state, colorCache);
+                }
+            }
+        }
+    }
+
+    private static int getStateColor(IBlockState state, Reference2IntOpenHashMap<IBlockState> colorCache)
+    {
+        if (colorCache.containsKey(state))
+        {
+            return colorCache.getInt(state);
+        }
+
+        int color;
+
+        try
+        {
+            // There is no world to give here, but most blocks don't need one for the map color
+            color = state.getMapColor(null, BlockPos.ORIGIN).colorValue;
+        }
+        catch (Exception e)
+        {
+            color = state.getMaterial().getMaterialMapColor().colorValue;
+        }
+
+        // For example glass has no map color
+        if (color == MapColor.AIR.colorValue)
+        {
+            color = 0xA0A0A0;
+        }
+
+        colorCache.put(state, color);
+
+        return color;
+    }
+
+    @Nullable
+    private static LodTile buildTile(IntBoundingBox box, int cellSize, int cellsX, int cellsZ,
+                                     int tileX, int tileZ, int[] heights, int[] colors)
+    {
+        final int endX = Math.min(tileX + TILE_SIZE_CELLS, cellsX);
+        final int endZ = Math.min(tileZ + TILE_SIZE_CELLS, cellsZ);
+        final int baseY = box.minY;
+        BufferBuilder buffer = null;
+        int maxY = baseY;
+
+        for (int cz = tileZ; cz < endZ; ++cz)
+        {
+            for (int cx = tileX; cx < endX; ++cx)
+            {
+                int height = heights[cz * cellsX + cx];
+
+                if (height == Integer.MIN_VALUE)
+                {
+                    continue;
+                }
+
+                if (buffer == null)
+                {
+                    buffer = new BufferBuilder(TILE_SIZE_CELLS * TILE_SIZE_CELLS * 16);
+                    buffer.begin(GL11.GL_QUADS, DefaultVertexFormats.POSITION_COLOR);
+                }
+
+                int color = colors[cz * cellsX + cx];
+                int r = (color >>> 16) & 0xFF;
+                int g = (color >>>  8) & 0xFF;
+                int b =  color         & 0xFF;
+                float x1 = box.minX + cx * cellSize;
+                float z1 = box.minZ + cz * cellSize;
+                float x2 = Math.min(x1 + cellSize, box.maxX + 1);
+                float z2 = Math.min(z1 + cellSize, box.maxZ + 1);
+                float y = height;
+
+                buffer.pos(x1, y, z1).color(r, g, b, 255).endVertex();
+                buffer.pos(x1, y, z2).color(r, g, b, 255).endVertex();
+                buffer.pos(x2, y, z2).color(r, g, b, 255).endVertex();
+                buffer.pos(x2, y, z1).color(r, g, b, 255).endVertex();
+
+                // The sides are darker, like the shading on maps
+                r = r * 7 / 10;
+                g = g * 7 / 10;
+                b = b * 7 / 10;
+
+                float yWest  = getNeighborHeight(heights, cellsX, cellsZ, cx - 1, cz, baseY);
+                float yEast  = getNeighborHeight(heights, cellsX, cellsZ, cx + 1, cz, baseY);
+                float yNorth = getNeighborHeight(heights, cellsX, cellsZ, cx, cz - 1, baseY);
+                float ySouth = getNeighborHeight(heights, cellsX, cellsZ, cx, cz + 1, baseY);
+
+                if (yWest < y)
+                {
+                    buffer.pos(x1, yWest, z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x1, yWest, z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x1, y    , z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x1, y    , z1).color(r, g, b, 255).endVertex();
+                }
+
+                if (yEast < y)
+                {
+                    buffer.pos(x2, yEast, z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, y    , z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, y    , z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, yEast, z2).color(r, g, b, 255).endVertex();
+                }
+
+                if (yNorth < y)
+                {
+                    buffer.pos(x1, yNorth, z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x1, y     , z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, y     , z1).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, yNorth, z1).color(r, g, b, 255).endVertex();
+                }
+
+                if (ySouth < y)
+                {
+                    buffer.pos(x1, ySouth, z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, ySouth, z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x2, y     , z2).color(r, g, b, 255).endVertex();
+                    buffer.pos(x1, y     , z2).color(r, g, b, 255).endVertex();
+                }
+
+                maxY = Math.max(maxY, height);
+            }
+        }
+
+        if (buffer == null)
+        {
+            return null;
+        }
+
+        buffer.finishDrawing();
+
+        int minX = box.minX + tileX * cellSize;
+        int minZ = box.minZ + tileZ * cellSize;
+        int maxX = Math.min(box.minX + endX * cellSize, box.maxX + 1);
+        int maxZ = Math.min(box.minZ + endZ * cellSize, box.maxZ + 1);
+
+        return new LodTile(buffer, minX, baseY, minZ, maxX, maxY, maxZ);
+    }
+
+    private static int getNeighborHeight(int[] heights, int cellsX, int cellsZ, int cx, int cz, int baseY)
+    {
+        if (cx < 0 || cz < 0 || cx >= cellsX || cz >= cellsZ)
+        {
+            return baseY;
+        }
+
+        int height = heights[cz * cellsX + cx];
+
+        return height != Integer.MIN_VALUE ? height : baseY;
+    }
+
+    private static class LodRegion
+    {
+        private final ILitematicaBlockStateContainer container;
+        private final Vec3i size;
+        private final BlockPos regionPos;
+        private final Mirror mirrorMain;
+        private final Rotation rotationMain;
+        private final Mirror mirrorSub;
+        private final Rotation rotationSub;
+
+        private LodRegion(ILitematicaBlockStateContainer container, Vec3i size, BlockPos regionPos,
+                          Mirror mirrorMain, Rotation rotationMain, Mirror mirrorSub, Rotation rotationSub)
+        {
+            this.container = container;
+            this.size = size;
+            this.regionPos = regionPos;
+            this.mirrorMain = mirrorMain;
+            this.rotationMain = rotationMain;
+            this.mirrorSub = mirrorSub;
+            this.rotationSub = rotationSub;
+        }
+    }
+
+    private static class LodMeshKey
+    {
+        private final ISchematic schematic;
+        private final List<Object> values;
+        private final int cellSize;
+
+        private LodMeshKey(ISchematic schematic, List<Object> values, int cellSize)
+        {
+            this.schematic = schematic;
+            this.values = values;
+            this.cellSize = cellSize;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) { return true; }
+            if (o == null || this.getClass() != o.getClass()) { return false; }
+
+            LodMeshKey other = (LodMeshKey) o;
+            return this.schematic == other.schematic && this.values.equals(other.values);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(this.schematic) + this.values.hashCode();
+        }
+    }
+
+    private static class LodMesh
+    {
+        private final LodMeshKey key;
+        private final List<LodTile> tiles = new ArrayList<>();
+        private int lastUsedFrame;
+
+        private LodMesh(LodMeshKey key)
+        {
+            this.key = key;
+        }
+
+        private void deleteGlBuffers()
+        {
+            for (LodTile tile : this.tiles)
+            {
+                if (tile.vertexBuffer != null)
+                {
+                    tile.vertexBuffer.deleteGlBuffers();
+                    tile.vertexBuffer = null;
+                }
+            }
+        }
+    }
+
+    private static class LodTile
+    {
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        private final int maxX;
+        private final int maxY;
+        private final int maxZ;
+        @Nullable private BufferBuilder buffer;
+        @Nullable private VertexBuffer vertexBuffer;
+
+        private LodTile(BufferBuilder buffer, int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+        {
+            this.buffer = buffer;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package litematica.render.schematic;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import javax.annotation.Nullable;
+
+import net.minecraft.client.renderer.BufferBuilder;
+import net.minecraft.client.renderer.chunk.SetVisibility;
+
+/**
+ * A content-addressed cache of compiled schematic sub-chunk geometry.
+ * The key is a fingerprint of the schematic and client world block states
+ * in and around a sub-chunk, the rendered sub-volumes relative to the sub-chunk origin,
+ * and the render settings. Since the vertex data is stored relative to the sub-chunk origin,
+ * any other sub-chunk with the same fingerprint can re-use it as-is.
+ * This is mainly useful for grid placements, where the same content repeats many times.
+ */
+public class SchematicMeshCache
+{
+    private static final SchematicMeshCache INSTANCE = new SchematicMeshCache();
+
+    /** The maximum total size of the cached vertex data, in ints (32 MiB) */
+    protected static final long MAX_CACHED_INTS = 8L * 1024L * 1024L;
+
+    protected final LinkedHashMap<MeshKey, CachedMesh> meshes = new LinkedHashMap<>(256, 0.75f, true);
+    protected long cachedInts;
+
+    public static SchematicMeshCache getInstance()
+    {
+        return INSTANCE;
+    }
+
+    @Nullable
+    public synchronized CachedMesh get(MeshKey key)
+    {
+        return this.meshes.get(key);
+    }
+
+    public synchronized void put(MeshKey key, CachedMesh mesh)
+    {
+        if (mesh.getSize() > MAX_CACHED_INTS / 4)
+        {
+            return;
+        }
+
+        CachedMesh old = this.meshes.put(key, mesh);
+
+        if (old != null)
+        {
+            this.cachedInts -= old.getSize();
+        }
+
+        this.cachedInts += mesh.getSize();
+
+        Iterator<CachedMesh> iter = this.meshes.values().iterator();
+
+        // Evict the least recently used entries
+        while (this.cachedInts > MAX_CACHED_INTS && iter.hasNext())
+        {
+            this.cachedInts -= iter.next().getSize();
+            iter.remove();
+        }
+    }
+
+    public synchronized void clear()
+    {
+        this.meshes.clear();
+        this.cachedInts = 0;
+    }
+
+    /**
+     * Copies the vertex data of a finished buffer
+     */
+    public static int[] getVertexData(BufferBuilder buffer)
+    {
+        int[] vertexData = new int[buffer.getVertexCount() * buffer.getVertexFormat().getIntegerSize()];
+        buffer.getByteBuffer().asIntBuffer().get(vertexData);
+        return vertexData;
+    }
+
+    public static class CachedMesh
+    {
+        protected final int[][] blockLayerData;
+        protected final boolean[] usedLayers;
+        protected final int[][] overlayData;
+        protected final BitSet renderedBlocks;
+        protected final SetVisibility visibility;
+        protected final long size;
+
+        /**
+         * @param blockLayerData the vertex data per block render layer, or null for layers that were not started
+         * @param usedLayers the block render layers that had something rendered into them
+         * @param overlayData the vertex data per overlay render type, or null for types that were not started
+         * @param renderedBlocks the positions where a schematic block was rendered
+         */
+        public CachedMesh(int[][] blockLayerData, boolean[] usedLayers, int[][] overlayData, BitSet renderedBlocks, SetVisibility visibility)
+        {
+            this.blockLayerData = blockLayerData;
+            this.usedLayers = usedLayers;
+            this.overlayData = overlayData;
+            this.renderedBlocks = renderedBlocks;
+            this.visibility = visibility;
+            this.size = getTotalLength(blockLayerData) + getTotalLength(overlayData);
+        }
+
+        @Nullable
+        public int[] getBlockLayerData(int layerIndex)
+        {
+            return this.blockLayerData[layerIndex];
+        }
+
+        public boolean isLayerUsed(int layerIndex)
+        {
+            return this.usedLayers[layerIndex];
+        }
+
+        @Nullable
+        public int[] getOverlayData(int typeIndex)
+        {
+            return this.overlayData[typeIndex];
+        }
+
+        public BitSet getRenderedBlocks()
+        {
+            return this.renderedBlocks;
+        }
+
+        public SetVisibility getVisibility()
+        {
+            return this.visibility;
+        }
+
+        public long getSize()
+        {
+            return this.size;
+        }
+
+        protected static long getTotalLength(int[][] arrays)
+        {
+            long length = 0;
+
+            for (int[] arr : arrays)
+            {
+                if (arr != null)
+                {
+                    length += arr.length;
+                }
+            }
+
+            return length;
+        }
+    }
+
+    /**
+     * Builds a 128-bit fingerprint from two independently mixed 64-bit hashes,
+     * so that accidental collisions are practically impossible.
+     */
+    public static class MeshKeyBuilder
+    {
+        protected long hash1 = 0x6A09E667F3BCC908L;
+        protected long hash2 = 0xBB67AE8584CAA73BL;
+
+        public MeshKeyBuilder add(long value)
+        {
+            this.hash1 = Long.rotateLeft(this.hash1 ^ (value * 0x87C37B91114253D5L), 31) * 0x4CF5AD432745937FL;
+            this.hash2 = (this.hash2 + value) * 0x9E3779B97F4A7C15L;
+            this.hash2 ^= this.hash2 >>> 29;
+            return this;
+        }
+
+        public MeshKey build()
+        {
+            return new MeshKey(mix(this.hash1), mix(this.hash2));
+        }
+
+        protected static long mix(long value)
+        {
+            value ^= value >>> 33;
+            value *= 0xFF51AFD7ED558CCDL;
+            value ^= value >>> 33;
+            value *= 0xC4CEB9FE1A85EC53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+
+    public static class MeshKey
+    {
+        protected final long hash1;
+        protected final long hash2;
+
+        public MeshKey(long hash1, long hash2)
+        {
+            this.hash1 = hash1;
+            this.hash2 = hash2;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) { return true; }
+            if (o == null || this.getClass() != o.getClass()) { return false; }
+
+            MeshKey other = (MeshKey) o;
+            return this.hash1 == other.hash1 && this.hash2 == other.hash2;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int) (this.hash1 ^ (this.hash1 >>> 32));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package litematica.scheduler;
 import malilib.gui.util.GuiUtils;
 import malilib.util.game.wrap.GameUtils;
 import litematica.data.DataManager;
+import litematica.materials.MaterialListUpdateManager;
 import litematica.schematic.verifier.SchematicVerifierManager;
 import litematica.util.EasyPlaceUtils;
 
@@ -25,6 +26,7 @@ public class ClientTickHandler implements malilib.event.ClientTickHandler
         if ((this.tickCounter) % 10 == 0)
         {
             SchematicVerifierManager.INSTANCE.scheduleReChecks();
+            MaterialListUpdateManager.INSTANCE.processChanges();
         }
 
         if (GuiUtils.getCurrentScreen() == null)
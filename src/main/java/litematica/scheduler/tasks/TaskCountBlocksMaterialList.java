@@ -46,14 +46,17 @@ public abstract class TaskCountBlocksMaterialList extends TaskCountBlocksBase
         return true;
     }
 
+    protected List<MaterialListEntry> createMaterialList()
+    {
+        return MaterialListUtils.getMaterialList(this.countsTotal, this.countsMissing, this.countsMismatch);
+    }
+
     @Override
     protected void onStop()
     {
         if (this.finished && GameUtils.getClientPlayer() != null)
         {
-            List<MaterialListEntry> list = MaterialListUtils.getMaterialList(
-                    this.countsTotal, this.countsMissing, this.countsMismatch);
-            this.materialList.setMaterialListEntries(list);
+            this.materialList.setMaterialListEntries(this.createMaterialList());
         }
 
         InfoHud.getInstance().removeInfoHudRenderer(this, false);
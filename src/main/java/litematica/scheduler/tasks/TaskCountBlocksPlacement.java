@@ -1,6 +1,7 @@
 package litematica.scheduler.tasks;
 
 import java.util.Collection;
+import java.util.List;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
@@ -10,6 +11,11 @@ import malilib.util.data.EnabledCondition;
 import litematica.config.Configs;
 import litematica.data.DataManager;
 import litematica.materials.IMaterialList;
+import litematica.materials.MaterialListEntry;
+import litematica.materials.MaterialListPlacement;
+import litematica.materials.MaterialListUtils;
+import litematica.materials.PlacementMaterialCounts;
+import litematica.schematic.ISchematic;
 import litematica.schematic.placement.SchematicPlacement;
 import litematica.selection.SelectionBox;
 import litematica.util.value.BlockInfoListType;
@@ -20,13 +26,16 @@ public class TaskCountBlocksPlacement extends TaskCountBlocksMaterialList
 {
     protected final SchematicPlacement schematicPlacement;
     protected final WorldSchematic worldSchematic;
-    protected final boolean ignoreState;
+    protected final PlacementMaterialCounts counts;
 
     public TaskCountBlocksPlacement(SchematicPlacement schematicPlacement, IMaterialList materialList)
     {
         super(materialList, "litematica.gui.label.task_name.material_list");
 
-        this.ignoreState = Configs.Generic.MATERIAL_LIST_IGNORE_BLOCK_STATE.getBooleanValue();
+        ISchematic schematic = schematicPlacement.getSchematic();
+        long timeModified = schematic != null ? schematic.getMetadata().getTimeModified() : 0L;
+
+        this.counts = new PlacementMaterialCounts(Configs.Generic.MATERIAL_LIST_IGNORE_BLOCK_STATE.getBooleanValue(), timeModified);
         this.worldSchematic = SchematicWorldHandler.getSchematicWorld();
         this.schematicPlacement = schematicPlacement;
 
@@ -59,18 +68,27 @@ public class TaskCountBlocksPlacement extends TaskCountBlocksMaterialList
         if (stateSchematic.getBlock() != Blocks.AIR)
         {
             IBlockState stateClient = this.worldClient.getBlockState(pos).getActualState(this.worldClient, pos);
+            this.counts.addPosition(pos, stateSchematic, stateClient);
+        }
+    }
 
-            this.countsTotal.addTo(stateSchematic, 1);
-
-            if (stateClient.getBlock() == Blocks.AIR)
-            {
-                this.countsMissing.addTo(stateSchematic, 1);
-            }
-            else if (this.ignoreState ? stateClient.getBlock() != stateSchematic.getBlock() : stateClient != stateSchematic)
-            {
-                this.countsMissing.addTo(stateSchematic, 1);
-                this.countsMismatch.addTo(stateSchematic, 1);
-            }
+    @Override
+    protected List<MaterialListEntry> createMaterialList()
+    {
+        return MaterialListUtils.getMaterialList(this.counts.getCountsTotal(),
+                                                 this.counts.getCountsMissing(),
+                                                 this.counts.getCountsMismatch());
+    }
+
+    @Override
+    protected void onStop()
+    {
+        // Keep the counts for the incremental updates after block changes
+        if (this.finished && this.materialList instanceof MaterialListPlacement)
+        {
+            ((MaterialListPlacement) this.materialList).setTrackedCounts(this.counts);
         }
+
+        super.onStop();
     }
 }
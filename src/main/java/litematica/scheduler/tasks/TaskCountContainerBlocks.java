@@ -0,0 +1,154 @@
+package litematica.scheduler.tasks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import malilib.util.StringUtils;
+import litematica.render.infohud.InfoHud;
+import litematica.schematic.ISchematic;
+import litematica.schematic.ISchematicRegion;
+import litematica.schematic.container.ILitematicaBlockStateContainer;
+import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.container.ParallelBlockCounter;
+
+/**
+ * Counts the blocks in the containers of a schematic using the
+ * parallel counter, without blocking the client thread.
+ * The progress is shown on the Info HUD, and the counting gets
+ * cancelled if the task is removed via the Task Manager.
+ * Optionally the per Y-layer block counts are also built at the same time.
+ */
+public class TaskCountContainerBlocks extends TaskBase
+{
+    protected final List<LitematicaBlockStateContainerFull> containers = new ArrayList<>();
+    protected final List<ParallelBlockCounter> counters = new ArrayList<>();
+    protected final boolean countLayers;
+
+    public TaskCountContainerBlocks(ISchematic schematic, Collection<String> regionNames)
+    {
+        this(schematic, regionNames, false);
+    }
+
+    public TaskCountContainerBlocks(ISchematic schematic, Collection<String> regionNames, boolean countLayers)
+    {
+        this.countLayers = countLayers;
+        this.name = StringUtils.translate("litematica.gui.label.task_name.count_blocks", schematic.getMetadata().getName());
+
+        for (String regionName : regionNames)
+        {
+            ISchematicRegion region = schematic.getSchematicRegion(regionName);
+            ILitematicaBlockStateContainer container = region != null ? region.getBlockStateContainer() : null;
+
+            if (needsCounting(container, countLayers))
+            {
+                this.containers.add((LitematicaBlockStateContainerFull) container);
+            }
+        }
+    }
+
+    /**
+     * @return true if any of the given regions of the schematic still need to have their blocks counted
+     */
+    public static boolean needsCounting(ISchematic schematic, Collection<String> regionNames)
+    {
+        return needsCounting(schematic, regionNames, false);
+    }
+
+    /**
+     * @param countLayers if true, then the per Y-layer block counts are also required
+     * @return true if any of the given regions of the schematic still need to have their blocks counted
+     */
+    public static boolean needsCounting(ISchematic schematic, Collection<String> regionNames, boolean countLayers)
+    {
+        for (String regionName : regionNames)
+        {
+            ISchematicRegion region = schematic.getSchematicRegion(regionName);
+            ILitematicaBlockStateContainer container = region != null ? region.getBlockStateContainer() : null;
+
+            if (needsCounting(container, countLayers))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected static boolean needsCounting(@Nullable ILitematicaBlockStateContainer container, boolean countLayers)
+    {
+        if (container instanceof LitematicaBlockStateContainerFull)
+        {
+            LitematicaBlockStateContainerFull full = (LitematicaBlockStateContainerFull) container;
+            return full.hasBlockCounts() == false || (countLayers && full.hasLayerBlockCounts() == false);
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean canExecute()
+    {
+        return true;
+    }
+
+    @Override
+    public void init()
+    {
+        for (LitematicaBlockStateContainerFull container : this.containers)
+        {
+            ParallelBlockCounter counter = container.createBlockCounter(this.countLayers);
+            counter.start();
+            this.counters.add(counter);
+        }
+
+        InfoHud.getInstance().addInfoHudRenderer(this, true);
+    }
+
+    @Override
+    public boolean execute()
+    {
+        long processed = 0;
+        long total = 0;
+        boolean allDone = true;
+
+        for (ParallelBlockCounter counter : this.counters)
+        {
+            processed += counter.getProcessedCount();
+            total += counter.getTotalCount();
+            allDone &= counter.isDone();
+        }
+
+        if (allDone)
+        {
+            for (int i = 0; i < this.counters.size(); ++i)
+            {
+                this.containers.get(i).setBlockCountsFrom(this.counters.get(i));
+            }
+
+            this.finished = true;
+            return true;
+        }
+
+        int percentage = total > 0 ? (int) (processed * 100L / total) : 100;
+        this.infoHudLines.clear();
+        this.infoHudLines.add(StringUtils.translate("litematica.hud.task.count_blocks.progress", this.name, percentage));
+
+        return false;
+    }
+
+    @Override
+    public void stop()
+    {
+        if (this.finished == false)
+        {
+            for (ParallelBlockCounter counter : this.counters)
+            {
+                counter.cancel();
+            }
+        }
+
+        super.stop();
+    }
+}
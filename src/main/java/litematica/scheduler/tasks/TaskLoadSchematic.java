@@ -0,0 +1,126 @@
+package litematica.scheduler.tasks;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+import malilib.util.StringUtils;
+import litematica.Litematica;
+import litematica.data.SchematicHolder;
+import litematica.render.infohud.InfoHud;
+import litematica.schematic.ISchematic;
+import litematica.schematic.util.SchematicReadMessages;
+
+/**
+ * Reads a schematic from a file on a background thread, and then runs the given
+ * commit action on the client thread once the schematic has been read.
+ * The commit action is responsible for adding the schematic to the SchematicHolder
+ * and for creating any placements, so that all the state changes happen on the client thread.
+ * Removing the task via the Task Manager cancels the loading, and then any read errors
+ * caused by the cancellation are not shown. The info HUD only shows the elapsed time
+ * as a busy indicator, as the reading progress is not tracked.
+ */
+public class TaskLoadSchematic extends TaskBase
+{
+    protected final Path file;
+    protected final Consumer<ISchematic> commitAction;
+    protected final String fileName;
+    @Nullable protected Future<SchematicHolder.LoadResult> future;
+    protected long startTime;
+
+    /**
+     * @param commitAction the action to run on the client thread with the loaded schematic.
+     *                     The schematic is null if the loading failed. The action is not called
+     *                     if the task gets cancelled.
+     */
+    public TaskLoadSchematic(Path file, Consumer<ISchematic> commitAction)
+    {
+        this.file = file;
+        this.commitAction = commitAction;
+        this.fileName = file.getFileName().toString();
+        this.name = StringUtils.translate("litematica.gui.label.task_name.load_schematic", this.fileName);
+    }
+
+    @Override
+    public String getDisplayName()
+    {
+        if (this.future != null && this.finished == false)
+        {
+            return StringUtils.translate("litematica.hud.task.load_schematic.progress", this.name, this.getElapsedSeconds());
+        }
+
+        return this.name;
+    }
+
+    @Override
+    public boolean canExecute()
+    {
+        return true;
+    }
+
+    @Override
+    public void init()
+    {
+        this.startTime = System.nanoTime();
+        this.future = SchematicHolder.getInstance().loadAsync(this.file);
+        InfoHud.getInstance().addInfoHudRenderer(this, true);
+    }
+
+    @Override
+    public boolean execute()
+    {
+        if (this.future.isDone() == false)
+        {
+            this.infoHudLines.clear();
+            this.infoHudLines.add(this.getDisplayName());
+            return false;
+        }
+
+        // A cancelled load is not a failure, so don't report anything or call the commit action
+        if (this.future.isCancelled())
+        {
+            this.finished = true;
+            return true;
+        }
+
+        ISchematic schematic = null;
+
+        try
+        {
+            SchematicHolder.LoadResult result = this.future.get();
+            schematic = result.schematic;
+
+            for (SchematicReadMessages.Message message : result.messages)
+            {
+                message.dispatch();
+            }
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            Litematica.logger.warn("Failed to load the schematic '{}'", this.file.toAbsolutePath().toString(), e);
+        }
+
+        this.finished = true;
+        this.commitAction.accept(schematic);
+
+        return true;
+    }
+
+    @Override
+    public void stop()
+    {
+        if (this.finished == false && this.future != null)
+        {
+            this.future.cancel(true);
+        }
+
+        super.stop();
+    }
+
+    protected long getElapsedSeconds()
+    {
+        return (System.nanoTime() - this.startTime) / 1000000000L;
+    }
+}
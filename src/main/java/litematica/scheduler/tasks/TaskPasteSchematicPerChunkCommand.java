@@ -2,8 +2,11 @@ package litematica.scheduler.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import javax.annotation.Nullable;
+import com.google.common.collect.ArrayListMultimap;
 
 import net.minecraft.block.Block;
 import net.minecraft.block.material.Material;
@@ -17,38 +20,91 @@ import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.chunk.Chunk;
 
 import malilib.overlay.message.MessageDispatcher;
+import malilib.util.StringUtils;
+import malilib.util.game.WorldUtils;
 import malilib.util.game.wrap.EntityWrap;
 import malilib.util.game.wrap.GameUtils;
 import malilib.util.game.wrap.RegistryUtils;
 import malilib.util.position.IntBoundingBox;
 import malilib.util.position.LayerRange;
 import litematica.config.Configs;
+import litematica.scheduler.TaskScheduler;
 import litematica.schematic.placement.SchematicPlacement;
+import litematica.util.ServerTickRateTracker;
 import litematica.util.value.ReplaceBehavior;
 import litematica.world.SchematicWorldHandler;
+import litematica.world.SchematicWorldRenderingNotifier;
 import litematica.world.WorldSchematic;
 
+/**
+ * Pastes the schematic placements on servers using commands. The positions of each box
+ * are combined into cuboids of identical states, which are placed using {@code /fill} commands.
+ * The command rate follows the measured server tick rate, and the remaining chunks
+ * of a paste that was interrupted by a disconnect can be resumed after rejoining.
+ */
 public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChunkBase
 {
+    /** The maximum volume of the vanilla /fill command */
+    protected static final int MAX_FILL_VOLUME = 32768;
+    /** The number of placed blocks that is considered to load the server about as much as one extra command */
+    protected static final int BLOCKS_PER_COMMAND_COST = 1024;
+
+    @Nullable private static InterruptedPaste interruptedPaste;
+
     protected final List<IntBoundingBox> boxesInCurrentChunk = new ArrayList<>();
+    protected final List<QueuedCommand> queuedCommands = new ArrayList<>();
+    @Nullable private final ArrayListMultimap<ChunkPos, IntBoundingBox> resumedBoxes;
     private final int maxCommandsPerTick;
-    private int sentCommandsThisTick;
+    private final boolean useFill;
+    private final boolean adaptiveRate;
+    private double commandLimit;
+    private long lastRateAdjustTime;
+    private int lastTickRateSample;
+    private int usedCommandBudget;
     private int sentCommandsTotal;
-    private int currentX;
-    private int currentY;
-    private int currentZ;
-    private int currentIndex;
-    private int boxVolume;
+    private int queueIndex;
     private boolean boxInProgress;
+    @Nullable private String serverName;
+    @Nullable private String dimension;
 
     public TaskPasteSchematicPerChunkCommand(Collection<SchematicPlacement> placements, LayerRange range, boolean changedBlocksOnly)
+    {
+        this(placements, range, changedBlocksOnly, null);
+    }
+
+    private TaskPasteSchematicPerChunkCommand(Collection<SchematicPlacement> placements, LayerRange range, boolean changedBlocksOnly,
+                                              @Nullable ArrayListMultimap<ChunkPos, IntBoundingBox> resumedBoxes)
     {
         super(placements, range, changedBlocksOnly);
 
+        this.resumedBoxes = resumedBoxes;
         this.maxCommandsPerTick = Configs.Generic.PASTE_COMMAND_LIMIT.getIntegerValue();
+        this.useFill = Configs.Generic.PASTE_COMMAND_USE_FILL.getBooleanValue();
+        this.adaptiveRate = Configs.Generic.PASTE_COMMAND_ADAPTIVE_RATE.getBooleanValue();
+
+        // Start slower when the server load is not known yet, the rate will go up if the server keeps up
+        this.commandLimit = this.adaptiveRate ? Math.max(1.0, this.maxCommandsPerTick / 4.0) : this.maxCommandsPerTick;
+    }
+
+    @Override
+    public void init()
+    {
+        if (this.resumedBoxes != null)
+        {
+            this.boxesInChunks.putAll(this.resumedBoxes);
+            this.chunks.addAll(this.resumedBoxes.keySet());
+        }
+
+        this.serverName = StringUtils.getWorldOrServerName();
+        this.dimension = WorldUtils.getDimensionIdAsString(this.mc.world);
+        this.lastTickRateSample = ServerTickRateTracker.INSTANCE.getSampleCount();
+        this.lastRateAdjustTime = System.currentTimeMillis();
+
+        super.init();
     }
 
     @Override
@@ -56,7 +112,7 @@ public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChun
     {
         WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
         WorldClient worldClient = this.mc.world;
-        this.sentCommandsThisTick = 0;
+        this.usedCommandBudget = 0;
         int processed = 0;
         int chunkAttempts = 0;
 
@@ -65,6 +121,8 @@ public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChun
             GameUtils.getClientPlayer().sendChatMessage("/gamerule sendCommandFeedback false");
         }
 
+        this.updateCommandLimit();
+
         while (this.chunks.isEmpty() == false)
         {
             ChunkPos pos = this.chunks.get(0);
@@ -144,74 +202,267 @@ public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChun
     protected boolean processBox(ChunkPos pos, IntBoundingBox box,
             WorldSchematic worldSchematic, WorldClient worldClient, EntityPlayerSP player)
     {
-        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
-        Chunk chunkSchematic = worldSchematic.getChunkProvider().getLoadedChunk(pos.x, pos.z);
-        Chunk chunkClient = worldClient.getChunkProvider().getLoadedChunk(pos.x, pos.z);
-
         if (this.boxInProgress == false)
         {
-            this.currentX = box.minX;
-            this.currentY = box.minY;
-            this.currentZ = box.minZ;
-            this.boxVolume = (box.maxX - box.minX + 1) * (box.maxY - box.minY + 1) * (box.maxZ - box.minZ + 1);
-            this.currentIndex = 0;
+            Chunk chunkSchematic = worldSchematic.getChunkProvider().getLoadedChunk(pos.x, pos.z);
+            Chunk chunkClient = worldClient.getChunkProvider().getLoadedChunk(pos.x, pos.z);
+
+            this.queueCommandsForBox(box, chunkSchematic, chunkClient);
+            this.queueIndex = 0;
             this.boxInProgress = true;
         }
 
-        while (this.currentIndex < this.boxVolume)
-        {
-            posMutable.setPos(this.currentX, this.currentY, this.currentZ);
+        int limit = (int) this.commandLimit;
 
-            if (++this.currentY > box.maxY)
+        while (this.queueIndex < this.queuedCommands.size())
+        {
+            if (this.usedCommandBudget >= limit)
             {
-                this.currentY = box.minY;
+                return false;
+            }
+
+            QueuedCommand command = this.queuedCommands.get(this.queueIndex++);
 
-                if (++this.currentX > box.maxX)
+            player.sendChatMessage(command.command);
+            this.usedCommandBudget += command.cost;
+            ++this.sentCommandsTotal;
+        }
+
+        this.summonEntities(box, worldSchematic, player);
+        this.queuedCommands.clear();
+        this.boxInProgress = false;
+
+        return true;
+    }
+
+    /**
+     * Creates the commands for the given box. The positions that need to be placed are
+     * combined greedily into cuboids of identical states, by first extending each cuboid
+     * along the x-axis, then the z-axis and then the y-axis. The cuboids are created
+     * from the bottom layer up, so any blocks that need support get placed after the blocks below them.
+     */
+    protected void queueCommandsForBox(IntBoundingBox box, Chunk chunkSchematic, Chunk chunkClient)
+    {
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+        final int sizeX = box.maxX - box.minX + 1;
+        final int sizeY = box.maxY - box.minY + 1;
+        final int sizeZ = box.maxZ - box.minZ + 1;
+        IBlockState[] states = new IBlockState[sizeX * sizeY * sizeZ];
+        int index = 0;
+
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
+            {
+                for (int x = 0; x < sizeX; ++x)
                 {
-                    this.currentX = box.minX;
-                    ++this.currentZ;
+                    posMutable.setPos(box.minX + x, box.minY + y, box.minZ + z);
+                    states[index++] = this.getStateToPlace(posMutable, chunkSchematic, chunkClient);
                 }
             }
+        }
 
-            ++this.currentIndex;
-
-            IBlockState stateSchematicOrig = chunkSchematic.getBlockState(posMutable);
-            IBlockState stateClient = chunkClient.getBlockState(posMutable);
+        index = 0;
 
-            if (stateSchematicOrig.getBlock() != Blocks.AIR || stateClient.getBlock() != Blocks.AIR)
+        for (int y = 0; y < sizeY; ++y)
+        {
+            for (int z = 0; z < sizeZ; ++z)
             {
-                // Discard the non-meta state info, as it depends on neighbor blocks which will
-                // be synced with some delay from the server. TODO 1.13 remove this
-                @SuppressWarnings("deprecation")
-                IBlockState stateSchematic = stateSchematicOrig.getBlock().getStateFromMeta(stateSchematicOrig.getBlock().getMetaFromState(stateSchematicOrig));
-
-                if (this.changedBlockOnly == false || stateClient != stateSchematic)
+                for (int x = 0; x < sizeX; ++x, ++index)
                 {
-                    if ((this.replace == ReplaceBehavior.NONE && stateClient.getMaterial() != Material.AIR) ||
-                        (this.replace == ReplaceBehavior.WITH_NON_AIR && stateSchematicOrig.getMaterial() == Material.AIR))
+                    IBlockState state = states[index];
+
+                    if (state == null)
                     {
                         continue;
                     }
 
-                    this.sendSetBlockCommand(posMutable.getX(), posMutable.getY(), posMutable.getZ(), stateSchematicOrig, player);
+                    int endX = x;
+                    int endY = y;
+                    int endZ = z;
 
-                    if (++this.sentCommandsThisTick >= this.maxCommandsPerTick)
+                    if (this.useFill)
                     {
-                        break;
+                        while (endX + 1 < sizeX && states[index + endX + 1 - x] == state)
+                        {
+                            ++endX;
+                        }
+
+                        int lengthX = endX - x + 1;
+
+                        while (endZ + 1 < sizeZ &&
+                               lengthX * (endZ + 2 - z) <= MAX_FILL_VOLUME &&
+                               isAreaMatching(states, state, sizeX, sizeZ, x, endX, y, y, endZ + 1, endZ + 1))
+                        {
+                            ++endZ;
+                        }
+
+                        int layerArea = lengthX * (endZ - z + 1);
+
+                        while (endY + 1 < sizeY &&
+                               layerArea * (endY + 2 - y) <= MAX_FILL_VOLUME &&
+                               isAreaMatching(states, state, sizeX, sizeZ, x, endX, endY + 1, endY + 1, z, endZ))
+                        {
+                            ++endY;
+                        }
                     }
+
+                    // Clear the positions that are now handled, so that they won't be included in any other cuboids
+                    for (int cy = y; cy <= endY; ++cy)
+                    {
+                        for (int cz = z; cz <= endZ; ++cz)
+                        {
+                            int rowStart = (cy * sizeZ + cz) * sizeX;
+
+                            for (int cx = x; cx <= endX; ++cx)
+                            {
+                                states[rowStart + cx] = null;
+                            }
+                        }
+                    }
+
+                    this.queueCommand(box.minX + x, box.minY + y, box.minZ + z,
+                                      box.minX + endX, box.minY + endY, box.minZ + endZ, state);
                 }
             }
         }
+    }
+
+    /**
+     * @return the state that should be placed at the given position, or null if the position should not be touched
+     */
+    @Nullable
+    protected IBlockState getStateToPlace(BlockPos pos, Chunk chunkSchematic, Chunk chunkClient)
+    {
+        IBlockState stateSchematicOrig = chunkSchematic.getBlockState(pos);
+        IBlockState stateClient = chunkClient.getBlockState(pos);
 
-        if (this.currentIndex >= this.boxVolume)
+        if (stateSchematicOrig.getBlock() == Blocks.AIR && stateClient.getBlock() == Blocks.AIR)
         {
-            this.summonEntities(box, worldSchematic, player);
-            this.boxInProgress = false;
+            return null;
+        }
+
+        // Discard the non-meta state info, as it depends on neighbor blocks which will
+        // be synced with some delay from the server. TODO 1.13 remove this
+        @SuppressWarnings("deprecation")
+        IBlockState stateSchematic = stateSchematicOrig.getBlock().getStateFromMeta(stateSchematicOrig.getBlock().getMetaFromState(stateSchematicOrig));
 
-            return true;
+        if ((this.changedBlockOnly && stateClient == stateSchematic) ||
+            (this.replace == ReplaceBehavior.NONE && stateClient.getMaterial() != Material.AIR) ||
+            (this.replace == ReplaceBehavior.WITH_NON_AIR && stateSchematicOrig.getMaterial() == Material.AIR))
+        {
+            return null;
         }
 
-        return false;
+        return stateSchematic;
+    }
+
+    private static boolean isAreaMatching(IBlockState[] states, IBlockState state, int sizeX, int sizeZ,
+                                          int minX, int maxX, int minY, int maxY, int minZ, int maxZ)
+    {
+        for (int y = minY; y <= maxY; ++y)
+        {
+            for (int z = minZ; z <= maxZ; ++z)
+            {
+                int rowStart = (y * sizeZ + z) * sizeX;
+
+                for (int x = minX; x <= maxX; ++x)
+                {
+                    if (states[rowStart + x] != state)
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void queueCommand(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, IBlockState state)
+    {
+        Block block = state.getBlock();
+        String blockName = RegistryUtils.getBlockIdStr(block);
+
+        if (blockName == null)
+        {
+            return;
+        }
+
+        int meta = block.getMetaFromState(state);
+        int volume = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        String strCommand;
+
+        if (volume == 1)
+        {
+            String cmdName = Configs.Generic.COMMAND_NAME_SETBLOCK.getValue();
+            strCommand = String.format("/%s %d %d %d %s %d", cmdName, minX, minY, minZ, blockName, meta);
+        }
+        else
+        {
+            strCommand = String.format("/fill %d %d %d %d %d %d %s %d", minX, minY, minZ, maxX, maxY, maxZ, blockName, meta);
+        }
+
+        this.queuedCommands.add(new QueuedCommand(strCommand, 1 + volume / BLOCKS_PER_COMMAND_COST));
+    }
+
+    /**
+     * Adjusts the number of commands sent per tick based on the measured server tick rate.
+     * The rate is increased slowly while the server keeps up, and cut quickly when it falls behind.
+     */
+    protected void updateCommandLimit()
+    {
+        if (this.adaptiveRate == false)
+        {
+            return;
+        }
+
+        ServerTickRateTracker tracker = ServerTickRateTracker.INSTANCE;
+        long currentTime = System.currentTimeMillis();
+        int sampleCount = tracker.getSampleCount();
+        double tickRate = tracker.getTickRate();
+
+        if (sampleCount != this.lastTickRateSample)
+        {
+            if (tickRate < 15.0)
+            {
+                this.commandLimit *= 0.5;
+            }
+            else if (tickRate < 19.0)
+            {
+                this.commandLimit *= 0.8;
+            }
+            else
+            {
+                this.commandLimit += Math.max(1.0, this.maxCommandsPerTick / 10.0);
+            }
+        }
+        // No time updates from the server for a while, it's most likely stalled by the commands
+        else if (currentTime - this.lastRateAdjustTime >= 1000L && tickRate < 15.0)
+        {
+            this.commandLimit *= 0.5;
+        }
+        else
+        {
+            return;
+        }
+
+        this.commandLimit = MathHelper.clamp(this.commandLimit, 1.0, this.maxCommandsPerTick);
+        this.lastTickRateSample = sampleCount;
+        this.lastRateAdjustTime = currentTime;
+    }
+
+    @Override
+    protected void updateInfoHudLines()
+    {
+        super.updateInfoHudLines();
+
+        if (this.adaptiveRate)
+        {
+            String tps = String.format("%.1f", ServerTickRateTracker.INSTANCE.getTickRate());
+            this.infoHudLines.add(1, StringUtils.translate("litematica.hud.task.paste_command.rate",
+                                                           (int) this.commandLimit, tps));
+        }
     }
 
     private void summonEntities(IntBoundingBox box, WorldSchematic worldSchematic, EntityPlayerSP player)
@@ -246,23 +497,6 @@ public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChun
         }
     }
 
-    private void sendSetBlockCommand(int x, int y, int z, IBlockState state, EntityPlayerSP player)
-    {
-        Block block = state.getBlock();
-        String blockName = RegistryUtils.getBlockIdStr(block);
-
-        if (blockName == null)
-        {
-            return;
-        }
-
-        String cmdName = Configs.Generic.COMMAND_NAME_SETBLOCK.getValue();
-        String strCommand = String.format("/%s %d %d %d %s %d", cmdName, x, y, z, blockName, block.getMetaFromState(state));
-
-        player.sendChatMessage(strCommand);
-        ++this.sentCommandsTotal;
-    }
-
     @Override
     public void stop()
     {
@@ -275,11 +509,96 @@ public class TaskPasteSchematicPerChunkCommand extends TaskPasteSchematicPerChun
         }
         else
         {
+            // The world is already gone when the task gets stopped by a disconnect
+            if (this.mc.world == null && Configs.Generic.PASTE_COMMAND_RESUME.getBooleanValue())
+            {
+                this.storeInterruptedPaste();
+            }
+
             MessageDispatcher.error().screenOrActionbar().translate("litematica.message.error.schematic_paste_failed");
         }
 
-        GameUtils.sendCommand("/gamerule sendCommandFeedback true");
+        if (this.mc.player != null)
+        {
+            GameUtils.sendCommand("/gamerule sendCommandFeedback true");
+        }
 
         super.stop();
     }
+
+    private void storeInterruptedPaste()
+    {
+        // The boxes of the chunk that was in progress are still all included, so that chunk will be pasted again
+        if (this.serverName != null && this.boxesInChunks.isEmpty() == false)
+        {
+            ArrayListMultimap<ChunkPos, IntBoundingBox> boxes = ArrayListMultimap.create(this.boxesInChunks);
+            interruptedPaste = new InterruptedPaste(this.serverName, this.dimension, boxes, this.changedBlockOnly);
+        }
+    }
+
+    /**
+     * Schedules the remaining part of a paste that was interrupted by a disconnect,
+     * if the current world is on the same server and in the same dimension as the interrupted paste.
+     * This should be called after the schematic placements of the new world have been loaded.
+     */
+    public static void resumeInterruptedPaste()
+    {
+        InterruptedPaste paste = interruptedPaste;
+
+        if (paste == null || GameUtils.getClientWorld() == null)
+        {
+            return;
+        }
+
+        if (paste.serverName.equals(StringUtils.getWorldOrServerName()) == false ||
+            Configs.Generic.PASTE_COMMAND_RESUME.getBooleanValue() == false)
+        {
+            interruptedPaste = null;
+            return;
+        }
+
+        // Joined the same server, but in another dimension, keep the paste for when the player returns
+        if (paste.dimension == null || paste.dimension.equals(WorldUtils.getDimensionIdAsString(GameUtils.getClientWorld())) == false)
+        {
+            return;
+        }
+
+        interruptedPaste = null;
+
+        LayerRange range = new LayerRange(SchematicWorldRenderingNotifier.INSTANCE);
+        TaskPasteSchematicPerChunkCommand task = new TaskPasteSchematicPerChunkCommand(Collections.emptyList(), range,
+                                                                                     paste.changedBlocksOnly, paste.boxes);
+        TaskScheduler.getInstanceClient().scheduleTask(task, Configs.Generic.PASTE_COMMAND_INTERVAL.getIntegerValue());
+
+        MessageDispatcher.generic().translate("litematica.message.schematic_paste_resumed", paste.boxes.keySet().size());
+    }
+
+    protected static class QueuedCommand
+    {
+        public final String command;
+        public final int cost;
+
+        public QueuedCommand(String command, int cost)
+        {
+            this.command = command;
+            this.cost = cost;
+        }
+    }
+
+    private static class InterruptedPaste
+    {
+        private final String serverName;
+        @Nullable private final String dimension;
+        private final ArrayListMultimap<ChunkPos, IntBoundingBox> boxes;
+        private final boolean changedBlocksOnly;
+
+        private InterruptedPaste(String serverName, @Nullable String dimension,
+                                 ArrayListMultimap<ChunkPos, IntBoundingBox> boxes, boolean changedBlocksOnly)
+        {
+            this.serverName = serverName;
+            this.dimension = dimension;
+            this.boxes = boxes;
+            this.changedBlocksOnly = changedBlocksOnly;
+        }
+    }
 }
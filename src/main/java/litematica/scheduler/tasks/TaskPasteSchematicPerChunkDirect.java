@@ -2,18 +2,26 @@ package litematica.scheduler.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import com.google.common.collect.ArrayListMultimap;
 
 import net.minecraft.client.multiplayer.WorldClient;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 
 import malilib.overlay.message.MessageDispatcher;
 import malilib.util.game.WorldUtils;
 import malilib.util.game.wrap.GameUtils;
 import malilib.util.position.LayerRange;
+import litematica.Litematica;
 import litematica.config.Configs;
 import litematica.schematic.placement.SchematicPlacement;
+import litematica.schematic.util.PreparedChunkBlocks;
 import litematica.schematic.util.SchematicPlacingUtils;
 import litematica.util.value.ReplaceBehavior;
 import litematica.world.SchematicWorldHandler;
@@ -21,14 +29,22 @@ import litematica.world.WorldSchematic;
 
 public class TaskPasteSchematicPerChunkDirect extends TaskPasteSchematicPerChunkBase
 {
+    /** The maximum time per execution to spend writing the prepared chunks into the world */
+    private static final long WRITE_TIME_LIMIT_NANOS = 40000000L;
+
     private final ArrayListMultimap<ChunkPos, SchematicPlacement> placementsPerChunk = ArrayListMultimap.create();
+    private final Map<ChunkPos, Future<PreparedChunkBlocks>> preparingChunks = new HashMap<>();
     private final ReplaceBehavior replace;
+    private final boolean parallel;
+    private final int maxPreparingChunks;
 
     public TaskPasteSchematicPerChunkDirect(Collection<SchematicPlacement> placements, LayerRange range, boolean changedBlocksOnly)
     {
         super(placements, range, changedBlocksOnly);
 
         this.replace = Configs.Generic.PASTE_REPLACE_BEHAVIOR.getValue();
+        this.parallel = Configs.Generic.PASTE_DIRECT_PARALLEL.getBooleanValue();
+        this.maxPreparingChunks = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 4);
     }
 
     @Override
@@ -54,6 +70,11 @@ public class TaskPasteSchematicPerChunkDirect extends TaskPasteSchematicPerChunk
     @Override
     public boolean execute()
     {
+        if (this.parallel)
+        {
+            return this.executeParallel();
+        }
+
         WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
         WorldClient worldClient = GameUtils.getClientWorld();
         World world = WorldUtils.getBestWorld();
@@ -103,9 +124,125 @@ public class TaskPasteSchematicPerChunkDirect extends TaskPasteSchematicPerChunk
         return false;
     }
 
+    /**
+     * Prepares the transformed blocks of the chunks on worker threads,
+     * and writes the prepared chunks directly into the world's block storage arrays.
+     */
+    protected boolean executeParallel()
+    {
+        WorldSchematic worldSchematic = SchematicWorldHandler.getSchematicWorld();
+        WorldClient worldClient = GameUtils.getClientWorld();
+        World world = WorldUtils.getBestWorld();
+        long deadline = System.nanoTime() + WRITE_TIME_LIMIT_NANOS;
+        int processed = 0;
+
+        if ((world instanceof WorldServer) == false)
+        {
+            return false;
+        }
+
+        this.sortChunkList();
+
+        for (int chunkIndex = 0; chunkIndex < this.chunks.size(); ++chunkIndex)
+        {
+            ChunkPos pos = this.chunks.get(chunkIndex);
+            Future<PreparedChunkBlocks> future = this.preparingChunks.get(pos);
+
+            if (future == null)
+            {
+                if (this.preparingChunks.size() < this.maxPreparingChunks &&
+                    this.canProcessChunk(pos, worldSchematic, worldClient))
+                {
+                    this.startPreparingChunk(pos);
+                }
+
+                continue;
+            }
+
+            if (future.isDone() == false || System.nanoTime() > deadline)
+            {
+                continue;
+            }
+
+            this.preparingChunks.remove(pos);
+            this.writePreparedChunk(pos, future, (WorldServer) world);
+            this.chunks.remove(chunkIndex);
+            --chunkIndex;
+            ++processed;
+        }
+
+        if (this.chunks.isEmpty())
+        {
+            this.finished = true;
+            return true;
+        }
+
+        if (processed > 0)
+        {
+            this.updateInfoHudLines();
+        }
+
+        return false;
+    }
+
+    protected void startPreparingChunk(ChunkPos pos)
+    {
+        List<SchematicPlacement> placements = new ArrayList<>();
+
+        for (SchematicPlacement placement : this.placementsPerChunk.get(pos))
+        {
+            if (placement.isSchematicLoaded() && placement.isValid())
+            {
+                placements.add(placement);
+            }
+        }
+
+        final ReplaceBehavior replace = this.replace;
+
+        this.preparingChunks.put(pos, ForkJoinPool.commonPool().submit(() -> {
+            PreparedChunkBlocks prepared = new PreparedChunkBlocks(pos);
+
+            for (SchematicPlacement placement : placements)
+            {
+                SchematicPlacingUtils.prepareBlocksWithinChunk(placement, pos, replace, prepared);
+            }
+
+            return prepared;
+        }));
+    }
+
+    protected void writePreparedChunk(ChunkPos pos, Future<PreparedChunkBlocks> future, WorldServer world)
+    {
+        try
+        {
+            future.get().writeToWorld(world, this.replace);
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to paste the chunk {}", pos, e);
+        }
+
+        for (SchematicPlacement placement : this.placementsPerChunk.get(pos))
+        {
+            if (placement.isSchematicLoaded() && placement.isValid())
+            {
+                SchematicPlacingUtils.placeEntitiesToWorldWithinChunk(placement, pos, world);
+            }
+        }
+
+        this.placementsPerChunk.removeAll(pos);
+    }
+
     @Override
     public void stop()
     {
+        for (Future<PreparedChunkBlocks> future : this.preparingChunks.values())
+        {
+            future.cancel(false);
+        }
+
+        this.preparingChunks.clear();
+
         if (this.finished)
         {
             MessageDispatcher.success().screenOrActionbar().translate("litematica.message.schematic_placements_pasted");
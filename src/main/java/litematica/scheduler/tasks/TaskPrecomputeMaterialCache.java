@@ -0,0 +1,34 @@
+package litematica.scheduler.tasks;
+
+import malilib.util.StringUtils;
+import litematica.materials.MaterialCache;
+
+/**
+ * Resolves the items for all the registered block states into the {@link MaterialCache},
+ * a few milliseconds worth per game tick, and then saves the cache to file.
+ */
+public class TaskPrecomputeMaterialCache extends TaskBase
+{
+    /** The time to spend on resolving the block states per game tick */
+    protected static final long TIME_BUDGET_NANOS = 4000000L;
+
+    public TaskPrecomputeMaterialCache()
+    {
+        this.name = StringUtils.translate("litematica.gui.label.task_name.material_cache");
+    }
+
+    @Override
+    public boolean execute()
+    {
+        MaterialCache cache = MaterialCache.getInstance();
+
+        if (cache.precomputeStates(TIME_BUDGET_NANOS))
+        {
+            cache.writeToFile();
+            this.finished = true;
+            return true;
+        }
+
+        return false;
+    }
+}
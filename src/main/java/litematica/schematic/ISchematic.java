@@ -1,5 +1,7 @@
 package litematica.schematic;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -16,6 +18,9 @@ import malilib.overlay.message.MessageDispatcher;
 import malilib.util.FileUtils;
 import malilib.util.nbt.NbtUtils;
 import litematica.Litematica;
+import litematica.config.Configs;
+import litematica.schematic.util.SchematicReadMessages;
+import litematica.util.ParallelGzipOutputStream;
 
 public interface ISchematic
 {
@@ -24,6 +29,14 @@ public interface ISchematic
      */
     void clear();
 
+    /**
+     * Closes any memory-mapped block containers of this schematic, and deletes their temporary files.
+     * This should be called when the schematic is no longer going to be used.
+     */
+    default void closeMappedContainers()
+    {
+    }
+
     /**
      * @return the file this schematic was read from, or null if this is an in-memory-only schematic.
      */
@@ -141,7 +154,18 @@ public interface ISchematic
 
     default void writeToStream(NBTTagCompound tag, FileOutputStream outputStream) throws IOException
     {
-        CompressedStreamTools.writeCompressed(tag, outputStream);
+        if (Configs.Generic.SCHEMATIC_SAVE_PARALLEL.getBooleanValue())
+        {
+            // This still produces a normal GZip stream, so the files can be read by anything
+            int level = Configs.Generic.SCHEMATIC_SAVE_COMPRESSION_LEVEL.getIntegerValue();
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new ParallelGzipOutputStream(outputStream, level)));
+            CompressedStreamTools.write(tag, dos);
+            dos.close();
+        }
+        else
+        {
+            CompressedStreamTools.writeCompressed(tag, outputStream);
+        }
     }
 
     /**
@@ -155,7 +179,7 @@ public interface ISchematic
 
         if (file == null)
         {
-            MessageDispatcher.error("litematica.error.schematic_read_from_file_failed.no_file");
+            SchematicReadMessages.error("litematica.error.schematic_read_from_file_failed.no_file");
             return false;
         }
 
@@ -163,8 +187,8 @@ public interface ISchematic
 
         if (tag == null)
         {
-            MessageDispatcher.error("litematica.error.schematic_read_from_file_failed.cant_read",
-                                    file.toAbsolutePath().toString());
+            SchematicReadMessages.error("litematica.error.schematic_read_from_file_failed.cant_read",
+                                        file.toAbsolutePath().toString());
             return false;
         }
 
@@ -1,5 +1,6 @@
 package litematica.schematic;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -27,17 +28,27 @@ import malilib.util.game.wrap.NbtWrap;
 import malilib.util.game.wrap.RegistryUtils;
 import malilib.util.nbt.NbtUtils;
 import litematica.Litematica;
+import litematica.config.Configs;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.container.LitematicaBlockStateContainerMapped;
+import litematica.schematic.container.LitematicaBlockStateContainerSectioned;
+import litematica.schematic.container.MappedBitArray;
+import litematica.schematic.container.MappedLongArray;
+import litematica.schematic.util.SchematicReadMessages;
+import litematica.schematic.util.SchematicReadSettings;
 import litematica.selection.SelectionBox;
+import litematica.util.NbtStreamReader;
 import litematica.util.PositionUtils;
 
 public class LitematicaSchematic extends SchematicBase
 {
     public static final String FILE_NAME_EXTENSION = ".litematic";
     public static final int SCHEMATIC_VERSION = 4;
+    /** The NBT long arrays have an int length, so this is the most packed block state longs that a region can be saved with */
+    public static final long MAX_PACKED_BLOCK_STATES_LENGTH = Integer.MAX_VALUE - 8;
 
-    private final Map<String, LitematicaBlockStateContainerFull> blockContainers = new HashMap<>();
+    private final Map<String, ILitematicaBlockStateContainer> blockContainers = new HashMap<>();
     private final Map<String, Map<BlockPos, NBTTagCompound>> blockEntities = new HashMap<>();
     // TODO FIXME use a custom class for holding this data
     private final Map<String, Map<BlockPos, NextTickListEntry>> pendingBlockTicks = new HashMap<>();
@@ -65,6 +76,7 @@ public class LitematicaSchematic extends SchematicBase
     public void clear()
     {
         this.subRegions.clear();
+        this.closeMappedContainers();
         this.blockContainers.clear();
         this.blockEntities.clear();
         this.entities.clear();
@@ -72,6 +84,18 @@ public class LitematicaSchematic extends SchematicBase
         this.getMetadata().clearModifiedSinceSaved();
     }
 
+    @Override
+    public void closeMappedContainers()
+    {
+        for (ILitematicaBlockStateContainer container : this.blockContainers.values())
+        {
+            if (container instanceof LitematicaBlockStateContainerMapped)
+            {
+                ((LitematicaBlockStateContainerMapped) container).close();
+            }
+        }
+    }
+
     @Override
     public ImmutableList<String> getRegionNames()
     {
@@ -153,7 +177,7 @@ public class LitematicaSchematic extends SchematicBase
 
             try
             {
-                this.blockContainers.put(regionName, new LitematicaBlockStateContainerFull(new Vec3i(sizeX, sizeY, sizeZ)));
+                this.blockContainers.put(regionName, this.createEmptyContainer(new Vec3i(sizeX, sizeY, sizeZ), true));
             }
             catch (Exception e)
             {
@@ -184,17 +208,7 @@ public class LitematicaSchematic extends SchematicBase
 
                 this.subRegions.put(regionName, new SubRegion(region.getPosition(), region.getSize()));
 
-                if (containerOther instanceof LitematicaBlockStateContainerFull)
-                {
-                    this.blockContainers.put(regionName, (LitematicaBlockStateContainerFull) containerOther.copy());
-                }
-                else
-                {
-                    Vec3i size = containerOther.getSize();
-                    LitematicaBlockStateContainerFull container = new LitematicaBlockStateContainerFull(size, false);
-                    this.copyContainerContents(containerOther, container);
-                    this.blockContainers.put(regionName, container);
-                }
+                this.blockContainers.put(regionName, this.copyContainer(containerOther));
 
                 Map<BlockPos, NBTTagCompound> blockEntityMap = new HashMap<>();
                 Map<BlockPos, NextTickListEntry> blockTickMap = new HashMap<>(region.getBlockTickMap());
@@ -212,6 +226,66 @@ public class LitematicaSchematic extends SchematicBase
         }
     }
 
+    @Override
+    protected Class<? extends ILitematicaBlockStateContainer> getContainerClass()
+    {
+        if (Configs.Generic.SECTIONED_BLOCK_CONTAINERS.getBooleanValue())
+        {
+            return LitematicaBlockStateContainerSectioned.class;
+        }
+
+        return LitematicaBlockStateContainerFull.class;
+    }
+
+    private ILitematicaBlockStateContainer createEmptyContainer(Vec3i size, boolean checkForFreedIds)
+    {
+        if (this.getContainerClass() == LitematicaBlockStateContainerSectioned.class)
+        {
+            return new LitematicaBlockStateContainerSectioned(size);
+        }
+
+        return new LitematicaBlockStateContainerFull(size, checkForFreedIds);
+    }
+
+    private ILitematicaBlockStateContainer copyContainer(ILitematicaBlockStateContainer other)
+    {
+        // The mapped containers are only used for huge regions, so keep those off-heap
+        if (other.getClass() == this.getContainerClass() || other instanceof LitematicaBlockStateContainerMapped)
+        {
+            return other.copy();
+        }
+
+        if (other instanceof LitematicaBlockStateContainerFull &&
+            this.getContainerClass() == LitematicaBlockStateContainerSectioned.class)
+        {
+            return LitematicaBlockStateContainerSectioned.createFrom((LitematicaBlockStateContainerFull) other);
+        }
+
+        ILitematicaBlockStateContainer container = this.createEmptyContainer(other.getSize(), false);
+        this.copyContainerContents(other, container);
+
+        return container;
+    }
+
+    @Override
+    public boolean writeToFile(Path file, boolean override)
+    {
+        // Fail before writing anything, instead of partway through building the NBT data
+        for (Map.Entry<String, ILitematicaBlockStateContainer> entry : this.blockContainers.entrySet())
+        {
+            long length = getPackedBlockStatesLength(entry.getValue());
+
+            if (length > MAX_PACKED_BLOCK_STATES_LENGTH)
+            {
+                MessageDispatcher.error("litematica.error.schematic_write_to_file_failed.region_too_large",
+                                        entry.getKey(), length, MAX_PACKED_BLOCK_STATES_LENGTH);
+                return false;
+            }
+        }
+
+        return super.writeToFile(file, override);
+    }
+
     @Override
     public NBTTagCompound toTag()
     {
@@ -243,12 +317,12 @@ public class LitematicaSchematic extends SchematicBase
             }
             else
             {
-                MessageDispatcher.error().translate("litematica.error.schematic_load.unsupported_schematic_version", version);
+                SchematicReadMessages.error("litematica.error.schematic_load.unsupported_schematic_version", version);
             }
         }
         else
         {
-            MessageDispatcher.error().translate("litematica.error.schematic_load.no_schematic_version_information");
+            SchematicReadMessages.error("litematica.error.schematic_load.no_schematic_version_information");
         }
 
         return false;
@@ -262,7 +336,7 @@ public class LitematicaSchematic extends SchematicBase
         {
             for (String regionName : this.blockContainers.keySet())
             {
-                LitematicaBlockStateContainerFull blockContainer = this.blockContainers.get(regionName);
+                ILitematicaBlockStateContainer blockContainer = this.blockContainers.get(regionName);
                 Map<BlockPos, NBTTagCompound> tileMap = this.blockEntities.get(regionName);
                 List<EntityInfo> entityList = this.entities.get(regionName);
                 Map<BlockPos, NextTickListEntry> pendingTicks = this.pendingBlockTicks.get(regionName);
@@ -270,7 +344,7 @@ public class LitematicaSchematic extends SchematicBase
                 NBTTagCompound tag = new NBTTagCompound();
 
                 NbtWrap.putTag(tag, "BlockStatePalette", this.writePaletteToLitematicaFormatTag(blockContainer.getPalette()));
-                NbtWrap.putTag(tag, "BlockStates", new NBTTagLongArray(blockContainer.getBackingLongArray()));
+                NbtWrap.putTag(tag, "BlockStates", new NBTTagLongArray(getPackedBlockStates(blockContainer)));
 
                 if (tileMap != null)
                 {
@@ -299,6 +373,42 @@ public class LitematicaSchematic extends SchematicBase
         return wrapper;
     }
 
+    private static long getPackedBlockStatesLength(ILitematicaBlockStateContainer container)
+    {
+        if (container instanceof LitematicaBlockStateContainerMapped)
+        {
+            return ((LitematicaBlockStateContainerMapped) container).getPackedLongCount();
+        }
+        else if (container instanceof LitematicaBlockStateContainerSectioned)
+        {
+            // This matches the array size in LitematicaBlockStateContainerSectioned#toFullContainer()
+            Vec3i size = container.getSize();
+            long volume = (long) size.getX() * (long) size.getY() * (long) size.getZ();
+            int paletteSize = container.getPalette().getPaletteSize();
+            int bits = Math.max(2, Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1));
+
+            return MappedBitArray.getRequiredLongArrayLength(bits, volume);
+        }
+
+        // The full containers already use a heap array
+        return 0;
+    }
+
+    private static long[] getPackedBlockStates(ILitematicaBlockStateContainer container)
+    {
+        if (container instanceof LitematicaBlockStateContainerMapped)
+        {
+            return ((LitematicaBlockStateContainerMapped) container).getBackingLongArray();
+        }
+        else if (container instanceof LitematicaBlockStateContainerSectioned)
+        {
+            // The global palette is the same in the converted container, so the same palette tag can be used
+            return ((LitematicaBlockStateContainerSectioned) container).toFullContainer().getBackingLongArray();
+        }
+
+        return ((LitematicaBlockStateContainerFull) container).getBackingLongArray();
+    }
+
     private NBTTagList writeBlockTicksToNBT(Map<BlockPos, NextTickListEntry> tickMap)
     {
         NBTTagList tagList = new NBTTagList();
@@ -335,64 +445,312 @@ public class LitematicaSchematic extends SchematicBase
             if (NbtWrap.getTypeId(NbtWrap.getTag(tag, regionName)) == Constants.NBT.TAG_COMPOUND)
             {
                 NBTTagCompound regionTag = NbtWrap.getCompound(tag, regionName);
-                BlockPos regionPos = NbtUtils.readBlockPos(NbtWrap.getCompound(regionTag, "Position"));
-                BlockPos regionSize = NbtUtils.readBlockPos(NbtWrap.getCompound(regionTag, "Size"));
+                NBTBase nbtBase = NbtWrap.getTag(regionTag, "BlockStates");
+                long[] blockStateArr = null;
 
-                if (regionPos != null && regionSize != null)
+                // There are no convenience methods in NBTTagCompound yet in 1.12, so we'll have to do it the ugly way...
+                if (nbtBase != null && NbtWrap.getTypeId(nbtBase) == Constants.NBT.TAG_LONG_ARRAY)
                 {
-                    this.subRegions.put(regionName, new SubRegion(regionPos, regionSize));
+                    blockStateArr = ((NBTTagLongArrayMixin) nbtBase).getArray();
+                }
 
-                    NBTTagList beList = NbtWrap.getListOfCompounds(regionTag, "TileEntities");
-                    NBTTagList entityList = NbtWrap.getListOfCompounds(regionTag, "Entities");
+                if (this.readSubRegionFromTag(regionName, regionTag, blockStateArr, null, version) == false)
+                {
+                    return false;
+                }
+            }
+        }
 
-                    if (version >= 2)
-                    {
-                        this.blockEntities.put(regionName, this.readBlockEntitiesFromListTag(beList));
-                        this.entities.put(regionName, this.readEntitiesFromListTag(entityList));
-                    }
-                    else if (version == 1)
-                    {
-                        this.blockEntities.put(regionName, this.readTileEntitiesFromNBT_v1(beList));
-                        this.entities.put(regionName, this.readEntitiesFromNBT_v1(entityList));
-                    }
+        return true;
+    }
 
-                    if (version >= 3)
-                    {
-                        this.pendingBlockTicks.put(regionName, this.readBlockTicksFromNBT(NbtWrap.getListOfCompounds(regionTag, "PendingBlockTicks")));
-                    }
+    /**
+     * Reads the sub-region from the given tag. The block states are taken from either
+     * the heap array or from the memory-mapped array, whichever one is not null.
+     */
+    private boolean readSubRegionFromTag(String regionName, NBTTagCompound regionTag,
+                                         @Nullable long[] blockStateArr,
+                                         @Nullable MappedLongArray mappedBlockStateArr,
+                                         int version)
+    {
+        BlockPos regionPos = NbtUtils.readBlockPos(NbtWrap.getCompound(regionTag, "Position"));
+        BlockPos regionSize = NbtUtils.readBlockPos(NbtWrap.getCompound(regionTag, "Size"));
+
+        if (regionPos != null && regionSize != null)
+        {
+            this.subRegions.put(regionName, new SubRegion(regionPos, regionSize));
+
+            NBTTagList beList = NbtWrap.getListOfCompounds(regionTag, "TileEntities");
+            NBTTagList entityList = NbtWrap.getListOfCompounds(regionTag, "Entities");
+
+            if (version >= 2)
+            {
+                this.blockEntities.put(regionName, this.readBlockEntitiesFromListTag(beList));
+                this.entities.put(regionName, this.readEntitiesFromListTag(entityList));
+            }
+            else if (version == 1)
+            {
+                this.blockEntities.put(regionName, this.readTileEntitiesFromNBT_v1(beList));
+                this.entities.put(regionName, this.readEntitiesFromNBT_v1(entityList));
+            }
+
+            if (version >= 3)
+            {
+                this.pendingBlockTicks.put(regionName, this.readBlockTicksFromNBT(NbtWrap.getListOfCompounds(regionTag, "PendingBlockTicks")));
+            }
+
+            if (blockStateArr != null || mappedBlockStateArr != null)
+            {
+                Vec3i size = new Vec3i(Math.abs(regionSize.getX()), Math.abs(regionSize.getY()), Math.abs(regionSize.getZ()));
+                NBTTagList paletteTag = NbtWrap.getListOfCompounds(regionTag, "BlockStatePalette");
+                int paletteSize = NbtWrap.getListSize(paletteTag);
+
+                ILitematicaBlockStateContainer container = blockStateArr != null ?
+                        LitematicaBlockStateContainerFull.createContainer(paletteSize, blockStateArr, size) :
+                        this.createMappedContainer(regionName, paletteSize, mappedBlockStateArr, size);
+
+                if (container == null)
+                {
+                    String fileName = this.getFile() != null ? this.getFile().getFileName().toString() : "<null>";
+                    SchematicReadMessages.error("litematica.error.schematic_read_from_file_failed.region_container",
+                                                regionName, fileName);
+                    return false;
+                }
+
+                readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette());
+
+                if (container instanceof LitematicaBlockStateContainerFull &&
+                    this.getContainerClass() == LitematicaBlockStateContainerSectioned.class)
+                {
+                    container = LitematicaBlockStateContainerSectioned.createFrom((LitematicaBlockStateContainerFull) container);
+                }
+
+                this.blockContainers.put(regionName, container);
+            }
+            else
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Nullable
+    private LitematicaBlockStateContainerMapped createMappedContainer(String regionName, int paletteSize,
+                                                                      MappedLongArray blockStateArr, Vec3i size)
+    {
+        try
+        {
+            return LitematicaBlockStateContainerMapped.createContainer(paletteSize, blockStateArr, size);
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to create a mapped block state container for sub-region '{}'", regionName, e);
+            blockStateArr.close();
+            return null;
+        }
+    }
+
+    @Override
+    public boolean readFromFile()
+    {
+        return this.readFromFile(new SchematicReadSettings());
+    }
 
-                    NBTBase nbtBase = NbtWrap.getTag(regionTag, "BlockStates");
+    /**
+     * Reads the schematic from its file by streaming through the NBT data,
+     * without reading the entire tag tree into memory first.
+     * The block state arrays are read directly into the block state containers,
+     * and the entities, block entities and block ticks can be skipped entirely.
+     * @return true on success, false on failure
+     */
+    public boolean readFromFile(SchematicReadSettings settings)
+    {
+        Path file = this.getFile();
+
+        if (file == null)
+        {
+            SchematicReadMessages.error("litematica.error.schematic_read_from_file_failed.no_file");
+            return false;
+        }
+
+        this.clear();
+
+        try (NbtStreamReader reader = NbtStreamReader.openCompressedFile(file))
+        {
+            if (reader.readRootTagType() == Constants.NBT.TAG_COMPOUND)
+            {
+                return this.readFromStream(reader, settings);
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read schematic from file '{}'", file.toAbsolutePath().toString(), e);
+        }
+
+        this.clear();
+        SchematicReadMessages.error("litematica.error.schematic_read_from_file_failed.cant_read",
+                                    file.toAbsolutePath().toString());
+        return false;
+    }
+
+    private boolean readFromStream(NbtStreamReader reader, SchematicReadSettings settings) throws IOException
+    {
+        List<StreamedRegion> regions = new ArrayList<>();
+        NBTTagCompound metadataTag = null;
+        int version = -1;
+        int type;
+
+        // Note: The order of the entries in the file is not fixed,
+        // so the regions are only built after the version is known.
+        try
+        {
+            while ((type = reader.readEntryType()) != Constants.NBT.TAG_END)
+            {
+                String name = reader.readEntryName();
+
+                if (type == Constants.NBT.TAG_INT && name.equals("Version"))
+                {
+                    version = reader.readInt();
+                }
+                else if (type == Constants.NBT.TAG_COMPOUND && name.equals("Metadata"))
+                {
+                    metadataTag = reader.readCompoundPayload();
+                }
+                else if (type == Constants.NBT.TAG_COMPOUND && name.equals("Regions"))
+                {
+                    this.readSubRegionsFromStream(reader, settings, regions);
+                }
+                else
+                {
+                    reader.skipPayload(type);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            regions.forEach(StreamedRegion::closeMappedBlockStates);
+            throw e;
+        }
+
+        if (version == -1)
+        {
+            regions.forEach(StreamedRegion::closeMappedBlockStates);
+            SchematicReadMessages.error("litematica.error.schematic_load.no_schematic_version_information");
+            return false;
+        }
+        else if (version < 1 || version > SCHEMATIC_VERSION)
+        {
+            regions.forEach(StreamedRegion::closeMappedBlockStates);
+            SchematicReadMessages.error("litematica.error.schematic_load.unsupported_schematic_version", version);
+            return false;
+        }
+
+        if (metadataTag != null)
+        {
+            this.getMetadata().fromTag(metadataTag);
+        }
+
+        for (int i = 0; i < regions.size(); ++i)
+        {
+            StreamedRegion region = regions.get(i);
+
+            if (this.readSubRegionFromTag(region.name, region.tag, region.blockStates, region.mappedBlockStates, version) == false)
+            {
+                // Matches the tag based reading, which also stops reading the remaining regions on failure.
+                // Delete the temporary files of any mapped block data that won't be used.
+                for (int j = i + 1; j < regions.size(); ++j)
+                {
+                    regions.get(j).closeMappedBlockStates();
+                }
+
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    private void readSubRegionsFromStream(NbtStreamReader reader, SchematicReadSettings settings,
+                                          List<StreamedRegion> regionsOut) throws IOException
+    {
+        final int threshold = Configs.Generic.MAPPED_BLOCK_STORAGE_THRESHOLD.getIntegerValue();
+        int type;
+
+        while ((type = reader.readEntryType()) != Constants.NBT.TAG_END)
+        {
+            String regionName = reader.readEntryName();
 
-                    // There are no convenience methods in NBTTagCompound yet in 1.12, so we'll have to do it the ugly way...
-                    if (nbtBase != null && NbtWrap.getTypeId(nbtBase) == Constants.NBT.TAG_LONG_ARRAY)
+            if (type != Constants.NBT.TAG_COMPOUND)
+            {
+                reader.skipPayload(type);
+                continue;
+            }
+
+            NBTTagCompound regionTag = new NBTTagCompound();
+            long[] blockStates = null;
+            MappedLongArray mappedBlockStates = null;
+            int entryType;
+
+            while ((entryType = reader.readEntryType()) != Constants.NBT.TAG_END)
+            {
+                String key = reader.readEntryName();
+
+                if (entryType == Constants.NBT.TAG_LONG_ARRAY && key.equals("BlockStates"))
+                {
+                    int length = reader.readArrayLength();
+
+                    // Very large block data can be read directly into a memory-mapped temporary file
+                    // instead of the heap. The region size and palette are not known at this point yet,
+                    // but the bit layout is the same for both storage types, so the raw data can be read as-is.
+                    if (LitematicaBlockStateContainerMapped.shouldUseMappedStorage(length, threshold))
                     {
-                        Vec3i size = new Vec3i(Math.abs(regionSize.getX()), Math.abs(regionSize.getY()), Math.abs(regionSize.getZ()));
-                        NBTTagList paletteTag = NbtWrap.getListOfCompounds(regionTag, "BlockStatePalette");
-                        long[] blockStateArr = ((NBTTagLongArrayMixin) nbtBase).getArray();
-                        int paletteSize = NbtWrap.getListSize(paletteTag);
-
-                        LitematicaBlockStateContainerFull container = LitematicaBlockStateContainerFull.createContainer(paletteSize, blockStateArr, size);
-
-                        if (container == null)
-                        {
-                            String fileName = this.getFile() != null ? this.getFile().getFileName().toString() : "<null>";
-                            MessageDispatcher.error().translate("litematica.error.schematic_read_from_file_failed.region_container",
-                                                                regionName, fileName);
-                            return false;
-                        }
-
-                        readPaletteFromLitematicaFormatTag(paletteTag, container.getPalette());
-                        this.blockContainers.put(regionName, container);
+                        mappedBlockStates = readLongArrayToMappedArray(reader, length);
                     }
                     else
                     {
-                        return false;
+                        blockStates = new long[length];
+                        reader.readLongs(blockStates, 0, length);
                     }
                 }
+                else if ((key.equals("TileEntities") && settings.readBlockEntities.getBooleanValue() == false) ||
+                         (key.equals("Entities") && settings.readEntities.getBooleanValue() == false) ||
+                         (key.equals("PendingBlockTicks") && settings.readBlockTicks.getBooleanValue() == false))
+                {
+                    reader.skipPayload(entryType);
+                }
+                else
+                {
+                    NbtWrap.putTag(regionTag, key, reader.readPayload(entryType));
+                }
+            }
+
+            regionsOut.add(new StreamedRegion(regionName, regionTag, blockStates, mappedBlockStates));
+        }
+    }
+
+    private static MappedLongArray readLongArrayToMappedArray(NbtStreamReader reader, int length) throws IOException
+    {
+        MappedLongArray arr = new MappedLongArray(length);
+        long[] buffer = new long[Math.min(length, 8192)];
+
+        try
+        {
+            for (int index = 0; index < length; index += buffer.length)
+            {
+                int count = Math.min(buffer.length, length - index);
+                reader.readLongs(buffer, 0, count);
+                arr.put(index, buffer, 0, count);
             }
         }
+        catch (IOException e)
+        {
+            arr.close();
+            throw e;
+        }
 
-        return true;
+        return arr;
     }
 
     private Map<BlockPos, NextTickListEntry> readBlockTicksFromNBT(NBTTagList tagList)
@@ -485,12 +843,80 @@ public class LitematicaSchematic extends SchematicBase
             fileName = fileName + FILE_NAME_EXTENSION;
         }
 
-        Path file = dir.resolve(fileName);
-        LitematicaSchematic schematic = new LitematicaSchematic(file);
+        return createFromFile(dir.resolve(fileName));
+    }
 
+    @Nullable
+    public static LitematicaSchematic createFromFile(Path file)
+    {
+        LitematicaSchematic schematic = new LitematicaSchematic(file);
         return schematic.readFromFile() ? schematic : null;
     }
 
+    /**
+     * Reads only the metadata from the given schematic file.
+     * The reading stops right after the Metadata tag, which is normally stored
+     * before the bulk region data, so this is much cheaper than reading the whole schematic.
+     * @return the metadata, or null if the file could not be read or had no metadata
+     */
+    @Nullable
+    public static SchematicMetadata readMetadataFromFile(Path file)
+    {
+        try (NbtStreamReader reader = NbtStreamReader.openCompressedFile(file))
+        {
+            if (reader.readRootTagType() == Constants.NBT.TAG_COMPOUND)
+            {
+                int type;
+
+                while ((type = reader.readEntryType()) != Constants.NBT.TAG_END)
+                {
+                    String name = reader.readEntryName();
+
+                    if (type == Constants.NBT.TAG_COMPOUND && name.equals("Metadata"))
+                    {
+                        SchematicMetadata metadata = new SchematicMetadata();
+                        metadata.fromTag(reader.readCompoundPayload());
+                        return metadata;
+                    }
+
+                    reader.skipPayload(type);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read schematic metadata from file '{}'", file.toAbsolutePath().toString(), e);
+        }
+
+        return null;
+    }
+
+    private static class StreamedRegion
+    {
+        private final String name;
+        private final NBTTagCompound tag;
+        @Nullable private final long[] blockStates;
+        @Nullable private final MappedLongArray mappedBlockStates;
+
+        private StreamedRegion(String name, NBTTagCompound tag,
+                               @Nullable long[] blockStates,
+                               @Nullable MappedLongArray mappedBlockStates)
+        {
+            this.name = name;
+            this.tag = tag;
+            this.blockStates = blockStates;
+            this.mappedBlockStates = mappedBlockStates;
+        }
+
+        private void closeMappedBlockStates()
+        {
+            if (this.mappedBlockStates != null)
+            {
+                this.mappedBlockStates.close();
+            }
+        }
+    }
+
     public static class LitematicaSubRegion implements ISchematicRegion
     {
         private final LitematicaSchematic schematic;
@@ -540,7 +966,7 @@ public class LitematicaSchematic extends SchematicBase
 
         // TODO FIXME clean this up by moving these to a MutableSchematicRegion interface and class
 
-        public void setBlockStateContainer(LitematicaBlockStateContainerFull container)
+        public void setBlockStateContainer(ILitematicaBlockStateContainer container)
         {
             Vec3i containerSize = container.getSize();
             Vec3i regionSize = this.getSize();
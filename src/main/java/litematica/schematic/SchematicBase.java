@@ -22,6 +22,7 @@ import litematica.mixin.IMixinDataFixer;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.container.ILitematicaBlockStatePalette;
 import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.container.LitematicaBlockStateContainerSectioned;
 
 public abstract class SchematicBase implements ISchematic
 {
@@ -69,8 +70,18 @@ public abstract class SchematicBase implements ISchematic
         return LitematicaBlockStateContainerFull.class;
     }
 
+    /**
+     * Copies the block states from one container to another.
+     * The target container is expected to be newly created, ie. empty.
+     */
     protected void copyContainerContents(ILitematicaBlockStateContainer from, ILitematicaBlockStateContainer to)
     {
+        if (from instanceof LitematicaBlockStateContainerSectioned)
+        {
+            this.copySectionedContainerContents((LitematicaBlockStateContainerSectioned) from, to);
+            return;
+        }
+
         Vec3i sizeFrom = from.getSize();
         Vec3i sizeTo = to.getSize();
         final int sizeX = Math.min(sizeFrom.getX(), sizeTo.getX());
@@ -90,6 +101,52 @@ public abstract class SchematicBase implements ISchematic
         }
     }
 
+    protected void copySectionedContainerContents(LitematicaBlockStateContainerSectioned from, ILitematicaBlockStateContainer to)
+    {
+        Vec3i sizeFrom = from.getSize();
+        Vec3i sizeTo = to.getSize();
+        final int sizeX = Math.min(sizeFrom.getX(), sizeTo.getX());
+        final int sizeY = Math.min(sizeFrom.getY(), sizeTo.getY());
+        final int sizeZ = Math.min(sizeFrom.getZ(), sizeTo.getZ());
+        final int sectionSize = LitematicaBlockStateContainerSectioned.SECTION_SIZE;
+        final int sectionsX = (sizeX + sectionSize - 1) / sectionSize;
+        final int sectionsY = (sizeY + sectionSize - 1) / sectionSize;
+        final int sectionsZ = (sizeZ + sectionSize - 1) / sectionSize;
+
+        for (int sy = 0; sy < sectionsY; ++sy)
+        {
+            for (int sz = 0; sz < sectionsZ; ++sz)
+            {
+                for (int sx = 0; sx < sectionsX; ++sx)
+                {
+                    // Empty sections don't need to be copied to the empty target container
+                    if (from.getUniformSectionState(sx, sy, sz) == LitematicaBlockStateContainerSectioned.AIR_BLOCK_STATE)
+                    {
+                        continue;
+                    }
+
+                    final int minX = sx * sectionSize;
+                    final int minY = sy * sectionSize;
+                    final int minZ = sz * sectionSize;
+                    final int maxX = Math.min(minX + sectionSize, sizeX);
+                    final int maxY = Math.min(minY + sectionSize, sizeY);
+                    final int maxZ = Math.min(minZ + sectionSize, sizeZ);
+
+                    for (int y = minY; y < maxY; ++y)
+                    {
+                        for (int z = minZ; z < maxZ; ++z)
+                        {
+                            for (int x = minX; x < maxX; ++x)
+                            {
+                                to.setBlockState(x, y, z, from.getBlockState(x, y, z));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     protected void readMetadataFromTag(NBTTagCompound tag)
     {
         if (NbtWrap.containsCompound(tag, "Metadata"))
@@ -0,0 +1,291 @@
+package litematica.schematic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+
+import malilib.util.FileUtils;
+import malilib.util.data.Constants;
+import malilib.util.game.wrap.NbtWrap;
+import litematica.Litematica;
+import litematica.util.LitematicaDirectories;
+
+/**
+ * An on-disk index of schematic metadata, keyed by the file path,
+ * and validated by the file size and modification time.
+ * The preview images are stored in the index as well, so that the
+ * unchanged schematic files don't need to be read at all.
+ * The entries of deleted files are pruned once per directory,
+ * when the first file of that directory is looked up.
+ */
+public class SchematicMetadataIndex
+{
+    private static final SchematicMetadataIndex INSTANCE = new SchematicMetadataIndex();
+    /** The entries of an index with a different version are discarded */
+    protected static final int INDEX_VERSION = 2;
+
+    protected final Map<String, IndexEntry> entries = new HashMap<>();
+    protected final Set<Path> prunedDirectories = new HashSet<>();
+    protected boolean hasReadFromFile;
+    protected boolean dirty;
+
+    public static SchematicMetadataIndex getInstance()
+    {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the metadata for the given schematic file.
+     * The metadata comes from the index if the file has not changed since it was indexed,
+     * otherwise it is read from the file, and the index is updated.
+     */
+    @Nullable
+    public SchematicMetadata getOrReadMetadata(Path file)
+    {
+        if (this.hasReadFromFile == false)
+        {
+            this.readFromFile();
+        }
+
+        Path absolutePath = file.toAbsolutePath();
+        Path dir = absolutePath.getParent();
+
+        if (dir != null && this.prunedDirectories.add(dir))
+        {
+            this.pruneDeletedFiles(dir);
+        }
+
+        String key = absolutePath.toString();
+        BasicFileAttributes attributes;
+
+        try
+        {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        }
+        catch (Exception e)
+        {
+            if (this.entries.remove(key) != null)
+            {
+                this.dirty = true;
+            }
+
+            return null;
+        }
+
+        long fileSize = attributes.size();
+        long fileTime = attributes.lastModifiedTime().toMillis();
+        IndexEntry entry = this.entries.get(key);
+
+        if (entry != null && entry.fileSize == fileSize && entry.fileTime == fileTime)
+        {
+            SchematicMetadata metadata = new SchematicMetadata();
+            metadata.fromTag(entry.metadataTag);
+            return metadata;
+        }
+
+        SchematicMetadata metadata = SchematicType.tryReadMetadataFrom(file);
+
+        if (metadata != null)
+        {
+            this.entries.put(key, new IndexEntry(fileSize, fileTime, metadata.toTag()));
+            this.dirty = true;
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Removes the entries of the files in the given directory that don't exist anymore.
+     * This lists the directory once, instead of checking each entry's file separately.
+     */
+    protected void pruneDeletedFiles(Path dir)
+    {
+        Set<String> existingFiles = new HashSet<>();
+
+        try (Stream<Path> stream = Files.list(dir))
+        {
+            stream.forEach(path -> existingFiles.add(path.toAbsolutePath().toString()));
+        }
+        catch (IOException e)
+        {
+            return;
+        }
+
+        if (this.entries.keySet().removeIf(key -> existingFiles.contains(key) == false &&
+                                                  dir.equals(this.getPath(key).getParent())))
+        {
+            this.dirty = true;
+        }
+    }
+
+    public void clear()
+    {
+        this.entries.clear();
+        this.prunedDirectories.clear();
+        this.dirty = true;
+    }
+
+    protected Path getIndexFile()
+    {
+        return LitematicaDirectories.getModConfigDirectory().resolve("schematic_metadata_index.nbt");
+    }
+
+    protected NBTTagCompound writeToNBT()
+    {
+        NBTTagCompound nbt = new NBTTagCompound();
+        NBTTagList list = new NBTTagList();
+
+        for (Map.Entry<String, IndexEntry> mapEntry : this.entries.entrySet())
+        {
+            IndexEntry entry = mapEntry.getValue();
+            NBTTagCompound tag = new NBTTagCompound();
+
+            NbtWrap.putString(tag, "Path", mapEntry.getKey());
+            NbtWrap.putLong(tag, "Size", entry.fileSize);
+            NbtWrap.putLong(tag, "Time", entry.fileTime);
+            NbtWrap.putTag(tag, "Metadata", entry.metadataTag);
+
+            NbtWrap.addTag(list, tag);
+        }
+
+        NbtWrap.putInt(nbt, "Version", INDEX_VERSION);
+        NbtWrap.putTag(nbt, "Entries", list);
+
+        return nbt;
+    }
+
+    protected void readFromNBT(NBTTagCompound nbt)
+    {
+        this.entries.clear();
+
+        // The older versions didn't store the preview images
+        if (NbtWrap.getInt(nbt, "Version") != INDEX_VERSION)
+        {
+            return;
+        }
+
+        NBTTagList list = NbtWrap.getList(nbt, "Entries", Constants.NBT.TAG_COMPOUND);
+        final int count = NbtWrap.getListSize(list);
+
+        for (int i = 0; i < count; ++i)
+        {
+            NBTTagCompound tag = NbtWrap.getCompoundAt(list, i);
+
+            if (NbtWrap.containsString(tag, "Path") && NbtWrap.containsCompound(tag, "Metadata"))
+            {
+                IndexEntry entry = new IndexEntry(NbtWrap.getLong(tag, "Size"),
+                                                  NbtWrap.getLong(tag, "Time"),
+                                                  NbtWrap.getCompound(tag, "Metadata"));
+                this.entries.put(NbtWrap.getString(tag, "Path"), entry);
+            }
+        }
+    }
+
+    protected Path getPath(String key)
+    {
+        try
+        {
+            return Paths.get(key);
+        }
+        catch (Exception e)
+        {
+            return this.getIndexFile();
+        }
+    }
+
+    public boolean writeToFile()
+    {
+        if (this.dirty == false)
+        {
+            return false;
+        }
+
+        Path file = this.getIndexFile();
+
+        try
+        {
+            if (FileUtils.createDirectoriesIfMissing(file.getParent()) == false)
+            {
+                Litematica.logger.warn("Failed to write the schematic metadata index to file '{}'",
+                                       file.toAbsolutePath().toString());
+                return false;
+            }
+
+            try (OutputStream os = Files.newOutputStream(file))
+            {
+                CompressedStreamTools.writeCompressed(this.writeToNBT(), os);
+            }
+
+            this.dirty = false;
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to write the schematic metadata index to file '{}'",
+                                   file.toAbsolutePath().toString(), e);
+        }
+
+        return false;
+    }
+
+    public void readFromFile()
+    {
+        Path file = this.getIndexFile();
+        this.hasReadFromFile = true;
+
+        if (Files.isRegularFile(file) == false || Files.isReadable(file) == false)
+        {
+            return;
+        }
+
+        try
+        {
+            NBTTagCompound nbt;
+
+            try (InputStream is = Files.newInputStream(file))
+            {
+                nbt = CompressedStreamTools.readCompressed(is);
+            }
+
+            if (nbt != null)
+            {
+                this.readFromNBT(nbt);
+                this.dirty = false;
+            }
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to read the schematic metadata index from file '{}'",
+                                   file.toAbsolutePath().toString(), e);
+        }
+    }
+
+    protected static class IndexEntry
+    {
+        public final long fileSize;
+        public final long fileTime;
+        public final NBTTagCompound metadataTag;
+
+        public IndexEntry(long fileSize, long fileTime, NBTTagCompound metadataTag)
+        {
+            this.fileSize = fileSize;
+            this.fileTime = fileTime;
+            this.metadataTag = metadataTag;
+        }
+    }
+}
@@ -22,6 +22,8 @@ public class SchematicType<S extends ISchematic>
     public static final SchematicType<LitematicaSchematic> LITEMATICA = SchematicType.<LitematicaSchematic>builder()
             .setDisplayName("Litematica")
             .setFactory(LitematicaSchematic::new)
+            .setFileReader(LitematicaSchematic::createFromFile)
+            .setMetadataReader(LitematicaSchematic::readMetadataFromFile)
             .setDataValidator(LitematicaSchematic::isValidSchematic)
             .setExtension(LitematicaSchematic.FILE_NAME_EXTENSION)
             .setExtensionValidator(LitematicaSchematic.FILE_NAME_EXTENSION::equals)
@@ -71,18 +73,24 @@ public class SchematicType<S extends ISchematic>
     private final Icon defaultIcon;
     private final Icon inMemoryIcon;
     private final Function<Path, S> factory;
+    @Nullable private final Function<Path, S> fileReader;
+    @Nullable private final Function<Path, SchematicMetadata> metadataReader;
     private final Function<String, Boolean> extensionValidator;
     private final Function<NBTTagCompound, Boolean> dataValidator;
     private final String displayName;
     private final boolean hasName;
 
-    private SchematicType(String displayName, Function<Path, S> factory, Function<NBTTagCompound, Boolean> dataValidator,
+    private SchematicType(String displayName, Function<Path, S> factory, @Nullable Function<Path, S> fileReader,
+                          @Nullable Function<Path, SchematicMetadata> metadataReader,
+                          Function<NBTTagCompound, Boolean> dataValidator,
                           String extension, Function<String, Boolean> extensionValidator,
                           Icon defaultIcon, Icon inMemoryIcon, boolean hasName)
     {
         this.displayName = displayName;
         this.extension = extension;
         this.factory = factory;
+        this.fileReader = fileReader;
+        this.metadataReader = metadataReader;
         this.extensionValidator = extensionValidator;
         this.dataValidator = dataValidator;
         this.defaultIcon = defaultIcon;
@@ -134,6 +142,21 @@ public class SchematicType<S extends ISchematic>
         return this.factory.apply(file);
     }
 
+    /**
+     * Creates a new schematic and reads it from the given file, if this type has
+     * a dedicated (streaming) file reader. Otherwise returns null.
+     */
+    @Nullable
+    public S createSchematicAndReadFromFile(Path file)
+    {
+        return this.fileReader != null ? this.fileReader.apply(file) : null;
+    }
+
+    public boolean hasFileReader()
+    {
+        return this.fileReader != null;
+    }
+
     @Nullable
     public S createSchematicAndReadFromTag(@Nullable Path file, NBTTagCompound tag)
     {
@@ -192,6 +215,12 @@ public class SchematicType<S extends ISchematic>
     {
         List<SchematicType<?>> possibleTypes = getPossibleTypesFromFileName(file);
 
+        // Use the dedicated file reader if the type is unambiguous, to avoid reading the whole NBT tree first
+        if (possibleTypes.size() == 1 && possibleTypes.get(0).hasFileReader())
+        {
+            return possibleTypes.get(0).createSchematicAndReadFromFile(file);
+        }
+
         if (possibleTypes.isEmpty() == false)
         {
             NBTTagCompound tag = NbtUtils.readNbtFromFile(file);
@@ -210,6 +239,25 @@ public class SchematicType<S extends ISchematic>
         return null;
     }
 
+    /**
+     * Reads just the metadata of the given schematic file. This uses the
+     * header-only metadata reader if the type has one, otherwise the entire
+     * schematic is read.
+     */
+    @Nullable
+    public static SchematicMetadata tryReadMetadataFrom(Path file)
+    {
+        List<SchematicType<?>> possibleTypes = getPossibleTypesFromFileName(file);
+
+        if (possibleTypes.size() == 1 && possibleTypes.get(0).metadataReader != null)
+        {
+            return possibleTypes.get(0).metadataReader.apply(file);
+        }
+
+        ISchematic schematic = tryCreateSchematicFrom(file);
+        return schematic != null ? schematic.getMetadata() : null;
+    }
+
     @Nullable
     public static ISchematic tryCreateSchematicFrom(Path file, NBTTagCompound tag)
     {
@@ -228,6 +276,8 @@ public class SchematicType<S extends ISchematic>
         private Icon defaultIcon = null;
         private Icon inMemoryIcon = null;
         private Function<Path, S> factory = null;
+        private Function<Path, S> fileReader = null;
+        private Function<Path, SchematicMetadata> metadataReader = null;
         private Function<String, Boolean> extensionValidator = null;
         private Function<NBTTagCompound, Boolean> dataValidator = null;
         private String displayName = "?";
@@ -263,6 +313,26 @@ public class SchematicType<S extends ISchematic>
             return this;
         }
 
+        /**
+         * Sets an optional reader, which creates the schematic and reads it
+         * directly from the given file, returning null on failure
+         */
+        public Builder<S> setFileReader(Function<Path, S> fileReader)
+        {
+            this.fileReader = fileReader;
+            return this;
+        }
+
+        /**
+         * Sets an optional reader, which reads only the metadata from the given file,
+         * returning null on failure
+         */
+        public Builder<S> setMetadataReader(Function<Path, SchematicMetadata> metadataReader)
+        {
+            this.metadataReader = metadataReader;
+            return this;
+        }
+
         public Builder<S> setHasName(boolean hasName)
         {
             this.hasName = hasName;
@@ -293,7 +363,7 @@ public class SchematicType<S extends ISchematic>
                 throw new IllegalArgumentException("SchematicType.Builder#build(): Some of the values were null!");
             }
 
-            return new SchematicType<>(this.displayName, this.factory, this.dataValidator,
+            return new SchematicType<>(this.displayName, this.factory, this.fileReader, this.metadataReader, this.dataValidator,
                                        this.extension, this.extensionValidator,
                                        this.defaultIcon, this.inMemoryIcon, this.hasName);
         }
@@ -22,6 +22,7 @@ import malilib.util.game.wrap.RegistryUtils;
 import malilib.util.nbt.NbtUtils;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.container.ILitematicaBlockStatePalette;
+import litematica.schematic.util.SchematicReadMessages;
 
 public class SchematicaSchematic extends SingleRegionSchematic
 {
@@ -134,8 +135,8 @@ public class SchematicaSchematic extends SingleRegionSchematic
 
             if (id >= this.palette.length)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.palette.invalid_id",
-                                                    id, key, this.palette.length - 1);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.palette.invalid_id",
+                                            id, key, this.palette.length - 1);
                 continue;
             }
 
@@ -143,7 +144,7 @@ public class SchematicaSchematic extends SingleRegionSchematic
 
             if (block == null)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.palette.invalid_block", key);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.palette.invalid_block", key);
                 continue;
             }
 
@@ -166,13 +167,13 @@ public class SchematicaSchematic extends SingleRegionSchematic
             }
             catch (NumberFormatException e)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.palette.id_not_number", idStr, key);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.palette.id_not_number", idStr, key);
                 continue;
             }
 
             if (id >= this.palette.length)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.mcedit2.palette.invalid_id", id, key, this.palette.length - 1);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.mcedit2.palette.invalid_id", id, key, this.palette.length - 1);
                 continue;
             }
 
@@ -180,7 +181,7 @@ public class SchematicaSchematic extends SingleRegionSchematic
 
             if (block == null)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.mcedit2.missing_block_data", key);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.mcedit2.missing_block_data", key);
                 continue;
             }
 
@@ -206,7 +207,7 @@ public class SchematicaSchematic extends SingleRegionSchematic
                 }
                 else
                 {
-                    MessageDispatcher.error().translate("litematica.message.error.schematic_read.registry_palette.missing_block_data", id, key);
+                    SchematicReadMessages.error("litematica.message.error.schematic_read.registry_palette.missing_block_data", id, key);
                 }
             }
         }
@@ -231,19 +232,19 @@ public class SchematicaSchematic extends SingleRegionSchematic
 
         if (numBlocks != (sizeX * sizeY * sizeZ))
         {
-            MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size", numBlocks, sizeX, sizeY, sizeZ);
+            SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_array_size", numBlocks, sizeX, sizeY, sizeZ);
             return false;
         }
 
         if (numBlocks != metaArr.length)
         {
-            MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size", numBlocks, metaArr.length);
+            SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_metadata_array_size", numBlocks, metaArr.length);
             return false;
         }
 
         if (this.readPaletteFromTag(tag) == false)
         {
-            MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.palette.failed_to_read");
+            SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.palette.failed_to_read");
             return false;
         }
 
@@ -255,7 +256,7 @@ public class SchematicaSchematic extends SingleRegionSchematic
         else if (NbtWrap.containsByteArray(tag, "Add"))
         {
             // FIXME is this array 4 or 8 bits per block?
-            MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.old_schematica_format_not_supported");
+            SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.old_schematica_format_not_supported");
             return false;
         }
         // No palette, use the registry IDs directly
@@ -288,7 +289,7 @@ public class SchematicaSchematic extends SingleRegionSchematic
 
         if (add.length != expectedAddLength)
         {
-            MessageDispatcher.error().translate("litematica.message.error.schematic_read.schematica.schematic.invalid_block_add_array_size", numBlocks, add.length, expectedAddLength);
+            SchematicReadMessages.error("litematica.message.error.schematic_read.schematica.schematic.invalid_block_add_array_size", numBlocks, add.length, expectedAddLength);
             return false;
         }
 
@@ -16,11 +16,11 @@ import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
 import net.minecraft.world.NextTickListEntry;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.nbt.NbtUtils;
 import litematica.Litematica;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.util.SchematicReadMessages;
 import litematica.util.PositionUtils;
 
 public abstract class SingleRegionSchematic extends SchematicBase implements ISchematicRegion
@@ -86,7 +86,7 @@ public abstract class SingleRegionSchematic extends SchematicBase implements ISc
         {
             if (isSizeValid(size) == false)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.invalid_or_missing_size_value", size.getX(), size.getY(), size.getZ());
+                SchematicReadMessages.error("litematica.message.error.schematic_read.invalid_or_missing_size_value", size.getX(), size.getY(), size.getZ());
                 return;
             }
 
@@ -286,7 +286,7 @@ public abstract class SingleRegionSchematic extends SchematicBase implements ISc
         if (isSizeValid(this.regionSize) == false)
         {
             String key = "litematica.message.error.schematic_read.invalid_or_missing_size";
-            MessageDispatcher.error().translate(key, this.getFile().toAbsolutePath().toString());
+            SchematicReadMessages.error(key, this.getFile().toAbsolutePath().toString());
             return false;
         }
 
@@ -301,7 +301,7 @@ public abstract class SingleRegionSchematic extends SchematicBase implements ISc
         else
         {
             String key = "litematica.message.error.schematic_read.missing_or_invalid_data";
-            MessageDispatcher.error().translate(key, this.getFile().toAbsolutePath().toString());
+            SchematicReadMessages.error(key, this.getFile().toAbsolutePath().toString());
             return false;
         }
     }
@@ -15,13 +15,13 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.data.Constants;
 import malilib.util.game.BlockUtils;
 import malilib.util.game.wrap.NbtWrap;
 import malilib.util.nbt.NbtUtils;
 import litematica.schematic.container.ILitematicaBlockStatePalette;
 import litematica.schematic.container.LitematicaBlockStateContainerFull;
+import litematica.schematic.util.SchematicReadMessages;
 
 public class SpongeSchematic extends SingleRegionSchematic
 {
@@ -110,13 +110,13 @@ public class SpongeSchematic extends SingleRegionSchematic
             }
             else
             {
-                MessageDispatcher.warning().translate("litematica.message.error.schematic_read.sponge.palette.unknown_block", key);
+                SchematicReadMessages.warning("litematica.message.error.schematic_read.sponge.palette.unknown_block", key);
                 state = LitematicaBlockStateContainerFull.AIR_BLOCK_STATE;
             }
 
             if (id < 0 || id >= size)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.sponge.palette.invalid_id", id);
+                SchematicReadMessages.error("litematica.message.error.schematic_read.sponge.palette.invalid_id", id);
                 return false;
             }
 
@@ -141,7 +141,7 @@ public class SpongeSchematic extends SingleRegionSchematic
 
             if (this.blockContainer == null)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
+                SchematicReadMessages.error("litematica.message.error.schematic_read.sponge.failed_to_read_blocks");
                 return false;
             }
 
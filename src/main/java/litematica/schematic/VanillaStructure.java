@@ -16,13 +16,13 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.math.Vec3i;
 
-import malilib.overlay.message.MessageDispatcher;
 import malilib.util.game.wrap.NbtWrap;
 import malilib.util.nbt.NbtUtils;
 import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.container.ILitematicaBlockStatePalette;
 import litematica.schematic.container.LitematicaBlockStateContainerSparse;
 import litematica.schematic.container.VanillaStructurePalette;
+import litematica.schematic.util.SchematicReadMessages;
 import litematica.util.PositionUtils;
 
 public class VanillaStructure extends SingleRegionSchematic
@@ -91,7 +91,7 @@ public class VanillaStructure extends SingleRegionSchematic
 
             if (readPaletteFromLitematicaFormatTag(paletteTag, palette) == false)
             {
-                MessageDispatcher.error().translate("litematica.message.error.schematic_read.vanilla.failed_to_read_palette");
+                SchematicReadMessages.error("litematica.message.error.schematic_read.vanilla.failed_to_read_palette");
                 return false;
             }
 
@@ -110,7 +110,7 @@ public class VanillaStructure extends SingleRegionSchematic
 
                 if (pos == null)
                 {
-                    MessageDispatcher.error().translate("litematica.message.error.schematic_read.vanilla.failed_to_read_block_pos");
+                    SchematicReadMessages.error("litematica.message.error.schematic_read.vanilla.failed_to_read_block_pos");
                     return false;
                 }
 
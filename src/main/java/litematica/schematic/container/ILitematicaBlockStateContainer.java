@@ -13,6 +13,11 @@ public interface ILitematicaBlockStateContainer
 
     Map<IBlockState, Long> getBlockCountsMap();
 
+    /**
+     * @return the block counts in the given (inclusive, container relative) range of Y-layers
+     */
+    Map<IBlockState, Long> getBlockCountsMapForLayers(int minY, int maxY);
+
     ILitematicaBlockStatePalette getPalette();
 
     IBlockState getBlockState(int x, int y, int z);
@@ -45,50 +45,289 @@ public class LitematicaBitArray
     {
         Validate.inclusiveBetween(0L, this.arraySize - 1L, (long) index);
         Validate.inclusiveBetween(0L, this.maxEntryValue, (long) value);
+        this.setAtUnchecked(index, value);
+    }
+
+    public int getAt(long index)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize - 1L, (long) index);
+        return this.getAtUnchecked(index);
+    }
+
+    /**
+     * Sets the value at the given index without validating the index or the value.
+     * The caller is responsible for making sure that the index is within the array
+     * and that the value fits in the entry bit width.
+     */
+    public void setAtUnchecked(long index, int value)
+    {
         long startOffset = index * (long) this.bitsPerEntry;
         int startArrIndex = (int) (startOffset >> 6); // startOffset / 64
-        int endArrIndex = (int) (((index + 1L) * (long) this.bitsPerEntry - 1L) >> 6);
         int startBitOffset = (int) (startOffset & 0x3F); // startOffset % 64
-        this.longArray[startArrIndex] = this.longArray[startArrIndex] & ~(this.maxEntryValue << startBitOffset) | ((long) value & this.maxEntryValue) << startBitOffset;
+        long maskedValue = (long) value & this.maxEntryValue;
+        this.longArray[startArrIndex] = this.longArray[startArrIndex] & ~(this.maxEntryValue << startBitOffset) | maskedValue << startBitOffset;
+
+        int endOffset = 64 - startBitOffset;
 
-        if (startArrIndex != endArrIndex)
+        if (endOffset < this.bitsPerEntry)
         {
-            int endOffset = 64 - startBitOffset;
+            int endArrIndex = startArrIndex + 1;
             int j1 = this.bitsPerEntry - endOffset;
-            this.longArray[endArrIndex] = this.longArray[endArrIndex] >>> j1 << j1 | ((long) value & this.maxEntryValue) >> endOffset;
+            this.longArray[endArrIndex] = this.longArray[endArrIndex] >>> j1 << j1 | maskedValue >> endOffset;
         }
     }
 
-    public int getAt(long index)
+    /**
+     * Gets the value at the given index without validating the index.
+     * The caller is responsible for making sure that the index is within the array.
+     */
+    public int getAtUnchecked(long index)
     {
-        Validate.inclusiveBetween(0L, this.arraySize - 1L, (long) index);
         long startOffset = index * (long) this.bitsPerEntry;
         int startArrIndex = (int) (startOffset >> 6); // startOffset / 64
-        int endArrIndex = (int) (((index + 1L) * (long) this.bitsPerEntry - 1L) >> 6);
         int startBitOffset = (int) (startOffset & 0x3F); // startOffset % 64
+        int endOffset = 64 - startBitOffset;
 
-        if (startArrIndex == endArrIndex)
+        if (endOffset >= this.bitsPerEntry)
         {
             return (int) (this.longArray[startArrIndex] >>> startBitOffset & this.maxEntryValue);
         }
         else
         {
-            int endOffset = 64 - startBitOffset;
-            return (int) ((this.longArray[startArrIndex] >>> startBitOffset | this.longArray[endArrIndex] << endOffset) & this.maxEntryValue);
+            return (int) ((this.longArray[startArrIndex] >>> startBitOffset | this.longArray[startArrIndex + 1] << endOffset) & this.maxEntryValue);
+        }
+    }
+
+    /**
+     * Decodes <b>length</b> consecutive entries starting from <b>startIndex</b>
+     * into the provided array, starting from <b>outOffset</b>.
+     * This walks the backing long array sequentially, so it is much cheaper
+     * per entry than calling {@link #getAt(long)} repeatedly.
+     */
+    public void getRange(long startIndex, int[] out, int outOffset, int length)
+    {
+        this.validateRange(startIndex, length);
+        Validate.inclusiveBetween(0L, (long) out.length, (long) outOffset + (long) length);
+
+        if (length <= 0)
+        {
+            return;
+        }
+
+        final long[] arr = this.longArray;
+        final long mask = this.maxEntryValue;
+        final int bits = this.bitsPerEntry;
+        long startBit = startIndex * (long) bits;
+        int arrIndex = (int) (startBit >> 6);
+        int bitOffset = (int) (startBit & 0x3F);
+        long word = arr[arrIndex];
+        final int end = outOffset + length;
+
+        for (int i = outOffset; i < end; ++i)
+        {
+            if (bitOffset == 64)
+            {
+                word = arr[++arrIndex];
+                bitOffset = 0;
+            }
+
+            int endBit = bitOffset + bits;
+
+            if (endBit <= 64)
+            {
+                out[i] = (int) (word >>> bitOffset & mask);
+                bitOffset = endBit;
+            }
+            else
+            {
+                long next = arr[++arrIndex];
+                out[i] = (int) ((word >>> bitOffset | next << (64 - bitOffset)) & mask);
+                word = next;
+                bitOffset = endBit - 64;
+            }
+        }
+    }
+
+    /**
+     * Encodes <b>length</b> values from the provided array, starting from <b>inOffset</b>,
+     * into consecutive entries starting from <b>startIndex</b>.
+     * The values are masked to the entry bit width, they are not validated.
+     */
+    public void setRange(long startIndex, int[] in, int inOffset, int length)
+    {
+        this.validateRange(startIndex, length);
+        Validate.inclusiveBetween(0L, (long) in.length, (long) inOffset + (long) length);
+
+        if (length <= 0)
+        {
+            return;
+        }
+
+        final long[] arr = this.longArray;
+        final long mask = this.maxEntryValue;
+        final int bits = this.bitsPerEntry;
+        long startBit = startIndex * (long) bits;
+        int arrIndex = (int) (startBit >> 6);
+        int bitOffset = (int) (startBit & 0x3F);
+        long word = arr[arrIndex];
+        final int end = inOffset + length;
+
+        for (int i = inOffset; i < end; ++i)
+        {
+            if (bitOffset == 64)
+            {
+                arr[arrIndex] = word;
+                word = arr[++arrIndex];
+                bitOffset = 0;
+            }
+
+            long value = (long) in[i] & mask;
+            int endBit = bitOffset + bits;
+            word = word & ~(mask << bitOffset) | value << bitOffset;
+
+            if (endBit <= 64)
+            {
+                bitOffset = endBit;
+            }
+            else
+            {
+                arr[arrIndex] = word;
+                int remaining = endBit - 64;
+                word = arr[++arrIndex] >>> remaining << remaining | value >>> (64 - bitOffset);
+                bitOffset = remaining;
+            }
         }
+
+        arr[arrIndex] = word;
+    }
+
+    /**
+     * Calls the visitor once for every run of identical consecutive values
+     * in the index range [startIndex, endIndex).
+     */
+    public void forEachRun(long startIndex, long endIndex, IRunVisitor visitor)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize, startIndex);
+        Validate.inclusiveBetween(startIndex, this.arraySize, endIndex);
+
+        if (endIndex <= startIndex)
+        {
+            return;
+        }
+
+        final long[] arr = this.longArray;
+        final long mask = this.maxEntryValue;
+        final int bits = this.bitsPerEntry;
+        long startBit = startIndex * (long) bits;
+        int arrIndex = (int) (startBit >> 6);
+        int bitOffset = (int) (startBit & 0x3F);
+        long word = arr[arrIndex];
+        long runStart = startIndex;
+        int runValue = -1;
+
+        for (long index = startIndex; index < endIndex; ++index)
+        {
+            if (bitOffset == 64)
+            {
+                word = arr[++arrIndex];
+                bitOffset = 0;
+            }
+
+            int endBit = bitOffset + bits;
+            int value;
+
+            if (endBit <= 64)
+            {
+                value = (int) (word >>> bitOffset & mask);
+                bitOffset = endBit;
+            }
+            else
+            {
+                long next = arr[++arrIndex];
+                value = (int) ((word >>> bitOffset | next << (64 - bitOffset)) & mask);
+                word = next;
+                bitOffset = endBit - 64;
+            }
+
+            if (value != runValue)
+            {
+                if (index > runStart)
+                {
+                    visitor.onRun(runStart, index - runStart, runValue);
+                }
+
+                runStart = index;
+                runValue = value;
+            }
+        }
+
+        visitor.onRun(runStart, endIndex - runStart, runValue);
     }
 
     public long[] getValueCounts()
     {
         long[] counts = new long[(int) this.maxEntryValue + 1];
-        final long size = this.arraySize;
+        this.addValueCounts(0L, this.arraySize, counts);
+        return counts;
+    }
+
+    /**
+     * Adds the number of occurrences of each value in the index range [startIndex, endIndex)
+     * to the provided counts array, which must be at least (maxEntryValue + 1) long.
+     */
+    public void addValueCounts(long startIndex, long endIndex, long[] counts)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize, startIndex);
+        Validate.inclusiveBetween(startIndex, this.arraySize, endIndex);
 
-        for (long i = 0; i < size; ++i)
+        if (endIndex <= startIndex)
         {
-            ++counts[this.getAt(i)];
+            return;
         }
 
-        return counts;
+        final long[] arr = this.longArray;
+        final long mask = this.maxEntryValue;
+        final int bits = this.bitsPerEntry;
+        long startBit = startIndex * (long) bits;
+        int arrIndex = (int) (startBit >> 6);
+        int bitOffset = (int) (startBit & 0x3F);
+        long word = arr[arrIndex];
+
+        for (long index = startIndex; index < endIndex; ++index)
+        {
+            if (bitOffset == 64)
+            {
+                word = arr[++arrIndex];
+                bitOffset = 0;
+            }
+
+            int endBit = bitOffset + bits;
+
+            if (endBit <= 64)
+            {
+                ++counts[(int) (word >>> bitOffset & mask)];
+                bitOffset = endBit;
+            }
+            else
+            {
+                long next = arr[++arrIndex];
+                ++counts[(int) ((word >>> bitOffset | next << (64 - bitOffset)) & mask)];
+                word = next;
+                bitOffset = endBit - 64;
+            }
+        }
+    }
+
+    protected void validateRange(long startIndex, int length)
+    {
+        Validate.isTrue(length >= 0, "Negative range length: %d", length);
+        Validate.inclusiveBetween(0L, this.arraySize, startIndex);
+        Validate.inclusiveBetween(0L, this.arraySize, startIndex + (long) length);
+    }
+
+    public int getBitsPerEntry()
+    {
+        return this.bitsPerEntry;
     }
 
     public long[] getBackingLongArray()
@@ -100,4 +339,15 @@ public class LitematicaBitArray
     {
         return this.arraySize;
     }
+
+    public interface IRunVisitor
+    {
+        /**
+         * Called for each run of identical consecutive values
+         * @param startIndex the index of the first entry of the run
+         * @param length the number of entries in the run
+         * @param value the value of all the entries in the run
+         */
+        void onRun(long startIndex, long length, int value);
+    }
 }
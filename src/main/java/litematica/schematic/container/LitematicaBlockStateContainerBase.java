@@ -1,6 +1,8 @@
 package litematica.schematic.container;
 
+import java.util.Arrays;
 import java.util.Map;
+import javax.annotation.Nullable;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import net.minecraft.block.state.IBlockState;
@@ -20,6 +22,8 @@ public abstract class LitematicaBlockStateContainerBase implements ILitematicaBl
     protected final long sizeLayer;
     protected final long totalVolume;
     protected long[] blockCounts = new long[0];
+    /** The block counts per palette ID in each Y-layer. Built when first needed, and cleared on modifications. */
+    @Nullable protected long[][] layerBlockCounts;
     protected int bits;
     protected boolean hasSetBlockCounts;
 
@@ -97,6 +101,96 @@ public abstract class LitematicaBlockStateContainerBase implements ILitematicaBl
         return map;
     }
 
+    @Override
+    public Map<IBlockState, Long> getBlockCountsMapForLayers(int minY, int maxY)
+    {
+        long[][] layerCounts = this.getOrCreateLayerBlockCounts();
+        Object2LongOpenHashMap<IBlockState> map = new Object2LongOpenHashMap<>();
+        ILitematicaBlockStatePalette palette = this.getPalette();
+        final int paletteSize = palette.getPaletteSize();
+        final int endY = Math.min(maxY, this.sizeY - 1);
+
+        for (int y = Math.max(minY, 0); y <= endY; ++y)
+        {
+            long[] counts = layerCounts[y];
+            final int length = Math.min(paletteSize, counts.length);
+
+            for (int id = 0; id < length; ++id)
+            {
+                IBlockState state = palette.getBlockState(id);
+
+                if (state != null && counts[id] > 0)
+                {
+                    map.addTo(state, counts[id]);
+                }
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * @return true if the total block counts are already available,
+     * meaning that {@link #getBlockCountsMap()} doesn't need to go through the blocks
+     */
+    public boolean hasBlockCounts()
+    {
+        return this.hasSetBlockCounts;
+    }
+
+    /**
+     * @return true if the per Y-layer block counts are already available,
+     * meaning that {@link #getBlockCountsMapForLayers(int, int)} doesn't need to go through the blocks
+     */
+    public boolean hasLayerBlockCounts()
+    {
+        return this.layerBlockCounts != null;
+    }
+
+    protected long[][] getOrCreateLayerBlockCounts()
+    {
+        if (this.layerBlockCounts == null)
+        {
+            this.layerBlockCounts = this.calculateLayerBlockCounts();
+        }
+
+        return this.layerBlockCounts;
+    }
+
+    /**
+     * Counts the blocks per palette ID in each Y-layer. The containers with a
+     * faster way to get at the IDs than via the block states should override this.
+     */
+    protected long[][] calculateLayerBlockCounts()
+    {
+        ILitematicaBlockStatePalette palette = this.getPalette();
+        long[][] layerCounts = new long[this.sizeY][];
+
+        for (int y = 0; y < this.sizeY; ++y)
+        {
+            long[] counts = new long[palette.getPaletteSize()];
+
+            for (int z = 0; z < this.sizeZ; ++z)
+            {
+                for (int x = 0; x < this.sizeX; ++x)
+                {
+                    int id = palette.idFor(this.getBlockState(x, y, z));
+
+                    if (id >= counts.length)
+                    {
+                        counts = Arrays.copyOf(counts, id + 1);
+                    }
+
+                    ++counts[id];
+                }
+            }
+
+            layerCounts[y] = counts;
+        }
+
+        return layerCounts;
+    }
+
     protected void setBlockCounts(long[] blockCounts)
     {
         final int length = blockCounts.length;
@@ -10,8 +10,11 @@ import net.minecraft.util.math.Vec3i;
 
 public class LitematicaBlockStateContainerFull extends LitematicaBlockStateContainerBase implements IPaletteResizeHandler
 {
+    protected static final int BULK_COPY_BUFFER_SIZE = 4096;
+
     protected LitematicaBitArray storage;
     protected boolean checkForFreedIds = true;
+    protected long modificationCount;
 
     public LitematicaBlockStateContainerFull(Vec3i size)
     {
@@ -79,6 +82,8 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
         int id = this.palette.idFor(state);
         this.storage.setAt(this.getIndex(x, y, z), id);
         this.hasSetBlockCounts = false; // Force a re-count when next queried
+        this.layerBlockCounts = null;
+        ++this.modificationCount;
     }
 
     @Override
@@ -112,10 +117,13 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
         this.palette.setMapping(oldPalette.getMapping());
 
         final long size = oldArray.size();
+        int[] buffer = new int[(int) Math.min(size, BULK_COPY_BUFFER_SIZE)];
 
-        for (long index = 0; index < size; ++index)
+        for (long index = 0; index < size; index += buffer.length)
         {
-            newArray.setAt(index, oldArray.getAt(index));
+            int length = (int) Math.min(buffer.length, size - index);
+            oldArray.getRange(index, buffer, 0, length);
+            newArray.setRange(index, buffer, 0, length);
         }
 
         this.storage = newArray;
@@ -128,6 +136,57 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
         return ((long) y * this.sizeLayer) + (long) z * (long) this.sizeX + (long) x;
     }
 
+    /**
+     * Decodes the palette IDs of the full X-row at the given y and z coordinates
+     * into the provided array, which must be at least sizeX long.
+     */
+    public void getRowX(int y, int z, int[] outIds)
+    {
+        this.storage.getRange(this.getIndex(0, y, z), outIds, 0, this.sizeX);
+    }
+
+    /**
+     * Encodes the palette IDs from the provided array into the full X-row
+     * at the given y and z coordinates. The IDs must already exist in the palette.
+     */
+    public void setRowX(int y, int z, int[] ids)
+    {
+        this.storage.setRange(this.getIndex(0, y, z), ids, 0, this.sizeX);
+        this.hasSetBlockCounts = false;
+        this.layerBlockCounts = null;
+        ++this.modificationCount;
+    }
+
+    /**
+     * Decodes the palette IDs of the full Y-layer into the provided array,
+     * which must be at least sizeX * sizeZ long. The IDs are in z-major, x-minor order.
+     */
+    public void getLayerY(int y, int[] outIds)
+    {
+        this.storage.getRange(this.getIndex(0, y, 0), outIds, 0, (int) this.sizeLayer);
+    }
+
+    /**
+     * Encodes the palette IDs from the provided array into the full Y-layer.
+     * The IDs must already exist in the palette, and be in z-major, x-minor order.
+     */
+    public void setLayerY(int y, int[] ids)
+    {
+        this.storage.setRange(this.getIndex(0, y, 0), ids, 0, (int) this.sizeLayer);
+        this.hasSetBlockCounts = false;
+        this.layerBlockCounts = null;
+        ++this.modificationCount;
+    }
+
+    /**
+     * Calls the visitor for every run of identical palette IDs in the container,
+     * in the storage order (y-major, then z, then x).
+     */
+    public void forEachRun(LitematicaBitArray.IRunVisitor visitor)
+    {
+        this.storage.forEachRun(0L, this.storage.size(), visitor);
+    }
+
     public long[] getBackingLongArray()
     {
         return this.storage.getBackingLongArray();
@@ -147,10 +206,17 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
         byte[] arr = new byte[(int) length];
         PacketBuffer buf = new PacketBuffer(Unpooled.wrappedBuffer(arr));
         buf.writerIndex(0);
+        int[] buffer = new int[(int) Math.min(volume, BULK_COPY_BUFFER_SIZE)];
 
-        for (int i = 0; i < volume; ++i)
+        for (long index = 0; index < volume; index += buffer.length)
         {
-            buf.writeVarInt(this.storage.getAt(i));
+            int count = (int) Math.min(buffer.length, volume - index);
+            this.storage.getRange(index, buffer, 0, count);
+
+            for (int i = 0; i < count; ++i)
+            {
+                buf.writeVarInt(buffer[i]);
+            }
         }
 
         return arr;
@@ -161,11 +227,91 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
     {
         if (this.hasSetBlockCounts == false)
         {
-            long[] counts = this.storage.getValueCounts();
-            this.setBlockCounts(counts);
+            if (this.totalVolume >= ParallelBlockCounter.PARALLEL_THRESHOLD)
+            {
+                long[] counts = this.createBlockCounter().countAndWait();
+
+                if (counts != null)
+                {
+                    this.setBlockCounts(counts);
+                }
+            }
+            else
+            {
+                long[] counts = this.storage.getValueCounts();
+                this.setBlockCounts(counts);
+            }
         }
     }
 
+    @Override
+    protected long[][] calculateLayerBlockCounts()
+    {
+        if (this.sizeLayer == 0L)
+        {
+            return new long[this.sizeY][0];
+        }
+
+        ParallelBlockCounter counter = this.createBlockCounter(true);
+        counter.countAndWait();
+        long[][] layerCounts = counter.getLayerResult();
+
+        if (layerCounts != null && this.hasSetBlockCounts == false)
+        {
+            this.setBlockCountsFrom(counter);
+        }
+
+        return layerCounts != null ? layerCounts : super.calculateLayerBlockCounts();
+    }
+
+    /**
+     * Creates a new parallel counter for the current storage of this container.
+     * The results can be stored back to this container via {@link #setBlockCountsFrom(ParallelBlockCounter)}.
+     */
+    public ParallelBlockCounter createBlockCounter()
+    {
+        return this.createBlockCounter(false);
+    }
+
+    /**
+     * @param countLayers if true, then the counter also builds the per Y-layer block counts,
+     * which also get stored by {@link #setBlockCountsFrom(ParallelBlockCounter)}
+     */
+    public ParallelBlockCounter createBlockCounter(boolean countLayers)
+    {
+        return new ParallelBlockCounter(this.storage, this.modificationCount, countLayers ? this.sizeLayer : 0L);
+    }
+
+    /**
+     * Stores the results from the given counter as the block counts of this container,
+     * if the counter has finished and the contents have not been changed since the counter was created.
+     * @return true if the counts were stored
+     */
+    public boolean setBlockCountsFrom(ParallelBlockCounter counter)
+    {
+        long[] counts = counter.getResult();
+
+        if (counts != null &&
+            counter.storage == this.storage &&
+            counter.sourceModificationCount == this.modificationCount)
+        {
+            long[][] layerCounts = counter.getLayerResult();
+
+            if (layerCounts != null && this.layerBlockCounts == null)
+            {
+                this.layerBlockCounts = layerCounts;
+            }
+
+            if (this.hasSetBlockCounts == false)
+            {
+                this.setBlockCounts(counts);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public LitematicaBlockStateContainerFull copy()
     {
@@ -185,7 +331,7 @@ public class LitematicaBlockStateContainerFull extends LitematicaBlockStateConta
         for (int i = 0; i < volume; ++i)
         {
             int id = buf.readVarInt();
-            bitArray.setAt(i, id);
+            bitArray.setAtUnchecked(i, id);
             ++blockCounts[id];
         }
 
@@ -0,0 +1,224 @@
+package litematica.schematic.container;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.Vec3i;
+
+/**
+ * A block state container with the same palette and bit packing as
+ * {@link LitematicaBlockStateContainerFull}, but which keeps the packed
+ * block data in a memory-mapped temporary file instead of on the heap.
+ * This is meant for very large regions, which would otherwise need a huge heap.
+ * The container should be closed when it's not needed anymore, to delete the temporary file.
+ */
+public class LitematicaBlockStateContainerMapped extends LitematicaBlockStateContainerBase implements IPaletteResizeHandler, Closeable
+{
+    protected static final int BULK_COPY_BUFFER_SIZE = 4096;
+
+    protected MappedBitArray storage;
+
+    public LitematicaBlockStateContainerMapped(Vec3i size) throws IOException
+    {
+        this(size, 2, null);
+    }
+
+    protected LitematicaBlockStateContainerMapped(Vec3i size, int bits, @Nullable MappedLongArray backingArray) throws IOException
+    {
+        super(size, bits);
+
+        this.storage = new MappedBitArray(this.bits, this.totalVolume, backingArray);
+    }
+
+    @Override
+    protected void setBits(int bitsIn)
+    {
+        if (bitsIn != this.bits)
+        {
+            this.bits = bitsIn;
+
+            if (this.bits <= MAX_BITS_LINEAR)
+            {
+                this.bits = Math.max(2, this.bits);
+                this.palette = new LitematicaBlockStatePaletteLinear(this.bits, this);
+            }
+            else
+            {
+                this.palette = new LitematicaBlockStatePaletteHashMap(this.bits, this);
+            }
+
+            // Always reserve ID 0 for air, so that the container doesn't need to be filled with air separately
+            this.palette.idFor(Blocks.AIR.getDefaultState());
+        }
+    }
+
+    @Override
+    public IBlockState getBlockState(int x, int y, int z)
+    {
+        IBlockState state = this.palette.getBlockState(this.storage.getAt(this.getIndex(x, y, z)));
+        return state == null ? AIR_BLOCK_STATE : state;
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, IBlockState state)
+    {
+        int id = this.palette.idFor(state);
+        this.storage.setAt(this.getIndex(x, y, z), id);
+        this.hasSetBlockCounts = false; // Force a re-count when next queried
+        this.layerBlockCounts = null;
+    }
+
+    @Override
+    public int onResize(int bits, IBlockState state, ILitematicaBlockStatePalette oldPalette)
+    {
+        // Check if there are any IDs that are not in use anymore, to avoid re-writing the whole file.
+        // Only the already valid counts are used, since counting would need another full pass through the file.
+        if (this.hasSetBlockCounts)
+        {
+            final int countsSize = Math.min(this.blockCounts.length, (int) this.storage.maxEntryValue + 1);
+
+            for (int id = 0; id < countsSize; ++id)
+            {
+                if (this.blockCounts[id] == 0 && this.palette.overrideMapping(id, state))
+                {
+                    return id;
+                }
+            }
+        }
+
+        MappedBitArray oldArray = this.storage;
+        MappedBitArray newArray;
+
+        try
+        {
+            newArray = new MappedBitArray(bits, this.totalVolume);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        // This creates the new palette with the increased size
+        this.setBits(bits);
+        // Copy over the full old palette mapping
+        this.palette.setMapping(oldPalette.getMapping());
+
+        final long size = oldArray.size();
+        int[] buffer = new int[(int) Math.min(size, BULK_COPY_BUFFER_SIZE)];
+
+        for (long index = 0; index < size; index += buffer.length)
+        {
+            int length = (int) Math.min(buffer.length, size - index);
+            oldArray.getRange(index, buffer, 0, length);
+            newArray.setRange(index, buffer, 0, length);
+        }
+
+        this.storage = newArray;
+        oldArray.close();
+
+        return this.palette.idFor(state);
+    }
+
+    protected long getIndex(int x, int y, int z)
+    {
+        return ((long) y * this.sizeLayer) + (long) z * (long) this.sizeX + (long) x;
+    }
+
+    /**
+     * @return the length of the packed block data, in longs
+     */
+    public long getPackedLongCount()
+    {
+        return this.storage.getBackingMappedArray().length();
+    }
+
+    /**
+     * Copies the packed block data into a heap array, for writing it to NBT
+     */
+    public long[] getBackingLongArray()
+    {
+        return this.storage.getBackingLongArray();
+    }
+
+    @Override
+    protected void calculateBlockCountsIfNeeded()
+    {
+        if (this.hasSetBlockCounts == false)
+        {
+            this.setBlockCounts(this.storage.getValueCounts());
+        }
+    }
+
+    @Override
+    protected long[][] calculateLayerBlockCounts()
+    {
+        long[][] layerCounts = new long[this.sizeY][];
+        int[] buffer = new int[(int) Math.min(this.sizeLayer, BULK_COPY_BUFFER_SIZE)];
+
+        for (int y = 0; y < this.sizeY; ++y)
+        {
+            long[] counts = new long[1 << this.storage.getBitsPerEntry()];
+            final long start = this.getIndex(0, y, 0);
+            final long end = start + this.sizeLayer;
+
+            for (long index = start; index < end; index += buffer.length)
+            {
+                int length = (int) Math.min(buffer.length, end - index);
+                this.storage.getRange(index, buffer, 0, length);
+
+                for (int i = 0; i < length; ++i)
+                {
+                    ++counts[buffer[i]];
+                }
+            }
+
+            layerCounts[y] = counts;
+        }
+
+        return layerCounts;
+    }
+
+    @Override
+    public LitematicaBlockStateContainerMapped copy()
+    {
+        try
+        {
+            MappedLongArray arr = this.storage.getBackingMappedArray().copy();
+            LitematicaBlockStateContainerMapped newContainer = new LitematicaBlockStateContainerMapped(this.size, this.bits, arr);
+            newContainer.palette = this.palette.copy(newContainer);
+
+            return newContainer;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        this.storage.close();
+    }
+
+    /**
+     * @return true if packed block data of the given length (in longs) reaches the given size threshold.
+     * A threshold of 0 means that the mapped storage is disabled.
+     */
+    public static boolean shouldUseMappedStorage(long packedLongCount, long thresholdMiB)
+    {
+        return thresholdMiB > 0 && packedLongCount * 8L >= thresholdMiB * 1024L * 1024L;
+    }
+
+    public static LitematicaBlockStateContainerMapped createContainer(int paletteSize, MappedLongArray blockStates, Vec3i size) throws IOException
+    {
+        int bits = Math.max(2, Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1));
+        LitematicaBlockStateContainerMapped container = new LitematicaBlockStateContainerMapped(size, bits, blockStates);
+        container.palette = createPalette(bits, container);
+        return container;
+    }
+}
@@ -0,0 +1,522 @@
+package litematica.schematic.container;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.Vec3i;
+
+/**
+ * A block state container which stores the region in 16x16x16 sections.
+ * Each section has its own local palette and bit width, and sections that
+ * only contain a single block state don't have any per-block data at all.
+ * The local palettes map to the global palette of the container, which is what
+ * {@link #getPalette()} returns and what the block counts are based on.
+ * This uses a lot less memory than the Full container for sparse regions,
+ * or regions with large areas of just a few different blocks.
+ */
+public class LitematicaBlockStateContainerSectioned extends LitematicaBlockStateContainerBase
+{
+    public static final int SECTION_SHIFT = 4;
+    public static final int SECTION_SIZE = 1 << SECTION_SHIFT;
+    public static final int SECTION_VOLUME = SECTION_SIZE * SECTION_SIZE * SECTION_SIZE;
+    protected static final int SECTION_MASK = SECTION_SIZE - 1;
+
+    protected final Section[] sections;
+    protected final int sectionsX;
+    protected final int sectionsY;
+    protected final int sectionsZ;
+
+    public LitematicaBlockStateContainerSectioned(Vec3i size)
+    {
+        super(size);
+
+        this.palette = new VanillaStructurePalette();
+        // Always reserve ID 0 for air, so that the new sections are empty by default
+        this.palette.idFor(AIR_BLOCK_STATE);
+
+        this.sectionsX = (this.sizeX + SECTION_MASK) >> SECTION_SHIFT;
+        this.sectionsY = (this.sizeY + SECTION_MASK) >> SECTION_SHIFT;
+        this.sectionsZ = (this.sizeZ + SECTION_MASK) >> SECTION_SHIFT;
+        this.sections = new Section[this.sectionsX * this.sectionsY * this.sectionsZ];
+
+        for (int i = 0; i < this.sections.length; ++i)
+        {
+            this.sections[i] = new Section(0);
+        }
+    }
+
+    @Override
+    protected void setBits(int bitsIn)
+    {
+        // The bit widths are per section
+        this.bits = bitsIn;
+    }
+
+    @Override
+    public IBlockState getBlockState(int x, int y, int z)
+    {
+        Section section = this.sections[this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT)];
+        IBlockState state = this.palette.getBlockState(section.get(getIndexInSection(x, y, z)));
+        return state == null ? AIR_BLOCK_STATE : state;
+    }
+
+    @Override
+    public void setBlockState(int x, int y, int z, IBlockState state)
+    {
+        int id = this.palette.idFor(state);
+        Section section = this.sections[this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT)];
+        section.set(getIndexInSection(x, y, z), id);
+        this.hasSetBlockCounts = false; // Force a re-count when next queried
+        this.layerBlockCounts = null;
+    }
+
+    public int getSectionCountX()
+    {
+        return this.sectionsX;
+    }
+
+    public int getSectionCountY()
+    {
+        return this.sectionsY;
+    }
+
+    public int getSectionCountZ()
+    {
+        return this.sectionsZ;
+    }
+
+    /**
+     * @return the block state of the given section, if the entire section only has that one block state,
+     * or null if the section has more than one block state. This can be used for skipping uniform
+     * (for example all air) sections entirely when iterating over the container.
+     */
+    @Nullable
+    public IBlockState getUniformSectionState(int sectionX, int sectionY, int sectionZ)
+    {
+        Section section = this.sections[this.getSectionIndex(sectionX, sectionY, sectionZ)];
+        return section.isUniform() ? this.palette.getBlockState(section.singleId) : null;
+    }
+
+    /**
+     * Re-checks all the sections, and shrinks their local palettes to the block states
+     * that are still in use, and converts the sections that only have one block state left
+     * to the single value format. This is useful after lots of blocks have been replaced.
+     */
+    public void compact()
+    {
+        for (Section section : this.sections)
+        {
+            section.compact();
+        }
+    }
+
+    protected int getSectionIndex(int sectionX, int sectionY, int sectionZ)
+    {
+        return (sectionY * this.sectionsZ + sectionZ) * this.sectionsX + sectionX;
+    }
+
+    protected static int getIndexInSection(int x, int y, int z)
+    {
+        return (y & SECTION_MASK) << (SECTION_SHIFT * 2) | (z & SECTION_MASK) << SECTION_SHIFT | (x & SECTION_MASK);
+    }
+
+    @Override
+    protected void calculateBlockCountsIfNeeded()
+    {
+        if (this.hasSetBlockCounts == false)
+        {
+            long[] counts = new long[this.palette.getPaletteSize()];
+
+            for (int sy = 0; sy < this.sectionsY; ++sy)
+            {
+                for (int sz = 0; sz < this.sectionsZ; ++sz)
+                {
+                    for (int sx = 0; sx < this.sectionsX; ++sx)
+                    {
+                        // The sections on the positive edges may extend outside the region
+                        int maxX = Math.min(SECTION_SIZE, this.sizeX - (sx << SECTION_SHIFT));
+                        int maxY = Math.min(SECTION_SIZE, this.sizeY - (sy << SECTION_SHIFT));
+                        int maxZ = Math.min(SECTION_SIZE, this.sizeZ - (sz << SECTION_SHIFT));
+                        this.sections[this.getSectionIndex(sx, sy, sz)].addCounts(counts, maxX, maxY, maxZ);
+                    }
+                }
+            }
+
+            this.setBlockCounts(counts);
+        }
+    }
+
+    @Override
+    protected long[][] calculateLayerBlockCounts()
+    {
+        long[][] layerCounts = new long[this.sizeY][];
+
+        for (int y = 0; y < this.sizeY; ++y)
+        {
+            long[] counts = new long[this.palette.getPaletteSize()];
+            int sy = y >> SECTION_SHIFT;
+
+            for (int sz = 0; sz < this.sectionsZ; ++sz)
+            {
+                for (int sx = 0; sx < this.sectionsX; ++sx)
+                {
+                    // The sections on the positive edges may extend outside the region
+                    int maxX = Math.min(SECTION_SIZE, this.sizeX - (sx << SECTION_SHIFT));
+                    int maxZ = Math.min(SECTION_SIZE, this.sizeZ - (sz << SECTION_SHIFT));
+                    this.sections[this.getSectionIndex(sx, sy, sz)].addLayerCounts(counts, y & SECTION_MASK, maxX, maxZ);
+                }
+            }
+
+            layerCounts[y] = counts;
+        }
+
+        return layerCounts;
+    }
+
+    @Override
+    public LitematicaBlockStateContainerSectioned copy()
+    {
+        LitematicaBlockStateContainerSectioned copy = new LitematicaBlockStateContainerSectioned(this.size);
+        copy.palette = this.palette.copy(null);
+
+        for (int i = 0; i < this.sections.length; ++i)
+        {
+            copy.sections[i] = this.sections[i].copy();
+        }
+
+        return copy;
+    }
+
+    /**
+     * Creates a Full container with the same contents and the same global palette
+     */
+    public LitematicaBlockStateContainerFull toFullContainer()
+    {
+        int paletteSize = this.palette.getPaletteSize();
+        int bits = Math.max(2, Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1));
+        long[] arr = new long[(int) ((this.totalVolume * bits + 63L) / 64L)];
+        LitematicaBlockStateContainerFull container = LitematicaBlockStateContainerFull.createContainer(paletteSize, arr, this.size);
+        container.getPalette().setMapping(this.palette.getMapping());
+        int[] row = new int[this.sizeX];
+
+        for (int y = 0; y < this.sizeY; ++y)
+        {
+            for (int z = 0; z < this.sizeZ; ++z)
+            {
+                for (int x = 0; x < this.sizeX; ++x)
+                {
+                    Section section = this.sections[this.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT)];
+                    row[x] = section.get(getIndexInSection(x, y, z));
+                }
+
+                container.setRowX(y, z, row);
+            }
+        }
+
+        return container;
+    }
+
+    /**
+     * Creates a sectioned container with the same contents as the given Full container
+     */
+    public static LitematicaBlockStateContainerSectioned createFrom(LitematicaBlockStateContainerFull other)
+    {
+        Vec3i size = other.getSize();
+        LitematicaBlockStateContainerSectioned container = new LitematicaBlockStateContainerSectioned(size);
+        ILitematicaBlockStatePalette otherPalette = other.getPalette();
+        final int paletteSize = otherPalette.getPaletteSize();
+        int[] idMap = new int[paletteSize];
+
+        for (int id = 0; id < paletteSize; ++id)
+        {
+            IBlockState state = otherPalette.getBlockState(id);
+            idMap[id] = container.palette.idFor(state != null ? state : AIR_BLOCK_STATE);
+        }
+
+        int[] row = new int[size.getX()];
+
+        for (int y = 0; y < container.sizeY; ++y)
+        {
+            for (int z = 0; z < container.sizeZ; ++z)
+            {
+                other.getRowX(y, z, row);
+
+                for (int x = 0; x < container.sizeX; ++x)
+                {
+                    Section section = container.sections[container.getSectionIndex(x >> SECTION_SHIFT, y >> SECTION_SHIFT, z >> SECTION_SHIFT)];
+                    section.set(getIndexInSection(x, y, z), idMap[row[x]]);
+                }
+            }
+        }
+
+        return container;
+    }
+
+    public static class Section
+    {
+        /** Lookups in local palettes larger than this use a hash map instead of a linear search */
+        protected static final int MAX_LINEAR_PALETTE_SIZE = 16;
+
+        /** The global palette ID of the whole section, if the section is uniform */
+        protected int singleId;
+        @Nullable protected LitematicaBitArray data;
+        protected int[] localToGlobal = new int[0];
+        protected int localSize;
+        @Nullable protected Int2IntOpenHashMap globalToLocal;
+
+        public Section(int singleId)
+        {
+            this.singleId = singleId;
+        }
+
+        public boolean isUniform()
+        {
+            return this.data == null;
+        }
+
+        public int get(int index)
+        {
+            return this.data == null ? this.singleId : this.localToGlobal[this.data.getAtUnchecked(index)];
+        }
+
+        public void set(int index, int globalId)
+        {
+            if (this.data == null)
+            {
+                if (globalId == this.singleId)
+                {
+                    return;
+                }
+
+                // Expand from the single value format to a local palette, where all the entries are initially 0
+                this.localToGlobal = new int[] { this.singleId, 0 };
+                this.localSize = 1;
+                this.data = new LitematicaBitArray(1, SECTION_VOLUME);
+            }
+
+            int localId = this.getOrAddLocalId(globalId);
+            this.data.setAtUnchecked(index, localId);
+        }
+
+        protected int getLocalId(int globalId)
+        {
+            if (this.globalToLocal != null)
+            {
+                return this.globalToLocal.get(globalId);
+            }
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                if (this.localToGlobal[i] == globalId)
+                {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        protected int getOrAddLocalId(int globalId)
+        {
+            int localId = this.getLocalId(globalId);
+
+            if (localId != -1)
+            {
+                return localId;
+            }
+
+            localId = this.localSize++;
+
+            if (localId >= this.localToGlobal.length)
+            {
+                this.localToGlobal = Arrays.copyOf(this.localToGlobal, this.localToGlobal.length * 2);
+            }
+
+            this.localToGlobal[localId] = globalId;
+
+            if (this.globalToLocal != null)
+            {
+                this.globalToLocal.put(globalId, localId);
+            }
+            else if (this.localSize > MAX_LINEAR_PALETTE_SIZE)
+            {
+                this.createReverseMap();
+            }
+
+            if (localId > (1 << this.data.getBitsPerEntry()) - 1)
+            {
+                this.resizeData(this.data.getBitsPerEntry() + 1);
+            }
+
+            return localId;
+        }
+
+        protected void createReverseMap()
+        {
+            this.globalToLocal = new Int2IntOpenHashMap(this.localSize * 2);
+            this.globalToLocal.defaultReturnValue(-1);
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                this.globalToLocal.put(this.localToGlobal[i], i);
+            }
+        }
+
+        protected void resizeData(int bits)
+        {
+            LitematicaBitArray newData = new LitematicaBitArray(bits, SECTION_VOLUME);
+            int[] buffer = new int[SECTION_VOLUME];
+
+            this.data.getRange(0, buffer, 0, SECTION_VOLUME);
+            newData.setRange(0, buffer, 0, SECTION_VOLUME);
+            this.data = newData;
+        }
+
+        protected void addLayerCounts(long[] globalCounts, int y, int maxX, int maxZ)
+        {
+            if (this.data == null)
+            {
+                globalCounts[this.singleId] += (long) maxX * (long) maxZ;
+                return;
+            }
+
+            long[] localCounts = new long[1 << this.data.getBitsPerEntry()];
+
+            for (int z = 0; z < maxZ; ++z)
+            {
+                long start = getIndexInSection(0, y, z);
+                this.data.addValueCounts(start, start + maxX, localCounts);
+            }
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                globalCounts[this.localToGlobal[i]] += localCounts[i];
+            }
+        }
+
+        protected void addCounts(long[] globalCounts, int maxX, int maxY, int maxZ)
+        {
+            if (this.data == null)
+            {
+                globalCounts[this.singleId] += (long) maxX * (long) maxY * (long) maxZ;
+                return;
+            }
+
+            long[] localCounts = new long[1 << this.data.getBitsPerEntry()];
+
+            if (maxX == SECTION_SIZE && maxY == SECTION_SIZE && maxZ == SECTION_SIZE)
+            {
+                this.data.addValueCounts(0, SECTION_VOLUME, localCounts);
+            }
+            else
+            {
+                for (int y = 0; y < maxY; ++y)
+                {
+                    for (int z = 0; z < maxZ; ++z)
+                    {
+                        long start = getIndexInSection(0, y, z);
+                        this.data.addValueCounts(start, start + maxX, localCounts);
+                    }
+                }
+            }
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                globalCounts[this.localToGlobal[i]] += localCounts[i];
+            }
+        }
+
+        protected void compact()
+        {
+            if (this.data == null)
+            {
+                return;
+            }
+
+            long[] localCounts = this.data.getValueCounts();
+            int usedCount = 0;
+            int lastUsed = 0;
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                if (localCounts[i] > 0)
+                {
+                    ++usedCount;
+                    lastUsed = i;
+                }
+            }
+
+            if (usedCount == 1)
+            {
+                this.singleId = this.localToGlobal[lastUsed];
+                this.data = null;
+                this.localToGlobal = new int[0];
+                this.localSize = 0;
+                this.globalToLocal = null;
+                return;
+            }
+
+            if (usedCount == this.localSize)
+            {
+                return;
+            }
+
+            int[] oldToNew = new int[this.localSize];
+            int[] newLocalToGlobal = new int[Math.max(2, usedCount)];
+            int newSize = 0;
+
+            for (int i = 0; i < this.localSize; ++i)
+            {
+                if (localCounts[i] > 0)
+                {
+                    newLocalToGlobal[newSize] = this.localToGlobal[i];
+                    oldToNew[i] = newSize++;
+                }
+            }
+
+            int bits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(newSize - 1));
+            LitematicaBitArray newData = new LitematicaBitArray(bits, SECTION_VOLUME);
+            int[] buffer = new int[SECTION_VOLUME];
+
+            this.data.getRange(0, buffer, 0, SECTION_VOLUME);
+
+            for (int i = 0; i < SECTION_VOLUME; ++i)
+            {
+                buffer[i] = oldToNew[buffer[i]];
+            }
+
+            newData.setRange(0, buffer, 0, SECTION_VOLUME);
+
+            this.data = newData;
+            this.localToGlobal = newLocalToGlobal;
+            this.localSize = newSize;
+            this.globalToLocal = null;
+
+            if (this.localSize > MAX_LINEAR_PALETTE_SIZE)
+            {
+                this.createReverseMap();
+            }
+        }
+
+        public Section copy()
+        {
+            Section copy = new Section(this.singleId);
+
+            if (this.data != null)
+            {
+                copy.data = new LitematicaBitArray(this.data.getBitsPerEntry(), SECTION_VOLUME, this.data.getBackingLongArray().clone());
+                copy.localToGlobal = this.localToGlobal.clone();
+                copy.localSize = this.localSize;
+
+                if (this.globalToLocal != null)
+                {
+                    copy.createReverseMap();
+                }
+            }
+
+            return copy;
+        }
+    }
+}
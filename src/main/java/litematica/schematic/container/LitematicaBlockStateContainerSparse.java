@@ -1,5 +1,6 @@
 package litematica.schematic.container;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import net.minecraft.block.state.IBlockState;
@@ -31,6 +32,7 @@ public class LitematicaBlockStateContainerSparse extends LitematicaBlockStateCon
         long pos = (long) y << 32 | (long) (z & 0xFFFF) << 16 | (long) (x & 0xFFFF);
 
         IBlockState oldState = this.blocks.put(pos, state);
+        this.layerBlockCounts = null;
         int id = this.palette.idFor(state);
 
         if (id >= this.blockCounts.length)
@@ -67,6 +69,31 @@ public class LitematicaBlockStateContainerSparse extends LitematicaBlockStateCon
     {
     }
 
+    @Override
+    protected long[][] calculateLayerBlockCounts()
+    {
+        long[][] layerCounts = new long[this.sizeY][];
+        final int paletteSize = this.palette.getPaletteSize();
+
+        for (int y = 0; y < this.sizeY; ++y)
+        {
+            layerCounts[y] = new long[paletteSize];
+        }
+
+        // Only the set blocks are counted, the same as in the total block counts
+        for (Long2ObjectMap.Entry<IBlockState> entry : this.blocks.long2ObjectEntrySet())
+        {
+            int y = (int) (entry.getLongKey() >> 32);
+
+            if (y >= 0 && y < this.sizeY)
+            {
+                ++layerCounts[y][this.palette.idFor(entry.getValue())];
+            }
+        }
+
+        return layerCounts;
+    }
+
     public Long2ObjectOpenHashMap<IBlockState> getBlockMap()
     {
         return this.blocks;
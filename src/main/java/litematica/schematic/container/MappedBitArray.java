@@ -0,0 +1,235 @@
+package litematica.schematic.container;
+
+import java.io.Closeable;
+import java.io.IOException;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+
+import malilib.util.MathUtils;
+
+/**
+ * A variant of {@link LitematicaBitArray} which stores the packed entries in a
+ * {@link MappedLongArray} instead of a heap long array. The bit layout is identical
+ * to LitematicaBitArray, so the long words can be copied between the two as-is.
+ */
+public class MappedBitArray implements Closeable
+{
+    protected final MappedLongArray longArray;
+    protected final int bitsPerEntry;
+    protected final long maxEntryValue;
+    protected final long arraySize;
+
+    public MappedBitArray(int bitsPerEntry, long arraySize) throws IOException
+    {
+        this(bitsPerEntry, arraySize, null);
+    }
+
+    public MappedBitArray(int bitsPerEntry, long arraySize, @Nullable MappedLongArray longArray) throws IOException
+    {
+        Validate.inclusiveBetween(1L, 32L, (long) bitsPerEntry);
+        this.arraySize = arraySize;
+        this.bitsPerEntry = bitsPerEntry;
+        this.maxEntryValue = (1L << bitsPerEntry) - 1L;
+
+        long requiredLength = getRequiredLongArrayLength(bitsPerEntry, arraySize);
+
+        if (longArray != null)
+        {
+            if (longArray.length() < requiredLength)
+            {
+                throw new IllegalArgumentException("Mapped array length " + longArray.length() + " is less than the required length " + requiredLength);
+            }
+
+            this.longArray = longArray;
+        }
+        else
+        {
+            this.longArray = new MappedLongArray(requiredLength);
+        }
+    }
+
+    public static long getRequiredLongArrayLength(int bitsPerEntry, long arraySize)
+    {
+        return MathUtils.roundUp(arraySize * (long) bitsPerEntry, 64L) / 64L;
+    }
+
+    public void setAt(long index, int value)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize - 1L, index);
+        Validate.inclusiveBetween(0L, this.maxEntryValue, (long) value);
+        this.setAtUnchecked(index, value);
+    }
+
+    public int getAt(long index)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize - 1L, index);
+        return this.getAtUnchecked(index);
+    }
+
+    public void setAtUnchecked(long index, int value)
+    {
+        long startOffset = index * (long) this.bitsPerEntry;
+        long startArrIndex = startOffset >> 6;
+        int startBitOffset = (int) (startOffset & 0x3F);
+        long maskedValue = (long) value & this.maxEntryValue;
+        long word = this.longArray.get(startArrIndex);
+        this.longArray.set(startArrIndex, word & ~(this.maxEntryValue << startBitOffset) | maskedValue << startBitOffset);
+
+        int endOffset = 64 - startBitOffset;
+
+        if (endOffset < this.bitsPerEntry)
+        {
+            long endArrIndex = startArrIndex + 1;
+            int j1 = this.bitsPerEntry - endOffset;
+            this.longArray.set(endArrIndex, this.longArray.get(endArrIndex) >>> j1 << j1 | maskedValue >> endOffset);
+        }
+    }
+
+    public int getAtUnchecked(long index)
+    {
+        long startOffset = index * (long) this.bitsPerEntry;
+        long startArrIndex = startOffset >> 6;
+        int startBitOffset = (int) (startOffset & 0x3F);
+        int endOffset = 64 - startBitOffset;
+
+        if (endOffset >= this.bitsPerEntry)
+        {
+            return (int) (this.longArray.get(startArrIndex) >>> startBitOffset & this.maxEntryValue);
+        }
+        else
+        {
+            return (int) ((this.longArray.get(startArrIndex) >>> startBitOffset | this.longArray.get(startArrIndex + 1) << endOffset) & this.maxEntryValue);
+        }
+    }
+
+    public void getRange(long startIndex, int[] out, int outOffset, int length)
+    {
+        this.validateRange(startIndex, length);
+
+        // The entries never span two longs, so each long only needs to be read once
+        if (64 % this.bitsPerEntry == 0)
+        {
+            final int entriesPerLong = 64 / this.bitsPerEntry;
+            long index = startIndex;
+            int i = 0;
+
+            while (i < length)
+            {
+                int entryInLong = (int) (index % entriesPerLong);
+                int count = Math.min(entriesPerLong - entryInLong, length - i);
+                long word = this.longArray.get(index / entriesPerLong) >>> (entryInLong * this.bitsPerEntry);
+
+                for (int j = 0; j < count; ++j)
+                {
+                    out[outOffset + i + j] = (int) (word & this.maxEntryValue);
+                    word >>>= this.bitsPerEntry;
+                }
+
+                index += count;
+                i += count;
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < length; ++i)
+        {
+            out[outOffset + i] = this.getAtUnchecked(startIndex + i);
+        }
+    }
+
+    public void setRange(long startIndex, int[] in, int inOffset, int length)
+    {
+        this.validateRange(startIndex, length);
+
+        // The entries never span two longs, so the fully covered longs can be written as a whole
+        if (64 % this.bitsPerEntry == 0)
+        {
+            final int entriesPerLong = 64 / this.bitsPerEntry;
+            long index = startIndex;
+            int i = 0;
+
+            while (i < length)
+            {
+                int entryInLong = (int) (index % entriesPerLong);
+                int count = Math.min(entriesPerLong - entryInLong, length - i);
+
+                if (count == entriesPerLong)
+                {
+                    long word = 0L;
+
+                    for (int j = count - 1; j >= 0; --j)
+                    {
+                        word = (word << this.bitsPerEntry) | ((long) in[inOffset + i + j] & this.maxEntryValue);
+                    }
+
+                    this.longArray.set(index / entriesPerLong, word);
+                }
+                else
+                {
+                    for (int j = 0; j < count; ++j)
+                    {
+                        this.setAtUnchecked(index + j, in[inOffset + i + j]);
+                    }
+                }
+
+                index += count;
+                i += count;
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < length; ++i)
+        {
+            this.setAtUnchecked(startIndex + i, in[inOffset + i]);
+        }
+    }
+
+    private void validateRange(long startIndex, int length)
+    {
+        Validate.inclusiveBetween(0L, this.arraySize, startIndex);
+        Validate.inclusiveBetween(0L, this.arraySize - startIndex, (long) length);
+    }
+
+    public long[] getValueCounts()
+    {
+        long[] counts = new long[(int) this.maxEntryValue + 1];
+
+        for (long index = 0; index < this.arraySize; ++index)
+        {
+            ++counts[this.getAtUnchecked(index)];
+        }
+
+        return counts;
+    }
+
+    public int getBitsPerEntry()
+    {
+        return this.bitsPerEntry;
+    }
+
+    public MappedLongArray getBackingMappedArray()
+    {
+        return this.longArray;
+    }
+
+    /**
+     * Copies the packed data into a heap array, for example for writing it to NBT
+     */
+    public long[] getBackingLongArray()
+    {
+        return this.longArray.toLongArray();
+    }
+
+    public long size()
+    {
+        return this.arraySize;
+    }
+
+    @Override
+    public void close()
+    {
+        this.longArray.close();
+    }
+}
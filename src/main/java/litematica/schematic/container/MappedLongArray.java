@@ -0,0 +1,225 @@
+package litematica.schematic.container;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import litematica.Litematica;
+
+/**
+ * A long array that is stored in a memory-mapped temporary file instead of on the heap.
+ * The file is mapped in segments of up to 1 GiB, so the length is not limited to the int range.
+ * The data only takes up page cache memory, which the OS can evict back to the file
+ * as needed, so huge regions don't need a large heap.
+ */
+public class MappedLongArray implements Closeable
+{
+    protected static final int SEGMENT_SHIFT = 27;
+    protected static final long SEGMENT_LENGTH = 1L << SEGMENT_SHIFT;
+    protected static final long SEGMENT_MASK = SEGMENT_LENGTH - 1L;
+
+    /** The files that could not be deleted yet, because their mappings were still alive */
+    private static final Set<Path> PENDING_DELETIONS = new HashSet<>();
+
+    protected final long length;
+    protected final Path file;
+    protected final FileChannel channel;
+    protected final LongBuffer[] segments;
+    protected boolean closed;
+
+    public MappedLongArray(long length) throws IOException
+    {
+        if (length < 0)
+        {
+            throw new IllegalArgumentException("Invalid mapped array length: " + length);
+        }
+
+        retryPendingDeletions();
+
+        this.length = length;
+        this.file = Files.createTempFile("litematica_blocks_", ".tmp");
+        this.file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(this.file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try
+        {
+            int segmentCount = (int) ((length + SEGMENT_LENGTH - 1L) >> SEGMENT_SHIFT);
+            this.segments = new LongBuffer[segmentCount];
+
+            for (int i = 0; i < segmentCount; ++i)
+            {
+                long start = (long) i << SEGMENT_SHIFT;
+                long count = Math.min(SEGMENT_LENGTH, length - start);
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, start * 8L, count * 8L).asLongBuffer();
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            this.channel.close();
+            Files.deleteIfExists(this.file);
+            throw e;
+        }
+    }
+
+    public long length()
+    {
+        return this.length;
+    }
+
+    public long get(long index)
+    {
+        return this.segments[(int) (index >> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    public void set(long index, long value)
+    {
+        this.segments[(int) (index >> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    /**
+     * Copies <b>count</b> values from this array starting from <b>index</b> into the given array
+     */
+    public void get(long index, long[] dst, int dstOffset, int count)
+    {
+        while (count > 0)
+        {
+            LongBuffer segment = this.segments[(int) (index >> SEGMENT_SHIFT)];
+            int segmentIndex = (int) (index & SEGMENT_MASK);
+            int length = Math.min(count, segment.capacity() - segmentIndex);
+
+            for (int i = 0; i < length; ++i)
+            {
+                dst[dstOffset + i] = segment.get(segmentIndex + i);
+            }
+
+            index += length;
+            dstOffset += length;
+            count -= length;
+        }
+    }
+
+    /**
+     * Copies <b>count</b> values from the given array into this array starting from <b>index</b>
+     */
+    public void put(long index, long[] src, int srcOffset, int count)
+    {
+        while (count > 0)
+        {
+            LongBuffer segment = this.segments[(int) (index >> SEGMENT_SHIFT)];
+            int segmentIndex = (int) (index & SEGMENT_MASK);
+            int length = Math.min(count, segment.capacity() - segmentIndex);
+
+            for (int i = 0; i < length; ++i)
+            {
+                segment.put(segmentIndex + i, src[srcOffset + i]);
+            }
+
+            index += length;
+            srcOffset += length;
+            count -= length;
+        }
+    }
+
+    /**
+     * Copies the contents of this array into a new heap array.
+     * @throws IndexOutOfBoundsException if the length exceeds the maximum array length
+     */
+    public long[] toLongArray()
+    {
+        if (this.length > Integer.MAX_VALUE - 8)
+        {
+            throw new IndexOutOfBoundsException("Mapped array length " + this.length + " exceeds the maximum heap array length");
+        }
+
+        long[] arr = new long[(int) this.length];
+        this.get(0L, arr, 0, arr.length);
+
+        return arr;
+    }
+
+    /**
+     * Creates a new mapped array with a copy of the contents of this array
+     */
+    public MappedLongArray copy() throws IOException
+    {
+        MappedLongArray copy = new MappedLongArray(this.length);
+        long[] buffer = new long[(int) Math.min(this.length, 8192L)];
+
+        for (long index = 0; index < this.length; index += buffer.length)
+        {
+            int count = (int) Math.min(buffer.length, this.length - index);
+            this.get(index, buffer, 0, count);
+            copy.put(index, buffer, 0, count);
+        }
+
+        return copy;
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.closed == false)
+        {
+            this.closed = true;
+
+            try
+            {
+                this.channel.close();
+            }
+            catch (IOException e)
+            {
+                Litematica.logger.warn("Failed to close the temporary block storage file '{}'", this.file, e);
+            }
+
+            // The mappings themselves are only released once the buffers get garbage collected,
+            // and on some systems the file can't be deleted while it's still mapped
+            if (tryDelete(this.file) == false)
+            {
+                synchronized (PENDING_DELETIONS)
+                {
+                    PENDING_DELETIONS.add(this.file);
+                }
+            }
+
+            retryPendingDeletions();
+        }
+    }
+
+    /**
+     * Tries to delete the files that could not be deleted when their arrays were closed.
+     * Any files that still can't be deleted get deleted on exit at the latest.
+     */
+    public static void retryPendingDeletions()
+    {
+        synchronized (PENDING_DELETIONS)
+        {
+            for (Iterator<Path> it = PENDING_DELETIONS.iterator(); it.hasNext(); )
+            {
+                if (tryDelete(it.next()))
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static boolean tryDelete(Path file)
+    {
+        try
+        {
+            Files.deleteIfExists(file);
+            return true;
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package litematica.schematic.container;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Counts the values in a LitematicaBitArray using the fork-join pool.
+ * The index range is split into ranges that start at multiples of 64 entries,
+ * which means that every range also starts at a long word boundary in the backing array.
+ * Each range is counted into its own histogram, which are then merged.
+ * Optionally the counter can also build a histogram per Y-layer, in which case
+ * the ranges are split at the layer boundaries instead.
+ */
+public class ParallelBlockCounter
+{
+    /** Volumes smaller than this are not worth splitting up */
+    public static final long PARALLEL_THRESHOLD = 1L << 21;
+    /** The minimum number of entries counted by one leaf task */
+    protected static final long MIN_RANGE_SIZE = 1L << 18;
+    /** How many entries are counted between the cancellation and progress updates */
+    protected static final long PROGRESS_STEP = 1L << 16;
+
+    protected final LitematicaBitArray storage;
+    protected final AtomicLong processedCount = new AtomicLong();
+    protected final int histogramSize;
+    protected final long sourceModificationCount;
+    /** The number of entries in one Y-layer, or 0 if no per-layer histograms are wanted */
+    protected final long layerSize;
+    @Nullable protected final long[][] layerCounts;
+    @Nullable protected ForkJoinTask<long[]> task;
+    protected volatile boolean cancelled;
+
+    public ParallelBlockCounter(LitematicaBitArray storage)
+    {
+        this(storage, 0L);
+    }
+
+    /**
+     * @param sourceModificationCount the modification count of the owning container
+     * at the time of creating the counter, used for detecting stale results
+     */
+    public ParallelBlockCounter(LitematicaBitArray storage, long sourceModificationCount)
+    {
+        this(storage, sourceModificationCount, 0L);
+    }
+
+    /**
+     * @param layerSize the number of entries in one Y-layer of the owning container,
+     * if the per-layer histograms should also be built. The storage must then
+     * be in the Y-major order. 0 to only count the totals.
+     */
+    public ParallelBlockCounter(LitematicaBitArray storage, long sourceModificationCount, long layerSize)
+    {
+        this.storage = storage;
+        this.sourceModificationCount = sourceModificationCount;
+        this.histogramSize = 1 << storage.getBitsPerEntry();
+        this.layerSize = layerSize;
+        this.layerCounts = layerSize > 0 ? new long[(int) (storage.size() / layerSize)][] : null;
+    }
+
+    /**
+     * Starts the counting in the common fork-join pool, without waiting for the result
+     */
+    public void start()
+    {
+        if (this.task == null)
+        {
+            RecursiveTask<long[]> task;
+
+            if (this.layerCounts != null)
+            {
+                task = new CountLayersTask(0, this.layerCounts.length);
+            }
+            else
+            {
+                task = new CountRangeTask(0L, this.storage.size());
+            }
+
+            this.task = ForkJoinPool.commonPool().submit(task);
+        }
+    }
+
+    /**
+     * Counts the values and waits for the result.
+     * @return the value counts, or null if the counting was cancelled
+     */
+    @Nullable
+    public long[] countAndWait()
+    {
+        this.start();
+        long[] counts = this.task.join();
+        return this.cancelled ? null : counts;
+    }
+
+    /**
+     * @return the value counts if the counting has finished, null if it's still running or was cancelled
+     */
+    @Nullable
+    public long[] getResult()
+    {
+        if (this.task == null || this.task.isDone() == false || this.cancelled)
+        {
+            return null;
+        }
+
+        return this.task.join();
+    }
+
+    /**
+     * @return the value counts per Y-layer, if this counter was created to build them
+     * and the counting has finished, otherwise null
+     */
+    @Nullable
+    public long[][] getLayerResult()
+    {
+        return this.layerCounts != null && this.getResult() != null ? this.layerCounts : null;
+    }
+
+    public boolean isDone()
+    {
+        return this.task != null && this.task.isDone();
+    }
+
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    public long getProcessedCount()
+    {
+        return this.processedCount.get();
+    }
+
+    public long getTotalCount()
+    {
+        return this.storage.size();
+    }
+
+    /**
+     * @return the progress in the range 0..1
+     */
+    public double getProgress()
+    {
+        long total = this.storage.size();
+        return total > 0 ? (double) this.processedCount.get() / (double) total : 1.0;
+    }
+
+    protected class CountRangeTask extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final long startIndex;
+        protected final long endIndex;
+
+        protected CountRangeTask(long startIndex, long endIndex)
+        {
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        @Override
+        protected long[] compute()
+        {
+            final long length = this.endIndex - this.startIndex;
+
+            if (length <= MIN_RANGE_SIZE * 2)
+            {
+                return this.countRange();
+            }
+
+            // Align the split point to 64 entries, so that it's also aligned to a long word
+            long middle = (this.startIndex + length / 2) & ~63L;
+            CountRangeTask left = new CountRangeTask(this.startIndex, middle);
+            CountRangeTask right = new CountRangeTask(middle, this.endIndex);
+
+            left.fork();
+            long[] countsRight = right.compute();
+            long[] countsLeft = left.join();
+
+            for (int i = 0; i < countsLeft.length; ++i)
+            {
+                countsLeft[i] += countsRight[i];
+            }
+
+            return countsLeft;
+        }
+
+        protected long[] countRange()
+        {
+            long[] counts = new long[ParallelBlockCounter.this.histogramSize];
+            LitematicaBitArray storage = ParallelBlockCounter.this.storage;
+
+            for (long start = this.startIndex; start < this.endIndex; start += PROGRESS_STEP)
+            {
+                if (ParallelBlockCounter.this.cancelled)
+                {
+                    break;
+                }
+
+                long end = Math.min(start + PROGRESS_STEP, this.endIndex);
+                storage.addValueCounts(start, end, counts);
+                ParallelBlockCounter.this.processedCount.addAndGet(end - start);
+            }
+
+            return counts;
+        }
+    }
+
+    protected class CountLayersTask extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        protected final int startLayer;
+        protected final int endLayer;
+
+        protected CountLayersTask(int startLayer, int endLayer)
+        {
+            this.startLayer = startLayer;
+            this.endLayer = endLayer;
+        }
+
+        @Override
+        protected long[] compute()
+        {
+            final int layers = this.endLayer - this.startLayer;
+
+            if (layers <= 1 || layers * ParallelBlockCounter.this.layerSize <= MIN_RANGE_SIZE * 2)
+            {
+                return this.countLayers();
+            }
+
+            int middle = this.startLayer + layers / 2;
+            CountLayersTask left = new CountLayersTask(this.startLayer, middle);
+            CountLayersTask right = new CountLayersTask(middle, this.endLayer);
+
+            left.fork();
+            long[] countsRight = right.compute();
+            long[] countsLeft = left.join();
+
+            for (int i = 0; i < countsLeft.length; ++i)
+            {
+                countsLeft[i] += countsRight[i];
+            }
+
+            return countsLeft;
+        }
+
+        protected long[] countLayers()
+        {
+            long[] counts = new long[ParallelBlockCounter.this.histogramSize];
+            LitematicaBitArray storage = ParallelBlockCounter.this.storage;
+            final long layerSize = ParallelBlockCounter.this.layerSize;
+
+            for (int layer = this.startLayer; layer < this.endLayer; ++layer)
+            {
+                long[] layerCounts = new long[ParallelBlockCounter.this.histogramSize];
+                long layerEnd = (layer + 1) * layerSize;
+
+                for (long start = layer * layerSize; start < layerEnd; start += PROGRESS_STEP)
+                {
+                    if (ParallelBlockCounter.this.cancelled)
+                    {
+                        return counts;
+                    }
+
+                    long end = Math.min(start + PROGRESS_STEP, layerEnd);
+                    storage.addValueCounts(start, end, layerCounts);
+                    ParallelBlockCounter.this.processedCount.addAndGet(end - start);
+                }
+
+                int maxId = layerCounts.length - 1;
+
+                // Only keep the used part of the histogram, as the storage bits can allow for many more IDs
+                while (maxId >= 0 && layerCounts[maxId] == 0)
+                {
+                    --maxId;
+                }
+
+                for (int id = 0; id <= maxId; ++id)
+                {
+                    counts[id] += layerCounts[id];
+                }
+
+                // Each layer is only ever written by one task, and the join() makes them visible
+                ParallelBlockCounter.this.layerCounts[layer] = Arrays.copyOf(layerCounts, maxId + 1);
+            }
+
+            return counts;
+        }
+    }
+}
@@ -42,6 +42,11 @@ public class GridPlacementManager
         this.basePlacements.clear();
     }
 
+    public boolean hasGridPlacements()
+    {
+        return this.gridPlacementsPerPlacement.isEmpty() == false;
+    }
+
     public List<SchematicPlacement> getGridPlacementsForBasePlacement(SchematicPlacement basePlacement)
     {
         List<SchematicPlacement> gridPlacements = new ArrayList<>();
@@ -223,6 +223,27 @@ public class SchematicPlacement extends BasePlacement
         return this.isSchematicLoaded();
     }
 
+    /**
+     * @return true if the schematic of this placement should be loaded,
+     * that is if the placement is enabled and the schematic isn't loaded yet
+     */
+    protected boolean shouldLoadSchematic()
+    {
+        return this.enabled && this.schematic == null && this.schematicFile != null;
+    }
+
+    /**
+     * Sets the schematic that was loaded separately for this placement,
+     * or disables the placement if the schematic failed to load
+     */
+    protected void onSchematicLoaded(@Nullable ISchematic schematic)
+    {
+        if (this.setSchematic(schematic) == false)
+        {
+            this.enabled = false;
+        }
+    }
+
     protected void loadSchematicFromFileIfEnabled()
     {
         if (this.enabled &&
@@ -961,6 +982,16 @@ public class SchematicPlacement extends BasePlacement
 
     @Nullable
     public static SchematicPlacement createFromJson(JsonObject obj)
+    {
+        return createFromJson(obj, true);
+    }
+
+    /**
+     * @param loadSchematic if false, then the schematic is not loaded here,
+     *                      and the caller is responsible for loading it
+     */
+    @Nullable
+    public static SchematicPlacement createFromJson(JsonObject obj, boolean loadSchematic)
     {
         if (JsonUtils.hasString(obj, "schematic"))
         {
@@ -981,7 +1012,10 @@ public class SchematicPlacement extends BasePlacement
                 placement.setBoundingBoxColorToNext();
             }
 
-            placement.loadSchematicFromFileIfEnabled();
+            if (loadSchematic)
+            {
+                placement.loadSchematicFromFileIfEnabled();
+            }
 
             return placement;
         }
@@ -991,12 +1025,22 @@ public class SchematicPlacement extends BasePlacement
 
     @Nullable
     public static SchematicPlacement createFromFile(Path file)
+    {
+        return createFromFile(file, true);
+    }
+
+    /**
+     * @param loadSchematic if false, then the schematic is not loaded here,
+     *                      and the caller is responsible for loading it
+     */
+    @Nullable
+    public static SchematicPlacement createFromFile(Path file, boolean loadSchematic)
     {
         JsonElement el = JsonUtils.parseJsonFile(file);
 
         if (el != null && el.isJsonObject())
         {
-            SchematicPlacement placement = createFromJson(el.getAsJsonObject());
+            SchematicPlacement placement = createFromJson(el.getAsJsonObject(), loadSchematic);
 
             if (placement != null)
             {
@@ -3,6 +3,7 @@ package litematica.schematic.placement;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,7 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
@@ -43,9 +45,12 @@ import litematica.config.Configs;
 import litematica.config.Hotkeys;
 import litematica.data.DataManager;
 import litematica.data.SchematicHolder;
+import litematica.materials.MaterialListUpdateManager;
 import litematica.render.LitematicaRenderer;
 import litematica.render.OverlayRenderer;
 import litematica.render.infohud.StatusInfoRenderer;
+import litematica.scheduler.TaskScheduler;
+import litematica.scheduler.tasks.TaskLoadSchematic;
 import litematica.schematic.ISchematic;
 import litematica.schematic.util.SchematicPlacingUtils;
 import litematica.schematic.verifier.SchematicVerifierManager;
@@ -55,6 +60,7 @@ import litematica.util.RayTraceUtils;
 import litematica.util.RayTraceUtils.RayTraceWrapper;
 import litematica.util.RayTraceUtils.RayTraceWrapper.HitType;
 import litematica.util.value.ReplaceBehavior;
+import litematica.world.ChunkSchematic;
 import litematica.world.WorldSchematic;
 
 public class SchematicPlacementManager
@@ -68,12 +74,17 @@ public class SchematicPlacementManager
     protected final LongSet chunksToRebuild = new LongOpenHashSet();
     protected final LongSet chunksToUnload = new LongOpenHashSet();
     protected final LongSet chunksPreChange = new LongOpenHashSet();
+    /** The bit masks of the changed sub-chunks of the chunks in chunksToRebuild.
+        Chunks without an entry (returning 0) get fully wiped and rebuilt. */
+    protected final Long2IntOpenHashMap sectionsToRebuild = new Long2IntOpenHashMap();
 
     protected final List<EventListener> rebuildListeners = new ArrayList<>();
     protected final GridPlacementManager gridManager;
     protected final Supplier<WorldSchematic> worldSupplier;
 
     @Nullable protected SchematicPlacement selectedPlacement;
+    @Nullable protected SchematicPlacement changingPlacement;
+    @Nullable protected Collection<String> changingRegions;
     protected int tickCounter;
 
     public SchematicPlacementManager(Supplier<WorldSchematic> worldSupplier)
@@ -93,7 +104,9 @@ public class SchematicPlacementManager
         this.chunksPreChange.clear();
         this.chunksToRebuild.clear();
         this.chunksToUnload.clear();
+        this.sectionsToRebuild.clear();
 
+        MaterialListUpdateManager.INSTANCE.clear();
         SchematicHolder.getInstance().clearLoadedSchematics();
     }
 
@@ -145,6 +158,7 @@ public class SchematicPlacementManager
             if (clientWorld == null)
             {
                 this.chunksToRebuild.clear();
+                this.sectionsToRebuild.clear();
                 return true;
             }
 
@@ -160,6 +174,8 @@ public class SchematicPlacementManager
 
                 long chunkPosLong = it.next();
 
+                int sections = this.sectionsToRebuild.remove(chunkPosLong);
+
                 if (this.placementsTouchingChunk.containsKey(chunkPosLong) == false)
                 {
                     it.remove();
@@ -169,6 +185,14 @@ public class SchematicPlacementManager
                 int chunkX = malilib.util.position.PositionUtils.getChunkPosX(chunkPosLong);
                 int chunkZ = malilib.util.position.PositionUtils.getChunkPosZ(chunkPosLong);
 
+                // Only some sub-chunks changed, re-fill just those instead of wiping the entire chunk
+                if (sections != 0 && schematicWorld.getChunkProvider().isChunkGeneratedAt(chunkX, chunkZ))
+                {
+                    this.rebuildSchematicChunkSections(schematicWorld, chunkX, chunkZ, sections, this.placementsTouchingChunk.get(chunkPosLong));
+                    it.remove();
+                    continue;
+                }
+
                 if (Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue() ||
                     clientWorld.getChunkProvider().isChunkGeneratedAt(chunkX, chunkZ))
                 {
@@ -215,6 +239,58 @@ public class SchematicPlacementManager
         return false;
     }
 
+    protected void rebuildSchematicChunkSections(WorldSchematic schematicWorld, int chunkX, int chunkZ,
+                                                 int sections, List<SchematicPlacement> placements)
+    {
+        ChunkSchematic chunk = (ChunkSchematic) schematicWorld.getChunk(chunkX, chunkZ);
+        ChunkPos chunkPos = new ChunkPos(chunkX, chunkZ);
+
+        // The entities don't follow the sub-chunk boundaries, but they are cheap to re-place
+        chunk.removeAllEntities();
+
+        for (SchematicPlacement placement : placements)
+        {
+            if (placement.isEnabled() && placement.isSchematicLoaded())
+            {
+                SchematicPlacingUtils.placeEntitiesToWorldWithinChunk(placement, chunkPos, schematicWorld);
+            }
+        }
+
+        int cy = 0;
+
+        while (cy < 16)
+        {
+            if ((sections & (1 << cy)) == 0)
+            {
+                ++cy;
+                continue;
+            }
+
+            // Handle each run of consecutive changed sub-chunks at once
+            int startCY = cy;
+
+            while (cy < 16 && (sections & (1 << cy)) != 0)
+            {
+                chunk.clearSection(cy);
+                ++cy;
+            }
+
+            int minY = startCY << 4;
+            int maxY = (cy << 4) - 1;
+
+            for (SchematicPlacement placement : placements)
+            {
+                if (placement.isEnabled() && placement.isSchematicLoaded())
+                {
+                    SchematicPlacingUtils.placeBlocksToWorldWithinChunk(placement, chunkPos, schematicWorld, minY, maxY);
+                }
+            }
+
+            schematicWorld.markBlockRangeForRenderUpdate( chunkX << 4      , minY,  chunkZ << 4,
+                                                         (chunkX << 4) + 15, maxY, (chunkZ << 4) + 15);
+        }
+    }
+
     public void onClientChunkUnload(int chunkX, int chunkZ)
     {
         if (Configs.Generic.LOAD_ENTIRE_SCHEMATICS.getBooleanValue() == false)
@@ -224,7 +300,7 @@ public class SchematicPlacementManager
             if (schematicWorld != null)
             {
                 this.unloadSchematicChunk(schematicWorld, chunkX, chunkZ);
-                this.chunksToRebuild.add(ChunkPos.asLong(chunkX, chunkZ));
+                this.markChunkForRebuild(ChunkPos.asLong(chunkX, chunkZ));
             }
         }
     }
@@ -429,6 +505,7 @@ public class SchematicPlacementManager
         if (placement.isValid())
         {
             SchematicVerifierManager.INSTANCE.onPlacementRemoved(placement);
+            MaterialListUpdateManager.INSTANCE.onPlacementRemoved(placement);
         }
 
         placement.invalidate();
@@ -500,6 +577,11 @@ public class SchematicPlacementManager
         }
     }
 
+    public boolean hasGridPlacements()
+    {
+        return this.gridManager.hasGridPlacements();
+    }
+
     public List<SchematicPlacement> getGridPlacementsForBasePlacement(SchematicPlacement basePlacement)
     {
         return this.gridManager.getGridPlacementsForBasePlacement(basePlacement);
@@ -558,16 +640,27 @@ public class SchematicPlacementManager
 
             for (long chunkPosLong : chunks)
             {
-                if (this.hasPlacementInChunk(chunkPosLong, placement) == false)
+                boolean isNewInChunk = this.hasPlacementInChunk(chunkPosLong, placement) == false;
+                int sections = 0;
+
+                if (isNewInChunk)
                 {
                     this.addPlacementToChunk(chunkPosLong, placement);
-                    this.updateTouchedBoxesInChunk(chunkPosLong);
+                    sections = this.updateTouchedBoxesInChunk(chunkPosLong);
                 }
 
-                this.chunksToUnload.remove(chunkPosLong);
+                // A chunk that was going to be unloaded may still contain old blocks in any of its sub-chunks
+                if (this.chunksToUnload.remove(chunkPosLong) || isNewInChunk == false)
+                {
+                    this.markChunkForRebuild(chunkPosLong);
+                }
+                else
+                {
+                    this.markSectionsForRebuild(chunkPosLong, sections);
+                }
             }
 
-            this.markChunksForRebuild(chunks);
+            this.notifyRebuildListeners();
 
             if (updateOverlay)
             {
@@ -585,17 +678,19 @@ public class SchematicPlacementManager
             for (long chunkPosLong : chunks)
             {
                 this.removePlacementFromChunk(chunkPosLong, placement);
-                this.updateTouchedBoxesInChunk(chunkPosLong);
+                int sections = this.updateTouchedBoxesInChunk(chunkPosLong);
 
                 if (this.placementsTouchingChunk.containsKey(chunkPosLong) == false)
                 {
                     this.chunksToUnload.add(chunkPosLong);
                 }
+                else
+                {
+                    this.markSectionsForRebuild(chunkPosLong, sections);
+                }
             }
 
-            chunks.removeAll(this.chunksToUnload);
-
-            this.markChunksForRebuild(chunks);
+            this.notifyRebuildListeners();
         }
     }
 
@@ -605,15 +700,30 @@ public class SchematicPlacementManager
     }
 
     protected void onPrePlacementChange(SchematicPlacement placement)
+    {
+        this.onPrePlacementChange(placement, null);
+    }
+
+    /**
+     * @param changingRegions the sub-regions whose contents may change, or null if the entire placement may change
+     */
+    protected void onPrePlacementChange(SchematicPlacement placement, @Nullable Collection<String> changingRegions)
     {
         this.chunksPreChange.clear();
         this.chunksPreChange.addAll(placement.getTouchedChunks());
+        this.changingPlacement = placement;
+        this.changingRegions = changingRegions;
     }
 
     protected void onPostPlacementChange(SchematicPlacement placement)
     {
         LongSet chunksPost = placement.getTouchedChunks();
-        LongSet toRebuild = new LongOpenHashSet(chunksPost);
+
+        if (this.changingPlacement != placement)
+        {
+            this.changingPlacement = placement;
+            this.changingRegions = null;
+        }
 
         //System.out.printf("chunkPre: %s - chunkPost: %s\n", this.chunksPreChange, chunksPost);
         this.chunksPreChange.removeAll(chunksPost);
@@ -621,7 +731,7 @@ public class SchematicPlacementManager
         for (long chunkPosLong : this.chunksPreChange)
         {
             this.removePlacementFromChunk(chunkPosLong, placement);
-            this.updateTouchedBoxesInChunk(chunkPosLong);
+            int sections = this.updateTouchedBoxesInChunk(chunkPosLong);
             //System.out.printf("removing placement from: %s\n", pos);
 
             if (this.placementsTouchingChunk.containsKey(chunkPosLong) == false)
@@ -632,7 +742,7 @@ public class SchematicPlacementManager
             else
             {
                 //System.out.printf("rebuilding: %s\n", pos);
-                toRebuild.add(chunkPosLong);
+                this.markSectionsForRebuild(chunkPosLong, sections);
             }
         }
 
@@ -643,10 +753,12 @@ public class SchematicPlacementManager
                 this.addPlacementToChunk(chunkPosLong, placement);
             }
 
-            this.updateTouchedBoxesInChunk(chunkPosLong);
+            this.markSectionsForRebuild(chunkPosLong, this.updateTouchedBoxesInChunk(chunkPosLong));
         }
 
-        this.markChunksForRebuild(toRebuild);
+        this.changingPlacement = null;
+        this.changingRegions = null;
+        this.notifyRebuildListeners();
     }
 
     protected void onPlacementModified(SchematicPlacement placement)
@@ -655,6 +767,7 @@ public class SchematicPlacementManager
         this.onPostPlacementChange(placement);
         this.gridManager.updateGridPlacementsFor(placement);
         OverlayRenderer.getInstance().updatePlacementCache();
+        MaterialListUpdateManager.INSTANCE.onPlacementModified(placement);
     }
 
     protected void onPlacementRegionModified(SchematicPlacement placement)
@@ -761,6 +874,7 @@ public class SchematicPlacementManager
     }
 
     protected void modifyPlacementRegion(SchematicPlacement placement,
+                                         @Nullable String regionName,
                                          Consumer<SchematicPlacement> func)
     {
         if (placement.isLocked())
@@ -769,7 +883,7 @@ public class SchematicPlacementManager
             return;
         }
 
-        this.onPrePlacementChange(placement);
+        this.onPrePlacementChange(placement, regionName != null ? Collections.singleton(regionName) : null);
         func.accept(placement);
         placement.resetEnclosingBox();
         this.onPlacementRegionModified(placement);
@@ -790,7 +904,7 @@ public class SchematicPlacementManager
 
         if (subPlacement != null)
         {
-            this.onPrePlacementChange(placement);
+            this.onPrePlacementChange(placement, Collections.singleton(regionName));
             func.accept(subPlacement);
             placement.resetEnclosingBox();
             this.onPlacementRegionModified(placement);
@@ -819,17 +933,24 @@ public class SchematicPlacementManager
 
     public void resetSubRegionToSchematicValues(SchematicPlacement placement, String regionName)
     {
-        this.modifyPlacementRegion(placement, p -> p.resetSubRegionToSchematicValues(regionName));
+        this.modifyPlacementRegion(placement, regionName, p -> p.resetSubRegionToSchematicValues(regionName));
     }
 
     public void moveSubRegionTo(SchematicPlacement placement, String regionName, BlockPos newPos)
     {
-        this.modifyPlacementRegion(placement, p -> p.moveSubRegionTo(regionName, newPos));
+        this.modifyPlacementRegion(placement, regionName, p -> p.moveSubRegionTo(regionName, newPos));
     }
 
     public void setSubRegionsEnabled(SchematicPlacement placement, boolean enabled, Collection<SubRegionPlacement> subRegions)
     {
-        this.onPrePlacementChange(placement);
+        List<String> regionNames = new ArrayList<>();
+
+        for (SubRegionPlacement subRegion : subRegions)
+        {
+            regionNames.add(subRegion.getName());
+        }
+
+        this.onPrePlacementChange(placement, regionNames);
         placement.setSubRegionsEnabledState(enabled, subRegions);
         this.onPlacementRegionModified(placement);
     }
@@ -914,24 +1035,82 @@ public class SchematicPlacementManager
         return success;
     }
 
-    protected void updateTouchedBoxesInChunk(long chunkPosLong)
+    /**
+     * Updates the touched volumes in the sub-chunks of the given chunk
+     * @return a bit mask of the sub-chunks whose contents changed
+     */
+    protected int updateTouchedBoxesInChunk(long chunkPosLong)
     {
         int chunkX = malilib.util.position.PositionUtils.getChunkPosX(chunkPosLong);
         int chunkZ = malilib.util.position.PositionUtils.getChunkPosZ(chunkPosLong);
+        List<List<PlacementPart>> oldParts = new ArrayList<>(16);
 
         for (int y = 0; y < 16; ++y)
         {
             ChunkSectionPos subChunk = new ChunkSectionPos(chunkX, y, chunkZ);
-            this.touchedVolumesInSubChunk.removeAll(subChunk);
+            oldParts.add(this.touchedVolumesInSubChunk.removeAll(subChunk));
         }
 
         List<SchematicPlacement> placements = this.placementsTouchingChunk.get(chunkPosLong);
 
-        if (placements == null)
+        if (placements != null)
         {
-            return;
+            this.addTouchedBoxesInChunk(chunkX, chunkZ, placements);
+        }
+
+        int changedSections = 0;
+
+        for (int y = 0; y < 16; ++y)
+        {
+            List<PlacementPart> newParts = this.touchedVolumesInSubChunk.get(new ChunkSectionPos(chunkX, y, chunkZ));
+
+            if (this.havePartsChanged(oldParts.get(y), newParts))
+            {
+                changedSections |= (1 << y);
+            }
+        }
+
+        return changedSections;
+    }
+
+    protected boolean havePartsChanged(List<PlacementPart> oldParts, List<PlacementPart> newParts)
+    {
+        if (oldParts.size() != newParts.size())
+        {
+            return true;
         }
 
+        for (int i = 0; i < oldParts.size(); ++i)
+        {
+            PlacementPart oldPart = oldParts.get(i);
+            PlacementPart newPart = newParts.get(i);
+
+            if (this.isPartChanging(oldPart) || this.isPartChanging(newPart) ||
+                oldPart.getPlacement() != newPart.getPlacement() ||
+                oldPart.getSubRegionName().equals(newPart.getSubRegionName()) == false ||
+                isSameBox(oldPart.getBox(), newPart.getBox()) == false)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected boolean isPartChanging(PlacementPart part)
+    {
+        return part.getPlacement() == this.changingPlacement &&
+               (this.changingRegions == null || this.changingRegions.contains(part.getSubRegionName()));
+    }
+
+    protected static boolean isSameBox(IntBoundingBox box1, IntBoundingBox box2)
+    {
+        return box1.minX == box2.minX && box1.minY == box2.minY && box1.minZ == box2.minZ &&
+               box1.maxX == box2.maxX && box1.maxY == box2.maxY && box1.maxZ == box2.maxZ;
+    }
+
+    protected void addTouchedBoxesInChunk(int chunkX, int chunkZ, List<SchematicPlacement> placements)
+    {
         for (SchematicPlacement placement : placements)
         {
             if (placement.matchesRequirement(EnabledCondition.ENABLED))
@@ -981,17 +1160,51 @@ public class SchematicPlacementManager
     protected void markChunksForRebuild(LongSet chunks)
     {
         //System.out.printf("rebuilding %d chunks: %s\n", chunks.size(), chunks);
-        this.chunksToRebuild.addAll(chunks);
+        for (long chunkPosLong : chunks)
+        {
+            this.markChunkForRebuild(chunkPosLong);
+        }
+
+        this.notifyRebuildListeners();
+    }
 
+    protected void notifyRebuildListeners()
+    {
         for (EventListener listener : this.rebuildListeners)
         {
             listener.onEvent();
         }
     }
 
+    /**
+     * Marks the entire chunk to be wiped and rebuilt
+     */
     public void markChunkForRebuild(long chunkPosLong)
     {
         this.chunksToRebuild.add(chunkPosLong);
+        this.sectionsToRebuild.remove(chunkPosLong);
+    }
+
+    /**
+     * Marks only the given sub-chunks of the chunk to be re-filled,
+     * unless the entire chunk is already pending a rebuild
+     * @param sections the bit mask of the sub-chunks to rebuild
+     */
+    protected void markSectionsForRebuild(long chunkPosLong, int sections)
+    {
+        if (sections == 0)
+        {
+            return;
+        }
+
+        if (this.chunksToRebuild.add(chunkPosLong))
+        {
+            this.sectionsToRebuild.put(chunkPosLong, sections);
+        }
+        else if (this.sectionsToRebuild.containsKey(chunkPosLong))
+        {
+            this.sectionsToRebuild.put(chunkPosLong, this.sectionsToRebuild.get(chunkPosLong) | sections);
+        }
     }
 
     public boolean changeSelection(World world, Entity cameraEntity, int maxDistance)
@@ -1124,9 +1337,13 @@ public class SchematicPlacementManager
         }
     }
 
+    /**
+     * Loads the placement from the given file. The schematic of the placement is read
+     * on a background thread, and the placement gets added once the schematic has been read.
+     */
     public void loadPlacementFromFile(Path file)
     {
-        SchematicPlacement placement = SchematicPlacement.createFromFile(file);
+        SchematicPlacement placement = SchematicPlacement.createFromFile(file, false);
 
         if (placement == null)
         {
@@ -1141,6 +1358,35 @@ public class SchematicPlacementManager
             return;
         }
 
+        if (placement.shouldLoadSchematic())
+        {
+            TaskLoadSchematic task = new TaskLoadSchematic(placement.getSchematicFile(), schematic -> {
+                if (schematic != null)
+                {
+                    schematic = SchematicHolder.getInstance().getOrAdd(schematic);
+                }
+
+                placement.onSchematicLoaded(schematic);
+                this.commitLoadedPlacement(placement);
+            });
+
+            TaskScheduler.getInstanceClient().scheduleTask(task, 1);
+            return;
+        }
+
+        this.commitLoadedPlacement(placement);
+    }
+
+    protected void commitLoadedPlacement(SchematicPlacement placement)
+    {
+        // The same placement file may have been loaded again while the schematic was being read
+        if (this.checkIsAlreadyLoaded(placement))
+        {
+            MessageDispatcher.error("litematica.error.schematic_placements.load_fail.already_loaded",
+                                    placement.getName());
+            return;
+        }
+
         this.addSchematicPlacement(placement, false, false);
         MessageDispatcher.generic().customHotbar().translate("litematica.message.schematic_placement_loaded", placement.getName());
         this.printRendererDisabledWarningMessages();
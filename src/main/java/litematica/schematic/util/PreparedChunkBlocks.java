@@ -0,0 +1,280 @@
+package litematica.schematic.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+import net.minecraft.block.ITileEntityProvider;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.inventory.IInventory;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.EnumSkyBlock;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import litematica.util.value.ReplaceBehavior;
+
+/**
+ * The already transformed blocks of one chunk, stored as a palette and per-sub-chunk index arrays.
+ * These are prepared on worker threads, and then written directly into the chunk's
+ * block storage arrays on the server thread. The lighting is updated after all the blocks
+ * of the chunk have been written, around the positions where the light value or the light
+ * opacity changed. No neighbor updates are done, same as with the regular direct paste.
+ */
+public class PreparedChunkBlocks
+{
+    protected final ChunkPos chunkPos;
+    protected final List<IBlockState> palette = new ArrayList<>();
+    protected final Reference2IntOpenHashMap<IBlockState> paletteIds = new Reference2IntOpenHashMap<>();
+    /** The palette ids per sub-chunk, indexed by (y << 8) | (z << 4) | x. The id 0 means that the position is not pasted. */
+    protected final char[][] sectionIds = new char[16][];
+    protected final List<PendingBlockEntity> blockEntities = new ArrayList<>();
+
+    public PreparedChunkBlocks(ChunkPos chunkPos)
+    {
+        this.chunkPos = chunkPos;
+        // The id 0 is reserved for the positions that are not pasted
+        this.palette.add(null);
+        this.paletteIds.defaultReturnValue(-1);
+    }
+
+    public ChunkPos getChunkPos()
+    {
+        return this.chunkPos;
+    }
+
+    public void setBlockState(BlockPos pos, IBlockState state)
+    {
+        int y = pos.getY();
+
+        if (y < 0 || y > 255 || (pos.getX() >> 4) != this.chunkPos.x || (pos.getZ() >> 4) != this.chunkPos.z)
+        {
+            return;
+        }
+
+        char[] ids = this.sectionIds[y >> 4];
+
+        if (ids == null)
+        {
+            ids = new char[4096];
+            this.sectionIds[y >> 4] = ids;
+        }
+
+        int id = this.paletteIds.getInt(state);
+
+        if (id < 0)
+        {
+            id = this.palette.size();
+            this.palette.add(state);
+            this.paletteIds.put(state, id);
+        }
+
+        ids[((y & 0xF) << 8) | ((pos.getZ() & 0xF) << 4) | (pos.getX() & 0xF)] = (char) id;
+    }
+
+    public void addBlockEntity(BlockPos pos, IBlockState state, NBTTagCompound nbt, SubRegionChunkTransform transform)
+    {
+        this.blockEntities.add(new PendingBlockEntity(pos.toImmutable(), state, nbt, transform));
+    }
+
+    /**
+     * Writes the prepared blocks into the world. This must be called on the server thread.
+     * @return the number of changed blocks
+     */
+    public int writeToWorld(WorldServer world, ReplaceBehavior replace)
+    {
+        Chunk chunk = world.getChunk(this.chunkPos.x, this.chunkPos.z);
+        ExtendedBlockStorage[] storages = chunk.getBlockStorageArray();
+        // Indexed by (y << 8) | (z << 4) | x, using the world y-coordinate
+        BitSet lightValueChanged = new BitSet(65536);
+        BitSet opacityChanged = new BitSet(65536);
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+        final boolean hasSkyLight = world.provider.hasSkyLight();
+        final int baseX = this.chunkPos.x << 4;
+        final int baseZ = this.chunkPos.z << 4;
+        int changed = 0;
+
+        for (int sectionY = 0; sectionY < 16; ++sectionY)
+        {
+            char[] ids = this.sectionIds[sectionY];
+
+            if (ids == null)
+            {
+                continue;
+            }
+
+            ExtendedBlockStorage storage = storages[sectionY];
+
+            for (int i = 0; i < 4096; ++i)
+            {
+                int id = ids[i];
+
+                if (id == 0)
+                {
+                    continue;
+                }
+
+                int x = i & 0xF;
+                int y = i >> 8;
+                int z = (i >> 4) & 0xF;
+                IBlockState state = this.palette.get(id);
+                IBlockState stateOld = storage != Chunk.NULL_BLOCK_STORAGE ? storage.get(x, y, z) : Blocks.AIR.getDefaultState();
+
+                if (stateOld == state || (replace == ReplaceBehavior.NONE && stateOld.getMaterial() != Material.AIR))
+                {
+                    continue;
+                }
+
+                if (storage == Chunk.NULL_BLOCK_STORAGE)
+                {
+                    storage = new ExtendedBlockStorage(sectionY << 4, hasSkyLight);
+                    storages[sectionY] = storage;
+                }
+
+                posMutable.setPos(baseX + x, (sectionY << 4) + y, baseZ + z);
+
+                if (stateOld.getBlock() instanceof ITileEntityProvider)
+                {
+                    TileEntity te = chunk.getTileEntity(posMutable, Chunk.EnumCreateEntityType.CHECK);
+
+                    if (te instanceof IInventory)
+                    {
+                        ((IInventory) te).clear();
+                    }
+
+                    world.removeTileEntity(posMutable.toImmutable());
+                }
+
+                int index = (((sectionY << 4) + y) << 8) | (z << 4) | x;
+
+                if (state.getLightValue() != stateOld.getLightValue())
+                {
+                    lightValueChanged.set(index);
+                }
+
+                if (state.getLightOpacity() != stateOld.getLightOpacity())
+                {
+                    opacityChanged.set(index);
+                }
+
+                storage.set(x, y, z, state);
+                ++changed;
+            }
+        }
+
+        for (PendingBlockEntity be : this.blockEntities)
+        {
+            if (chunk.getBlockState(be.pos) == be.state)
+            {
+                TileEntity te = world.getTileEntity(be.pos);
+
+                if (te != null)
+                {
+                    SchematicPlacingUtils.loadBlockEntityData(te, be.nbt, be.pos, be.state, be.transform);
+                }
+            }
+        }
+
+        if (changed > 0)
+        {
+            chunk.generateSkylightMap();
+            this.checkLight(world, lightValueChanged, opacityChanged, hasSkyLight);
+            chunk.markDirty();
+        }
+
+        if (changed > 0 || this.blockEntities.isEmpty() == false)
+        {
+            // The blocks were not set via the world, so the clients need to get the entire chunk again
+            PlayerChunkMapEntry entry = world.getPlayerChunkMap().getEntry(this.chunkPos.x, this.chunkPos.z);
+
+            if (entry != null)
+            {
+                entry.sendPacket(new SPacketChunkData(chunk, 65535));
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Re-checks the light at the changed positions, like World#setBlockState does for each block.
+     * The light sources always get checked. Of the positions where only the light opacity changed,
+     * only the ones on the surface of the changed volume get checked, since the light spreads
+     * from those into the rest of the changed volume. The sky light map generation
+     * only handles the straight down sky light per column, so the sky light also needs to be
+     * re-checked where it can spread sideways or get blocked.
+     */
+    protected void checkLight(WorldServer world, BitSet lightValueChanged, BitSet opacityChanged, boolean hasSkyLight)
+    {
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+        final int baseX = this.chunkPos.x << 4;
+        final int baseZ = this.chunkPos.z << 4;
+
+        for (int index = opacityChanged.nextSetBit(0); index >= 0; index = opacityChanged.nextSetBit(index + 1))
+        {
+            if (isOnSurface(opacityChanged, index) == false)
+            {
+                continue;
+            }
+
+            posMutable.setPos(baseX + (index & 0xF), index >> 8, baseZ + ((index >> 4) & 0xF));
+
+            if (hasSkyLight)
+            {
+                world.checkLightFor(EnumSkyBlock.SKY, posMutable);
+            }
+
+            if (lightValueChanged.get(index) == false)
+            {
+                world.checkLightFor(EnumSkyBlock.BLOCK, posMutable);
+            }
+        }
+
+        for (int index = lightValueChanged.nextSetBit(0); index >= 0; index = lightValueChanged.nextSetBit(index + 1))
+        {
+            posMutable.setPos(baseX + (index & 0xF), index >> 8, baseZ + ((index >> 4) & 0xF));
+            world.checkLightFor(EnumSkyBlock.BLOCK, posMutable);
+        }
+    }
+
+    /**
+     * @return true if the given position has a neighbor that is not in the given set,
+     * or that is outside of this chunk
+     */
+    private static boolean isOnSurface(BitSet positions, int index)
+    {
+        int x = index & 0xF;
+        int y = index >> 8;
+        int z = (index >> 4) & 0xF;
+
+        return x == 0 || x == 15 || z == 0 || z == 15 || y == 0 || y == 255 ||
+               positions.get(index - 1) == false || positions.get(index + 1) == false ||
+               positions.get(index - 16) == false || positions.get(index + 16) == false ||
+               positions.get(index - 256) == false || positions.get(index + 256) == false;
+    }
+
+    protected static class PendingBlockEntity
+    {
+        public final BlockPos pos;
+        public final IBlockState state;
+        public final NBTTagCompound nbt;
+        public final SubRegionChunkTransform transform;
+
+        public PendingBlockEntity(BlockPos pos, IBlockState state, NBTTagCompound nbt, SubRegionChunkTransform transform)
+        {
+            this.pos = pos;
+            this.state = state;
+            this.nbt = nbt;
+            this.transform = transform;
+        }
+    }
+}
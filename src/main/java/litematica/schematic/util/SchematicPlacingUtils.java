@@ -30,7 +30,6 @@ import malilib.util.data.EnabledCondition;
 import malilib.util.game.wrap.EntityWrap;
 import malilib.util.game.wrap.GameUtils;
 import malilib.util.nbt.NbtUtils;
-import malilib.util.position.IntBoundingBox;
 import malilib.util.position.LayerRange;
 import litematica.Litematica;
 import litematica.config.Configs;
@@ -45,7 +44,6 @@ import litematica.schematic.container.ILitematicaBlockStateContainer;
 import litematica.schematic.placement.SchematicPlacement;
 import litematica.schematic.placement.SchematicPlacementManager;
 import litematica.schematic.placement.SubRegionPlacement;
-import litematica.selection.CornerDefinedBox;
 import litematica.util.EntityUtils;
 import litematica.util.PositionUtils;
 import litematica.util.WorldUtils;
@@ -112,7 +110,9 @@ public class SchematicPlacingUtils
                 if (GameUtils.isSinglePlayer())
                 {
                     TaskPasteSchematicPerChunkDirect task = new TaskPasteSchematicPerChunkDirect(placements, range, changedBlocksOnly);
-                    TaskScheduler.getInstanceServer().scheduleTask(task, 20);
+                    // The parallel paste limits its own time use per tick
+                    int interval = Configs.Generic.PASTE_DIRECT_PARALLEL.getBooleanValue() ? 1 : 20;
+                    TaskScheduler.getInstanceServer().scheduleTask(task, interval);
                 }
                 else
                 {
@@ -445,82 +445,110 @@ public class SchematicPlacingUtils
         return allSuccess;
     }
 
-    public static boolean placeBlocksWithinChunk(World world, ChunkPos chunkPos, String regionName, ISchematicRegion region,
-                                                 BlockPos origin, SchematicPlacement schematicPlacement, SubRegionPlacement placement, ReplaceBehavior replace, boolean notifyNeighbors)
+    /**
+     * Places only the blocks of the given placement within the given chunk and the given world y-range.
+     * This is used to re-fill just some of the sub-chunks of a chunk.
+     */
+    public static boolean placeBlocksToWorldWithinChunk(SchematicPlacement schematicPlacement, ChunkPos chunkPos, World world, int minY, int maxY)
     {
-        CornerDefinedBox box = schematicPlacement.getSubRegionBox(regionName, EnabledCondition.ENABLED);
-        IntBoundingBox bounds = box != null ? PositionUtils.getBoundsWithinChunkForBox(box, chunkPos.x, chunkPos.z) : null;
-        ILitematicaBlockStateContainer container = region.getBlockStateContainer();
-        Map<BlockPos, NBTTagCompound> blockEntityMap = region.getBlockEntityMap();
+        ISchematic schematic = schematicPlacement.getSchematic();
+        Set<String> regionsTouchingChunk = PositionUtils.getSubRegionNamesTouchingChunk(chunkPos.x, chunkPos.z, schematicPlacement.getSubRegionBoxes(EnabledCondition.ENABLED));
+        BlockPos origin = schematicPlacement.getPosition();
+        boolean allSuccess = true;
 
-        if (bounds == null || container == null || blockEntityMap == null)
+        try
         {
-            return false;
-        }
-
-        BlockPos regionPos = placement.getPosition();
-        Vec3i regionSize = region.getSize();
+            WorldUtils.setShouldPreventBlockUpdates(world, true);
 
-        // These are the untransformed relative positions
-        BlockPos posEndRel = (new BlockPos(PositionUtils.getRelativeEndPositionFromAreaSize(regionSize))).add(regionPos);
-        BlockPos posMinRel = malilib.util.position.PositionUtils.getMinCorner(regionPos, posEndRel);
+            for (String regionName : regionsTouchingChunk)
+            {
+                SubRegionPlacement placement = schematicPlacement.getSubRegion(regionName);
+                ISchematicRegion region = schematic.getSchematicRegion(regionName);
 
-        // The transformed sub-region origin position
-        BlockPos regionPosTransformed = PositionUtils.getTransformedBlockPos(regionPos, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+                if (region == null)
+                {
+                    allSuccess = false;
+                    continue;
+                }
 
-        // The relative offset of the affected region's corners, to the sub-region's origin corner
-        BlockPos boxMinRel = new BlockPos(bounds.minX - origin.getX() - regionPosTransformed.getX(), 0, bounds.minZ - origin.getZ() - regionPosTransformed.getZ());
-        BlockPos boxMaxRel = new BlockPos(bounds.maxX - origin.getX() - regionPosTransformed.getX(), 0, bounds.maxZ - origin.getZ() - regionPosTransformed.getZ());
+                if (placement.isEnabled() &&
+                    placeBlocksWithinChunk(world, chunkPos, regionName, region, origin, schematicPlacement, placement, ReplaceBehavior.ALL, false, minY, maxY) == false)
+                {
+                    allSuccess = false;
+                    Litematica.logger.warn("Invalid/missing schematic data in schematic '{}' for sub-region '{}'", schematic.getMetadata().getName(), regionName);
+                }
+            }
+        }
+        finally
+        {
+            WorldUtils.setShouldPreventBlockUpdates(world, false);
+        }
 
-        // Reverse transform that relative offset, to get the untransformed orientation's offsets
-        boxMinRel = PositionUtils.getReverseTransformedBlockPos(boxMinRel, placement.getMirror(), placement.getRotation());
-        boxMaxRel = PositionUtils.getReverseTransformedBlockPos(boxMaxRel, placement.getMirror(), placement.getRotation());
+        return allSuccess;
+    }
 
-        boxMinRel = PositionUtils.getReverseTransformedBlockPos(boxMinRel, schematicPlacement.getMirror(), schematicPlacement.getRotation());
-        boxMaxRel = PositionUtils.getReverseTransformedBlockPos(boxMaxRel, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+    public static void placeEntitiesToWorldWithinChunk(SchematicPlacement schematicPlacement, ChunkPos chunkPos, World world)
+    {
+        if (schematicPlacement.ignoreEntities())
+        {
+            return;
+        }
 
-        // Get the offset relative to the sub-region's minimum corner, instead of the origin corner (which can be at any corner)
-        boxMinRel = boxMinRel.subtract(posMinRel.subtract(regionPos));
-        boxMaxRel = boxMaxRel.subtract(posMinRel.subtract(regionPos));
+        ISchematic schematic = schematicPlacement.getSchematic();
+        Set<String> regionsTouchingChunk = PositionUtils.getSubRegionNamesTouchingChunk(chunkPos.x, chunkPos.z, schematicPlacement.getSubRegionBoxes(EnabledCondition.ENABLED));
+        BlockPos origin = schematicPlacement.getPosition();
 
-        BlockPos posMin = malilib.util.position.PositionUtils.getMinCorner(boxMinRel, boxMaxRel);
-        BlockPos posMax = malilib.util.position.PositionUtils.getMaxCorner(boxMinRel, boxMaxRel);
+        for (String regionName : regionsTouchingChunk)
+        {
+            SubRegionPlacement placement = schematicPlacement.getSubRegion(regionName);
+            ISchematicRegion region = schematic.getSchematicRegion(regionName);
 
-        final int startX = posMin.getX();
-        final int startZ = posMin.getZ();
-        final int endX = posMax.getX();
-        final int endZ = posMax.getZ();
+            if (region != null && placement.isEnabled() && placement.ignoreEntities() == false)
+            {
+                placeEntitiesToWorldWithinChunk(world, chunkPos, region, origin, schematicPlacement, placement);
+            }
+        }
+    }
 
-        final int startY = 0;
-        final int endY = Math.abs(regionSize.getY()) - 1;
-        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+    public static boolean placeBlocksWithinChunk(World world, ChunkPos chunkPos, String regionName, ISchematicRegion region,
+                                                 BlockPos origin, SchematicPlacement schematicPlacement, SubRegionPlacement placement, ReplaceBehavior replace, boolean notifyNeighbors)
+    {
+        return placeBlocksWithinChunk(world, chunkPos, regionName, region, origin, schematicPlacement, placement,
+                                      replace, notifyNeighbors, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
 
-        //System.out.printf("sx: %d, sy: %d, sz: %d => ex: %d, ey: %d, ez: %d\n", startX, startY, startZ, endX, endY, endZ);
+    /**
+     * @param minY the minimum world y-coordinate to place blocks at
+     * @param maxY the maximum world y-coordinate to place blocks at
+     */
+    public static boolean placeBlocksWithinChunk(World world, ChunkPos chunkPos, String regionName, ISchematicRegion region,
+                                                 BlockPos origin, SchematicPlacement schematicPlacement, SubRegionPlacement placement,
+                                                 ReplaceBehavior replace, boolean notifyNeighbors, int minY, int maxY)
+    {
+        ILitematicaBlockStateContainer container = region.getBlockStateContainer();
+        Map<BlockPos, NBTTagCompound> blockEntityMap = region.getBlockEntityMap();
 
-        if (startX < 0 || startZ < 0 || endX >= container.getSize().getX() || endZ >= container.getSize().getZ())
+        if (container == null || blockEntityMap == null)
         {
-            System.out.printf("DEBUG ============= OUT OF BOUNDS - region: %s, sx: %d, sz: %d, ex: %d, ez: %d - size x: %d z: %d =============\n",
-                    regionName, startX, startZ, endX, endZ, container.getSize().getX(), container.getSize().getZ());
             return false;
         }
 
-        final Rotation rotationCombined = schematicPlacement.getRotation().add(placement.getRotation());
-        final Mirror mirrorMain = schematicPlacement.getMirror();
-        final IBlockState barrier = Blocks.BARRIER.getDefaultState();
-        Mirror mirrorSub = placement.getMirror();
+        SubRegionChunkTransform transform = SubRegionChunkTransform.create(chunkPos, regionName, region.getSize(), container,
+                                                                           origin, schematicPlacement, placement, minY, maxY);
 
-        if (mirrorSub != Mirror.NONE &&
-            (schematicPlacement.getRotation() == Rotation.CLOCKWISE_90 ||
-             schematicPlacement.getRotation() == Rotation.COUNTERCLOCKWISE_90))
+        if (transform == null)
         {
-            mirrorSub = mirrorSub == Mirror.FRONT_BACK ? Mirror.LEFT_RIGHT : Mirror.FRONT_BACK;
+            return false;
         }
 
-        for (int y = startY; y <= endY; ++y)
+        final IBlockState barrier = Blocks.BARRIER.getDefaultState();
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+
+        for (int y = transform.startY; y <= transform.endY; ++y)
         {
-            for (int z = startZ; z <= endZ; ++z)
+            for (int z = transform.startZ; z <= transform.endZ; ++z)
             {
-                for (int x = startX; x <= endX; ++x)
+                for (int x = transform.startX; x <= transform.endX; ++x)
                 {
                     IBlockState state = container.getBlockState(x, y, z);
 
@@ -532,12 +560,7 @@ public class SchematicPlacingUtils
                     posMutable.setPos(x, y, z);
                     NBTTagCompound teNBT = blockEntityMap.get(posMutable);
 
-                    posMutable.setPos(  posMinRel.getX() + x - regionPos.getX(),
-                                        posMinRel.getY() + y - regionPos.getY(),
-                                        posMinRel.getZ() + z - regionPos.getZ());
-
-                    BlockPos pos = PositionUtils.getTransformedPlacementPosition(posMutable, schematicPlacement, placement);
-                    pos = pos.add(regionPosTransformed).add(origin);
+                    BlockPos pos = transform.getWorldPosition(x, y, z, posMutable);
 
                     IBlockState stateOld = world.getBlockState(pos).getActualState(world, pos);
 
@@ -547,9 +570,7 @@ public class SchematicPlacingUtils
                         continue;
                     }
 
-                    if (mirrorMain != Mirror.NONE) { state = state.withMirror(mirrorMain); }
-                    if (mirrorSub != Mirror.NONE)  { state = state.withMirror(mirrorSub); }
-                    if (rotationCombined != Rotation.NONE) { state = state.withRotation(rotationCombined); }
+                    state = transform.transformState(state);
 
                     TileEntity te = world.getTileEntity(pos);
 
@@ -569,21 +590,7 @@ public class SchematicPlacingUtils
 
                         if (te != null)
                         {
-                            teNBT = teNBT.copy();
-                            NbtUtils.putVec3i(teNBT, pos);
-
-                            try
-                            {
-                                te.readFromNBT(teNBT);
-
-                                if (mirrorMain != Mirror.NONE) { te.mirror(mirrorMain); }
-                                if (mirrorSub != Mirror.NONE)  { te.mirror(mirrorSub); }
-                                if (rotationCombined != Rotation.NONE) { te.rotate(rotationCombined); }
-                            }
-                            catch (Exception e)
-                            {
-                                Litematica.logger.warn("Failed to load TileEntity data for {} @ {}", state, pos);
-                            }
+                            loadBlockEntityData(te, teNBT, pos, state, transform);
                         }
                     }
                 }
@@ -592,16 +599,13 @@ public class SchematicPlacingUtils
 
         if (notifyNeighbors)
         {
-            for (int y = startY; y <= endY; ++y)
+            for (int y = transform.startY; y <= transform.endY; ++y)
             {
-                for (int z = startZ; z <= endZ; ++z)
+                for (int z = transform.startZ; z <= transform.endZ; ++z)
                 {
-                    for (int x = startX; x <= endX; ++x)
+                    for (int x = transform.startX; x <= transform.endX; ++x)
                     {
-                        posMutable.setPos(  posMinRel.getX() + x - regionPos.getX(),
-                                            posMinRel.getY() + y - regionPos.getY(),
-                                            posMinRel.getZ() + z - regionPos.getZ());
-                        BlockPos pos = PositionUtils.getTransformedPlacementPosition(posMutable, schematicPlacement, placement).add(origin);
+                        BlockPos pos = transform.getRelativeTransformedPosition(x, y, z, posMutable).add(origin);
                         world.notifyNeighborsRespectDebug(pos, world.getBlockState(pos).getBlock(), false);
                     }
                 }
@@ -611,6 +615,110 @@ public class SchematicPlacingUtils
         return true;
     }
 
+    public static void loadBlockEntityData(TileEntity te, NBTTagCompound teNBT, BlockPos pos, IBlockState state, SubRegionChunkTransform transform)
+    {
+        teNBT = teNBT.copy();
+        NbtUtils.putVec3i(teNBT, pos);
+
+        try
+        {
+            te.readFromNBT(teNBT);
+            transform.transformBlockEntity(te);
+        }
+        catch (Exception e)
+        {
+            Litematica.logger.warn("Failed to load TileEntity data for {} @ {}", state, pos);
+        }
+    }
+
+    /**
+     * Collects the blocks of the given placement within the given chunk into the given prepared chunk,
+     * without touching any world. This is used by the parallel direct paste, and it is called from worker threads.
+     */
+    public static boolean prepareBlocksWithinChunk(SchematicPlacement schematicPlacement, ChunkPos chunkPos,
+                                                   ReplaceBehavior replace, PreparedChunkBlocks target)
+    {
+        ISchematic schematic = schematicPlacement.getSchematic();
+        Set<String> regionsTouchingChunk = PositionUtils.getSubRegionNamesTouchingChunk(chunkPos.x, chunkPos.z, schematicPlacement.getSubRegionBoxes(EnabledCondition.ENABLED));
+        BlockPos origin = schematicPlacement.getPosition();
+        boolean allSuccess = true;
+
+        for (String regionName : regionsTouchingChunk)
+        {
+            SubRegionPlacement placement = schematicPlacement.getSubRegion(regionName);
+            ISchematicRegion region = schematic.getSchematicRegion(regionName);
+
+            if (region == null)
+            {
+                allSuccess = false;
+                continue;
+            }
+
+            if (placement.isEnabled() &&
+                prepareRegionBlocksWithinChunk(chunkPos, regionName, region, origin, schematicPlacement, placement, replace, target) == false)
+            {
+                allSuccess = false;
+                Litematica.logger.warn("Invalid/missing schematic data in schematic '{}' for sub-region '{}'", schematic.getMetadata().getName(), regionName);
+            }
+        }
+
+        return allSuccess;
+    }
+
+    private static boolean prepareRegionBlocksWithinChunk(ChunkPos chunkPos, String regionName, ISchematicRegion region,
+                                                          BlockPos origin, SchematicPlacement schematicPlacement, SubRegionPlacement placement,
+                                                          ReplaceBehavior replace, PreparedChunkBlocks target)
+    {
+        ILitematicaBlockStateContainer container = region.getBlockStateContainer();
+        Map<BlockPos, NBTTagCompound> blockEntityMap = region.getBlockEntityMap();
+
+        if (container == null || blockEntityMap == null)
+        {
+            return false;
+        }
+
+        SubRegionChunkTransform transform = SubRegionChunkTransform.create(chunkPos, regionName, region.getSize(), container, origin,
+                                                                           schematicPlacement, placement, 0, 255);
+
+        if (transform == null)
+        {
+            return false;
+        }
+
+        BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos();
+
+        for (int y = transform.startY; y <= transform.endY; ++y)
+        {
+            for (int z = transform.startZ; z <= transform.endZ; ++z)
+            {
+                for (int x = transform.startX; x <= transform.endX; ++x)
+                {
+                    IBlockState state = container.getBlockState(x, y, z);
+
+                    if (state.getBlock() == Blocks.STRUCTURE_VOID ||
+                        (replace == ReplaceBehavior.WITH_NON_AIR && state.getMaterial() == Material.AIR))
+                    {
+                        continue;
+                    }
+
+                    posMutable.setPos(x, y, z);
+                    NBTTagCompound teNBT = blockEntityMap.get(posMutable);
+                    BlockPos pos = transform.getWorldPosition(x, y, z, posMutable);
+                    state = transform.transformState(state);
+
+                    target.setBlockState(pos, state);
+
+                    if (teNBT != null)
+                    {
+                        target.addBlockEntity(pos, state, teNBT, transform);
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
     public static void placeEntitiesToWorldWithinChunk(World world, ChunkPos chunkPos, ISchematicRegion region,
                                                        BlockPos origin, SchematicPlacement schematicPlacement, SubRegionPlacement placement)
     {
@@ -0,0 +1,88 @@
+package litematica.schematic.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import malilib.overlay.message.MessageDispatcher;
+
+/**
+ * Reports the error and warning messages from reading schematics.
+ * When the schematic is read on a background thread, the messages are collected instead,
+ * so that they can be shown later from the client thread, or discarded if the reading was cancelled.
+ */
+public class SchematicReadMessages
+{
+    private static final ThreadLocal<List<Message>> COLLECTED_MESSAGES = new ThreadLocal<>();
+
+    public static void error(String translationKey, Object... args)
+    {
+        add(new Message(true, translationKey, args));
+    }
+
+    public static void warning(String translationKey, Object... args)
+    {
+        add(new Message(false, translationKey, args));
+    }
+
+    /**
+     * Starts collecting the messages on the current thread, instead of showing them right away
+     */
+    public static void startCollecting()
+    {
+        COLLECTED_MESSAGES.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops collecting the messages on the current thread
+     * @return the messages collected since {@link #startCollecting()}
+     */
+    public static List<Message> stopCollecting()
+    {
+        List<Message> messages = COLLECTED_MESSAGES.get();
+        COLLECTED_MESSAGES.remove();
+        return messages != null ? messages : new ArrayList<>();
+    }
+
+    private static void add(Message message)
+    {
+        List<Message> messages = COLLECTED_MESSAGES.get();
+
+        if (messages != null)
+        {
+            messages.add(message);
+        }
+        else
+        {
+            message.dispatch();
+        }
+    }
+
+    public static class Message
+    {
+        protected final boolean isError;
+        protected final String translationKey;
+        protected final Object[] args;
+
+        public Message(boolean isError, String translationKey, Object[] args)
+        {
+            this.isError = isError;
+            this.translationKey = translationKey;
+            this.args = args;
+        }
+
+        /**
+         * Shows the message. This must be called on the client thread.
+         */
+        public void dispatch()
+        {
+            if (this.isError)
+            {
+                MessageDispatcher.error().translate(this.translationKey, this.args);
+            }
+            else
+            {
+                MessageDispatcher.warning().translate(this.translationKey, this.args);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package litematica.schematic.util;
+
+import malilib.util.data.BooleanStorageWithDefault;
+import malilib.util.data.SimpleBooleanStorageWithDefault;
+
+public class SchematicReadSettings
+{
+    public final BooleanStorageWithDefault readBlockEntities        = new SimpleBooleanStorageWithDefault(true);
+    public final BooleanStorageWithDefault readEntities             = new SimpleBooleanStorageWithDefault(true);
+    public final BooleanStorageWithDefault readBlockTicks           = new SimpleBooleanStorageWithDefault(true);
+}
@@ -0,0 +1,176 @@
+package litematica.schematic.util;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3i;
+
+import malilib.util.data.EnabledCondition;
+import malilib.util.position.IntBoundingBox;
+import litematica.schematic.container.ILitematicaBlockStateContainer;
+import litematica.schematic.placement.SchematicPlacement;
+import litematica.schematic.placement.SubRegionPlacement;
+import litematica.selection.CornerDefinedBox;
+import litematica.util.PositionUtils;
+
+/**
+ * The container coordinate range of one sub-region that lands within one chunk,
+ * and the transforms for getting the world positions and the states of the blocks in that range.
+ */
+public class SubRegionChunkTransform
+{
+    public final int startX;
+    public final int startY;
+    public final int startZ;
+    public final int endX;
+    public final int endY;
+    public final int endZ;
+    public final Rotation rotationCombined;
+    public final Mirror mirrorMain;
+    public final Mirror mirrorSub;
+    private final SchematicPlacement schematicPlacement;
+    private final SubRegionPlacement placement;
+    private final BlockPos origin;
+    private final BlockPos regionPos;
+    private final BlockPos posMinRel;
+    private final BlockPos regionPosTransformed;
+
+    private SubRegionChunkTransform(SchematicPlacement schematicPlacement, SubRegionPlacement placement,
+                                    BlockPos origin, BlockPos regionPos, BlockPos posMinRel, BlockPos regionPosTransformed,
+                                    BlockPos posMin, BlockPos posMax, int startY, int endY)
+    {
+        this.schematicPlacement = schematicPlacement;
+        this.placement = placement;
+        this.origin = origin;
+        this.regionPos = regionPos;
+        this.posMinRel = posMinRel;
+        this.regionPosTransformed = regionPosTransformed;
+        this.startX = posMin.getX();
+        this.startY = startY;
+        this.startZ = posMin.getZ();
+        this.endX = posMax.getX();
+        this.endY = endY;
+        this.endZ = posMax.getZ();
+        this.rotationCombined = schematicPlacement.getRotation().add(placement.getRotation());
+        this.mirrorMain = schematicPlacement.getMirror();
+
+        Mirror mirrorSub = placement.getMirror();
+
+        if (mirrorSub != Mirror.NONE &&
+            (schematicPlacement.getRotation() == Rotation.CLOCKWISE_90 ||
+             schematicPlacement.getRotation() == Rotation.COUNTERCLOCKWISE_90))
+        {
+            mirrorSub = mirrorSub == Mirror.FRONT_BACK ? Mirror.LEFT_RIGHT : Mirror.FRONT_BACK;
+        }
+
+        this.mirrorSub = mirrorSub;
+    }
+
+    /**
+     * @return the transformed position of the given container position, relative to the placement origin,
+     * but without the sub-region offset
+     */
+    public BlockPos getRelativeTransformedPosition(int x, int y, int z, BlockPos.MutableBlockPos posMutable)
+    {
+        posMutable.setPos(  this.posMinRel.getX() + x - this.regionPos.getX(),
+                            this.posMinRel.getY() + y - this.regionPos.getY(),
+                            this.posMinRel.getZ() + z - this.regionPos.getZ());
+
+        return PositionUtils.getTransformedPlacementPosition(posMutable, this.schematicPlacement, this.placement);
+    }
+
+    /**
+     * @return the world position of the given container position
+     */
+    public BlockPos getWorldPosition(int x, int y, int z, BlockPos.MutableBlockPos posMutable)
+    {
+        return this.getRelativeTransformedPosition(x, y, z, posMutable).add(this.regionPosTransformed).add(this.origin);
+    }
+
+    public IBlockState transformState(IBlockState state)
+    {
+        if (this.mirrorMain != Mirror.NONE) { state = state.withMirror(this.mirrorMain); }
+        if (this.mirrorSub != Mirror.NONE)  { state = state.withMirror(this.mirrorSub); }
+        if (this.rotationCombined != Rotation.NONE) { state = state.withRotation(this.rotationCombined); }
+
+        return state;
+    }
+
+    public void transformBlockEntity(TileEntity te)
+    {
+        if (this.mirrorMain != Mirror.NONE) { te.mirror(this.mirrorMain); }
+        if (this.mirrorSub != Mirror.NONE)  { te.mirror(this.mirrorSub); }
+        if (this.rotationCombined != Rotation.NONE) { te.rotate(this.rotationCombined); }
+    }
+
+    /**
+     * @param minY the minimum world y-coordinate to place blocks at
+     * @param maxY the maximum world y-coordinate to place blocks at
+     * @return the transform for the part of the sub-region within the given chunk,
+     * or null if the sub-region doesn't touch the chunk or the container is too small
+     */
+    @Nullable
+    public static SubRegionChunkTransform create(ChunkPos chunkPos, String regionName, Vec3i regionSize,
+                                                 ILitematicaBlockStateContainer container, BlockPos origin,
+                                                 SchematicPlacement schematicPlacement, SubRegionPlacement placement,
+                                                 int minY, int maxY)
+    {
+        CornerDefinedBox box = schematicPlacement.getSubRegionBox(regionName, EnabledCondition.ENABLED);
+        IntBoundingBox bounds = box != null ? PositionUtils.getBoundsWithinChunkForBox(box, chunkPos.x, chunkPos.z) : null;
+
+        if (bounds == null)
+        {
+            return null;
+        }
+
+        BlockPos regionPos = placement.getPosition();
+
+        // These are the untransformed relative positions
+        BlockPos posEndRel = (new BlockPos(PositionUtils.getRelativeEndPositionFromAreaSize(regionSize))).add(regionPos);
+        BlockPos posMinRel = malilib.util.position.PositionUtils.getMinCorner(regionPos, posEndRel);
+
+        // The transformed sub-region origin position
+        BlockPos regionPosTransformed = PositionUtils.getTransformedBlockPos(regionPos, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+
+        // The relative offset of the affected region's corners, to the sub-region's origin corner
+        BlockPos boxMinRel = new BlockPos(bounds.minX - origin.getX() - regionPosTransformed.getX(), 0, bounds.minZ - origin.getZ() - regionPosTransformed.getZ());
+        BlockPos boxMaxRel = new BlockPos(bounds.maxX - origin.getX() - regionPosTransformed.getX(), 0, bounds.maxZ - origin.getZ() - regionPosTransformed.getZ());
+
+        // Reverse transform that relative offset, to get the untransformed orientation's offsets
+        boxMinRel = PositionUtils.getReverseTransformedBlockPos(boxMinRel, placement.getMirror(), placement.getRotation());
+        boxMaxRel = PositionUtils.getReverseTransformedBlockPos(boxMaxRel, placement.getMirror(), placement.getRotation());
+
+        boxMinRel = PositionUtils.getReverseTransformedBlockPos(boxMinRel, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+        boxMaxRel = PositionUtils.getReverseTransformedBlockPos(boxMaxRel, schematicPlacement.getMirror(), schematicPlacement.getRotation());
+
+        // Get the offset relative to the sub-region's minimum corner, instead of the origin corner (which can be at any corner)
+        boxMinRel = boxMinRel.subtract(posMinRel.subtract(regionPos));
+        boxMaxRel = boxMaxRel.subtract(posMinRel.subtract(regionPos));
+
+        BlockPos posMin = malilib.util.position.PositionUtils.getMinCorner(boxMinRel, boxMaxRel);
+        BlockPos posMax = malilib.util.position.PositionUtils.getMaxCorner(boxMinRel, boxMaxRel);
+
+        // The placement transforms don't affect the y-coordinate, so the world y-range
+        // can be converted directly to the container's y-range
+        final int offsetY = origin.getY() + regionPosTransformed.getY() + posMinRel.getY() - regionPos.getY();
+        final int startY = (int) Math.max(0L, (long) minY - offsetY);
+        final int endY = (int) Math.min(Math.abs(regionSize.getY()) - 1L, (long) maxY - offsetY);
+
+        //System.out.printf("sx: %d, sy: %d, sz: %d => ex: %d, ey: %d, ez: %d\n", posMin.getX(), startY, posMin.getZ(), posMax.getX(), endY, posMax.getZ());
+
+        if (posMin.getX() < 0 || posMin.getZ() < 0 || posMax.getX() >= container.getSize().getX() || posMax.getZ() >= container.getSize().getZ())
+        {
+            System.out.printf("DEBUG ============= OUT OF BOUNDS - region: %s, sx: %d, sz: %d, ex: %d, ez: %d - size x: %d z: %d =============\n",
+                    regionName, posMin.getX(), posMin.getZ(), posMax.getX(), posMax.getZ(), container.getSize().getX(), container.getSize().getZ());
+            return null;
+        }
+
+        return new SubRegionChunkTransform(schematicPlacement, placement, origin, regionPos, posMinRel, regionPosTransformed,
+                                           posMin, posMax, startY, endY);
+    }
+}
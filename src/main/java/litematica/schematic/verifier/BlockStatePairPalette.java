@@ -0,0 +1,75 @@
+package litematica.schematic.verifier;
+
+import java.util.ArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+import net.minecraft.block.state.IBlockState;
+
+/**
+ * Interns the expected/found state pairs of the Schematic Verifier into int IDs,
+ * so that the per-position results can be stored as plain int arrays.
+ * The lookup is done by state identity, so it doesn't need to allocate
+ * anything for pairs that have already been seen.
+ */
+public class BlockStatePairPalette
+{
+    protected final Reference2ObjectOpenHashMap<IBlockState, Reference2IntOpenHashMap<IBlockState>> idsByExpectedState = new Reference2ObjectOpenHashMap<>();
+    protected final ArrayList<BlockStatePair> pairs = new ArrayList<>();
+    protected IBlockState lastExpectedState;
+    protected IBlockState lastFoundState;
+    protected int lastId = -1;
+
+    public int getId(IBlockState expectedState, IBlockState foundState)
+    {
+        // Runs of the same pair are very common, for example in large correct areas
+        if (expectedState == this.lastExpectedState && foundState == this.lastFoundState)
+        {
+            return this.lastId;
+        }
+
+        Reference2IntOpenHashMap<IBlockState> ids = this.idsByExpectedState.get(expectedState);
+
+        if (ids == null)
+        {
+            ids = new Reference2IntOpenHashMap<>();
+            ids.defaultReturnValue(-1);
+            this.idsByExpectedState.put(expectedState, ids);
+        }
+
+        int id = ids.getInt(foundState);
+
+        if (id == -1)
+        {
+            VerifierResultType type = VerifierResultType.from(expectedState, foundState);
+            id = this.pairs.size();
+            this.pairs.add(new BlockStatePair(type, expectedState, foundState));
+            ids.put(foundState, id);
+        }
+
+        this.lastExpectedState = expectedState;
+        this.lastFoundState = foundState;
+        this.lastId = id;
+
+        return id;
+    }
+
+    public BlockStatePair getPair(int id)
+    {
+        return this.pairs.get(id);
+    }
+
+    public int size()
+    {
+        return this.pairs.size();
+    }
+
+    public void clear()
+    {
+        this.idsByExpectedState.clear();
+        this.pairs.clear();
+        this.lastExpectedState = null;
+        this.lastFoundState = null;
+        this.lastId = -1;
+    }
+}
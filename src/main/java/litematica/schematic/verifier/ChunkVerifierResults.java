@@ -0,0 +1,151 @@
+package litematica.schematic.verifier;
+
+import java.util.Arrays;
+
+/**
+ * The Schematic Verifier results of one chunk, stored in a columnar layout
+ * as the chunk-relative packed positions and the matching state pair IDs
+ * from a {@link BlockStatePairPalette}.
+ * After {@link #finish()} the entries are sorted by the position,
+ * so that the result of a single position can be found with a binary search.
+ */
+public class ChunkVerifierResults
+{
+    protected int[] positions;
+    protected int[] pairIds;
+    protected int size;
+
+    public ChunkVerifierResults(int expectedSize)
+    {
+        int capacity = Math.max(expectedSize, 16);
+        this.positions = new int[capacity];
+        this.pairIds = new int[capacity];
+    }
+
+    public void add(int relPos, int pairId)
+    {
+        if (this.size >= this.positions.length)
+        {
+            int newCapacity = this.positions.length * 2;
+            this.positions = Arrays.copyOf(this.positions, newCapacity);
+            this.pairIds = Arrays.copyOf(this.pairIds, newCapacity);
+        }
+
+        this.positions[this.size] = relPos;
+        this.pairIds[this.size] = pairId;
+        ++this.size;
+    }
+
+    /**
+     * Sorts the entries by position, removes duplicate positions
+     * (from overlapping boxes) and trims the arrays to the used size.
+     */
+    public void finish()
+    {
+        if (this.isSorted() == false)
+        {
+            this.sortByPosition();
+        }
+
+        this.removeDuplicates();
+
+        if (this.positions.length != this.size)
+        {
+            this.positions = Arrays.copyOf(this.positions, this.size);
+            this.pairIds = Arrays.copyOf(this.pairIds, this.size);
+        }
+    }
+
+    protected boolean isSorted()
+    {
+        for (int i = 1; i < this.size; ++i)
+        {
+            if (this.positions[i] < this.positions[i - 1])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    protected void sortByPosition()
+    {
+        // The positions are non-negative, so they sort correctly in the upper half of a long
+        long[] entries = new long[this.size];
+
+        for (int i = 0; i < this.size; ++i)
+        {
+            entries[i] = ((long) this.positions[i] << 32) | (this.pairIds[i] & 0xFFFFFFFFL);
+        }
+
+        Arrays.sort(entries);
+
+        for (int i = 0; i < this.size; ++i)
+        {
+            this.positions[i] = (int) (entries[i] >>> 32);
+            this.pairIds[i] = (int) entries[i];
+        }
+    }
+
+    protected void removeDuplicates()
+    {
+        if (this.size < 2)
+        {
+            return;
+        }
+
+        int newSize = 1;
+
+        for (int i = 1; i < this.size; ++i)
+        {
+            if (this.positions[i] != this.positions[newSize - 1])
+            {
+                this.positions[newSize] = this.positions[i];
+                this.pairIds[newSize] = this.pairIds[i];
+                ++newSize;
+            }
+        }
+
+        this.size = newSize;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public int getPosition(int index)
+    {
+        return this.positions[index];
+    }
+
+    public int getPairId(int index)
+    {
+        return this.pairIds[index];
+    }
+
+    public void setPairId(int index, int pairId)
+    {
+        this.pairIds[index] = pairId;
+    }
+
+    /**
+     * @return the index of the given chunk-relative position, or a negative value if it's not in the results
+     */
+    public int indexOf(int relPos)
+    {
+        return Arrays.binarySearch(this.positions, 0, this.size, relPos);
+    }
+
+    /**
+     * Adds the number of positions per state pair ID, multiplied by the given sign, to the given array
+     */
+    public void addCountsTo(int[] countsPerPairId, int sign)
+    {
+        for (int i = 0; i < this.size; ++i)
+        {
+            countsPerPairId[this.pairIds[i]] += sign;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package litematica.schematic.verifier;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -9,12 +11,14 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import com.google.common.collect.ArrayListMultimap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.client.multiplayer.WorldClient;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
@@ -24,6 +28,7 @@ import malilib.listener.TaskCompletionListener;
 import malilib.util.StringUtils;
 import malilib.util.data.EnabledCondition;
 import malilib.util.data.RunStatus;
+import malilib.util.game.wrap.GameUtils;
 import malilib.util.game.wrap.RegistryUtils;
 import malilib.util.position.IntBoundingBox;
 import malilib.util.position.LayerRange;
@@ -37,6 +42,8 @@ import litematica.selection.SelectionBox;
 import litematica.task.SchematicVerifierTask;
 import litematica.util.PositionUtils;
 import litematica.util.value.BlockInfoListType;
+import litematica.world.SchematicWorldHandler;
+import litematica.world.WorldSchematic;
 
 public class SchematicVerifier implements IInfoHudRenderer
 {
@@ -46,17 +53,21 @@ public class SchematicVerifier implements IInfoHudRenderer
     protected final ArrayListMultimap<ChunkPos, IntBoundingBox> boxesInChunks = ArrayListMultimap.create();
     protected final LongOpenHashSet completedChunks = new LongOpenHashSet();
 
-    protected final Long2ObjectOpenHashMap<Object2ObjectOpenHashMap<BlockStatePair, IntArrayList>> resultsPerChunk = new Long2ObjectOpenHashMap<>();
-    protected final Object2IntOpenHashMap<BlockStatePair> countsPerPair = new Object2IntOpenHashMap<>();
-    protected final Object2IntOpenHashMap<VerifierResultType> countsPerType = new Object2IntOpenHashMap<>();
+    protected final BlockStatePairPalette pairPalette = new BlockStatePairPalette();
+    protected final Long2ObjectOpenHashMap<ChunkVerifierResults> resultsPerChunk = new Long2ObjectOpenHashMap<>();
+    protected final int[] countsPerType = new int[VerifierResultType.values().length];
+    protected int[] countsPerPairId = new int[64];
 
     protected final HashSet<VerifierResultType> selectedTypes = new HashSet<>();
     protected final HashSet<BlockStatePair> selectedPairs = new HashSet<>();
-    protected final HashSet<BlockStatePair> calculatedSelectedPairs = new HashSet<>();
+    protected final BitSet calculatedSelectedPairIds = new BitSet();
     protected final HashSet<BlockStatePair> ignoredPairs = new HashSet<>();
     protected final HashSet<VerifierResultType> visibleCategories = new HashSet<>();
 
-    protected final ArrayList<BlockPairTypePosition> allSelectedPositions = new ArrayList<>();
+    protected final LongArrayList allSelectedPositions = new LongArrayList();
+    protected final IntArrayList allSelectedPairIds = new IntArrayList();
+    /** The index of each position in the allSelectedPositions list, for removing positions in the incremental updates */
+    protected final Long2IntOpenHashMap allSelectedPositionIndices = new Long2IntOpenHashMap();
     protected final ArrayList<BlockPairTypePosition> closestSelectedPositions = new ArrayList<>();
 
     protected final ArrayList<String> infoHudLines = new ArrayList<>();
@@ -68,7 +79,6 @@ public class SchematicVerifier implements IInfoHudRenderer
     @Nullable protected EventListener statusChangeListener;
     @Nullable BlockPos lastSortPosition;
     protected boolean autoRefresh;
-    protected boolean countsDirty;
     protected boolean infoHudEnabled;
     protected boolean selectedClosestPositionsDirty;
     protected boolean selectedPairsDirty;
@@ -188,8 +198,12 @@ public class SchematicVerifier implements IInfoHudRenderer
 
     public int getTotalPositionCountFor(VerifierResultType type)
     {
-        this.updateCountsIfDirty();
-        return this.countsPerType.getInt(type);
+        return this.countsPerType[type.ordinal()];
+    }
+
+    public BlockStatePairPalette getStatePairPalette()
+    {
+        return this.pairPalette;
     }
 
     public void start(TaskCompletionListener completionListener)
@@ -274,7 +288,7 @@ public class SchematicVerifier implements IInfoHudRenderer
     {
         this.selectedPairs.clear();
         this.selectedTypes.clear();
-        this.calculatedSelectedPairs.clear();
+        this.calculatedSelectedPairIds.clear();
         this.selectedPositionsDirty = true;
     }
 
@@ -282,7 +296,7 @@ public class SchematicVerifier implements IInfoHudRenderer
     {
         this.ignoredPairs.add(pair);
 
-        if (this.calculatedSelectedPairs.contains(pair))
+        if (this.calculatedSelectedPairIds.get(this.pairPalette.getId(pair.expectedState, pair.foundState)))
         {
             this.selectedPairsDirty = true;
         }
@@ -333,13 +347,15 @@ public class SchematicVerifier implements IInfoHudRenderer
         int correctBlocks = 0;
         int totalBlocks = 0;
 
-        this.updateCountsIfDirty();
+        final int pairCount = this.pairPalette.size();
 
-        for (BlockStatePair pair : this.countsPerPair.keySet())
+        for (int id = 0; id < pairCount; ++id)
         {
+            BlockStatePair pair = this.pairPalette.getPair(id);
+
             if (pair.expectedState != AIR)
             {
-                int count = this.countsPerPair.getInt(pair);
+                int count = this.countsPerPairId[id];
                 totalBlocks += count;
 
                 if (pair.type == VerifierResultType.CORRECT_STATE)
@@ -378,36 +394,155 @@ public class SchematicVerifier implements IInfoHudRenderer
         }
     }
 
-    public void addBlockResultsFromWorld(ChunkPos chunkPos, Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> results)
+    /**
+     * Re-checks only the given positions, and updates the results, counts
+     * and the selected positions in place, instead of re-checking the entire chunks.
+     * Positions in chunks that haven't been checked yet, or which are not
+     * part of the stored results of the chunk, are ignored.
+     */
+    public void reCheckPositions(LongOpenHashSet positions)
     {
-        long chunkPosLong = ChunkPos.asLong(chunkPos.x, chunkPos.z);
+        WorldSchematic schematicWorld = SchematicWorldHandler.getSchematicWorld();
+        WorldClient clientWorld = GameUtils.getClientWorld();
 
-        this.resultsPerChunk.put(chunkPosLong, results);
+        if (this.autoRefresh == false || this.status == RunStatus.STOPPED ||
+            schematicWorld == null || clientWorld == null)
+        {
+            return;
+        }
 
-        /*
-        Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> old = this.resultsPerChunk.get(chunkPosLong);
+        BlockPos.MutableBlockPos mutablePos = new BlockPos.MutableBlockPos();
+        boolean changed = false;
 
-        if (old != null)
+        for (LongIterator it = positions.iterator(); it.hasNext(); )
+        {
+            BlockPos pos = BlockPos.fromLong(it.nextLong());
+            int x = pos.getX();
+            int y = pos.getY();
+            int z = pos.getZ();
+            int cx = x >> 4;
+            int cz = z >> 4;
+            long chunkPosLong = ChunkPos.asLong(cx, cz);
+
+            // Chunks that are not completed yet will get checked by the task
+            if (this.completedChunks.contains(chunkPosLong) == false ||
+                schematicWorld.getChunkProvider().isChunkGeneratedAt(cx, cz) == false ||
+                clientWorld.getChunkProvider().isChunkGeneratedAt(cx, cz) == false)
+            {
+                continue;
+            }
+
+            mutablePos.setPos(x, y, z);
+            IBlockState clientState = clientWorld.getBlockState(mutablePos).getActualState(clientWorld, mutablePos);
+            IBlockState schematicState = schematicWorld.getBlockState(mutablePos);
+            int pairId = this.pairPalette.getId(schematicState, clientState);
+            int relPos = malilib.util.position.PositionUtils.getPackedChunkRelativePosition(mutablePos);
+            changed |= this.updateResultAt(chunkPosLong, relPos, pairId);
+        }
+
+        if (changed && this.statusChangeListener != null)
+        {
+            this.statusChangeListener.onEvent();
+        }
+    }
+
+    /**
+     * Changes the state pair of the given position, and updates the counts
+     * and the selected positions accordingly.
+     * @return true if the result for the position changed
+     */
+    protected boolean updateResultAt(long chunkPosLong, int relPos, int newPairId)
+    {
+        ChunkVerifierResults results = this.resultsPerChunk.get(chunkPosLong);
+        int index = results != null ? results.indexOf(relPos) : -1;
+
+        if (index < 0 || results.getPairId(index) == newPairId)
+        {
+            return false;
+        }
+
+        int oldPairId = results.getPairId(index);
+        BlockStatePair oldPair = this.pairPalette.getPair(oldPairId);
+        BlockStatePair newPair = this.pairPalette.getPair(newPairId);
+
+        results.setPairId(index, newPairId);
+        this.ensureCountsCapacity();
+        --this.countsPerPairId[oldPairId];
+        ++this.countsPerPairId[newPairId];
+        --this.countsPerType[oldPair.type.ordinal()];
+        ++this.countsPerType[newPair.type.ordinal()];
+
+        if (this.selectedPairsDirty == false && this.isPairSelectedBySettings(newPair))
+        {
+            this.calculatedSelectedPairIds.set(newPairId);
+        }
+
+        if (this.selectedPositionsDirty == false)
         {
-            // Subtract the old counts
-            old.forEach((pair, list) -> {
-                int size = list.size();
-                this.countsPerPair.addTo(pair, -size);
-                this.countsPerType.addTo(pair.type, -size);
-            });
+            long posLong = malilib.util.position.PositionUtils.getPackedAbsolutePosition(chunkPosLong, relPos);
+
+            if (this.calculatedSelectedPairIds.get(oldPairId))
+            {
+                this.removeSelectedPosition(posLong);
+                this.selectedClosestPositionsDirty = true;
+            }
+
+            if (this.calculatedSelectedPairIds.get(newPairId))
+            {
+                this.addSelectedPosition(posLong, newPairId);
+                this.selectedClosestPositionsDirty = true;
+            }
         }
 
+        return true;
+    }
 
-        // Add the new counts
-        results.forEach((pair, list) -> {
-            int size = list.size();
-            this.countsPerPair.addTo(pair, size);
-            this.countsPerType.addTo(pair.type, size);
-        });
-        */
+    protected void addSelectedPosition(long posLong, int pairId)
+    {
+        this.allSelectedPositionIndices.put(posLong, this.allSelectedPositions.size());
+        this.allSelectedPositions.add(posLong);
+        this.allSelectedPairIds.add(pairId);
+    }
+
+    protected void removeSelectedPosition(long posLong)
+    {
+        if (this.allSelectedPositionIndices.containsKey(posLong) == false)
+        {
+            return;
+        }
+
+        int index = this.allSelectedPositionIndices.remove(posLong);
+        int lastIndex = this.allSelectedPositions.size() - 1;
+
+        // The order doesn't matter, so just move the last entry in its place
+        if (index != lastIndex)
+        {
+            long lastPosLong = this.allSelectedPositions.getLong(lastIndex);
+            this.allSelectedPositions.set(index, lastPosLong);
+            this.allSelectedPairIds.set(index, this.allSelectedPairIds.getInt(lastIndex));
+            this.allSelectedPositionIndices.put(lastPosLong, index);
+        }
+
+        this.allSelectedPositions.removeLong(lastIndex);
+        this.allSelectedPairIds.removeInt(lastIndex);
+    }
+
+    public void addBlockResultsFromWorld(ChunkPos chunkPos, ChunkVerifierResults results)
+    {
+        long chunkPosLong = ChunkPos.asLong(chunkPos.x, chunkPos.z);
+        ChunkVerifierResults old = this.resultsPerChunk.put(chunkPosLong, results);
+
+        this.ensureCountsCapacity();
+
+        if (old != null)
+        {
+            old.addCountsTo(this.countsPerPairId, -1);
+        }
+
+        results.addCountsTo(this.countsPerPairId, 1);
+        this.updateTypeCounts();
 
         this.completedChunks.add(chunkPosLong);
-        this.countsDirty = true;
         this.selectedPairsDirty = true;
         this.selectedPositionsDirty = true;
 
@@ -419,14 +554,17 @@ public class SchematicVerifier implements IInfoHudRenderer
 
     public List<BlockStatePairCount> getNonIgnoredBlockPairs()
     {
-        this.updateCountsIfDirty();
         ArrayList<BlockStatePairCount> list = new ArrayList<>();
+        final int pairCount = this.pairPalette.size();
 
-        for (BlockStatePair pair : this.countsPerPair.keySet())
+        for (int id = 0; id < pairCount; ++id)
         {
-            if (this.ignoredPairs.contains(pair) == false)
+            BlockStatePair pair = this.pairPalette.getPair(id);
+            int count = this.countsPerPairId[id];
+
+            if (count > 0 && this.ignoredPairs.contains(pair) == false)
             {
-                list.add(BlockStatePairCount.of(pair, this.countsPerPair.getInt(pair)));
+                list.add(BlockStatePairCount.of(pair, count));
             }
         }
 
@@ -444,16 +582,19 @@ public class SchematicVerifier implements IInfoHudRenderer
         this.boxesInChunks.clear();
         this.completedChunks.clear();
 
+        this.pairPalette.clear();
         this.resultsPerChunk.clear();
-        this.countsPerPair.clear();
-        this.countsPerType.clear();
+        Arrays.fill(this.countsPerPairId, 0);
+        Arrays.fill(this.countsPerType, 0);
 
         this.selectedTypes.clear();
         this.selectedPairs.clear();
-        this.calculatedSelectedPairs.clear();
+        this.calculatedSelectedPairIds.clear();
         this.ignoredPairs.clear();
 
         this.allSelectedPositions.clear();
+        this.allSelectedPairIds.clear();
+        this.allSelectedPositionIndices.clear();
         this.closestSelectedPositions.clear();
 
         this.status = RunStatus.STOPPED;
@@ -498,42 +639,44 @@ public class SchematicVerifier implements IInfoHudRenderer
         }
     }
 
-    protected void updateCountsIfDirty()
+    protected void ensureCountsCapacity()
     {
-        if (this.countsDirty)
+        int size = this.pairPalette.size();
+
+        if (this.countsPerPairId.length < size)
         {
-            this.updateCounts();
+            this.countsPerPairId = Arrays.copyOf(this.countsPerPairId, Math.max(size, this.countsPerPairId.length * 2));
         }
     }
 
-    protected void updateCounts()
+    protected void updateTypeCounts()
     {
-        this.countsPerPair.clear();
-        this.countsPerType.clear();
+        final int pairCount = this.pairPalette.size();
+
+        Arrays.fill(this.countsPerType, 0);
 
-        for (Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> map : this.resultsPerChunk.values())
+        for (int id = 0; id < pairCount; ++id)
         {
-            for (BlockStatePair pair : map.keySet())
-            {
-                int size = map.get(pair).size();
-                this.countsPerPair.addTo(pair, size);
-                this.countsPerType.addTo(pair.type, size);
-            }
+            this.countsPerType[this.pairPalette.getPair(id).type.ordinal()] += this.countsPerPairId[id];
         }
+    }
 
-        this.countsDirty = false;
+    protected boolean isPairSelectedBySettings(BlockStatePair pair)
+    {
+        return this.selectedPairs.contains(pair) || this.selectedTypes.contains(pair.type);
     }
 
     protected void updateSelectedPairs()
     {
-        this.updateCountsIfDirty();
-        this.calculatedSelectedPairs.clear();
+        final int pairCount = this.pairPalette.size();
 
-        for (BlockStatePair pair : this.countsPerPair.keySet())
+        this.calculatedSelectedPairIds.clear();
+
+        for (int id = 0; id < pairCount; ++id)
         {
-            if (this.selectedPairs.contains(pair) || this.selectedTypes.contains(pair.type))
+            if (this.countsPerPairId[id] > 0 && this.isPairSelectedBySettings(this.pairPalette.getPair(id)))
             {
-                this.calculatedSelectedPairs.add(pair);
+                this.calculatedSelectedPairIds.set(id);
             }
         }
 
@@ -545,18 +688,24 @@ public class SchematicVerifier implements IInfoHudRenderer
     {
         this.updateSelectedPairsIfDirty();
         this.allSelectedPositions.clear();
+        this.allSelectedPairIds.clear();
+        this.allSelectedPositionIndices.clear();
 
-        for (long chunkPosLong : this.resultsPerChunk.keySet())
+        if (this.calculatedSelectedPairIds.isEmpty() == false)
         {
-            Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> results = this.resultsPerChunk.get(chunkPosLong);
-
-            for (BlockStatePair pair : results.keySet())
+            for (long chunkPosLong : this.resultsPerChunk.keySet())
             {
-                if (this.calculatedSelectedPairs.contains(pair))
+                ChunkVerifierResults results = this.resultsPerChunk.get(chunkPosLong);
+                final int size = results.size();
+
+                for (int i = 0; i < size; ++i)
                 {
-                    for (int relPos : results.get(pair))
+                    int pairId = results.getPairId(i);
+
+                    if (this.calculatedSelectedPairIds.get(pairId))
                     {
-                        this.allSelectedPositions.add(BlockPairTypePosition.of(pair, chunkPosLong, relPos));
+                        long posLong = malilib.util.position.PositionUtils.getPackedAbsolutePosition(chunkPosLong, results.getPosition(i));
+                        this.addSelectedPosition(posLong, pairId);
                     }
                 }
             }
@@ -588,13 +737,111 @@ public class SchematicVerifier implements IInfoHudRenderer
         this.closestSelectedPositions.clear();
 
         int max = Configs.InfoOverlays.VERIFIER_ERROR_HIGHLIGHT_MAX_POSITIONS.getIntegerValue();
-        int endIndex = Math.min(max, this.allSelectedPositions.size());
-        this.allSelectedPositions.sort(new BlockPairTypePositionComparator(referencePos, true));
-        this.closestSelectedPositions.addAll(this.allSelectedPositions.subList(0, endIndex));
+        int count = Math.min(max, this.allSelectedPositions.size());
+
+        // Only the closest positions get wrapped into objects and sorted
+        for (int index : this.getClosestSelectedIndices(referencePos, count))
+        {
+            BlockStatePair pair = this.pairPalette.getPair(this.allSelectedPairIds.getInt(index));
+            this.closestSelectedPositions.add(new BlockPairTypePosition(pair, this.allSelectedPositions.getLong(index)));
+        }
+
+        this.closestSelectedPositions.sort(new BlockPairTypePositionComparator(referencePos, true));
         this.selectedClosestPositionsDirty = false;
         this.lastSortPosition = referencePos;
     }
 
+    /**
+     * Selects the indices of the <b>count</b> closest selected positions to the reference position,
+     * in no particular order, using a bounded max-heap on the square distance.
+     */
+    protected int[] getClosestSelectedIndices(BlockPos referencePos, int count)
+    {
+        final int total = this.allSelectedPositions.size();
+
+        if (count >= total)
+        {
+            int[] indices = new int[total];
+
+            for (int i = 0; i < total; ++i)
+            {
+                indices[i] = i;
+            }
+
+            return indices;
+        }
+
+        int[] heap = new int[count];
+        long[] heapDistances = new long[count];
+        int heapSize = 0;
+
+        for (int index = 0; index < total && count > 0; ++index)
+        {
+            long dist = getSquareDistance(this.allSelectedPositions.getLong(index), referencePos);
+            int pos;
+
+            if (heapSize < count)
+            {
+                // Sift up from the end
+                pos = heapSize++;
+
+                while (pos > 0 && heapDistances[(pos - 1) >> 1] < dist)
+                {
+                    int parent = (pos - 1) >> 1;
+                    heap[pos] = heap[parent];
+                    heapDistances[pos] = heapDistances[parent];
+                    pos = parent;
+                }
+            }
+            else if (dist < heapDistances[0])
+            {
+                // Replace the currently farthest entry, and sift down
+                pos = 0;
+
+                while (true)
+                {
+                    int child = (pos << 1) + 1;
+
+                    if (child >= heapSize)
+                    {
+                        break;
+                    }
+
+                    if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child])
+                    {
+                        ++child;
+                    }
+
+                    if (heapDistances[child] <= dist)
+                    {
+                        break;
+                    }
+
+                    heap[pos] = heap[child];
+                    heapDistances[pos] = heapDistances[child];
+                    pos = child;
+                }
+            }
+            else
+            {
+                continue;
+            }
+
+            heap[pos] = index;
+            heapDistances[pos] = dist;
+        }
+
+        return heap;
+    }
+
+    protected static long getSquareDistance(long posLong, BlockPos referencePos)
+    {
+        long diffX = malilib.util.position.PositionUtils.unpackX(posLong) - referencePos.getX();
+        long diffY = malilib.util.position.PositionUtils.unpackY(posLong) - referencePos.getY();
+        long diffZ = malilib.util.position.PositionUtils.unpackZ(posLong) - referencePos.getZ();
+        return diffX * diffX + diffY * diffY + diffZ * diffZ;
+    }
+
     protected void updateInfoHudLines()
     {
         int max = Configs.InfoOverlays.INFO_HUD_MAX_LINES.getIntegerValue();
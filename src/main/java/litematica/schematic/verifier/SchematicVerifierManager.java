@@ -3,11 +3,14 @@ package litematica.schematic.verifier;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
+import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
+import litematica.config.Configs;
 import litematica.data.DataManager;
 import litematica.schematic.placement.SchematicPlacement;
 
@@ -19,6 +22,7 @@ public class SchematicVerifierManager
     protected final ArrayList<SchematicVerifier> allVerifiers = new ArrayList<>();
     protected final LongOpenHashSet touchedChunks = new LongOpenHashSet();
     protected final LongOpenHashSet reCheckChunks = new LongOpenHashSet();
+    protected final LongOpenHashSet reCheckPositions = new LongOpenHashSet();
     @Nullable protected SchematicVerifier selectedVerifier;
 
     public List<SchematicVerifier> getActiveVerifiers()
@@ -96,7 +100,28 @@ public class SchematicVerifierManager
 
     public void onBlockChanged(BlockPos pos)
     {
-        this.onChunkChanged(pos.getX() >> 4, pos.getZ() >> 4);
+        if (Configs.Generic.VERIFIER_INCREMENTAL_UPDATES.getBooleanValue() == false)
+        {
+            this.onChunkChanged(pos.getX() >> 4, pos.getZ() >> 4);
+            return;
+        }
+
+        this.addReCheckPosition(pos);
+
+        // The actual state of the adjacent blocks may also depend on the changed block,
+        // for example with fences, stairs or redstone wire
+        for (EnumFacing side : EnumFacing.VALUES)
+        {
+            this.addReCheckPosition(pos.offset(side));
+        }
+    }
+
+    protected void addReCheckPosition(BlockPos pos)
+    {
+        if (this.touchedChunks.contains(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4)))
+        {
+            this.reCheckPositions.add(pos.toLong());
+        }
     }
 
     public void onChunkChanged(int cx, int cz)
@@ -113,13 +138,36 @@ public class SchematicVerifierManager
     {
         if (this.reCheckChunks.isEmpty() == false)
         {
+            // Positions in chunks that are getting fully re-checked don't need to be handled separately
+            if (this.reCheckPositions.isEmpty() == false)
+            {
+                for (LongIterator it = this.reCheckPositions.iterator(); it.hasNext(); )
+                {
+                    BlockPos pos = BlockPos.fromLong(it.nextLong());
+
+                    if (this.reCheckChunks.contains(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4)))
+                    {
+                        it.remove();
+                    }
+                }
+            }
+
             for (SchematicVerifier verifier : this.activeVerifiers)
             {
                 verifier.reCheckChunks(this.reCheckChunks);
             }
         }
 
+        if (this.reCheckPositions.isEmpty() == false)
+        {
+            for (SchematicVerifier verifier : this.activeVerifiers)
+            {
+                verifier.reCheckPositions(this.reCheckPositions);
+            }
+        }
+
         this.reCheckChunks.clear();
+        this.reCheckPositions.clear();
     }
 
     protected void createAndAddVerifier(SchematicPlacement placement)
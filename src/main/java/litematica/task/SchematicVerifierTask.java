@@ -1,8 +1,7 @@
 package litematica.task;
 
+import java.util.List;
 import com.google.common.collect.ArrayListMultimap;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
@@ -14,9 +13,9 @@ import malilib.util.position.IntBoundingBox;
 import malilib.util.position.PositionUtils;
 import litematica.config.Configs;
 import litematica.scheduler.tasks.TaskProcessChunkBase;
-import litematica.schematic.verifier.BlockStatePair;
+import litematica.schematic.verifier.BlockStatePairPalette;
+import litematica.schematic.verifier.ChunkVerifierResults;
 import litematica.schematic.verifier.SchematicVerifier;
-import litematica.schematic.verifier.VerifierResultType;
 import litematica.world.SchematicWorldHandler;
 import litematica.world.WorldSchematic;
 
@@ -80,9 +79,11 @@ public class SchematicVerifierTask extends TaskProcessChunkBase
         BlockPos.MutableBlockPos mutablePos = new BlockPos.MutableBlockPos();
         Chunk schematicChunk = this.schematicWorld.getChunk(pos.x, pos.z);
         Chunk clientChunk = this.worldClient.getChunk(pos.x, pos.z);
-        Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> results = new Object2ObjectOpenHashMap<>();
+        List<IntBoundingBox> boxes = this.getBoxesInChunk(pos);
+        ChunkVerifierResults results = new ChunkVerifierResults(getTotalVolume(boxes));
+        BlockStatePairPalette palette = this.verifier.getStatePairPalette();
 
-        for (IntBoundingBox bb : this.getBoxesInChunk(pos))
+        for (IntBoundingBox bb : boxes)
         {
             final int startX = bb.minX;
             final int startY = bb.minY;
@@ -98,26 +99,38 @@ public class SchematicVerifierTask extends TaskProcessChunkBase
                     for (int x = startX; x <= endX; ++x)
                     {
                         mutablePos.setPos(x, y, z);
-                        this.checkBlock(mutablePos, schematicChunk, clientChunk, results);
+                        this.checkBlock(mutablePos, schematicChunk, clientChunk, palette, results);
                     }
                 }
             }
         }
 
+        results.finish();
         this.verifier.addBlockResultsFromWorld(pos, results);
     }
 
     protected void checkBlock(BlockPos.MutableBlockPos pos,
                               Chunk schematicChunk,
                               Chunk clientChunk,
-                              Object2ObjectOpenHashMap<BlockStatePair, IntArrayList> results)
+                              BlockStatePairPalette palette,
+                              ChunkVerifierResults results)
     {
         IBlockState clientBlock = clientChunk.getBlockState(pos).getActualState(clientChunk.getWorld(), pos);
         IBlockState schematicBlock = schematicChunk.getBlockState(pos);
-        VerifierResultType type = VerifierResultType.from(schematicBlock, clientBlock);
-        BlockStatePair pair = new BlockStatePair(type, schematicBlock, clientBlock);
         int posInt = PositionUtils.getPackedChunkRelativePosition(pos);
 
-        results.computeIfAbsent(pair, (p) -> new IntArrayList()).add(posInt);
+        results.add(posInt, palette.getId(schematicBlock, clientBlock));
+    }
+
+    protected static int getTotalVolume(List<IntBoundingBox> boxes)
+    {
+        int volume = 0;
+
+        for (IntBoundingBox bb : boxes)
+        {
+            volume += (bb.maxX - bb.minX + 1) * (bb.maxY - bb.minY + 1) * (bb.maxZ - bb.minZ + 1);
+        }
+
+        return volume;
     }
 }
@@ -0,0 +1,342 @@
+package litematica.util;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagLongArray;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+
+import malilib.util.data.Constants;
+import malilib.util.game.wrap.NbtWrap;
+
+/**
+ * A sequential reader for the binary NBT format, which allows walking through
+ * the entries of compound tags one at a time, and either skipping their payload,
+ * reading just the primitive arrays, or materializing only the selected sub-trees.
+ * This means that large files don't need to have their whole tag tree in memory at once.
+ */
+public class NbtStreamReader implements Closeable
+{
+    protected static final int MAX_DEPTH = 512;
+
+    protected final DataInputStream input;
+    protected byte[] byteBuffer;
+
+    public NbtStreamReader(InputStream inputStream)
+    {
+        this.input = new DataInputStream(inputStream);
+    }
+
+    /**
+     * Opens the given GZip compressed NBT file for reading
+     */
+    public static NbtStreamReader openCompressedFile(Path file) throws IOException
+    {
+        InputStream is = Files.newInputStream(file);
+
+        try
+        {
+            return new NbtStreamReader(new BufferedInputStream(new GZIPInputStream(is, 65536), 65536));
+        }
+        catch (IOException e)
+        {
+            is.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the type and the name of the root tag.
+     * @return the type of the root tag, which should be {@link Constants.NBT#TAG_COMPOUND}
+     */
+    public int readRootTagType() throws IOException
+    {
+        int type = this.input.readByte();
+
+        if (type != Constants.NBT.TAG_END)
+        {
+            this.input.readUTF();
+        }
+
+        return type;
+    }
+
+    /**
+     * Reads the type of the next entry in the current compound tag.
+     * If the returned type is not {@link Constants.NBT#TAG_END}, then the entry name
+     * must be read next via {@link #readEntryName()}, followed by reading or skipping the payload.
+     */
+    public int readEntryType() throws IOException
+    {
+        return this.input.readByte();
+    }
+
+    public String readEntryName() throws IOException
+    {
+        return this.input.readUTF();
+    }
+
+    public int readInt() throws IOException
+    {
+        return this.input.readInt();
+    }
+
+    /**
+     * Reads a long array payload directly, without wrapping it in a tag
+     */
+    public long[] readLongArray() throws IOException
+    {
+        int length = this.readArrayLength();
+        long[] arr = new long[length];
+        this.readLongs(arr, 0, length);
+        return arr;
+    }
+
+    /**
+     * Reads the length of an array payload. For long arrays the values
+     * can then be read in chunks via {@link #readLongs(long[], int, int)},
+     * for example to avoid having to allocate the full array on the heap.
+     */
+    public int readArrayLength() throws IOException
+    {
+        int length = this.input.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException("Invalid NBT array length: " + length);
+        }
+
+        return length;
+    }
+
+    /**
+     * Reads <b>count</b> long values into the given array, starting from <b>offset</b>
+     */
+    public void readLongs(long[] arr, int offset, int count) throws IOException
+    {
+        byte[] buffer = this.getByteBuffer(count);
+        LongBuffer longBuffer = ByteBuffer.wrap(buffer).order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+        final int end = offset + count;
+
+        // Read in larger chunks, instead of one long at a time through the DataInputStream
+        while (offset < end)
+        {
+            int chunk = Math.min(buffer.length / 8, end - offset);
+            this.input.readFully(buffer, 0, chunk * 8);
+            longBuffer.rewind();
+            longBuffer.get(arr, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    protected byte[] getByteBuffer(int longCount)
+    {
+        int size = (int) Math.max(8L, Math.min((long) longCount * 8L, 65536L));
+
+        if (this.byteBuffer == null || this.byteBuffer.length < size)
+        {
+            this.byteBuffer = new byte[size];
+        }
+
+        return this.byteBuffer;
+    }
+
+    /**
+     * Reads the payload of the given type fully into a tag
+     */
+    public NBTBase readPayload(int type) throws IOException
+    {
+        return this.readPayload(type, 0);
+    }
+
+    /**
+     * Reads the remaining entries of the current compound tag into a new compound tag
+     */
+    public NBTTagCompound readCompoundPayload() throws IOException
+    {
+        return this.readCompoundPayload(0);
+    }
+
+    protected NBTBase readPayload(int type, int depth) throws IOException
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IOException("NBT tag is too deeply nested");
+        }
+
+        switch (type)
+        {
+            case Constants.NBT.TAG_BYTE:        return new NBTTagByte(this.input.readByte());
+            case Constants.NBT.TAG_SHORT:       return new NBTTagShort(this.input.readShort());
+            case Constants.NBT.TAG_INT:         return new NBTTagInt(this.input.readInt());
+            case Constants.NBT.TAG_LONG:        return new NBTTagLong(this.input.readLong());
+            case Constants.NBT.TAG_FLOAT:       return new NBTTagFloat(this.input.readFloat());
+            case Constants.NBT.TAG_DOUBLE:      return new NBTTagDouble(this.input.readDouble());
+            case Constants.NBT.TAG_STRING:      return new NBTTagString(this.input.readUTF());
+            case Constants.NBT.TAG_LONG_ARRAY:  return new NBTTagLongArray(this.readLongArray());
+
+            case Constants.NBT.TAG_BYTE_ARRAY:
+            {
+                byte[] arr = new byte[this.readArrayLength()];
+                this.input.readFully(arr);
+                return new NBTTagByteArray(arr);
+            }
+
+            case Constants.NBT.TAG_INT_ARRAY:
+            {
+                int[] arr = new int[this.readArrayLength()];
+
+                for (int i = 0; i < arr.length; ++i)
+                {
+                    arr[i] = this.input.readInt();
+                }
+
+                return new NBTTagIntArray(arr);
+            }
+
+            case Constants.NBT.TAG_LIST:
+            {
+                int elementType = this.input.readByte();
+                int length = this.readArrayLength();
+                NBTTagList list = new NBTTagList();
+
+                for (int i = 0; i < length; ++i)
+                {
+                    NbtWrap.addTag(list, this.readPayload(elementType, depth + 1));
+                }
+
+                return list;
+            }
+
+            case Constants.NBT.TAG_COMPOUND:
+                return this.readCompoundPayload(depth + 1);
+
+            default:
+                throw new IOException("Invalid NBT tag type: " + type);
+        }
+    }
+
+    protected NBTTagCompound readCompoundPayload(int depth) throws IOException
+    {
+        NBTTagCompound tag = new NBTTagCompound();
+        int type;
+
+        while ((type = this.input.readByte()) != Constants.NBT.TAG_END)
+        {
+            String name = this.input.readUTF();
+            NbtWrap.putTag(tag, name, this.readPayload(type, depth));
+        }
+
+        return tag;
+    }
+
+    /**
+     * Skips over the payload of the given type, without creating any tags
+     */
+    public void skipPayload(int type) throws IOException
+    {
+        this.skipPayload(type, 0);
+    }
+
+    /**
+     * Skips over the remaining entries of the current compound tag
+     */
+    public void skipCompoundPayload() throws IOException
+    {
+        this.skipPayload(Constants.NBT.TAG_COMPOUND, 0);
+    }
+
+    protected void skipPayload(int type, int depth) throws IOException
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IOException("NBT tag is too deeply nested");
+        }
+
+        switch (type)
+        {
+            case Constants.NBT.TAG_BYTE:        this.skipBytes(1); break;
+            case Constants.NBT.TAG_SHORT:       this.skipBytes(2); break;
+            case Constants.NBT.TAG_INT:         this.skipBytes(4); break;
+            case Constants.NBT.TAG_LONG:        this.skipBytes(8); break;
+            case Constants.NBT.TAG_FLOAT:       this.skipBytes(4); break;
+            case Constants.NBT.TAG_DOUBLE:      this.skipBytes(8); break;
+            case Constants.NBT.TAG_STRING:      this.skipBytes(this.input.readUnsignedShort()); break;
+            case Constants.NBT.TAG_BYTE_ARRAY:  this.skipBytes(this.readArrayLength()); break;
+            case Constants.NBT.TAG_INT_ARRAY:   this.skipBytes((long) this.readArrayLength() * 4L); break;
+            case Constants.NBT.TAG_LONG_ARRAY:  this.skipBytes((long) this.readArrayLength() * 8L); break;
+
+            case Constants.NBT.TAG_LIST:
+            {
+                int elementType = this.input.readByte();
+                int length = this.readArrayLength();
+
+                for (int i = 0; i < length; ++i)
+                {
+                    this.skipPayload(elementType, depth + 1);
+                }
+
+                break;
+            }
+
+            case Constants.NBT.TAG_COMPOUND:
+            {
+                int entryType;
+
+                while ((entryType = this.input.readByte()) != Constants.NBT.TAG_END)
+                {
+                    this.skipBytes(this.input.readUnsignedShort());
+                    this.skipPayload(entryType, depth + 1);
+                }
+
+                break;
+            }
+
+            default:
+                throw new IOException("Invalid NBT tag type: " + type);
+        }
+    }
+
+    protected void skipBytes(long count) throws IOException
+    {
+        while (count > 0)
+        {
+            long skipped = this.input.skip(count);
+
+            if (skipped <= 0)
+            {
+                // skip() is allowed to skip less or nothing, so make sure we are not at the end of the stream
+                this.input.readByte();
+                skipped = 1;
+            }
+
+            count -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.input.close();
+    }
+}
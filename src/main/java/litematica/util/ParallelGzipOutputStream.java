@@ -0,0 +1,227 @@
+package litematica.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An output stream that writes a standard single-member GZip stream,
+ * but which compresses the data in blocks in parallel in the common fork-join pool.
+ * Each block is deflated separately and ends at a byte boundary via a sync flush,
+ * which means that the compressed blocks can simply be concatenated.
+ * The last 32 KiB of the previous block is used as the preset dictionary for the next block,
+ * so the compression ratio stays close to the normal single-threaded GZip stream.
+ * The output can be read by any normal GZip reader.
+ */
+public class ParallelGzipOutputStream extends FilterOutputStream
+{
+    protected static final int BLOCK_SIZE = 1 << 20;
+    protected static final int DICTIONARY_SIZE = 1 << 15;
+
+    protected final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    protected final CRC32 crc = new CRC32();
+    protected final int compressionLevel;
+    protected final int maxPendingBlocks;
+    protected byte[] buffer = new byte[BLOCK_SIZE];
+    protected byte[] dictionary;
+    protected int bufferPosition;
+    protected long totalLength;
+    protected boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out) throws IOException
+    {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int compressionLevel) throws IOException
+    {
+        super(out);
+
+        this.compressionLevel = compressionLevel;
+        this.maxPendingBlocks = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+        this.writeHeader();
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        this.buffer[this.bufferPosition++] = (byte) b;
+
+        if (this.bufferPosition >= this.buffer.length)
+        {
+            this.submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        while (len > 0)
+        {
+            int count = Math.min(len, this.buffer.length - this.bufferPosition);
+            System.arraycopy(b, off, this.buffer, this.bufferPosition, count);
+            this.bufferPosition += count;
+            off += count;
+            len -= count;
+
+            if (this.bufferPosition >= this.buffer.length)
+            {
+                this.submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Only flushes the already compressed blocks. The currently buffered
+     * data is not flushed, as that would just result in smaller blocks.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        this.writeCompletedBlocks(false);
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (this.closed)
+        {
+            return;
+        }
+
+        this.closed = true;
+
+        try
+        {
+            this.submitBlock(true);
+            this.writeCompletedBlocks(true);
+            this.writeTrailer();
+            this.out.flush();
+        }
+        finally
+        {
+            this.out.close();
+        }
+    }
+
+    protected void submitBlock(boolean isLast) throws IOException
+    {
+        final byte[] data = this.buffer;
+        final int length = this.bufferPosition;
+        final byte[] dictionary = this.dictionary;
+        final int level = this.compressionLevel;
+
+        this.crc.update(data, 0, length);
+        this.totalLength += length;
+
+        if (length >= DICTIONARY_SIZE)
+        {
+            this.dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+        }
+
+        this.pendingBlocks.add(ForkJoinPool.commonPool().submit(() -> compressBlock(data, length, dictionary, level, isLast)));
+        this.buffer = new byte[BLOCK_SIZE];
+        this.bufferPosition = 0;
+
+        // Limit the number of blocks held in memory at once
+        while (this.pendingBlocks.size() >= this.maxPendingBlocks)
+        {
+            this.writeBlock(this.pendingBlocks.poll());
+        }
+    }
+
+    protected void writeCompletedBlocks(boolean waitForAll) throws IOException
+    {
+        while (this.pendingBlocks.isEmpty() == false && (waitForAll || this.pendingBlocks.peek().isDone()))
+        {
+            this.writeBlock(this.pendingBlocks.poll());
+        }
+    }
+
+    protected void writeBlock(Future<byte[]> block) throws IOException
+    {
+        try
+        {
+            this.out.write(block.get());
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            throw new IOException("Failed to compress a data block", e);
+        }
+    }
+
+    protected void writeHeader() throws IOException
+    {
+        // ID1, ID2, CM = deflate, FLG, MTIME (4 bytes), XFL, OS = unknown
+        this.out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff });
+    }
+
+    protected void writeTrailer() throws IOException
+    {
+        writeIntLE(this.out, (int) this.crc.getValue());
+        writeIntLE(this.out, (int) this.totalLength);
+    }
+
+    protected static byte[] compressBlock(byte[] data, int length, byte[] dictionary, int level, boolean isLast)
+    {
+        Deflater deflater = new Deflater(level, true);
+
+        try
+        {
+            if (dictionary != null)
+            {
+                deflater.setDictionary(dictionary);
+            }
+
+            deflater.setInput(data, 0, length);
+
+            if (isLast)
+            {
+                deflater.finish();
+            }
+
+            byte[] out = new byte[Math.max(length / 2, 4096)];
+            int outLength = 0;
+            int flush = isLast ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+
+            while (true)
+            {
+                if (outLength == out.length)
+                {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+
+                int count = deflater.deflate(out, outLength, out.length - outLength, flush);
+                outLength += count;
+
+                // The sync flush is complete when the deflater didn't fill the whole output buffer
+                if (isLast ? deflater.finished() : (deflater.needsInput() && outLength < out.length))
+                {
+                    break;
+                }
+            }
+
+            return Arrays.copyOf(out, outLength);
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    protected static void writeIntLE(OutputStream out, int value) throws IOException
+    {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 24) & 0xFF);
+    }
+}
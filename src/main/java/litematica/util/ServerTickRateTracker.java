@@ -0,0 +1,75 @@
+package litematica.util;
+
+/**
+ * Estimates the tick rate of the connected server from the world time updates,
+ * which the server sends once every 20 of its own ticks.
+ */
+public class ServerTickRateTracker
+{
+    public static final ServerTickRateTracker INSTANCE = new ServerTickRateTracker();
+
+    /** The weight of each new sample in the smoothed tick rate */
+    protected static final double SMOOTHING = 0.3;
+
+    protected long lastWorldTime = -1L;
+    protected long lastUpdateNanos;
+    protected double tickRate = 20.0;
+    protected int sampleCount;
+
+    public void onTimeUpdate(long totalWorldTime)
+    {
+        long currentTime = System.nanoTime();
+
+        if (this.lastWorldTime >= 0L && totalWorldTime > this.lastWorldTime)
+        {
+            double seconds = (currentTime - this.lastUpdateNanos) / 1.0E9;
+
+            if (seconds > 0.0)
+            {
+                double rate = Math.min((totalWorldTime - this.lastWorldTime) / seconds, 20.0);
+                this.tickRate = this.sampleCount == 0 ? rate : this.tickRate + (rate - this.tickRate) * SMOOTHING;
+                ++this.sampleCount;
+            }
+        }
+
+        this.lastWorldTime = totalWorldTime;
+        this.lastUpdateNanos = currentTime;
+    }
+
+    /**
+     * @return the number of tick rate samples received so far. This can be used to detect new samples.
+     */
+    public int getSampleCount()
+    {
+        return this.sampleCount;
+    }
+
+    /**
+     * @return the estimated server tick rate. If the server has not sent a time update
+     * for longer than a second and a half, the rate is assumed to be at most what it
+     * would be if the next update arrived right now.
+     */
+    public double getTickRate()
+    {
+        if (this.lastWorldTime < 0L)
+        {
+            return 20.0;
+        }
+
+        double secondsSinceUpdate = (System.nanoTime() - this.lastUpdateNanos) / 1.0E9;
+
+        if (secondsSinceUpdate > 1.5)
+        {
+            return Math.min(this.tickRate, 20.0 / secondsSinceUpdate);
+        }
+
+        return this.tickRate;
+    }
+
+    public void reset()
+    {
+        this.lastWorldTime = -1L;
+        this.tickRate = 20.0;
+        this.sampleCount = 0;
+    }
+}
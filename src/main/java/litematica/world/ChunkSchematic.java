@@ -1,10 +1,15 @@
 package litematica.world;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.minecraft.block.Block;
 import net.minecraft.block.ITileEntityProvider;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
 import net.minecraft.init.Blocks;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.ClassInheritanceMultiMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.EnumSkyBlock;
 import net.minecraft.world.World;
@@ -103,6 +108,44 @@ public class ChunkSchematic extends Chunk
         }
     }
 
+    /**
+     * Removes all the blocks and block entities from the given sub-chunk,
+     * so that it can be re-filled from the placements
+     */
+    public void clearSection(int sectionY)
+    {
+        List<BlockPos> tileEntityPositions = new ArrayList<>();
+
+        for (BlockPos pos : this.getTileEntityMap().keySet())
+        {
+            if ((pos.getY() >> 4) == sectionY)
+            {
+                tileEntityPositions.add(pos);
+            }
+        }
+
+        for (BlockPos pos : tileEntityPositions)
+        {
+            this.getWorld().removeTileEntity(pos);
+        }
+
+        this.getBlockStorageArray()[sectionY] = NULL_BLOCK_STORAGE;
+        this.markDirty();
+    }
+
+    public void removeAllEntities()
+    {
+        World world = this.getWorld();
+
+        for (ClassInheritanceMultiMap<Entity> entities : this.getEntityLists())
+        {
+            for (Entity entity : new ArrayList<>(entities))
+            {
+                world.removeEntityDangerously(entity);
+            }
+        }
+    }
+
     @Override
     public int getLightFor(EnumSkyBlock type, BlockPos pos)
     {
@@ -14,6 +14,7 @@ import malilib.util.position.ChunkSectionPos;
 import malilib.util.position.LayerRange;
 import litematica.interfaces.IMixinChunkProviderClient;
 import litematica.render.LitematicaRenderer;
+import litematica.render.schematic.RenderGlobalSchematic;
 
 public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
 {
@@ -136,9 +137,10 @@ public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
 
             if (schematicChunks.containsKey(key) && clientChunks.containsKey(key))
             {
-                RenderGlobal rg = LitematicaRenderer.getInstance().getWorldRenderer();
-                rg.markBlockRangeForRenderUpdate((chunkX << 4) - 1,   0, (chunkZ << 4) - 1,
-                                                 (chunkX << 4) + 1, 255, (chunkZ << 4) + 1);
+                // Only the client world changed, so the schematic block models don't necessarily need to be re-built
+                RenderGlobalSchematic rg = LitematicaRenderer.getInstance().getWorldRenderer();
+                rg.markBlockRangeForOverlayUpdate((chunkX << 4) - 1,   0, (chunkZ << 4) - 1,
+                                                  (chunkX << 4) + 1, 255, (chunkZ << 4) + 1);
             }
         }
     }
@@ -155,8 +157,9 @@ public class SchematicWorldRenderingNotifier implements LayerRangeChangeListener
 
             if (schematicChunks.containsKey(key) && clientChunks.containsKey(key))
             {
-                RenderGlobal rg = LitematicaRenderer.getInstance().getWorldRenderer();
-                rg.markBlockRangeForRenderUpdate(pos.getX() - 1, pos.getY() - 1, pos.getZ() - 1,pos.getX() + 1, pos.getY() + 1, pos.getZ() + 1);
+                // Only the client world changed, so the schematic block models don't necessarily need to be re-built
+                RenderGlobalSchematic rg = LitematicaRenderer.getInstance().getWorldRenderer();
+                rg.markBlockRangeForOverlayUpdate(pos.getX() - 1, pos.getY() - 1, pos.getZ() - 1,pos.getX() + 1, pos.getY() + 1, pos.getZ() + 1);
             }
         }
     }